@@ -89,6 +89,7 @@ package com.sevenbridges.apiclient.client;
  *       api_endpoint = https://api.sbgenomics.com/v2
  *       sevenbridges.client.connection_timeout = 30000
  *       sevenbridges.client.authentication_scheme = AUTH_TOKEN
+ *       sevenbridges.client.http_client = APACHE
  *     </pre>
  *     In other words, every required field, except 'auth_token'.
  *   </li>
@@ -169,6 +170,10 @@ public interface ClientBuilder {
   String CLIENT_AUTH_TOKEN_PROPERTY_NAME = "auth_token";
   String CLIENT_CONNECTION_TIMEOUT_PROPERTY_NAME = "sevenbridges.client.connection_timeout";
   String CLIENT_AUTHENTICATION_SCHEME_PROPERTY_NAME = "sevenbridges.client.authentication_scheme";
+  String CLIENT_HTTP_CLIENT_PROPERTY_NAME = "sevenbridges.client.http_client";
+  String CLIENT_CONCURRENCY_LIMIT_PROPERTY_NAME = "sevenbridges.client.concurrency_limit";
+  String CLIENT_CONCURRENCY_LIMIT_MAXIMUM_PROPERTY_NAME = "sevenbridges.client.concurrency_limit.max";
+  String CLIENT_CONCURRENCY_LIMIT_MAX_WAIT_PROPERTY_NAME = "sevenbridges.client.concurrency_limit.max_wait";
   String CLIENT_PROXY_PORT_PROPERTY_NAME = "sevenbridges.client.proxy.port";
   String CLIENT_PROXY_HOST_PROPERTY_NAME = "sevenbridges.client.proxy.host";
   String CLIENT_PROXY_USERNAME_PROPERTY_NAME = "sevenbridges.client.proxy.username";
@@ -176,6 +181,26 @@ public interface ClientBuilder {
   String CLIENT_MAXIMUM_UPLOAD_PART_RETRY = "sevenbridges.client.upload.max_part_retry";
   String CLIENT_MAXIMUM_PARALLEL_UPLOADS = "sevenbridges.client.upload.max_parallel_uploads";
   String CLIENT_MAXIMUM_PARALLEL_PARTS_PER_UPLOAD = "sevenbridges.client.upload.max_parallel_parts";
+  String CLIENT_MAXIMUM_PARALLEL_PARTS_PER_DOWNLOAD = "sevenbridges.client.download.max_parallel_parts";
+  String CLIENT_UPLOAD_CHECKPOINT_DIRECTORY = "sevenbridges.client.upload.checkpoint_directory";
+  String CLIENT_UPLOAD_LIVENESS_CHECK_INTERVAL = "sevenbridges.client.upload.liveness_check_interval";
+  String CLIENT_MAXIMUM_IN_FLIGHT_PARTS = "sevenbridges.client.upload.max_in_flight_parts";
+  String CLIENT_ADAPTIVE_UPLOADS = "sevenbridges.client.upload.adaptive";
+  String CLIENT_UPLOAD_PREWARM_CONNECTIONS = "sevenbridges.client.upload.prewarm_connections";
+  String CLIENT_TRANSFER_IO_THREADS = "sevenbridges.client.transfer.io_threads";
+  String CLIENT_TRANSFER_MAXIMUM_CONNECTIONS = "sevenbridges.client.transfer.max_connections";
+  String CLIENT_TRANSFER_MAXIMUM_CONNECTIONS_PER_ROUTE = "sevenbridges.client.transfer.max_connections_per_route";
+  String CLIENT_TRANSFER_CONNECT_TIMEOUT = "sevenbridges.client.transfer.connect_timeout";
+  String CLIENT_TRANSFER_SOCKET_TIMEOUT = "sevenbridges.client.transfer.socket_timeout";
+  String CLIENT_TRANSFER_SOCKET_SEND_BUFFER_SIZE = "sevenbridges.client.transfer.socket_send_buffer_size";
+  String CLIENT_TRANSFER_SOCKET_RECEIVE_BUFFER_SIZE = "sevenbridges.client.transfer.socket_receive_buffer_size";
+  String CLIENT_TRANSFER_LISTENER_THREADS = "sevenbridges.client.transfer.listener_threads";
+  String CLIENT_TRANSFER_PROGRESS_UPDATE_INTERVAL = "sevenbridges.client.transfer.progress_update_interval";
+  String CLIENT_MAXIMUM_BANDWIDTH = "sevenbridges.client.transfer.max_bandwidth";
+  String CLIENT_MAXIMUM_TRANSFER_BANDWIDTH = "sevenbridges.client.transfer.max_bandwidth_per_transfer";
+  String CLIENT_UPLOAD_COMPUTE_MD5 = "sevenbridges.client.upload.compute_md5";
+  String CLIENT_UPLOAD_HASHING_THREADS = "sevenbridges.client.upload.hashing_threads";
+  String CLIENT_UPLOAD_HASH_CACHE_FILE = "sevenbridges.client.upload.hash_cache_file";
 
   /**
    * Sets the profile to be used when searching for config in configuration files. This is optional
@@ -258,6 +283,52 @@ public interface ClientBuilder {
   //@formatter:on
   ClientBuilder setAuthenticationScheme(AuthenticationScheme authenticationScheme);
 
+  /**
+   * Sets the HTTP client implementation used for API calls. {@link HttpClientType#JDK} requires
+   * Java 11 and the 'sevenbridges-java-jdkhttp' jar on the runtime classpath; it multiplexes
+   * concurrent API calls over shared HTTP/2 connections.
+   * <p>
+   * Default value is {@link HttpClientType#APACHE}.
+   *
+   * @param httpClientType HTTP client implementation to use
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setHttpClientType(HttpClientType httpClientType);
+
+  /**
+   * Enables an adaptive limit on concurrent blocking API calls. The limit follows the latency of
+   * the API: it grows while latency stays close to the lowest seen, and shrinks when latency rises
+   * or the API refuses calls as overloaded. Calls over the limit wait in line for their turn, so a
+   * large pool of threads does not open a connection per thread and overload the API.
+   * <p>
+   * Default value is false.
+   *
+   * @param concurrencyLimit true to enable the adaptive concurrency limit
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setConcurrencyLimit(boolean concurrencyLimit);
+
+  /**
+   * Sets the highest number of concurrent API calls the adaptive concurrency limit can grow to.
+   * <p>
+   * Default value is 200.
+   *
+   * @param maxConcurrentRequests maximum number of concurrent API calls
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setConcurrencyLimitMaximum(int maxConcurrentRequests);
+
+  /**
+   * Sets the longest time an API call waits for the adaptive concurrency limit. A call that waits
+   * longer fails without being sent.
+   * <p>
+   * Default value is 30s (30_000 ms).
+   *
+   * @param maxWait maximum wait in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setConcurrencyLimitMaxWait(long maxWait);
+
   /**
    * Sets both the timeout until a connection is established and the socket timeout (i.e. a maximum
    * period of inactivity between two consecutive data packets).  A timeout value of zero is
@@ -284,9 +355,11 @@ public interface ClientBuilder {
 
   /**
    * Sets the maximum number of parallel uploads while using internal transfer manager for uploads.
-   * You can submit any number of uploads for uploading on transfer service, but this number limits
-   * the amount of active uploads at any given time. Setting this number optimally depends on the IO
-   * capabilities of your system, but also number and size of files that you want to upload.
+   * You can submit any number of uploads for uploading on transfer service. Uploads do not occupy a
+   * thread while their parts are transferred, so this number sets the amount of threads driving all
+   * uploads, and limits the amount of active downloads at any given time. Setting this number
+   * optimally depends on the IO capabilities of your system, but also number and size of files that
+   * you want to transfer.
    * <p>
    * Default value is 4, and is usually more than enough to saturate output bandwidth of around
    * 100Mb/s. Tweak this number carefully.
@@ -311,6 +384,75 @@ public interface ClientBuilder {
    */
   ClientBuilder setMaximumParallelParts(int maximumParallelParts);
 
+  /**
+   * Sets the maximum number of byte ranges of one file that are downloaded in parallel while using
+   * the internal transfer manager service. Each running download also occupies one of the threads
+   * set by 'maximum parallel uploads' until it completes, as it waits there for its parts. The
+   * maximum number of parallel connections that are downloading data is therefore the multiple of
+   * both numbers.
+   * <p>
+   * Default value is 4.
+   *
+   * @param maximumParallelDownloadParts maximum number of parallel parts per active download
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setMaximumParallelDownloadParts(int maximumParallelDownloadParts);
+
+  /**
+   * Sets the directory where the internal transfer manager keeps a small checkpoint file for every
+   * upload. Each uploaded part is recorded in the checkpoint, so an upload interrupted even by a
+   * crash can be resumed via {@link com.sevenbridges.apiclient.user.UserActions#resumeUpload(String,
+   * java.io.File)} without listing all of its parts on the server.
+   * <p>
+   * Checkpoints are disabled by default.
+   *
+   * @param checkpointDirectory path of the directory to keep upload checkpoints in
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setUploadCheckpointDirectory(String checkpointDirectory);
+
+  /**
+   * Sets the interval, in milliseconds, in which the internal transfer manager checks that active
+   * uploads were not aborted by some external use. All active uploads are checked together, so
+   * this number does not depend on the number of uploads.
+   * <p>
+   * Default value is 30000.
+   *
+   * @param livenessCheckInterval interval between two checks in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setUploadLivenessCheckInterval(long livenessCheckInterval);
+
+  /**
+   * Sets the maximum number of parts that are uploaded in parallel across all uploads of the
+   * internal transfer manager. Parts of all uploads, including the ones submitted in bulk via
+   * {@link com.sevenbridges.apiclient.user.UserActions#submitUploads(java.util.Collection)}, wait
+   * for their turn in one scheduler, so the next files continue as soon as others run out of
+   * parts.
+   * <p>
+   * By default the limit is the multiple of 'maximum parallel uploads' and 'maximum parallel
+   * parts' numbers.
+   *
+   * @param maximumInFlightParts maximum number of parts uploaded at any given time
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setMaximumInFlightParts(int maximumInFlightParts);
+
+  /**
+   * Enables adaptive uploads in the internal transfer manager. Part size of each new upload is
+   * picked from the file size and the rate of recently uploaded parts, unless it is set via {@link
+   * com.sevenbridges.apiclient.upload.CreateUploadRequestBuilder#setPartSize(long)}. The number of
+   * parts uploaded in parallel by each upload starts at 'maximum parallel parts', grows while parts
+   * are uploaded at a healthy rate, and backs off on failed or slow parts, within the limit of
+   * 'maximum in flight parts'.
+   * <p>
+   * Adaptive uploads are disabled by default.
+   *
+   * @param adaptiveUploads true to enable adaptive uploads
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setAdaptiveUploads(boolean adaptiveUploads);
+
 
   /**
    * Constructs a new {@link Client} instance based on the ClientBuilder's current configuration
@@ -319,4 +461,173 @@ public interface ClientBuilder {
    * @return a new {@link Client} instance based on the ClientBuilder's current configuration state.
    */
   Client build();
+
+  /**
+   * Sets how many connections the internal transfer manager opens ahead to a storage host when an
+   * upload sends its first part there, so parallel parts do not wait for connection and TLS
+   * handshakes. Zero disables pre-warming.
+   * <p>
+   * By default the number is the 'maximum parallel parts' number.
+   *
+   * @param prewarmConnections number of connections to open ahead
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setUploadPrewarmConnections(int prewarmConnections);
+
+  /**
+   * Sets the number of IO threads of the async HTTP client the internal transfer manager uses for
+   * file content. Each client has its own transfer client.
+   * <p>
+   * By default the number is the number of available processors.
+   *
+   * @param ioThreads number of IO threads
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferIoThreads(int ioThreads);
+
+  /**
+   * Sets the maximum number of connections the internal transfer manager keeps open.
+   * <p>
+   * Default value is 200.
+   *
+   * @param maximumConnections maximum number of transfer connections
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferMaximumConnections(int maximumConnections);
+
+  /**
+   * Sets the maximum number of connections the internal transfer manager keeps open to one host.
+   * <p>
+   * Default value is 50.
+   *
+   * @param maximumConnectionsPerRoute maximum number of transfer connections to one host
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferMaximumConnectionsPerRoute(int maximumConnectionsPerRoute);
+
+  /**
+   * Sets the timeout, in milliseconds, for opening a transfer connection.
+   * <p>
+   * Default value is 10000.
+   *
+   * @param connectTimeout connect timeout in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferConnectTimeout(int connectTimeout);
+
+  /**
+   * Sets the time, in milliseconds, a transfer connection may stay inactive while a part is
+   * transferred.
+   * <p>
+   * Default value is 10000.
+   *
+   * @param socketTimeout socket timeout in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferSocketTimeout(int socketTimeout);
+
+  /**
+   * Sets the socket send buffer size, in bytes, of transfer connections. Larger buffers help
+   * uploads over links with high bandwidth and latency.
+   * <p>
+   * By default the size is left to the operating system.
+   *
+   * @param sendBufferSize socket send buffer size in bytes
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferSocketSendBufferSize(int sendBufferSize);
+
+  /**
+   * Sets the socket receive buffer size, in bytes, of transfer connections. Larger buffers help
+   * downloads over links with high bandwidth and latency.
+   * <p>
+   * By default the size is left to the operating system.
+   *
+   * @param receiveBufferSize socket receive buffer size in bytes
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferSocketReceiveBufferSize(int receiveBufferSize);
+
+  /**
+   * Sets the number of threads that deliver events to progress listeners of transfers. Listeners
+   * never run on the threads that transfer data, and events of one listener are delivered one at a
+   * time, in order.
+   * <p>
+   * Default value is 1.
+   *
+   * @param listenerThreads number of threads calling progress listeners
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferListenerThreads(int listenerThreads);
+
+  /**
+   * Sets the interval, in milliseconds, in which progress listeners implementing {@link
+   * com.sevenbridges.apiclient.transfer.ProgressSnapshotListener} receive progress snapshots with
+   * the throughput and the estimated time remaining.
+   * <p>
+   * Default value is 1000.
+   *
+   * @param progressUpdateInterval interval between two snapshots in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setTransferProgressUpdateInterval(long progressUpdateInterval);
+
+  /**
+   * Sets the maximum bandwidth, in bytes per second, shared by all uploads and downloads of the
+   * client. The limit can be changed later with {@link com.sevenbridges.apiclient.user.UserActions#setTransferBandwidthLimit(long)}.
+   * <p>
+   * Default value is 0, bandwidth is not limited.
+   *
+   * @param maxBandwidth maximum number of bytes transferred per second
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setMaxBandwidth(long maxBandwidth);
+
+  /**
+   * Sets the maximum bandwidth, in bytes per second, of each single upload or download. The limit
+   * of a transfer in progress can be changed on its context.
+   * <p>
+   * Default value is 0, bandwidth is not limited.
+   *
+   * @param maxTransferBandwidth maximum number of bytes transferred per second by one transfer
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setMaxTransferBandwidth(long maxTransferBandwidth);
+
+  /**
+   * Enables MD5 computation of uploads in the internal transfer manager. MD5 of the uploaded file
+   * is computed while its parts are uploaded, without reading the file one more time, and is
+   * stored with the created file, same as the MD5 set via {@link
+   * com.sevenbridges.apiclient.upload.CreateUploadRequestBuilder#setMD5(String)}. Uploads with MD5
+   * already set are not hashed.
+   * <p>
+   * MD5 computation is disabled by default.
+   *
+   * @param computeUploadMD5 true to compute MD5 of uploads
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setComputeUploadMD5(boolean computeUploadMD5);
+
+  /**
+   * Sets the number of threads that compute MD5 of uploads, if enabled with {@link
+   * #setComputeUploadMD5(boolean)}.
+   * <p>
+   * Default value is half of the available processors.
+   *
+   * @param hashingThreads number of hashing threads
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setUploadHashingThreads(int hashingThreads);
+
+  /**
+   * Sets the file where the internal transfer manager keeps MD5 digests of local files, keyed by
+   * their path, size and modification time. Unchanged files are then not hashed again when looking
+   * for their already uploaded copies, see {@link com.sevenbridges.apiclient.upload.CreateUploadRequestBuilder#setDeduplication(com.sevenbridges.apiclient.upload.UploadDeduplication)}.
+   * <p>
+   * By default digests are kept in memory only, for the lifetime of the client.
+   *
+   * @param hashCacheFile path of the hash cache file
+   * @return the ClientBuilder instance for method chaining
+   */
+  ClientBuilder setUploadHashCacheFile(String hashCacheFile);
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.client;
+
+import com.sevenbridges.apiclient.lang.Assert;
+
+/**
+ * Enumeration that defines the available HTTP client implementations used to communicate with the
+ * Seven Bridges API server. The jar with the selected implementation must be on the runtime
+ * classpath.
+ */
+public enum HttpClientType {
+
+  /**
+   * Apache HttpClient over HTTP/1.1, from the 'sevenbridges-java-httpclient' jar.
+   */
+  APACHE("com.sevenbridges.apiclient.impl.http.httpclient.HttpClientRequestExecutor"),
+
+  /**
+   * Java 11+ {@code java.net.http.HttpClient} over HTTP/2, from the 'sevenbridges-java-jdkhttp'
+   * jar. Concurrent API calls are multiplexed over a few shared connections.
+   */
+  JDK("com.sevenbridges.apiclient.impl.http.jdkhttp.JdkHttpRequestExecutor");
+
+  private final String requestExecutorClassName;
+
+  HttpClientType(String requestExecutorClassName) {
+    Assert.notNull(requestExecutorClassName, "requestExecutorClassName cannot be null");
+    this.requestExecutorClassName = requestExecutorClassName;
+  }
+
+  public String getRequestExecutorClassName() {
+    return this.requestExecutorClassName;
+  }
+}
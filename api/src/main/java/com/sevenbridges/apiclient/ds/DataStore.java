@@ -19,6 +19,8 @@ import com.sevenbridges.apiclient.client.ApiKey;
 import com.sevenbridges.apiclient.query.Options;
 import com.sevenbridges.apiclient.resource.Resource;
 
+import java.util.concurrent.Future;
+
 /**
  * A {@code DataStore} is the liaison between client Seven Bridges components and the raw
  * Seven Bridges REST API.  It is responsible for converting Seven Bridges Java objects (User,
@@ -78,4 +80,32 @@ public interface DataStore {
    */
   <T extends Resource, O extends Options> T getResource(String href, Class<T> clazz, O options);
 
+  /**
+   * Asynchronous version of {@link #getResource(String, Class)}. The call returns as soon as the
+   * request is sent, so one thread can keep many requests in flight. If the request fails, the
+   * {@link java.util.concurrent.ExecutionException} thrown by {@link Future#get()} is caused by
+   * the same exception the synchronous call would throw.
+   *
+   * @param href  the resource URL of the resource to retrieve
+   * @param clazz the {@link Resource} sub-interface to instantiate
+   * @param <T>   type parameter indicating the returned value is a {@link Resource} instance.
+   * @return future of the instance of the specified class based on the data returned from the
+   * specified {@code href} URL.
+   */
+  <T extends Resource> Future<T> getResourceAsync(String href, Class<T> clazz);
+
+  /**
+   * Asynchronous version of {@link #getResource(String, Class, Options)}.
+   *
+   * @param href    the URL of the resource to retrieve
+   * @param clazz   the {@link Resource} sub-interface to instantiate
+   * @param <T>     type parameter indicating the returned value is a {@link Resource} instance.
+   * @param options the {@link Options} sub-interface with the properties to expand
+   * @param <O>     type parameter of the options, subtype of {@link Options} class
+   * @return future of the instance of the specified class based on the data returned from the
+   * specified {@code href} URL.
+   * @see #getResourceAsync(String, Class)
+   */
+  <T extends Resource, O extends Options> Future<T> getResourceAsync(String href, Class<T> clazz, O options);
+
 }
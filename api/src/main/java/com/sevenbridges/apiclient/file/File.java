@@ -61,6 +61,15 @@ public interface File extends Resource, Saveable, Updatable, Deletable, Auditabl
    */
   long getSize();
 
+  /**
+   * MD5 hash digest of the file content, if it is known to the Platform, for example if it is
+   * provided when the file is uploaded. Property is returned only when all fields of the file are
+   * requested.
+   *
+   * @return String 'md5' property of the current instance, or null if not known
+   */
+  String getMD5();
+
   /**
    * ProjectId of the project current file belongs to.
    *
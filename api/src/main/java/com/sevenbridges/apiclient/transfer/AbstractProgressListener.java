@@ -21,8 +21,11 @@ package com.sevenbridges.apiclient.transfer;
  * ProgressListener)} calls. This way you can get information about events of the upload. Similar to
  * the {@link ProgressListener}, but you can implement only methods that you need so it might be
  * more convenient for you.
+ * <p>
+ * It is also a {@link ProgressSnapshotListener}, override {@link #progressUpdated(TransferProgress)}
+ * to receive periodic snapshots with the throughput and the estimated time remaining.
  */
-public abstract class AbstractProgressListener implements ProgressListener {
+public abstract class AbstractProgressListener implements ProgressListener, ProgressSnapshotListener {
 
   /** {@inheritDoc} */
   @Override
@@ -59,4 +62,10 @@ public abstract class AbstractProgressListener implements ProgressListener {
   public void partUploadFailed(int partNumber, int retryCnt, Exception executionException) {
 
   }
+
+  /** {@inheritDoc} */
+  @Override
+  public void progressUpdated(TransferProgress progress) {
+
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This object allows user to take control of a bulk of uploads submitted to internal transfer
+ * manager via the {@link com.sevenbridges.apiclient.user.UserActions#submitUploads(java.util.Collection)}
+ * call. Parts of all files in the bulk are uploaded by one scheduler, which keeps the limit of
+ * parts in flight and starts parts of the next files as soon as there is room for them.
+ */
+public interface BulkUploadContext {
+
+  /**
+   * <b>BLOCKING CALL</b>
+   * <p>
+   * This is a blocking call, current thread will block until every upload in the bulk is finished,
+   * successfully or not. If the thread is interrupted from sleep, a runtime exception wrapping the
+   * interrupted exception will be thrown.
+   * <p>
+   * If all uploads are completed successfully this call will return the list of uploaded {@link
+   * File} resources, in the order of submitted upload requests. If any of the uploads failed, a
+   * runtime exception is thrown, use {@link #getUploadContexts()} to inspect the uploads.
+   *
+   * @return List of 'file' resources that are uploaded
+   */
+  List<File> getFiles();
+
+  /**
+   * <b>BLOCKING CALL</b>
+   * <p>
+   * This is a timed blocking call, current thread will wait specified time until every upload in
+   * the bulk is finished, successfully or not.
+   *
+   * @param timeValue the maximum number of TimeUnits to wait
+   * @param timeUnit  durations of one unit of timeValue
+   * @return List of 'file' resources that are uploaded
+   * @throws TimeoutException if the wait time times out, and some uploads are still not finished
+   * @see #getFiles()
+   */
+  List<File> getFiles(long timeValue, TimeUnit timeUnit) throws TimeoutException;
+
+  /**
+   * Checks if every upload in the bulk is finished, successfully or not.
+   *
+   * @return Boolean indicator are all uploads finished
+   */
+  boolean isFinished();
+
+  /**
+   * Aborts all uploads of the bulk. Uploads that are not started yet will not be started, and any
+   * thread blocked on the getFiles() call will be woken up by the RuntimeException.
+   */
+  void abortTransfer();
+
+  /**
+   * Gets contexts of the uploads started so far, in the order they are started. Uploads are
+   * started gradually, as the parts of previous uploads are transferred.
+   *
+   * @return List of started upload contexts
+   */
+  List<UploadContext> getUploadContexts();
+
+  /**
+   * Gets the number of uploads in this bulk.
+   *
+   * @return int number of submitted upload requests
+   */
+  int getUploadsCount();
+
+  /**
+   * Gets the number of successfully finished uploads of this bulk.
+   *
+   * @return int number of finished uploads
+   */
+  int getFinishedUploadsCount();
+
+  /**
+   * Gets the number of failed or aborted uploads of this bulk.
+   *
+   * @return int number of failed uploads
+   */
+  int getFailedUploadsCount();
+
+  /**
+   * Gets summed number of bytes transferred by all uploads of this bulk.
+   *
+   * @return Current bytes transferred for this bulk
+   */
+  long getBytesTransferred();
+
+  /**
+   * Size of all files of this bulk in bytes.
+   *
+   * @return long summed size of all uploads
+   */
+  long getUploadSize();
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.transfer;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This object allows user to take control of download submitted to internal transfer manager via
+ * the {@link com.sevenbridges.apiclient.user.UserActions#submitDownload(com.sevenbridges.apiclient.file.File,
+ * Path)} calls.
+ */
+public interface DownloadContext {
+
+  /**
+   * <b>BLOCKING CALL</b>
+   * <p>
+   * This is a blocking call, similar to invoking get on a {@link java.util.concurrent.Future}
+   * instance. Current thread will block until the file is fully downloaded from the Seven Bridges
+   * Platform, or until some exception happen. If the thread is interrupted from sleep, a runtime
+   * exception wrapping the interrupted exception will be thrown. If some other thread aborts the
+   * download, another runtime exception will be called, and will wake up the current sleeping
+   * thread.
+   * <p>
+   * If the download is completed successfully this call will return the local {@link Path} of the
+   * downloaded file.
+   *
+   * @return Path local path of the downloaded file
+   * @throws PausedDownloadException if the current download the thread is blocked on is paused by
+   *                                 {@link #pauseTransfer()} call by some other thread
+   */
+  Path getFile() throws PausedDownloadException;
+
+  /**
+   * <b>BLOCKING CALL</b>
+   * <p>
+   * This is a timed blocking call, similar to invoking get(timeValue, timeUnit) on a {@link
+   * java.util.concurrent.Future} instance. Current thread will wait specified time until the file
+   * is fully downloaded from the Seven Bridges Platform, or until some exception happen.
+   * <p>
+   * If the download is completed successfully this call will return the local {@link Path} of the
+   * downloaded file.
+   *
+   * @param timeValue the maximum number of TimeUnits to wait
+   * @param timeUnit  durations of one unit of timeValue
+   * @return Path local path of the downloaded file
+   * @throws TimeoutException        if the wait time times out, and the download is still not
+   *                                 completed
+   * @throws PausedDownloadException if the current download the thread is blocked on is paused by
+   *                                 {@link #pauseTransfer()} call by some other thread
+   */
+  Path getFile(long timeValue, TimeUnit timeUnit) throws TimeoutException, PausedDownloadException;
+
+  /**
+   * Checks if the download managed by this DownloadContext is finished successfully.
+   *
+   * @return Boolean indicator is download finished
+   */
+  boolean isFinished();
+
+  /**
+   * Aborts the download managed by this DownloadContext. Any thread blocked on the getFile() call
+   * on this downloadContext will be woken up by the RuntimeException. Partially downloaded local
+   * file is deleted, and any progress on this download will be lost.
+   */
+  void abortTransfer();
+
+  /**
+   * Gets the current state of the download managed by this DownloadContext.
+   *
+   * @return DownloadState current state
+   */
+  DownloadState getState();
+
+  /**
+   * Pauses the download managed by this DownloadContext. Any thread blocked on the getFile() call
+   * on this downloadContext will be woken up by the RuntimeException that indicates that the
+   * download is paused. Partially downloaded local file is kept, and your progress (measured in
+   * file parts) is saved in the journal file next to it.
+   * <p>
+   * You can use this DownloadContext object to resume download via {@link
+   * com.sevenbridges.apiclient.user.UserActions#resumeDownload(DownloadContext)} call. That call
+   * will provide a new instance of DownloadContext, this one is useless after that call.
+   * <p>
+   * Pause action is not instantaneous, the call is not blocking, and it will put download in the
+   * PAUSING state. After the first running part download is finished, the download state will
+   * change to PAUSED state.
+   */
+  void pauseTransfer();
+
+  /**
+   * Gets summed number of bytes transferred by the download managed by this DownloadContext. This
+   * is a pretty low level byte counter, and it will update much more often than the part finished
+   * event.
+   *
+   * @return Current bytes transferred for this download
+   */
+  long getBytesTransferred();
+
+  /**
+   * Size of the whole download in bytes.
+   *
+   * @return long download size
+   */
+  long getDownloadSize();
+
+  /**
+   * Name of the {@link com.sevenbridges.apiclient.file.File} being downloaded.
+   *
+   * @return String file name
+   */
+  String getFileName();
+
+  /**
+   * ID of the {@link com.sevenbridges.apiclient.file.File} being downloaded.
+   *
+   * @return String ID of the file managed by this download context
+   */
+  String getFileId();
+
+  /**
+   * Local path the file is downloaded to.
+   *
+   * @return Path download destination
+   */
+  Path getDestination();
+
+  /**
+   * Limits the bandwidth used by the download managed by this DownloadContext. The limit can be
+   * changed while the download is in progress, and it is applied on top of the bandwidth limit
+   * shared by all transfers of the client.
+   *
+   * @param bytesPerSecond maximum number of bytes downloaded per second, zero or negative value
+   *                       removes the limit
+   */
+  void setBandwidthLimit(long bytesPerSecond);
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.transfer;
+
+/**
+ * Local download state.
+ */
+public enum DownloadState {
+
+  CREATED,
+  RUNNING,
+  PAUSING,
+  PAUSED,
+  FINISHED,
+  ABORTED;
+
+  public static DownloadState fromValue(String value) {
+    value = value.toUpperCase();
+    switch (value) {
+      case "CREATED": {
+        return DownloadState.CREATED;
+      }
+      case "RUNNING": {
+        return DownloadState.RUNNING;
+      }
+      case "PAUSING": {
+        return DownloadState.PAUSING;
+      }
+      case "PAUSED": {
+        return DownloadState.PAUSED;
+      }
+      case "FINISHED": {
+        return DownloadState.FINISHED;
+      }
+      case "ABORTED": {
+        return DownloadState.ABORTED;
+      }
+      default: {
+        throw new IllegalArgumentException("Can not create DownloadState from value: " + value);
+      }
+    }
+  }
+
+}
@@ -21,6 +21,14 @@ package com.sevenbridges.apiclient.transfer;
  * ProgressListener)} calls. This way you can get information about events of the upload. With
  * interface you need to implement all of the event functions, but, if you need only some of the
  * events it might be more convenient to extend {@link AbstractProgressListener}.
+ * <p>
+ * The same listener can be used with {@link com.sevenbridges.apiclient.user.UserActions#submitDownload(com.sevenbridges.apiclient.file.File,
+ * java.nio.file.Path, ProgressListener)} calls. For downloads, upload events are fired for the
+ * download, and part events are fired for the byte ranges the file is downloaded in.
+ * <p>
+ * Events are delivered on a dedicated listener thread, in the order they happened, so the listener
+ * may take its time without delaying the transfer. Listeners that also implement {@link
+ * ProgressSnapshotListener} receive periodic progress snapshots as well.
  */
 public interface ProgressListener {
 
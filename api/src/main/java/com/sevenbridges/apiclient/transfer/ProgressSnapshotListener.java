@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.transfer;
+
+/**
+ * Progress listener that also receives periodic snapshots of the transfer progress, with the
+ * throughput and the estimated time remaining. Implement it together with {@link ProgressListener},
+ * or extend {@link AbstractProgressListener}, which implements both.
+ * <p>
+ * Listeners are called on a dedicated listener thread, never on the threads that transfer data, so
+ * a slow listener does not slow the transfer down. If the listener can not keep up, intermediate
+ * snapshots are skipped and only the latest one is delivered.
+ */
+public interface ProgressSnapshotListener {
+
+  /**
+   * Event with the latest snapshot of the transfer progress. Fired periodically while the transfer
+   * is running, and once more right before it finishes or fails.
+   *
+   * @param progress snapshot of the transfer progress
+   */
+  void progressUpdated(TransferProgress progress);
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.transfer;
+
+/**
+ * Snapshot of the progress of one transfer, delivered to {@link ProgressSnapshotListener}s at a
+ * limited rate, no matter how often the bytes are actually transferred.
+ */
+public interface TransferProgress {
+
+  /**
+   * Number of bytes transferred when the snapshot is taken.
+   *
+   * @return bytes transferred
+   */
+  long getBytesTransferred();
+
+  /**
+   * Size of the whole transfer in bytes, or -1 if not known yet, like for uploads read from a
+   * stream that did not end yet.
+   *
+   * @return transfer size in bytes, or -1
+   */
+  long getTotalBytes();
+
+  /**
+   * Recent transfer rate, smoothed over the last few snapshots.
+   *
+   * @return transfer rate in bytes per second
+   */
+  double getBytesPerSecond();
+
+  /**
+   * Estimated time until the transfer is done at the recent transfer rate, or -1 if it can not be
+   * estimated yet.
+   *
+   * @return estimated remaining time in milliseconds, or -1
+   */
+  long getEstimatedRemainingMillis();
+
+  /**
+   * Time since the transfer started.
+   *
+   * @return elapsed time in milliseconds
+   */
+  long getElapsedMillis();
+}
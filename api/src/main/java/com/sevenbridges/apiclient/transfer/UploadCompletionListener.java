@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+
+/**
+ * Listener notified once, when the upload managed by an {@link UploadContext} is completed, failed,
+ * paused or aborted. Registered via {@link UploadContext#onComplete(UploadCompletionListener)}, it
+ * lets the caller continue work on upload completion, like creating tasks with the uploaded file,
+ * without blocking a thread on {@link UploadContext#getFile()} for every upload.
+ * <p>
+ * Listener is called on the internal transfer manager threads, so it should return quickly, and
+ * hand longer work over to its own executor.
+ */
+public interface UploadCompletionListener {
+
+  /**
+   * Called when the upload is completed successfully.
+   *
+   * @param context upload context of the completed upload
+   * @param file    'file' resource that is uploaded
+   */
+  void uploadCompleted(UploadContext context, File file);
+
+  /**
+   * Called when the upload is not completed. The cause is the same exception {@link
+   * UploadContext#getFile()} throws: a {@link PausedUploadException} if the upload is paused, a
+   * {@link java.util.concurrent.CancellationException} if it is aborted by the user, or a runtime
+   * exception wrapping the error that failed the upload.
+   *
+   * @param context upload context of the upload
+   * @param cause   reason the upload is not completed
+   */
+  void uploadFailed(UploadContext context, RuntimeException cause);
+}
@@ -69,6 +69,16 @@ public interface UploadContext {
    */
   File getFile(long timeValue, TimeUnit timeUnit) throws TimeoutException, PausedUploadException;
 
+  /**
+   * Registers a listener notified when the upload managed by this UploadContext is completed,
+   * failed, paused or aborted. This is the non blocking alternative to {@link #getFile()}. If the
+   * upload is already done, the listener is notified immediately on the calling thread. Each
+   * registered listener is notified exactly once.
+   *
+   * @param listener listener to notify on upload completion
+   */
+  void onComplete(UploadCompletionListener listener);
+
   /**
    * Checks if the current {@link com.sevenbridges.apiclient.upload.Upload}, managed by this
    * UploadContext is finished successfully.
@@ -137,4 +147,14 @@ public interface UploadContext {
    */
   String getUploadId();
 
+  /**
+   * Limits the bandwidth used by the upload managed by this UploadContext. The limit can be changed
+   * while the upload is in progress, and it is applied on top of the bandwidth limit shared by all
+   * transfers of the client.
+   *
+   * @param bytesPerSecond maximum number of bytes uploaded per second, zero or negative value
+   *                       removes the limit
+   */
+  void setBandwidthLimit(long bytesPerSecond);
+
 }
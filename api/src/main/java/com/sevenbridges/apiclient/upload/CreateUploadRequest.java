@@ -16,6 +16,7 @@
 package com.sevenbridges.apiclient.upload;
 
 import java.io.RandomAccessFile;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Represents an attempt to create a new {@link Upload} on Seven Bridges.
@@ -34,10 +35,18 @@ public interface CreateUploadRequest {
   /**
    * Local file to be uploaded.
    *
-   * @return RandomAccessFile of local {@link java.io.File}
+   * @return RandomAccessFile of local {@link java.io.File}, or null if the upload is read from a
+   * stream
    */
   RandomAccessFile getFile();
 
+  /**
+   * Stream to be uploaded, if the upload is not read from a local file.
+   *
+   * @return ReadableByteChannel to read the upload from, or null if a local file is uploaded
+   */
+  ReadableByteChannel getChannel();
+
   /**
    * Overwrite param of the upload. If true, upload will overwrite files with the same name as this
    * upload. Alternative is the renaming of the uploaded file.
@@ -46,4 +55,27 @@ public interface CreateUploadRequest {
    */
   boolean getOverwrite();
 
+  /**
+   * Where to look for an already uploaded copy of the local file, before its content is uploaded.
+   *
+   * @return UploadDeduplication of the upload, never null
+   */
+  UploadDeduplication getDeduplication();
+
+  /**
+   * Scheduling priority of the upload.
+   *
+   * @return UploadPriority of the upload, never null
+   */
+  UploadPriority getPriority();
+
+  /**
+   * Tenant, or any other group, the upload is scheduled with. Uploads of different tenants with the
+   * same priority get equal shares of the transfer capacity, no matter how many uploads each of
+   * them has.
+   *
+   * @return String tenant of the upload, or null if not set
+   */
+  String getTenant();
+
 }
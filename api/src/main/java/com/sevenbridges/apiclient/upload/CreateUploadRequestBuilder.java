@@ -17,6 +17,9 @@ package com.sevenbridges.apiclient.upload;
 
 import com.sevenbridges.apiclient.project.Project;
 
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+
 /**
  * A Builder to construct {@link CreateUploadRequest}s, used to initialize manual uploads
  * (initUpload function), or the client managed uploads (submitUpload function).
@@ -88,6 +91,30 @@ public interface CreateUploadRequestBuilder {
    */
   CreateUploadRequestBuilder setFile(String filePath);
 
+  /**
+   * Sets the stream of unknown length to be uploaded to the Platform instead of a local file, for
+   * example the output of some process. Stream is read until its end, into at most as many part
+   * sized buffers as there are parts uploaded in parallel, so the memory used by the upload is
+   * bounded by the part size multiplied by the maximum number of parallel parts. Stream is closed
+   * when the upload is finished.
+   * <p>
+   * Upload read from a stream can not be paused or resumed, and can only be submitted via {@link
+   * com.sevenbridges.apiclient.user.UserActions#submitUpload(CreateUploadRequest)} call.
+   *
+   * @param inputStream stream to be uploaded
+   * @return builder instance with stream set
+   */
+  CreateUploadRequestBuilder setInputStream(InputStream inputStream);
+
+  /**
+   * Sets the channel of unknown length to be uploaded to the Platform instead of a local file.
+   *
+   * @param channel channel to be uploaded
+   * @return builder instance with channel set
+   * @see #setInputStream(InputStream)
+   */
+  CreateUploadRequestBuilder setChannel(ReadableByteChannel channel);
+
   /**
    * Sets the SUGGESTED part size of the upload in BYTES. If this provided part size is smaller than
    * the part size threshold (currently 32MB) part size will be set to default (256MB or larger
@@ -103,13 +130,52 @@ public interface CreateUploadRequestBuilder {
 
   /**
    * Sets the MD5 hash digest of the file to be uploaded. This value is not validated, only stored,
-   * and is not a required param for upload.
+   * and is not a required param for upload. Clients built with {@link
+   * com.sevenbridges.apiclient.client.ClientBuilder#setComputeUploadMD5(boolean)} compute the digest
+   * while the file is uploaded, so there is no need to hash the file beforehand.
    *
    * @param digest String md5 digest of the file to upload
    * @return builder instance with md5 digest set
    */
   CreateUploadRequestBuilder setMD5(String digest);
 
+  /**
+   * Sets where to look for an already uploaded copy of the local file, before its content is
+   * uploaded. If a file with the same name, size and MD5 is found, it is copied to the destination
+   * project instead, and the content is not transferred at all. MD5 of the local file is computed
+   * only if some file with the same name and size is found, unless it is set with {@link
+   * #setMD5(String)}. Only uploads of local files can be deduplicated.
+   * <p>
+   * If omitted default value is {@link UploadDeduplication#NONE}.
+   *
+   * @param deduplication where to look for the copy of the file
+   * @return builder instance with deduplication set
+   */
+  CreateUploadRequestBuilder setDeduplication(UploadDeduplication deduplication);
+
+  /**
+   * Sets the scheduling priority of the upload. When parts of many uploads wait to be uploaded,
+   * uploads with higher priority get more of the transfer capacity, so an interactive upload is
+   * not stuck behind a large bulk transfer. See {@link UploadPriority} for the shares.
+   * <p>
+   * If omitted default value is {@link UploadPriority#NORMAL}.
+   *
+   * @param priority scheduling priority of the upload
+   * @return builder instance with priority set
+   */
+  CreateUploadRequestBuilder setPriority(UploadPriority priority);
+
+  /**
+   * Sets the tenant, or any other group, the upload belongs to. Tenants with uploads of the same
+   * priority get equal shares of the transfer capacity, regardless of the number of their uploads.
+   * <p>
+   * This is not a required param for upload, uploads without tenant share one group.
+   *
+   * @param tenant name of the tenant or group
+   * @return builder instance with tenant set
+   */
+  CreateUploadRequestBuilder setTenant(String tenant);
+
   /**
    * Creates a new {@code CreateUploadRequest} instance based on the current builder state.
    *
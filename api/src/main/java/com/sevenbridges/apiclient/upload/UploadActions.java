@@ -69,4 +69,14 @@ interface UploadActions {
    */
   File completeUpload();
 
+  /**
+   * Performs the complete upload action on the current upload instance, along with the MD5 hash
+   * digest of the uploaded content. MD5 is stored with the {@link File} created from this upload,
+   * same as the MD5 provided when the upload is created.
+   *
+   * @param md5 String hex encoded md5 digest of the uploaded content
+   * @return File created from this upload
+   */
+  File completeUpload(String md5);
+
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.upload;
+
+/**
+ * Where to look for an already uploaded copy of a local file, before its content is transferred.
+ * A file with the same name, size and MD5 as the local file is considered a copy. If a copy is found
+ * in the destination project, it is the result of the upload, and if it is found in some other
+ * project, it is copied to the destination project instead of being uploaded.
+ */
+public enum UploadDeduplication {
+
+  /**
+   * File is always uploaded.
+   */
+  NONE,
+
+  /**
+   * Copy of the file is looked for in the destination project only.
+   */
+  PROJECT,
+
+  /**
+   * Copy of the file is looked for in the destination project, and then in all projects accessible
+   * to the user. Each project is searched with one API call.
+   */
+  ALL_PROJECTS
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.upload;
+
+/**
+ * Scheduling priority of an upload. Parts of all uploads share the limit of parts in flight, and
+ * when uploads wait for a free place, places are shared between priorities by their weights, so
+ * an interactive upload gets 16 places, and a normal one 4 places, for every place of a bulk upload.
+ * Places are handed over only when parts finish, part uploads in progress are never interrupted.
+ */
+public enum UploadPriority {
+
+  /**
+   * Upload someone is waiting for, should finish as soon as possible even during bulk transfers.
+   */
+  INTERACTIVE,
+
+  /**
+   * Default priority.
+   */
+  NORMAL,
+
+  /**
+   * Background upload, that takes the bandwidth not used by the others.
+   */
+  BULK
+}
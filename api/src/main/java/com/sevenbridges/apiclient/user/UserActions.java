@@ -34,6 +34,8 @@ import com.sevenbridges.apiclient.task.Task;
 import com.sevenbridges.apiclient.task.TaskCriteria;
 import com.sevenbridges.apiclient.task.TaskList;
 import com.sevenbridges.apiclient.task.TaskRequestFactory;
+import com.sevenbridges.apiclient.transfer.BulkUploadContext;
+import com.sevenbridges.apiclient.transfer.DownloadContext;
 import com.sevenbridges.apiclient.transfer.ProgressListener;
 import com.sevenbridges.apiclient.transfer.UploadContext;
 import com.sevenbridges.apiclient.upload.CreateUploadRequest;
@@ -47,6 +49,8 @@ import com.sevenbridges.apiclient.volume.Volume;
 import com.sevenbridges.apiclient.volume.VolumeList;
 import com.sevenbridges.apiclient.volume.VolumeRequestFactory;
 
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -575,6 +579,27 @@ public interface UserActions {
    */
   UploadContext submitUpload(CreateUploadRequest uploadRequest, ProgressListener listener);
 
+  /**
+   * This action delegates a bulk of {@link CreateUploadRequest}s, for example all files of a
+   * directory, to the internally managed TransferManager. Parts of all files are uploaded by one
+   * scheduler that keeps the global limit of parts in flight, and starts parts of the next files as
+   * soon as there is room for them, so the bandwidth is used across file boundaries. Uploads are
+   * initialized on the Platform gradually, as the previous files are transferred.
+   * <p>
+   * This is the preferred way to upload many small files. Files smaller than one part skip the
+   * bookkeeping of large uploads, and their API calls are pipelined across many files, so the
+   * throughput is limited by the number of concurrent API calls rather than by the latency of
+   * each call.
+   * <p>
+   * This call returns {@link BulkUploadContext} object that you can use to control all of the
+   * uploads and track their aggregate progress.
+   *
+   * @param uploadRequests collection of {@link CreateUploadRequest} requests created by the {@link
+   *                       CreateUploadRequestBuilder}
+   * @return {@link BulkUploadContext} of the submitted uploads
+   */
+  BulkUploadContext submitUploads(Collection<CreateUploadRequest> uploadRequests);
+
   /**
    * This action resumes the already started upload, that is paused for some reason (by calling the
    * {@link UploadContext#pauseTransfer()} action or by shutting down the whole client). This upload
@@ -631,11 +656,135 @@ public interface UserActions {
    */
   UploadContext resumeUpload(Upload pausedUpload, java.io.File file, ProgressListener listener);
 
+  /**
+   * This action resumes the already started upload with provided ID, that is paused or interrupted
+   * for some reason, even by a crash of the process that started it. If the upload checkpoint
+   * directory is configured and contains the checkpoint of this upload, finished parts are read
+   * from the local checkpoint and the server is only asked to confirm that the upload still exists.
+   * Otherwise, finished parts are listed from the server. Provided file MUST be the same as the file
+   * that started the upload. No additional validation on that will be issued.
+   *
+   * @param uploadId ID of the upload to be resumed
+   * @param file     File to be resumed uploading
+   * @return new {@link UploadContext} instance to mange the upload with
+   */
+  UploadContext resumeUpload(String uploadId, java.io.File file);
+
+  /**
+   * This action resumes the already started upload with provided ID, that is paused or interrupted
+   * for some reason, even by a crash of the process that started it. If the upload checkpoint
+   * directory is configured and contains the checkpoint of this upload, finished parts are read
+   * from the local checkpoint and the server is only asked to confirm that the upload still exists.
+   * Otherwise, finished parts are listed from the server. Provided file MUST be the same as the file
+   * that started the upload. No additional validation on that will be issued.
+   * <p>
+   * You can also provide your implementation of {@link ProgressListener} that listens to events of
+   * the upload.
+   *
+   * @param uploadId ID of the upload to be resumed
+   * @param file     File to be resumed uploading
+   * @param listener Custom upload listener to catch upload events with
+   * @return new {@link UploadContext} instance to mange the upload with
+   */
+  UploadContext resumeUpload(String uploadId, java.io.File file, ProgressListener listener);
+
+  ////////////////////////////////////////////////////////////////////////
+  // DOWNLOAD ACTIONS
+  ////////////////////////////////////////////////////////////////////////
+
+  /**
+   * This action delegates download of the provided {@link File} to the internally managed
+   * TransferManager that will download the file in parallel byte ranges to the provided local
+   * destination. If the destination file already exists it will be overwritten. This call returns
+   * {@link DownloadContext} object that you can use to control the download.
+   *
+   * @param file        {@link File} resource to download
+   * @param destination local path to download the file to
+   * @return {@link DownloadContext} of the submitted download
+   */
+  DownloadContext submitDownload(File file, Path destination);
+
+  /**
+   * This action delegates download of the provided {@link File} to the internally managed
+   * TransferManager that will download the file in parallel byte ranges to the provided local
+   * destination. If the destination file already exists it will be overwritten. This call returns
+   * {@link DownloadContext} object that you can use to control the download.
+   * <p>
+   * You can also provide your implementation of {@link ProgressListener} that listens to events of
+   * the download.
+   *
+   * @param file        {@link File} resource to download
+   * @param destination local path to download the file to
+   * @param listener    Custom progress listener to catch download events with
+   * @return {@link DownloadContext} of the submitted download
+   */
+  DownloadContext submitDownload(File file, Path destination, ProgressListener listener);
+
+  /**
+   * Resumes the download that was paused via {@link DownloadContext#pauseTransfer()}. Only the
+   * byte ranges that are not recorded as finished in the journal file next to the destination are
+   * downloaded again.
+   *
+   * @param pausedContext Paused download context
+   * @return new {@link DownloadContext} instance to mange the download with
+   */
+  DownloadContext resumeDownload(DownloadContext pausedContext);
+
+  /**
+   * Resumes the download that was paused via {@link DownloadContext#pauseTransfer()}. Only the
+   * byte ranges that are not recorded as finished in the journal file next to the destination are
+   * downloaded again.
+   *
+   * @param pausedContext Paused download context
+   * @param listener      Custom progress listener to catch download events with
+   * @return new {@link DownloadContext} instance to mange the download with
+   */
+  DownloadContext resumeDownload(DownloadContext pausedContext, ProgressListener listener);
+
+  /**
+   * Resumes the download of the provided {@link File} to the provided local destination, using the
+   * journal file left next to the destination by the interrupted download. This also works for
+   * downloads that failed, or were interrupted by a crash or a restart of the process. If there is
+   * no usable journal (it is missing, or it belongs to some other file) the download starts from
+   * the beginning.
+   *
+   * @param file        {@link File} resource to download
+   * @param destination local path of the partially downloaded file
+   * @return new {@link DownloadContext} instance to mange the download with
+   */
+  DownloadContext resumeDownload(File file, Path destination);
+
+  /**
+   * Resumes the download of the provided {@link File} to the provided local destination, using the
+   * journal file left next to the destination by the interrupted download. This also works for
+   * downloads that failed, or were interrupted by a crash or a restart of the process. If there is
+   * no usable journal (it is missing, or it belongs to some other file) the download starts from
+   * the beginning.
+   *
+   * @param file        {@link File} resource to download
+   * @param destination local path of the partially downloaded file
+   * @param listener    Custom progress listener to catch download events with
+   * @return new {@link DownloadContext} instance to mange the download with
+   */
+  DownloadContext resumeDownload(File file, Path destination, ProgressListener listener);
+
   /**
    * Gracefully shuts down the transfer service if any upload was started during the lifecycle of
    * client. It is good practice to call this function before quiting application that is using this
-   * library.
+   * library. Each client has its own transfer service, transfers of other clients are not
+   * affected. The threads and connections of asynchronous API calls of the client are closed as
+   * well.
    */
   void shutdownTransferService();
 
+  /**
+   * Limits the bandwidth shared by all uploads and downloads of the client. The limit can be
+   * changed while transfers are in progress. Limit of each single transfer can be set on its
+   * {@link UploadContext} or {@link DownloadContext}.
+   *
+   * @param bytesPerSecond maximum number of bytes transferred per second, zero or negative value
+   *                       removes the limit
+   */
+  void setTransferBandwidthLimit(long bytesPerSecond);
+
 }
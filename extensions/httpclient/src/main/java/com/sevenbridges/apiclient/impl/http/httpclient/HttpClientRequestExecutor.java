@@ -18,6 +18,7 @@ package com.sevenbridges.apiclient.impl.http.httpclient;
 import com.sevenbridges.apiclient.client.ApiKey;
 import com.sevenbridges.apiclient.client.AuthenticationScheme;
 import com.sevenbridges.apiclient.client.Proxy;
+import com.sevenbridges.apiclient.impl.http.AsyncRequestExecutor;
 import com.sevenbridges.apiclient.impl.http.HttpHeaders;
 import com.sevenbridges.apiclient.impl.http.MediaType;
 import com.sevenbridges.apiclient.impl.http.QueryString;
@@ -29,8 +30,11 @@ import com.sevenbridges.apiclient.impl.http.authc.DefaultRequestAuthenticatorFac
 import com.sevenbridges.apiclient.impl.http.authc.RequestAuthenticator;
 import com.sevenbridges.apiclient.impl.http.authc.RequestAuthenticatorFactory;
 import com.sevenbridges.apiclient.impl.http.support.BackoffStrategy;
+import com.sevenbridges.apiclient.impl.http.support.CircuitBreakerOpenException;
 import com.sevenbridges.apiclient.impl.http.support.DefaultRequest;
 import com.sevenbridges.apiclient.impl.http.support.DefaultResponse;
+import com.sevenbridges.apiclient.impl.http.support.RateLimitGovernor;
+import com.sevenbridges.apiclient.impl.http.support.ResiliencePolicy;
 import com.sevenbridges.apiclient.lang.Assert;
 
 import org.apache.http.Header;
@@ -46,12 +50,18 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.entity.GzipDecompressingEntity;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.params.AllClientPNames;
 import org.apache.http.client.params.ClientPNames;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,13 +72,22 @@ import java.io.InputStream;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
-import java.util.Random;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@code RequestExecutor} implementation that uses the <a href="http://hc.apache.org/httpcomponents-client-ga">Apache
- * HttpClient</a> implementation to execute http requests.
+ * HttpClient</a> implementation to execute http requests. Asynchronous requests are executed by
+ * the Apache HttpAsyncClient, started on the first asynchronous request.
  */
-public class HttpClientRequestExecutor implements RequestExecutor {
+public class HttpClientRequestExecutor implements AsyncRequestExecutor {
 
   private static final Logger log = LoggerFactory.getLogger(HttpClientRequestExecutor.class);
 
@@ -89,21 +108,40 @@ public class HttpClientRequestExecutor implements RequestExecutor {
 
   private int numRetries = DEFAULT_MAX_RETRIES;
 
+  private boolean streamResponses = true;
+
   private final ApiKey apiKey;
 
   private final RequestAuthenticator requestAuthenticator;
 
   private DefaultHttpClient httpClient;
 
+  private final Proxy proxy;
+
+  private final int connectionTimeout;
+
+  // created on first asynchronous request, so clients that never use it do not start IO threads
+  private CloseableHttpAsyncClient httpAsyncClient;
+
+  // delays retries of asynchronous requests, instead of sleeping on the IO threads
+  private ScheduledExecutorService retryScheduler;
+
+  // asynchronous requests waiting on the retry scheduler, failed if it is shut down
+  private final Set<AsyncExecution> waitingExecutions =
+      Collections.newSetFromMap(new ConcurrentHashMap<AsyncExecution, Boolean>());
+
+  // paces requests of this client by the rate limit the API server reports
+  private final RateLimitGovernor rateLimitGovernor = new RateLimitGovernor();
+
   private BackoffStrategy backoffStrategy;
 
+  // retry budget, jittered back-off and circuit breakers shared by all requests of this client
+  private ResiliencePolicy resiliencePolicy = new ResiliencePolicy();
+
   private HttpClientRequestFactory httpClientRequestFactory;
 
   private final RequestAuthenticatorFactory requestAuthenticatorFactory = new DefaultRequestAuthenticatorFactory();
 
-  // Doesn't need to be SecureRandom; only used in backoff strategy, not for crypto:
-  private final Random random = new Random();
-
   static {
     int connectionMaxPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
     String connectionMaxPerRouteString = System.getProperty(MAX_CONNECTIONS_PER_ROUTE_PROPERTY_KEY);
@@ -150,6 +188,8 @@ public class HttpClientRequestExecutor implements RequestExecutor {
     Assert.isTrue(connectionTimeout >= 0, "Timeout cannot be a negative number.");
 
     this.apiKey = apiKey;
+    this.proxy = proxy;
+    this.connectionTimeout = connectionTimeout;
 
     this.requestAuthenticator = requestAuthenticatorFactory.create(authenticationScheme);
 
@@ -201,6 +241,21 @@ public class HttpClientRequestExecutor implements RequestExecutor {
     this.numRetries = numRetries;
   }
 
+  public boolean isStreamResponses() {
+    return streamResponses;
+  }
+
+  /**
+   * Sets whether the body of a response returned by {@link #executeRequest(Request)} is streamed
+   * from the connection, instead of being read into memory first. A streamed body is parsed as it
+   * arrives, and the connection is released when the response is closed. Enabled by default.
+   *
+   * @param streamResponses whether to stream response bodies
+   */
+  public void setStreamResponses(boolean streamResponses) {
+    this.streamResponses = streamResponses;
+  }
+
   public BackoffStrategy getBackoffStrategy() {
     return this.backoffStrategy;
   }
@@ -209,6 +264,21 @@ public class HttpClientRequestExecutor implements RequestExecutor {
     this.backoffStrategy = backoffStrategy;
   }
 
+  public ResiliencePolicy getResiliencePolicy() {
+    return this.resiliencePolicy;
+  }
+
+  /**
+   * Sets the policy that limits retries and fails requests fast while an endpoint keeps failing.
+   * The policy also collects the metrics of retries, rejected requests and circuit breakers.
+   *
+   * @param resiliencePolicy the resilience policy of this executor
+   */
+  public void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+    Assert.notNull(resiliencePolicy, "resiliencePolicy cannot be null.");
+    this.resiliencePolicy = resiliencePolicy;
+  }
+
   public void setHttpClient(DefaultHttpClient httpClient) {
     this.httpClient = httpClient;
   }
@@ -221,6 +291,7 @@ public class HttpClientRequestExecutor implements RequestExecutor {
     URI redirectUri = null;
     HttpEntity entity = null;
     RestException exception = null;
+    long delayMillis = 0;
 
     // Make a copy of the original request params and headers so that we can
     // permute them in the loop and start over with the original every time.
@@ -261,12 +332,14 @@ public class HttpClientRequestExecutor implements RequestExecutor {
 
 
       HttpResponse httpResponse = null;
+      // set when the response, and with it the connection, is handed over to the caller
+      boolean handedOver = false;
       try {
         // We don't want to treat a redirect like a retry,
         // so if redirectUri is not null, we won't pause
         // before executing the request below.
         if (retryCount > 0 && redirectUri == null) {
-          pauseExponentially(retryCount, exception);
+          delayMillis = pauseExponentially(retryCount, exception, delayMillis);
           if (entity != null) {
             InputStream content = entity.getContent();
             if (content.markSupported()) {
@@ -280,7 +353,13 @@ public class HttpClientRequestExecutor implements RequestExecutor {
         exception = null;
         retryCount++;
 
+        resiliencePolicy.beforeAttempt(httpRequest.getURI(), retryCount > 1);
+        waitForRateLimit();
+        long sentNanos = System.nanoTime();
         httpResponse = httpClient.execute(httpRequest);
+        long roundTripNanos = System.nanoTime() - sentNanos;
+        rateLimitGovernor.update(httpResponse.getStatusLine().getStatusCode(), getHeaders(httpResponse));
+        resiliencePolicy.onResponse(httpRequest.getURI(), httpResponse.getStatusLine().getStatusCode());
 
         if (isRedirect(httpResponse)) {
           Header[] locationHeaders = httpResponse.getHeaders("Location");
@@ -290,23 +369,33 @@ public class HttpClientRequestExecutor implements RequestExecutor {
           httpRequest.setURI(redirectUri);
         } else {
 
-          Response response = toSdkResponse(httpResponse);
-
-          int httpStatus = response.getHttpStatus();
+          int httpStatus = httpResponse.getStatusLine().getStatusCode();
 
           if (httpStatus == 429) {
             throw new RestException("HTTP 429: Too Many Requests.  Exceeded request rate limit in the allotted amount of time.");
           }
-          if ((httpStatus == 503 || httpStatus == 504) && retryCount <= this.numRetries) {
+          if ((httpStatus == 503 || httpStatus == 504) && retryCount <= this.numRetries &&
+              resiliencePolicy.allowRetry()) {
             //allow the loop to continue to execute a retry request
             continue;
           }
 
+          Response response = streamResponses ? toStreamingSdkResponse(httpResponse) : toSdkResponse(httpResponse);
+          if (response instanceof DefaultResponse) {
+            ((DefaultResponse) response).setRoundTripNanos(roundTripNanos);
+          }
+          handedOver = true;
           return response;
         }
       } catch (Throwable t) {
+        if (t instanceof CircuitBreakerOpenException) {
+          throw (CircuitBreakerOpenException) t;
+        }
         log.warn("Unable to execute HTTP request: ", t.getMessage(), t);
 
+        if (!(t instanceof RestException)) {
+          resiliencePolicy.onFailure(httpRequest.getURI());
+        }
         if (t instanceof RestException) {
           exception = (RestException) t;
         }
@@ -315,15 +404,279 @@ public class HttpClientRequestExecutor implements RequestExecutor {
           throw new RestException("Unable to execute HTTP request: " + t.getMessage(), t);
         }
       } finally {
-        try {
-          httpResponse.getEntity().getContent().close();
-        } catch (Throwable ignored) {
-          // ignore
+        if (!handedOver) {
+          try {
+            httpResponse.getEntity().getContent().close();
+          } catch (Throwable ignored) {
+            // ignore
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public Future<Response> executeRequestAsync(Request request, FutureCallback<Response> callback) {
+    Assert.notNull(request, "Request argument cannot be null.");
+    AsyncExecution execution = new AsyncExecution(request, callback);
+    execution.execute();
+    return execution.future;
+  }
+
+  private synchronized CloseableHttpAsyncClient getHttpAsyncClient() {
+    if (httpAsyncClient == null) {
+      // daemon threads, so an executor that is never shut down does not keep the JVM running
+      ThreadFactory threadFactory = new DaemonThreadFactory();
+      RequestConfig requestConfig = RequestConfig.custom()
+          .setConnectTimeout(connectionTimeout)
+          .setSocketTimeout(connectionTimeout)
+          .setRedirectsEnabled(false)
+          .build();
+      HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create()
+          .setDefaultRequestConfig(requestConfig)
+          .setThreadFactory(threadFactory);
+      if (MAX_CONNECTIONS_TOTAL >= MAX_CONNECTIONS_PER_ROUTE) {
+        builder.setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE).setMaxConnTotal(MAX_CONNECTIONS_TOTAL);
+      } else {
+        builder.setMaxConnPerRoute(DEFAULT_MAX_CONNECTIONS_PER_ROUTE).setMaxConnTotal(DEFAULT_MAX_CONNECTIONS_TOTAL);
+      }
+      if (proxy != null) {
+        builder.setProxy(new HttpHost(proxy.getHost(), proxy.getPort()));
+        if (proxy.isAuthenticationRequired()) {
+          BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+          credentialsProvider.setCredentials(
+              new AuthScope(proxy.getHost(), proxy.getPort()),
+              new UsernamePasswordCredentials(proxy.getUsername(), proxy.getPassword()));
+          builder.setDefaultCredentialsProvider(credentialsProvider);
+        }
+      }
+      httpAsyncClient = builder.build();
+      httpAsyncClient.start();
+      retryScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+    return httpAsyncClient;
+  }
+
+  @Override
+  public void shutdown() {
+    CloseableHttpAsyncClient client;
+    ScheduledExecutorService scheduler;
+    synchronized (this) {
+      client = httpAsyncClient;
+      scheduler = retryScheduler;
+      httpAsyncClient = null;
+      retryScheduler = null;
+    }
+    if (client == null) {
+      return;
+    }
+    try {
+      client.close();
+    } catch (IOException e) {
+      log.warn("Unable to close the asynchronous HTTP client: {}", e.getMessage(), e);
+    }
+    scheduler.shutdownNow();
+    // the waiting requests are not run by the scheduler anymore, fail them now that their client
+    // is closed
+    for (AsyncExecution execution : waitingExecutions) {
+      if (execution.scheduler == scheduler && waitingExecutions.remove(execution)) {
+        execution.execute();
+      }
+    }
+  }
+
+  /**
+   * One asynchronous request with its redirects and retries. Follows the same steps as the loop in
+   * {@link #executeRequest(Request)}, but retries are scheduled after the back-off delay instead of
+   * sleeping, so the IO threads are never blocked.
+   */
+  private class AsyncExecution implements FutureCallback<HttpResponse>, Runnable {
+
+    private final BasicFuture<Response> future;
+    // client and scheduler of this execution, its retries are not moved to ones started after a
+    // shutdown
+    private final CloseableHttpAsyncClient client;
+    private final ScheduledExecutorService scheduler;
+    private final QueryString originalQuery = new QueryString();
+    private final HttpHeaders originalHeaders = new HttpHeaders();
+
+    private Request request;
+    private HttpRequestBase httpRequest;
+    private HttpEntity entity;
+    private URI redirectUri;
+    private RestException exception;
+    private int retryCount;
+    private long delayMillis;
+
+    AsyncExecution(Request request, FutureCallback<Response> callback) {
+      this.request = request;
+      this.future = new BasicFuture<>(callback);
+      synchronized (HttpClientRequestExecutor.this) {
+        this.client = getHttpAsyncClient();
+        this.scheduler = retryScheduler;
+      }
+      originalQuery.putAll(request.getQueryString());
+      originalHeaders.putAll(request.getHeaders());
+    }
+
+    @Override
+    public void run() {
+      if (waitingExecutions.remove(this)) {
+        execute();
+      }
+    }
+
+    void execute() {
+      if (future.isDone()) {
+        // cancelled by the caller while waiting for a retry
+        return;
+      }
+      if (!client.isRunning()) {
+        future.failed(new RestException("Unable to execute HTTP request: the executor was shut down."));
+        return;
+      }
+      long wait = rateLimitGovernor.tryAcquire();
+      if (wait > 0) {
+        // held back by the rate limit, try again when a slot may be free
+        schedule(wait);
+        return;
+      }
+      try {
+        if (redirectUri != null) {
+          request = new DefaultRequest(
+              request.getMethod(),
+              redirectUri.toString(),
+              null,
+              null,
+              request.getBody(),
+              request.getHeaders().getContentLength()
+          );
+        }
+
+        if (retryCount > 0) {
+          request.setQueryString(originalQuery);
+          request.setHeaders(originalHeaders);
+        }
+
+        if (apiKey != null) {
+          requestAuthenticator.authenticate(request, apiKey);
+        }
+
+        httpRequest = httpClientRequestFactory.createHttpClientRequest(request, entity);
+
+        if (httpRequest instanceof HttpEntityEnclosingRequest) {
+          entity = ((HttpEntityEnclosingRequest) httpRequest).getEntity();
+        }
+
+        if (retryCount > 0 && redirectUri == null && entity != null) {
+          InputStream content = entity.getContent();
+          if (content.markSupported()) {
+            content.reset();
+          }
+        }
+
+        redirectUri = null;
+        exception = null;
+        retryCount++;
+
+        resiliencePolicy.beforeAttempt(httpRequest.getURI(), retryCount > 1);
+        client.execute(httpRequest, this);
+      } catch (Throwable t) {
+        retryOrFail(t);
+      }
+    }
+
+    @Override
+    public void completed(HttpResponse httpResponse) {
+      try {
+        rateLimitGovernor.update(httpResponse.getStatusLine().getStatusCode(), getHeaders(httpResponse));
+        resiliencePolicy.onResponse(httpRequest.getURI(), httpResponse.getStatusLine().getStatusCode());
+        if (isRedirect(httpResponse)) {
+          String location = httpResponse.getHeaders("Location")[0].getValue();
+          log.debug("Redirecting to: {}", location);
+          redirectUri = URI.create(location);
+          execute();
+          return;
         }
+
+        Response response = toSdkResponse(httpResponse);
+
+        int httpStatus = response.getHttpStatus();
+
+        if (httpStatus == 429) {
+          retryOrFail(new RestException("HTTP 429: Too Many Requests.  Exceeded request rate limit in the allotted amount of time."));
+          return;
+        }
+        if ((httpStatus == 503 || httpStatus == 504) && retryCount <= numRetries && resiliencePolicy.allowRetry()) {
+          retryLater();
+          return;
+        }
+
+        future.completed(response);
+      } catch (Throwable t) {
+        retryOrFail(t);
+      }
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      resiliencePolicy.onFailure(httpRequest.getURI());
+      retryOrFail(ex);
+    }
+
+    @Override
+    public void cancelled() {
+      future.cancel();
+    }
+
+    private void retryOrFail(Throwable t) {
+      if (t instanceof CircuitBreakerOpenException) {
+        future.failed((CircuitBreakerOpenException) t);
+        return;
+      }
+      log.warn("Unable to execute HTTP request: {}", t.getMessage(), t);
+
+      if (t instanceof RestException) {
+        exception = (RestException) t;
+      }
+
+      if (shouldRetry(httpRequest, t, retryCount)) {
+        retryLater();
+      } else {
+        future.failed(new RestException("Unable to execute HTTP request: " + t.getMessage(), t));
+      }
+    }
+
+    private void retryLater() {
+      delayMillis = getDelayMillis(retryCount, exception, delayMillis);
+      log.debug("Retryable condition detected, will retry in {}ms, attempt number: {}", delayMillis, retryCount);
+      schedule(delayMillis);
+    }
+
+    private void schedule(long delayMillis) {
+      waitingExecutions.add(this);
+      try {
+        scheduler.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        waitingExecutions.remove(this);
+        future.failed(new RestException("Unable to execute HTTP request: the executor was shut down."));
       }
     }
   }
 
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = delegate.newThread(r);
+      thread.setName("sevenbridges-async-" + thread.getName());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
   private boolean isRedirect(org.apache.http.HttpResponse response) {
     int status = response.getStatusLine().getStatusCode();
     return (status == HttpStatus.SC_MOVED_PERMANENTLY ||
@@ -334,24 +687,15 @@ public class HttpClientRequestExecutor implements RequestExecutor {
   }
 
   /**
-   * Exponential sleep on failed request to avoid flooding a service with retries.
+   * Jittered sleep on failed request to avoid flooding a service with retries.
    *
-   * @param retries           Current retry count.
-   * @param previousException Exception information for the previous attempt, if any.
+   * @param retries             Current retry count.
+   * @param previousException   Exception information for the previous attempt, if any.
+   * @param previousDelayMillis Sleep before the previous attempt, 0 if none.
+   * @return The time slept.
    */
-  private void pauseExponentially(int retries, RestException previousException) {
-    long delay;
-    if (backoffStrategy != null) {
-      delay = this.backoffStrategy.getDelayMillis(retries);
-    } else {
-      long scaleFactor = 300;
-      if (previousException != null && isThrottlingException(previousException)) {
-        scaleFactor = 500 + random.nextInt(100);
-      }
-      delay = (long) (Math.pow(2, retries) * scaleFactor);
-    }
-
-    delay = Math.min(delay, MAX_BACKOFF_IN_MILLISECONDS);
+  private long pauseExponentially(int retries, RestException previousException, long previousDelayMillis) {
+    long delay = getDelayMillis(retries, previousException, previousDelayMillis);
     log.debug("Retryable condition detected, will retry in {}ms, attempt number: {}", delay, retries);
 
     try {
@@ -360,6 +704,36 @@ public class HttpClientRequestExecutor implements RequestExecutor {
       Thread.currentThread().interrupt();
       throw new RestException(e.getMessage(), e);
     }
+    return delay;
+  }
+
+  /**
+   * Waits until the rate limit reported by the API server allows another request.
+   */
+  private void waitForRateLimit() {
+    try {
+      rateLimitGovernor.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RestException(e.getMessage(), e);
+    }
+  }
+
+  private long getDelayMillis(int retries, RestException previousException, long previousDelayMillis) {
+    if (previousException != null && isThrottlingException(previousException)) {
+      // the server told when it accepts requests again
+      long pause = rateLimitGovernor.getPauseMillis();
+      if (pause > 0) {
+        return pause;
+      }
+    }
+    long delay;
+    if (backoffStrategy != null) {
+      delay = this.backoffStrategy.getDelayMillis(retries);
+    } else {
+      delay = resiliencePolicy.getDelayMillis(previousDelayMillis);
+    }
+    return Math.min(delay, MAX_BACKOFF_IN_MILLISECONDS);
   }
 
   /**
@@ -387,7 +761,7 @@ public class HttpClientRequestExecutor implements RequestExecutor {
         t instanceof SocketTimeoutException ||
         t instanceof ConnectTimeoutException) {
       log.debug("Retrying on {}: {}", t.getClass().getName(), t.getMessage());
-      return true;
+      return resiliencePolicy.allowRetry();
     }
 
     if (t instanceof RestException) {
@@ -400,7 +774,7 @@ public class HttpClientRequestExecutor implements RequestExecutor {
        * get through the next time.
        */
       if (isThrottlingException(re)) {
-        return true;
+        return resiliencePolicy.allowRetry();
       }
     }
 
@@ -451,6 +825,24 @@ public class HttpClientRequestExecutor implements RequestExecutor {
     return response;
   }
 
+  /**
+   * Creates a response reading its body straight from the connection. The connection is released
+   * when the body is read to the end or the response is closed.
+   */
+  protected Response toStreamingSdkResponse(HttpResponse httpResponse) throws IOException {
+
+    int httpStatus = httpResponse.getStatusLine().getStatusCode();
+
+    HttpHeaders headers = getHeaders(httpResponse);
+
+    HttpEntity entity = getHttpEntity(httpResponse);
+
+    InputStream body = entity != null ? entity.getContent() : null;
+    long contentLength = entity != null ? entity.getContentLength() : -1;
+
+    return new DefaultResponse(httpStatus, headers, body, contentLength);
+  }
+
   private HttpEntity getHttpEntity(HttpResponse response) {
 
     HttpEntity entity = response.getEntity();
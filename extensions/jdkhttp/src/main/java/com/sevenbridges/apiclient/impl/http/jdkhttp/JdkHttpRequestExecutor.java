@@ -0,0 +1,580 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.jdkhttp;
+
+import com.sevenbridges.apiclient.client.ApiKey;
+import com.sevenbridges.apiclient.client.AuthenticationScheme;
+import com.sevenbridges.apiclient.client.Proxy;
+import com.sevenbridges.apiclient.http.HttpMethod;
+import com.sevenbridges.apiclient.impl.http.AsyncRequestExecutor;
+import com.sevenbridges.apiclient.impl.http.HttpHeaders;
+import com.sevenbridges.apiclient.impl.http.QueryString;
+import com.sevenbridges.apiclient.impl.http.Request;
+import com.sevenbridges.apiclient.impl.http.Response;
+import com.sevenbridges.apiclient.impl.http.RestException;
+import com.sevenbridges.apiclient.impl.http.authc.DefaultRequestAuthenticatorFactory;
+import com.sevenbridges.apiclient.impl.http.authc.RequestAuthenticator;
+import com.sevenbridges.apiclient.impl.http.authc.RequestAuthenticatorFactory;
+import com.sevenbridges.apiclient.impl.http.support.BackoffStrategy;
+import com.sevenbridges.apiclient.impl.http.support.CircuitBreakerOpenException;
+import com.sevenbridges.apiclient.impl.http.support.DefaultRequest;
+import com.sevenbridges.apiclient.impl.http.support.DefaultResponse;
+import com.sevenbridges.apiclient.impl.http.support.RateLimitGovernor;
+import com.sevenbridges.apiclient.impl.http.support.ResiliencePolicy;
+import com.sevenbridges.apiclient.lang.Assert;
+import com.sevenbridges.apiclient.lang.Strings;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@code RequestExecutor} implementation that uses the Java 11 {@link HttpClient} to execute http
+ * requests. Requests are sent over HTTP/2 when the server supports it, so concurrent API calls are
+ * multiplexed over a few shared connections instead of opening a connection each.
+ * <p>
+ * Redirects, retries and request authentication follow the same rules as the Apache HttpClient
+ * based {@code HttpClientRequestExecutor}.
+ */
+public class JdkHttpRequestExecutor implements AsyncRequestExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(JdkHttpRequestExecutor.class);
+
+  /**
+   * Maximum exponential back-off time before retrying a request.
+   */
+  private static final int MAX_BACKOFF_IN_MILLISECONDS = 20 * 1000;
+
+  private static final int DEFAULT_MAX_RETRIES = 4;
+
+  // headers set by the HttpClient itself, which it refuses to take from the request
+  private static final Set<String> RESTRICTED_HEADERS = Set.of(
+      "connection", "content-length", "date", "expect", "from", "host", "origin", "referer", "upgrade", "via", "warning");
+
+  private int numRetries = DEFAULT_MAX_RETRIES;
+
+  private final ApiKey apiKey;
+
+  private final RequestAuthenticator requestAuthenticator;
+
+  private final HttpClient httpClient;
+
+  private final Duration requestTimeout;
+
+  // paces requests of this client by the rate limit the API server reports
+  private final RateLimitGovernor rateLimitGovernor = new RateLimitGovernor();
+
+  private BackoffStrategy backoffStrategy;
+
+  // retry budget, jittered back-off and circuit breakers shared by all requests of this client
+  private ResiliencePolicy resiliencePolicy = new ResiliencePolicy();
+
+  private final RequestAuthenticatorFactory requestAuthenticatorFactory = new DefaultRequestAuthenticatorFactory();
+
+  /**
+   * Creates a new {@code JdkHttpRequestExecutor} using the specified {@code ApiKey} and optional
+   * {@code Proxy} configuration.
+   *
+   * @param apiKey               the SevenBridges account API Key that will be used to authenticate
+   *                             the client with SevenBridges's API sever
+   * @param proxy                the HTTP proxy to be used when communicating with the SevenBridges
+   *                             API server (can be null)
+   * @param authenticationScheme the HTTP authentication scheme to be used when communicating with
+   *                             the SevenBridges API server. If null, then Sauthc1 will be used.
+   * @param connectionTimeout    connect timeout and the timeout of a response, in milliseconds,
+   *                             zero is infinite
+   */
+  public JdkHttpRequestExecutor(ApiKey apiKey, Proxy proxy, AuthenticationScheme authenticationScheme, Integer connectionTimeout) {
+    Assert.notNull(apiKey, "apiKey argument is required.");
+    Assert.isTrue(connectionTimeout >= 0, "Timeout cannot be a negative number.");
+
+    this.apiKey = apiKey;
+
+    this.requestAuthenticator = requestAuthenticatorFactory.create(authenticationScheme);
+
+    this.requestTimeout = connectionTimeout > 0 ? Duration.ofMillis(connectionTimeout) : null;
+
+    HttpClient.Builder builder = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NEVER);
+    if (requestTimeout != null) {
+      builder.connectTimeout(requestTimeout);
+    }
+
+    if (proxy != null) {
+      //We have some proxy setting to use!
+      builder.proxy(ProxySelector.of(new InetSocketAddress(proxy.getHost(), proxy.getPort())));
+
+      if (proxy.isAuthenticationRequired()) {
+        final String username = proxy.getUsername();
+        final String password = proxy.getPassword();
+        builder.authenticator(new Authenticator() {
+          @Override
+          protected PasswordAuthentication getPasswordAuthentication() {
+            if (getRequestorType() != RequestorType.PROXY) {
+              return null;
+            }
+            return new PasswordAuthentication(username, password.toCharArray());
+          }
+        });
+      }
+    }
+
+    this.httpClient = builder.build();
+  }
+
+  public int getNumRetries() {
+    return numRetries;
+  }
+
+  public void setNumRetries(int numRetries) {
+    this.numRetries = numRetries;
+  }
+
+  public BackoffStrategy getBackoffStrategy() {
+    return this.backoffStrategy;
+  }
+
+  public void setBackoffStrategy(BackoffStrategy backoffStrategy) {
+    this.backoffStrategy = backoffStrategy;
+  }
+
+  public ResiliencePolicy getResiliencePolicy() {
+    return this.resiliencePolicy;
+  }
+
+  /**
+   * Sets the policy that limits retries and fails requests fast while an endpoint keeps failing.
+   * The policy also collects the metrics of retries, rejected requests and circuit breakers.
+   *
+   * @param resiliencePolicy the resilience policy of this executor
+   */
+  public void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+    Assert.notNull(resiliencePolicy, "resiliencePolicy cannot be null.");
+    this.resiliencePolicy = resiliencePolicy;
+  }
+
+  @Override
+  public Response executeRequest(Request request) throws RestException {
+    Assert.notNull(request, "Request argument cannot be null.");
+
+    Execution execution = new Execution(request);
+
+    while (true) {
+      HttpRequest httpRequest = execution.nextRequest();
+
+      HttpResponse<byte[]> httpResponse = null;
+      Throwable failure = null;
+      long roundTripNanos = 0;
+      try {
+        if (execution.delayMillis > 0) {
+          Thread.sleep(execution.delayMillis);
+        }
+        resiliencePolicy.beforeAttempt(httpRequest.uri(), execution.retryCount > 1);
+        rateLimitGovernor.acquire();
+        long sentNanos = System.nanoTime();
+        httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        roundTripNanos = System.nanoTime() - sentNanos;
+      } catch (CircuitBreakerOpenException e) {
+        throw e;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RestException(e.getMessage(), e);
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+      }
+
+      Response response = execution.complete(httpResponse, failure);
+      if (response != null) {
+        if (response instanceof DefaultResponse) {
+          ((DefaultResponse) response).setRoundTripNanos(roundTripNanos);
+        }
+        return response;
+      }
+    }
+  }
+
+  @Override
+  public Future<Response> executeRequestAsync(Request request, FutureCallback<Response> callback) {
+    Assert.notNull(request, "Request argument cannot be null.");
+    BasicFuture<Response> future = new BasicFuture<>(callback);
+    sendAsync(new Execution(request), future);
+    return future;
+  }
+
+  /**
+   * Does nothing, as the {@link HttpClient} of Java 11 can not be closed. Its threads are daemon
+   * threads, and they and its connections are released once the executor is no longer reachable.
+   */
+  @Override
+  public void shutdown() {
+  }
+
+  private void sendAsync(final Execution execution, final BasicFuture<Response> future) {
+    if (future.isDone()) {
+      // cancelled by the caller while waiting for a retry
+      return;
+    }
+
+    final HttpRequest httpRequest;
+    try {
+      httpRequest = execution.nextRequest();
+    } catch (RuntimeException e) {
+      future.failed(e);
+      return;
+    }
+
+    if (execution.delayMillis > 0) {
+      // retries wait on the delayed executor, never on the client threads
+      CompletableFuture.delayedExecutor(execution.delayMillis, TimeUnit.MILLISECONDS)
+          .execute(() -> sendWhenAllowed(execution, httpRequest, future));
+    } else {
+      sendWhenAllowed(execution, httpRequest, future);
+    }
+  }
+
+  private void sendWhenAllowed(Execution execution, HttpRequest httpRequest, BasicFuture<Response> future) {
+    if (future.isDone()) {
+      // cancelled by the caller while waiting
+      return;
+    }
+
+    long wait = rateLimitGovernor.tryAcquire();
+    if (wait > 0) {
+      // held back by the rate limit, try again when a slot may be free
+      CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS)
+          .execute(() -> sendWhenAllowed(execution, httpRequest, future));
+      return;
+    }
+
+    try {
+      resiliencePolicy.beforeAttempt(httpRequest.uri(), execution.retryCount > 1);
+    } catch (CircuitBreakerOpenException e) {
+      future.failed(e);
+      return;
+    }
+
+    httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((httpResponse, failure) -> {
+      Response response;
+      try {
+        response = execution.complete(httpResponse, failure instanceof CompletionException ? failure.getCause() : failure);
+      } catch (RuntimeException e) {
+        future.failed(e);
+        return;
+      }
+      if (response != null) {
+        future.completed(response);
+      } else {
+        sendAsync(execution, future);
+      }
+    });
+  }
+
+  /**
+   * State of one request across its redirects and retries, shared by the blocking and the
+   * asynchronous execution.
+   */
+  private class Execution {
+
+    private final QueryString originalQuery = new QueryString();
+    private final HttpHeaders originalHeaders = new HttpHeaders();
+    // the body is read once, so it can be sent again on redirects and retries
+    private final byte[] body;
+
+    private Request request;
+    private URI redirectUri;
+    private RestException exception;
+    private int retryCount;
+    // back-off to wait before sending the request returned by nextRequest()
+    private long delayMillis;
+    private URI httpRequestUri;
+
+    Execution(Request request) {
+      this.request = request;
+      this.body = readBody(request);
+      // Make a copy of the original request params and headers so that we can
+      // permute them and start over with the original every time.
+      originalQuery.putAll(request.getQueryString());
+      originalHeaders.putAll(request.getHeaders());
+    }
+
+    HttpRequest nextRequest() {
+      if (redirectUri != null) {
+        request = new DefaultRequest(
+            request.getMethod(),
+            redirectUri.toString(),
+            null,
+            null,
+            request.getBody(),
+            request.getHeaders().getContentLength()
+        );
+      }
+
+      if (retryCount > 0) {
+        request.setQueryString(originalQuery);
+        request.setHeaders(originalHeaders);
+      }
+
+      // Sign the request
+      if (apiKey != null) {
+        requestAuthenticator.authenticate(request, apiKey);
+      }
+
+      HttpRequest httpRequest = createHttpRequest(request, body);
+      httpRequestUri = httpRequest.uri();
+
+      // We don't want to treat a redirect like a retry,
+      // so if redirectUri is not null, we won't pause
+      // before executing the request.
+      delayMillis = retryCount > 0 && redirectUri == null ? getDelayMillis(retryCount, exception, delayMillis) : 0;
+      if (delayMillis > 0) {
+        log.debug("Retryable condition detected, will retry in {}ms, attempt number: {}", delayMillis, retryCount);
+      }
+
+      // reset redirectUri so that if there is an exception, we will pause on retry
+      redirectUri = null;
+      exception = null;
+      retryCount++;
+
+      return httpRequest;
+    }
+
+    /**
+     * Handles the outcome of the last sent request.
+     *
+     * @return the response, or null if the request should be sent again
+     * @throws RestException if the request failed and should not be retried
+     */
+    Response complete(HttpResponse<byte[]> httpResponse, Throwable failure) {
+      if (failure != null) {
+        resiliencePolicy.onFailure(httpRequestUri);
+      } else {
+        try {
+          if (isRedirect(httpResponse)) {
+            String location = httpResponse.headers().firstValue("Location").get();
+            log.debug("Redirecting to: {}", location);
+            redirectUri = request.getResourceUrl().resolve(location);
+            return null;
+          }
+
+          Response response = toSdkResponse(httpResponse);
+
+          int httpStatus = response.getHttpStatus();
+          rateLimitGovernor.update(httpStatus, response.getHeaders());
+          resiliencePolicy.onResponse(httpRequestUri, httpStatus);
+
+          if (httpStatus == 429) {
+            throw new RestException("HTTP 429: Too Many Requests.  Exceeded request rate limit in the allotted amount of time.");
+          }
+          if ((httpStatus == 503 || httpStatus == 504) && retryCount <= numRetries && resiliencePolicy.allowRetry()) {
+            //allow the request to be sent again
+            return null;
+          }
+
+          return response;
+        } catch (IOException | RuntimeException e) {
+          failure = e;
+        }
+      }
+
+      log.warn("Unable to execute HTTP request: {}", failure.getMessage(), failure);
+
+      if (failure instanceof RestException) {
+        exception = (RestException) failure;
+      }
+
+      if (!shouldRetry(failure, retryCount)) {
+        throw new RestException("Unable to execute HTTP request: " + failure.getMessage(), failure);
+      }
+      return null;
+    }
+  }
+
+  private HttpRequest createHttpRequest(Request request, byte[] body) {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(getFullyQualifiedUri(request));
+    if (requestTimeout != null) {
+      builder.timeout(requestTimeout);
+    }
+
+    HttpMethod method = request.getMethod();
+    switch (method) {
+      case HEAD:
+      case GET:
+      case DELETE:
+        builder.method(method.name(), HttpRequest.BodyPublishers.noBody());
+        break;
+      case POST:
+      case PATCH:
+        builder.method(method.name(), HttpRequest.BodyPublishers.ofByteArray(body));
+        break;
+      case PUT:
+        // find out as early as possible if a potentially large upload will fail
+        builder.expectContinue(true);
+        builder.method(method.name(), body.length > 0
+            ? HttpRequest.BodyPublishers.ofByteArray(body)
+            : HttpRequest.BodyPublishers.noBody());
+        break;
+      default:
+        throw new IllegalArgumentException("Unrecognized HttpMethod: " + method);
+    }
+
+    builder.header("Accept-Encoding", "gzip");
+
+    // Copy over any other headers already in our request, except those the HttpClient sets itself
+    for (Map.Entry<String, List<String>> entry : request.getHeaders().entrySet()) {
+      if (!RESTRICTED_HEADERS.contains(entry.getKey().toLowerCase())) {
+        builder.header(entry.getKey(), Strings.collectionToCommaDelimitedString(entry.getValue()));
+      }
+    }
+
+    return builder.build();
+  }
+
+  private URI getFullyQualifiedUri(Request request) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(request.getResourceUrl().normalize());
+    QueryString query = request.getQueryString();
+    if (query != null && !query.isEmpty()) {
+      sb.append("?").append(query.toString());
+    }
+
+    return URI.create(sb.toString());
+  }
+
+  private static byte[] readBody(Request request) {
+    InputStream body = request.getBody();
+    if (body == null) {
+      return new byte[0];
+    }
+    try {
+      return body.readAllBytes();
+    } catch (IOException e) {
+      throw new RestException("Unable to read request body: " + e.getMessage(), e);
+    }
+  }
+
+  private boolean isRedirect(HttpResponse<?> response) {
+    int status = response.statusCode();
+    return (status == 301 || status == 302 || status == 307) &&
+        response.headers().firstValue("Location").isPresent();
+  }
+
+  private long getDelayMillis(int retries, RestException previousException, long previousDelayMillis) {
+    if (previousException != null && isThrottlingException(previousException)) {
+      // the server told when it accepts requests again
+      long pause = rateLimitGovernor.getPauseMillis();
+      if (pause > 0) {
+        return pause;
+      }
+    }
+    long delay;
+    if (backoffStrategy != null) {
+      delay = this.backoffStrategy.getDelayMillis(retries);
+    } else {
+      delay = resiliencePolicy.getDelayMillis(previousDelayMillis);
+    }
+    return Math.min(delay, MAX_BACKOFF_IN_MILLISECONDS);
+  }
+
+  /**
+   * Returns true if a failed request should be retried. Request bodies are buffered, so unlike
+   * with the Apache client every request can be repeated.
+   *
+   * @param t       The throwable from the failed request.
+   * @param retries The number of times the current request has been attempted.
+   * @return True if the failed request should be retried.
+   */
+  private boolean shouldRetry(Throwable t, int retries) {
+    if (retries > this.numRetries) {
+      return false;
+    }
+
+    if (t instanceof HttpTimeoutException ||
+        t instanceof SocketException ||
+        t instanceof SocketTimeoutException ||
+        t instanceof EOFException) {
+      log.debug("Retrying on {}: {}", t.getClass().getName(), t.getMessage());
+      return resiliencePolicy.allowRetry();
+    }
+
+    /*
+     * Throttling is reported as a 429 error. To try
+     * and smooth out an occasional throttling error, we'll pause and
+     * retry, hoping that the pause is long enough for the request to
+     * get through the next time.
+     */
+    return t instanceof RestException && isThrottlingException((RestException) t) && resiliencePolicy.allowRetry();
+  }
+
+  private boolean isThrottlingException(RestException re) {
+    String msg = re.getMessage();
+    return msg != null && msg.contains("HTTP 429");
+  }
+
+  protected Response toSdkResponse(HttpResponse<byte[]> httpResponse) throws IOException {
+
+    int httpStatus = httpResponse.statusCode();
+
+    HttpHeaders headers = new HttpHeaders();
+    for (Map.Entry<String, List<String>> header : httpResponse.headers().map().entrySet()) {
+      // HTTP/2 pseudo headers are not headers of the response
+      if (!header.getKey().startsWith(":")) {
+        for (String value : header.getValue()) {
+          headers.add(header.getKey(), value);
+        }
+      }
+    }
+
+    byte[] bytes = httpResponse.body();
+    if (bytes != null && bytes.length > 0 &&
+        httpResponse.headers().firstValue("Content-Encoding").map(v -> v.equalsIgnoreCase("gzip")).orElse(false)) {
+      try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+        bytes = gzip.readAllBytes();
+      }
+    }
+
+    InputStream body = bytes != null && bytes.length > 0 ? new ByteArrayInputStream(bytes) : null;
+    long contentLength = body != null ? bytes.length : -1;
+
+    return new DefaultResponse(httpStatus, headers, body, contentLength);
+  }
+}
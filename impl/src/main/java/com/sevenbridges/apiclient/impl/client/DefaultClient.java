@@ -23,13 +23,18 @@ import com.sevenbridges.apiclient.billing.BillingGroupList;
 import com.sevenbridges.apiclient.client.ApiKey;
 import com.sevenbridges.apiclient.client.AuthenticationScheme;
 import com.sevenbridges.apiclient.client.Client;
+import com.sevenbridges.apiclient.client.HttpClientType;
 import com.sevenbridges.apiclient.client.Proxy;
 import com.sevenbridges.apiclient.ds.DataStore;
 import com.sevenbridges.apiclient.file.File;
 import com.sevenbridges.apiclient.file.FileCriteria;
 import com.sevenbridges.apiclient.file.FileList;
 import com.sevenbridges.apiclient.impl.ds.DefaultDataStore;
+import com.sevenbridges.apiclient.impl.ds.InternalDataStore;
 import com.sevenbridges.apiclient.impl.http.RequestExecutor;
+import com.sevenbridges.apiclient.impl.http.support.AdaptiveConcurrencyLimit;
+import com.sevenbridges.apiclient.impl.http.support.ConcurrencyLimitingRequestExecutor;
+import com.sevenbridges.apiclient.impl.transfer.TransferManagerConfiguration;
 import com.sevenbridges.apiclient.invoice.InvoiceCriteria;
 import com.sevenbridges.apiclient.invoice.InvoiceList;
 import com.sevenbridges.apiclient.lang.Assert;
@@ -46,6 +51,8 @@ import com.sevenbridges.apiclient.task.Task;
 import com.sevenbridges.apiclient.task.TaskCriteria;
 import com.sevenbridges.apiclient.task.TaskList;
 import com.sevenbridges.apiclient.task.TaskRequestFactory;
+import com.sevenbridges.apiclient.transfer.BulkUploadContext;
+import com.sevenbridges.apiclient.transfer.DownloadContext;
 import com.sevenbridges.apiclient.transfer.ProgressListener;
 import com.sevenbridges.apiclient.transfer.UploadContext;
 import com.sevenbridges.apiclient.upload.CreateUploadRequest;
@@ -62,7 +69,10 @@ import com.sevenbridges.apiclient.volume.VolumeList;
 import com.sevenbridges.apiclient.volume.VolumeRequestFactory;
 
 import java.lang.reflect.Constructor;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * The default {@link Client} implementation.
@@ -93,14 +103,87 @@ public class DefaultClient implements Client {
    *                             the SevenBridges API server (can be null)
    */
   public DefaultClient(ApiKey apiKey, String baseUrl, Proxy proxy, AuthenticationScheme authenticationScheme, int connectionTimeout) {
+    this(apiKey, baseUrl, proxy, authenticationScheme, connectionTimeout, new TransferManagerConfiguration());
+  }
+
+  /**
+   * Instantiates a new Client instance with its own transfer manager, configured by the provided
+   * transfer configuration.
+   *
+   * @param apiKey                the SevenBridges account API Key that will be used to
+   *                              authenticate the client with SevenBridges's API server
+   * @param baseUrl               the SevenBridges base URL
+   * @param proxy                 the HTTP proxy to be used when communicating with the
+   *                              SevenBridges API server (can be null)
+   * @param authenticationScheme  the HTTP authentication scheme to be used when communicating with
+   *                              the SevenBridges API server (can be null)
+   * @param transferConfiguration the configuration of file transfers of this client
+   */
+  public DefaultClient(ApiKey apiKey, String baseUrl, Proxy proxy, AuthenticationScheme authenticationScheme, int connectionTimeout,
+                       TransferManagerConfiguration transferConfiguration) {
+    this(apiKey, baseUrl, proxy, authenticationScheme, HttpClientType.APACHE, connectionTimeout, transferConfiguration);
+  }
+
+  /**
+   * Instantiates a new Client instance which executes API calls with the provided HTTP client
+   * implementation.
+   *
+   * @param apiKey                the SevenBridges account API Key that will be used to
+   *                              authenticate the client with SevenBridges's API server
+   * @param baseUrl               the SevenBridges base URL
+   * @param proxy                 the HTTP proxy to be used when communicating with the
+   *                              SevenBridges API server (can be null)
+   * @param authenticationScheme  the HTTP authentication scheme to be used when communicating with
+   *                              the SevenBridges API server (can be null)
+   * @param httpClientType        the HTTP client implementation executing API calls
+   * @param transferConfiguration the configuration of file transfers of this client
+   */
+  public DefaultClient(ApiKey apiKey, String baseUrl, Proxy proxy, AuthenticationScheme authenticationScheme,
+                       HttpClientType httpClientType, int connectionTimeout, TransferManagerConfiguration transferConfiguration) {
+    this(apiKey, baseUrl, proxy, authenticationScheme, httpClientType, connectionTimeout, transferConfiguration, null);
+  }
+
+  /**
+   * Instantiates a new Client instance which keeps its blocking API calls within the provided
+   * adaptive concurrency limit.
+   *
+   * @param apiKey                the SevenBridges account API Key that will be used to
+   *                              authenticate the client with SevenBridges's API server
+   * @param baseUrl               the SevenBridges base URL
+   * @param proxy                 the HTTP proxy to be used when communicating with the
+   *                              SevenBridges API server (can be null)
+   * @param authenticationScheme  the HTTP authentication scheme to be used when communicating with
+   *                              the SevenBridges API server (can be null)
+   * @param httpClientType        the HTTP client implementation executing API calls
+   * @param transferConfiguration the configuration of file transfers of this client
+   * @param concurrencyLimit      the limit on concurrent API calls (can be null, for no limit)
+   */
+  public DefaultClient(ApiKey apiKey, String baseUrl, Proxy proxy, AuthenticationScheme authenticationScheme,
+                       HttpClientType httpClientType, int connectionTimeout, TransferManagerConfiguration transferConfiguration,
+                       AdaptiveConcurrencyLimit concurrencyLimit) {
     Assert.notNull(apiKey, "apiKey argument cannot be null.");
+    Assert.notNull(httpClientType, "httpClientType argument cannot be null.");
     Assert.isTrue(connectionTimeout >= 0, "connectionTimeout cannot be a negative number.");
-    RequestExecutor requestExecutor = createRequestExecutor(apiKey, proxy, authenticationScheme, connectionTimeout);
-    this.dataStore = createDataStore(requestExecutor, baseUrl, apiKey);
+    Assert.notNull(transferConfiguration, "transferConfiguration argument cannot be null.");
+    RequestExecutor requestExecutor = createRequestExecutor(apiKey, proxy, authenticationScheme, httpClientType, connectionTimeout);
+    if (concurrencyLimit != null) {
+      requestExecutor = new ConcurrencyLimitingRequestExecutor(requestExecutor, concurrencyLimit);
+    }
+    this.dataStore = createDataStore(requestExecutor, baseUrl, apiKey, transferConfiguration);
   }
 
+  /**
+   * @deprecated use {@link #createDataStore(RequestExecutor, String, ApiKey, TransferManagerConfiguration)},
+   * this creates the data store with the default transfer configuration.
+   */
+  @Deprecated
   protected DataStore createDataStore(RequestExecutor requestExecutor, String baseUrl, ApiKey apiKey) {
-    return new DefaultDataStore(requestExecutor, baseUrl, apiKey);
+    return createDataStore(requestExecutor, baseUrl, apiKey, new TransferManagerConfiguration());
+  }
+
+  protected DataStore createDataStore(RequestExecutor requestExecutor, String baseUrl, ApiKey apiKey,
+                                      TransferManagerConfiguration transferConfiguration) {
+    return new DefaultDataStore(requestExecutor, baseUrl, apiKey, transferConfiguration);
   }
 
   @Override
@@ -136,20 +219,19 @@ public class DefaultClient implements Client {
   }
 
   @SuppressWarnings({"unchecked", "rawtypes"})
-  private RequestExecutor createRequestExecutor(ApiKey apiKey, Proxy proxy, AuthenticationScheme authenticationScheme, int connectionTimeout) {
+  private RequestExecutor createRequestExecutor(ApiKey apiKey, Proxy proxy, AuthenticationScheme authenticationScheme,
+                                                HttpClientType httpClientType, int connectionTimeout) {
 
-    String className = "com.sevenbridges.apiclient.impl.http.httpclient.HttpClientRequestExecutor";
+    String className = httpClientType.getRequestExecutorClassName();
 
     Class requestExecutorClass;
 
     if (Classes.isAvailable(className)) {
       requestExecutorClass = Classes.forName(className);
     } else {
-      //we might be able to check for other implementations in the future, but for now, we only
-      //support HTTP calls via the HttpClient.  Throw an exception:
-
+      String jar = httpClientType == HttpClientType.JDK ? "sevenbridges-java-jdkhttp.jar" : "sevenbridges-java-httpclient.jar";
       String msg = "Unable to find the '" + className + "' implementation on the classpath.  Please ensure you " +
-          "have added the sevenbridges-java-httpclient.jar file to your runtime classpath.";
+          "have added the " + jar + " file to your runtime classpath.";
       throw new RuntimeException(msg);
     }
 
@@ -209,6 +291,35 @@ public class DefaultClient implements Client {
     return this.dataStore.getResource(href, clazz, options);
   }
 
+  /**
+   * Delegates to the internal {@code dataStore} instance.
+   *
+   * @param href  the resource URL of the resource to retrieve
+   * @param clazz the {@link Resource} sub-interface to instantiate
+   * @param <T>   type parameter indicating the returned value is a {@link Resource} instance.
+   * @return future of the instance of the specified class based on the data returned from the
+   * specified {@code href} URL.
+   */
+  @Override
+  public <T extends Resource> Future<T> getResourceAsync(String href, Class<T> clazz) {
+    return this.dataStore.getResourceAsync(href, clazz);
+  }
+
+  /**
+   * Delegates to the internal {@code dataStore} instance.
+   *
+   * @param href    the URL of the resource to retrieve
+   * @param clazz   the {@link Resource} sub-interface to instantiate
+   * @param options the {@link Options} sub-interface with the properties to expand
+   * @param <T>     type parameter indicating the returned value is a {@link Resource} instance.
+   * @return future of the instance of the specified {@code Class} based on the data returned from
+   * the specified {@code href} URL.
+   */
+  @Override
+  public <T extends Resource, O extends Options> Future<T> getResourceAsync(String href, Class<T> clazz, O options) {
+    return this.dataStore.getResourceAsync(href, clazz, options);
+  }
+
   ////////////////////////////////////////////////////////////////////////
   // Billing
   ////////////////////////////////////////////////////////////////////////
@@ -429,6 +540,11 @@ public class DefaultClient implements Client {
     return getCurrentUser().submitUpload(uploadRequest, listener);
   }
 
+  @Override
+  public BulkUploadContext submitUploads(Collection<CreateUploadRequest> uploadRequests) {
+    return getCurrentUser().submitUploads(uploadRequests);
+  }
+
   @Override
   public UploadContext resumeUpload(UploadContext pausedContext, java.io.File file) {
     return getCurrentUser().resumeUpload(pausedContext, file);
@@ -449,9 +565,59 @@ public class DefaultClient implements Client {
     return getCurrentUser().resumeUpload(pausedUpload, file, listener);
   }
 
+  @Override
+  public UploadContext resumeUpload(String uploadId, java.io.File file) {
+    return getCurrentUser().resumeUpload(uploadId, file);
+  }
+
+  @Override
+  public UploadContext resumeUpload(String uploadId, java.io.File file, ProgressListener listener) {
+    return getCurrentUser().resumeUpload(uploadId, file, listener);
+  }
+
+  @Override
+  public DownloadContext submitDownload(File file, Path destination) {
+    return getCurrentUser().submitDownload(file, destination);
+  }
+
+  @Override
+  public DownloadContext submitDownload(File file, Path destination, ProgressListener listener) {
+    return getCurrentUser().submitDownload(file, destination, listener);
+  }
+
+  @Override
+  public DownloadContext resumeDownload(DownloadContext pausedContext) {
+    return getCurrentUser().resumeDownload(pausedContext);
+  }
+
+  @Override
+  public DownloadContext resumeDownload(DownloadContext pausedContext, ProgressListener listener) {
+    return getCurrentUser().resumeDownload(pausedContext, listener);
+  }
+
+  @Override
+  public DownloadContext resumeDownload(File file, Path destination) {
+    return getCurrentUser().resumeDownload(file, destination);
+  }
+
+  @Override
+  public DownloadContext resumeDownload(File file, Path destination, ProgressListener listener) {
+    return getCurrentUser().resumeDownload(file, destination, listener);
+  }
+
   @Override
   public void shutdownTransferService() {
-    getCurrentUser().shutdownTransferService();
+    if (dataStore instanceof InternalDataStore) {
+      // without fetching the current user, so shutting down does not call the API
+      ((InternalDataStore) dataStore).shutdownTransferManager();
+    } else {
+      getCurrentUser().shutdownTransferService();
+    }
+  }
+
+  @Override
+  public void setTransferBandwidthLimit(long bytesPerSecond) {
+    getCurrentUser().setTransferBandwidthLimit(bytesPerSecond);
   }
 
 }
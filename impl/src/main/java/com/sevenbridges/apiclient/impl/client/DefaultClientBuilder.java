@@ -18,6 +18,7 @@ package com.sevenbridges.apiclient.impl.client;
 import com.sevenbridges.apiclient.client.ApiKey;
 import com.sevenbridges.apiclient.client.ApiKeyBuilder;
 import com.sevenbridges.apiclient.client.AuthenticationScheme;
+import com.sevenbridges.apiclient.client.HttpClientType;
 import com.sevenbridges.apiclient.client.Client;
 import com.sevenbridges.apiclient.client.ClientBuilder;
 import com.sevenbridges.apiclient.client.Proxy;
@@ -29,18 +30,20 @@ import com.sevenbridges.apiclient.impl.config.provider.DefaultConfigProvider;
 import com.sevenbridges.apiclient.impl.config.provider.EmptyConfigProvider;
 import com.sevenbridges.apiclient.impl.config.provider.EnvironmentVariableConfigProvider;
 import com.sevenbridges.apiclient.impl.config.provider.FileConfigProvider;
+import com.sevenbridges.apiclient.impl.http.support.AdaptiveConcurrencyLimit;
 import com.sevenbridges.apiclient.impl.io.ClasspathResource;
 import com.sevenbridges.apiclient.impl.io.DefaultResourceFactory;
 import com.sevenbridges.apiclient.impl.io.Resource;
 import com.sevenbridges.apiclient.impl.io.ResourceFactory;
 import com.sevenbridges.apiclient.impl.transfer.TransferManagerConfiguration;
-import com.sevenbridges.apiclient.impl.transfer.TransferManagerFactory;
 import com.sevenbridges.apiclient.lang.Assert;
+import com.sevenbridges.apiclient.lang.Strings;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,10 +70,34 @@ public class DefaultClientBuilder implements ClientBuilder {
   private Integer connectionTimeout = null;
   private Proxy proxy = null;
   private AuthenticationScheme scheme = null;
+  private HttpClientType httpClientType = null;
+  private Boolean concurrencyLimit = null;
+  private Integer concurrencyLimitMaximum = null;
+  private Long concurrencyLimitMaxWait = null;
 
   private Integer maxPartRetry = null;
   private Integer maxParallelUploads = null;
   private Integer maxParallelParts = null;
+  private Integer maxParallelDownloadParts = null;
+  private String uploadCheckpointDirectory = null;
+  private Long uploadLivenessCheckInterval = null;
+  private Integer maxInFlightParts = null;
+  private Boolean adaptiveUploads = null;
+  private Integer prewarmConnections = null;
+  private Integer transferIoThreads = null;
+  private Integer transferMaxConnections = null;
+  private Integer transferMaxConnectionsPerRoute = null;
+  private Integer transferConnectTimeout = null;
+  private Integer transferSocketTimeout = null;
+  private Integer transferSocketSendBufferSize = null;
+  private Integer transferSocketReceiveBufferSize = null;
+  private Integer transferListenerThreads = null;
+  private Long transferProgressUpdateInterval = null;
+  private Long maxBandwidth = null;
+  private Long maxTransferBandwidth = null;
+  private Boolean computeUploadMD5 = null;
+  private Integer uploadHashingThreads = null;
+  private String uploadHashCacheFile = null;
 
   private ConfigProvider environmentVariables;
   private ConfigProvider fromUserHome;
@@ -133,6 +160,33 @@ public class DefaultClientBuilder implements ClientBuilder {
     return this;
   }
 
+  @Override
+  public ClientBuilder setHttpClientType(HttpClientType httpClientType) {
+    Assert.notNull(httpClientType, "HttpClientType cannot be null");
+    this.httpClientType = httpClientType;
+    return this;
+  }
+
+  @Override
+  public ClientBuilder setConcurrencyLimit(boolean concurrencyLimit) {
+    this.concurrencyLimit = concurrencyLimit;
+    return this;
+  }
+
+  @Override
+  public ClientBuilder setConcurrencyLimitMaximum(int maxConcurrentRequests) {
+    Assert.isTrue(maxConcurrentRequests > 0, "Maximum concurrent requests must be greater than zero.");
+    this.concurrencyLimitMaximum = maxConcurrentRequests;
+    return this;
+  }
+
+  @Override
+  public ClientBuilder setConcurrencyLimitMaxWait(long maxWait) {
+    Assert.isTrue(maxWait >= 0, "Maximum wait cannot be a negative number.");
+    this.concurrencyLimitMaxWait = maxWait;
+    return this;
+  }
+
   @Override
   public ClientBuilder setConnectionTimeout(int timeout) {
     Assert.isTrue(timeout >= 0, "Timeout cannot be a negative number.");
@@ -194,6 +248,277 @@ public class DefaultClientBuilder implements ClientBuilder {
     return this;
   }
 
+  /**
+   * Sets the maximum number of byte ranges of one file that are downloaded in parallel using
+   * internal transfer manager service. Each running download also occupies one of the threads set
+   * by 'maximum parallel uploads' until it completes. Default value is 4
+   *
+   * @param maximumParallelDownloadParts maximum number of parallel parts per active download
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setMaximumParallelDownloadParts(int maximumParallelDownloadParts) {
+    Assert.isTrue(maximumParallelDownloadParts >= 0, "Max parallel download parts cannot be a negative number.");
+    this.maxParallelDownloadParts = maximumParallelDownloadParts;
+    return this;
+  }
+
+  /**
+   * Sets the directory where the internal transfer manager keeps a checkpoint file for every
+   * upload, so interrupted uploads can be resumed without listing their parts on the server.
+   * Checkpoints are disabled by default
+   *
+   * @param checkpointDirectory path of the directory to keep upload checkpoints in
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setUploadCheckpointDirectory(String checkpointDirectory) {
+    Assert.hasText(checkpointDirectory, "Checkpoint directory must not be null or empty");
+    this.uploadCheckpointDirectory = checkpointDirectory;
+    return this;
+  }
+
+  /**
+   * Sets the interval, in milliseconds, in which the internal transfer manager checks that active
+   * uploads were not aborted by some external use. Default value is 30000
+   *
+   * @param livenessCheckInterval interval between two checks in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setUploadLivenessCheckInterval(long livenessCheckInterval) {
+    Assert.isTrue(livenessCheckInterval > 0, "Liveness check interval must be a positive number.");
+    this.uploadLivenessCheckInterval = livenessCheckInterval;
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of parts that are uploaded in parallel across all uploads of the
+   * internal transfer manager. By default it is the multiple of 'maximum parallel uploads' and
+   * 'maximum parallel parts' numbers
+   *
+   * @param maximumInFlightParts maximum number of parts uploaded at any given time
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setMaximumInFlightParts(int maximumInFlightParts) {
+    Assert.isTrue(maximumInFlightParts > 0, "Max in flight parts must be a positive number.");
+    this.maxInFlightParts = maximumInFlightParts;
+    return this;
+  }
+
+  /**
+   * Enables adaptive part sizes and number of parallel parts of uploads in the internal transfer
+   * manager. Disabled by default
+   *
+   * @param adaptiveUploads true to enable adaptive uploads
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setAdaptiveUploads(boolean adaptiveUploads) {
+    this.adaptiveUploads = adaptiveUploads;
+    return this;
+  }
+
+  /**
+   * Sets how many connections are opened ahead to a storage host when an upload sends its first
+   * part there. Zero disables pre-warming. Defaults to 'maximum parallel parts'
+   *
+   * @param prewarmConnections number of connections to open ahead
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setUploadPrewarmConnections(int prewarmConnections) {
+    Assert.isTrue(prewarmConnections >= 0, "Prewarm connections cannot be a negative number.");
+    this.prewarmConnections = prewarmConnections;
+    return this;
+  }
+
+  /**
+   * Sets the number of IO threads of the transfer client. Defaults to the number of available
+   * processors
+   *
+   * @param ioThreads number of IO threads
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferIoThreads(int ioThreads) {
+    Assert.isTrue(ioThreads > 0, "Transfer IO threads must be a positive number.");
+    this.transferIoThreads = ioThreads;
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of transfer connections. Default value is 200
+   *
+   * @param maximumConnections maximum number of transfer connections
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferMaximumConnections(int maximumConnections) {
+    Assert.isTrue(maximumConnections > 0, "Max transfer connections must be a positive number.");
+    this.transferMaxConnections = maximumConnections;
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of transfer connections to one host. Default value is 50
+   *
+   * @param maximumConnectionsPerRoute maximum number of transfer connections to one host
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferMaximumConnectionsPerRoute(int maximumConnectionsPerRoute) {
+    Assert.isTrue(maximumConnectionsPerRoute > 0, "Max transfer connections per route must be a positive number.");
+    this.transferMaxConnectionsPerRoute = maximumConnectionsPerRoute;
+    return this;
+  }
+
+  /**
+   * Sets the connect timeout of transfer connections. Default value is 10000
+   *
+   * @param connectTimeout connect timeout in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferConnectTimeout(int connectTimeout) {
+    Assert.isTrue(connectTimeout > 0, "Transfer connect timeout must be a positive number.");
+    this.transferConnectTimeout = connectTimeout;
+    return this;
+  }
+
+  /**
+   * Sets the socket timeout of transfer connections. Default value is 10000
+   *
+   * @param socketTimeout socket timeout in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferSocketTimeout(int socketTimeout) {
+    Assert.isTrue(socketTimeout > 0, "Transfer socket timeout must be a positive number.");
+    this.transferSocketTimeout = socketTimeout;
+    return this;
+  }
+
+  /**
+   * Sets the socket send buffer size of transfer connections. Left to the operating system by
+   * default
+   *
+   * @param sendBufferSize socket send buffer size in bytes
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferSocketSendBufferSize(int sendBufferSize) {
+    Assert.isTrue(sendBufferSize > 0, "Transfer socket send buffer size must be a positive number.");
+    this.transferSocketSendBufferSize = sendBufferSize;
+    return this;
+  }
+
+  /**
+   * Sets the socket receive buffer size of transfer connections. Left to the operating system by
+   * default
+   *
+   * @param receiveBufferSize socket receive buffer size in bytes
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferSocketReceiveBufferSize(int receiveBufferSize) {
+    Assert.isTrue(receiveBufferSize > 0, "Transfer socket receive buffer size must be a positive number.");
+    this.transferSocketReceiveBufferSize = receiveBufferSize;
+    return this;
+  }
+
+  /**
+   * Sets the number of threads that call progress listeners of transfers. Default value is 1
+   *
+   * @param listenerThreads number of threads calling progress listeners
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferListenerThreads(int listenerThreads) {
+    Assert.isTrue(listenerThreads > 0, "Transfer listener threads must be a positive number.");
+    this.transferListenerThreads = listenerThreads;
+    return this;
+  }
+
+  /**
+   * Sets the interval of progress snapshots delivered to progress listeners. Default value is 1000
+   *
+   * @param progressUpdateInterval interval between two snapshots in milliseconds
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setTransferProgressUpdateInterval(long progressUpdateInterval) {
+    Assert.isTrue(progressUpdateInterval > 0, "Progress update interval must be a positive number.");
+    this.transferProgressUpdateInterval = progressUpdateInterval;
+    return this;
+  }
+
+  /**
+   * Sets the bandwidth limit shared by all transfers of the client. Default value is 0, no limit
+   *
+   * @param maxBandwidth maximum number of bytes transferred per second
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setMaxBandwidth(long maxBandwidth) {
+    Assert.isTrue(maxBandwidth >= 0, "Maximum bandwidth must not be a negative number.");
+    this.maxBandwidth = maxBandwidth;
+    return this;
+  }
+
+  /**
+   * Sets the bandwidth limit of each single transfer. Default value is 0, no limit
+   *
+   * @param maxTransferBandwidth maximum number of bytes transferred per second by one transfer
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setMaxTransferBandwidth(long maxTransferBandwidth) {
+    Assert.isTrue(maxTransferBandwidth >= 0, "Maximum transfer bandwidth must not be a negative number.");
+    this.maxTransferBandwidth = maxTransferBandwidth;
+    return this;
+  }
+
+  /**
+   * Enables MD5 computation of uploads. Default value is false
+   *
+   * @param computeUploadMD5 true to compute MD5 of uploads
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setComputeUploadMD5(boolean computeUploadMD5) {
+    this.computeUploadMD5 = computeUploadMD5;
+    return this;
+  }
+
+  /**
+   * Sets the number of threads that compute MD5 of uploads. Default value is half of the processors
+   *
+   * @param hashingThreads number of hashing threads
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setUploadHashingThreads(int hashingThreads) {
+    Assert.isTrue(hashingThreads > 0, "Number of hashing threads must be a positive number.");
+    this.uploadHashingThreads = hashingThreads;
+    return this;
+  }
+
+  /**
+   * Sets the file where MD5 digests of local files are kept between runs. Digests are kept in
+   * memory only by default
+   *
+   * @param hashCacheFile path of the hash cache file
+   * @return the ClientBuilder instance for method chaining
+   */
+  @Override
+  public ClientBuilder setUploadHashCacheFile(String hashCacheFile) {
+    Assert.hasText(hashCacheFile, "Hash cache file must not be null or empty");
+    this.uploadHashCacheFile = hashCacheFile;
+    return this;
+  }
+
   /**
    * Sets the profile to be used when searching for config in configuration files. If none is
    * provided default config name is 'default'
@@ -305,6 +630,28 @@ public class DefaultClientBuilder implements ClientBuilder {
       this.scheme = AuthenticationScheme.valueOf(authScheme);
     }
 
+    if (this.httpClientType == null) {
+      String httpClient = providersChain.getPropertyForProfileOrDefault(profile, CLIENT_HTTP_CLIENT_PROPERTY_NAME);
+      this.httpClientType = Strings.hasText(httpClient) ? HttpClientType.valueOf(httpClient.trim()) : HttpClientType.APACHE;
+    }
+
+    if (this.concurrencyLimit == null) {
+      String parsed = providersChain.getPropertyForProfile(profile, CLIENT_CONCURRENCY_LIMIT_PROPERTY_NAME);
+      this.concurrencyLimit = Strings.hasText(parsed) && Boolean.parseBoolean(parsed.trim());
+    }
+    if (this.concurrencyLimitMaximum == null) {
+      this.concurrencyLimitMaximum = getIntegerProperty(providersChain, CLIENT_CONCURRENCY_LIMIT_MAXIMUM_PROPERTY_NAME);
+    }
+    if (this.concurrencyLimitMaxWait == null) {
+      this.concurrencyLimitMaxWait = getLongProperty(providersChain, CLIENT_CONCURRENCY_LIMIT_MAX_WAIT_PROPERTY_NAME);
+    }
+    AdaptiveConcurrencyLimit adaptiveConcurrencyLimit = null;
+    if (this.concurrencyLimit) {
+      adaptiveConcurrencyLimit = new AdaptiveConcurrencyLimit(
+          this.concurrencyLimitMaximum != null ? this.concurrencyLimitMaximum : AdaptiveConcurrencyLimit.DEFAULT_MAX_LIMIT,
+          this.concurrencyLimitMaxWait != null ? this.concurrencyLimitMaxWait : AdaptiveConcurrencyLimit.DEFAULT_MAX_WAIT_MILLIS);
+    }
+
     // transfer manager config
     if (this.maxPartRetry == null) {
       String partRetry = providersChain.getPropertyForProfile(profile, CLIENT_MAXIMUM_UPLOAD_PART_RETRY);
@@ -333,7 +680,136 @@ public class DefaultClientBuilder implements ClientBuilder {
         this.maxParallelParts = -1;
       }
     }
-    TransferManagerFactory.setConfiguration(new TransferManagerConfiguration(this.maxParallelUploads, this.maxPartRetry, this.maxParallelParts));
+    if (this.maxParallelDownloadParts == null) {
+      this.maxParallelDownloadParts = getIntegerProperty(providersChain, CLIENT_MAXIMUM_PARALLEL_PARTS_PER_DOWNLOAD);
+    }
+    if (this.uploadCheckpointDirectory == null) {
+      this.uploadCheckpointDirectory = providersChain.getPropertyForProfile(profile, CLIENT_UPLOAD_CHECKPOINT_DIRECTORY);
+    }
+    if (this.uploadLivenessCheckInterval == null) {
+      String parsed = providersChain.getPropertyForProfile(profile, CLIENT_UPLOAD_LIVENESS_CHECK_INTERVAL);
+      try {
+        this.uploadLivenessCheckInterval = Long.parseLong(parsed);
+      } catch (NumberFormatException e) {
+        log.warn("Error while parsing provided value for key 'liveness_check_interval', value '{}'", parsed, e);
+        this.uploadLivenessCheckInterval = -1L;
+      }
+    }
+    if (this.maxInFlightParts == null) {
+      String parsed = providersChain.getPropertyForProfile(profile, CLIENT_MAXIMUM_IN_FLIGHT_PARTS);
+      if (Strings.hasText(parsed)) {
+        try {
+          this.maxInFlightParts = Integer.parseInt(parsed.trim());
+        } catch (NumberFormatException e) {
+          log.warn("Error while parsing provided value for key 'max_in_flight_parts', value '{}'", parsed, e);
+        }
+      }
+    }
+    if (this.adaptiveUploads == null) {
+      String parsed = providersChain.getPropertyForProfile(profile, CLIENT_ADAPTIVE_UPLOADS);
+      this.adaptiveUploads = Strings.hasText(parsed) && Boolean.parseBoolean(parsed.trim());
+    }
+    if (this.prewarmConnections == null) {
+      this.prewarmConnections = getIntegerProperty(providersChain, CLIENT_UPLOAD_PREWARM_CONNECTIONS);
+    }
+    if (this.transferIoThreads == null) {
+      this.transferIoThreads = getIntegerProperty(providersChain, CLIENT_TRANSFER_IO_THREADS);
+    }
+    if (this.transferMaxConnections == null) {
+      this.transferMaxConnections = getIntegerProperty(providersChain, CLIENT_TRANSFER_MAXIMUM_CONNECTIONS);
+    }
+    if (this.transferMaxConnectionsPerRoute == null) {
+      this.transferMaxConnectionsPerRoute = getIntegerProperty(providersChain, CLIENT_TRANSFER_MAXIMUM_CONNECTIONS_PER_ROUTE);
+    }
+    if (this.transferConnectTimeout == null) {
+      this.transferConnectTimeout = getIntegerProperty(providersChain, CLIENT_TRANSFER_CONNECT_TIMEOUT);
+    }
+    if (this.transferSocketTimeout == null) {
+      this.transferSocketTimeout = getIntegerProperty(providersChain, CLIENT_TRANSFER_SOCKET_TIMEOUT);
+    }
+    if (this.transferSocketSendBufferSize == null) {
+      this.transferSocketSendBufferSize = getIntegerProperty(providersChain, CLIENT_TRANSFER_SOCKET_SEND_BUFFER_SIZE);
+    }
+    if (this.transferSocketReceiveBufferSize == null) {
+      this.transferSocketReceiveBufferSize = getIntegerProperty(providersChain, CLIENT_TRANSFER_SOCKET_RECEIVE_BUFFER_SIZE);
+    }
+    if (this.transferListenerThreads == null) {
+      this.transferListenerThreads = getIntegerProperty(providersChain, CLIENT_TRANSFER_LISTENER_THREADS);
+    }
+    if (this.transferProgressUpdateInterval == null) {
+      this.transferProgressUpdateInterval = getLongProperty(providersChain, CLIENT_TRANSFER_PROGRESS_UPDATE_INTERVAL);
+    }
+    if (this.maxBandwidth == null) {
+      this.maxBandwidth = getLongProperty(providersChain, CLIENT_MAXIMUM_BANDWIDTH);
+    }
+    if (this.maxTransferBandwidth == null) {
+      this.maxTransferBandwidth = getLongProperty(providersChain, CLIENT_MAXIMUM_TRANSFER_BANDWIDTH);
+    }
+    if (this.computeUploadMD5 == null) {
+      String parsed = providersChain.getPropertyForProfile(profile, CLIENT_UPLOAD_COMPUTE_MD5);
+      this.computeUploadMD5 = Strings.hasText(parsed) && Boolean.parseBoolean(parsed.trim());
+    }
+    if (this.uploadHashingThreads == null) {
+      this.uploadHashingThreads = getIntegerProperty(providersChain, CLIENT_UPLOAD_HASHING_THREADS);
+    }
+    if (this.uploadHashCacheFile == null) {
+      this.uploadHashCacheFile = providersChain.getPropertyForProfile(profile, CLIENT_UPLOAD_HASH_CACHE_FILE);
+    }
+    TransferManagerConfiguration transferConfiguration = new TransferManagerConfiguration(this.maxParallelUploads, this.maxPartRetry, this.maxParallelParts)
+        .setUploadLivenessCheckInterval(this.uploadLivenessCheckInterval)
+        .setAdaptiveUploads(this.adaptiveUploads)
+        .setComputeUploadMD5(this.computeUploadMD5);
+    if (this.maxParallelDownloadParts != null) {
+      transferConfiguration.setMaxParallelDownloadParts(this.maxParallelDownloadParts);
+    }
+    if (this.maxInFlightParts != null) {
+      transferConfiguration.setMaxInFlightParts(this.maxInFlightParts);
+    }
+    if (Strings.hasText(this.uploadCheckpointDirectory)) {
+      transferConfiguration.setUploadCheckpointDirectory(Paths.get(this.uploadCheckpointDirectory.trim()));
+    }
+    if (this.prewarmConnections != null) {
+      transferConfiguration.setPrewarmConnections(this.prewarmConnections);
+    }
+    if (this.transferIoThreads != null) {
+      transferConfiguration.setIoThreadCount(this.transferIoThreads);
+    }
+    if (this.transferMaxConnections != null) {
+      transferConfiguration.setMaxConnections(this.transferMaxConnections);
+    }
+    if (this.transferMaxConnectionsPerRoute != null) {
+      transferConfiguration.setMaxConnectionsPerRoute(this.transferMaxConnectionsPerRoute);
+    }
+    if (this.transferConnectTimeout != null) {
+      transferConfiguration.setConnectTimeout(this.transferConnectTimeout);
+    }
+    if (this.transferSocketTimeout != null) {
+      transferConfiguration.setSocketTimeout(this.transferSocketTimeout);
+    }
+    if (this.transferSocketSendBufferSize != null) {
+      transferConfiguration.setSocketSendBufferSize(this.transferSocketSendBufferSize);
+    }
+    if (this.transferSocketReceiveBufferSize != null) {
+      transferConfiguration.setSocketReceiveBufferSize(this.transferSocketReceiveBufferSize);
+    }
+    if (this.transferListenerThreads != null) {
+      transferConfiguration.setNumberOfListenerThreads(this.transferListenerThreads);
+    }
+    if (this.transferProgressUpdateInterval != null) {
+      transferConfiguration.setProgressUpdateInterval(this.transferProgressUpdateInterval);
+    }
+    if (this.maxBandwidth != null) {
+      transferConfiguration.setBandwidthLimit(this.maxBandwidth);
+    }
+    if (this.maxTransferBandwidth != null) {
+      transferConfiguration.setTransferBandwidthLimit(this.maxTransferBandwidth);
+    }
+    if (this.uploadHashingThreads != null) {
+      transferConfiguration.setNumberOfHashingThreads(this.uploadHashingThreads);
+    }
+    if (Strings.hasText(this.uploadHashCacheFile)) {
+      transferConfiguration.setHashCacheFile(Paths.get(this.uploadHashCacheFile.trim()));
+    }
 
     // use proxy overrides if they're set
     log.debug("Building proxy, searching predefined locations: {}", locationMessage);
@@ -358,6 +834,33 @@ public class DefaultClientBuilder implements ClientBuilder {
       }
     }
 
-    return new DefaultClient(this.apiKey, this.apiEndpoint, this.proxy, this.scheme, this.connectionTimeout);
+    return new DefaultClient(this.apiKey, this.apiEndpoint, this.proxy, this.scheme, this.httpClientType, this.connectionTimeout,
+        transferConfiguration, adaptiveConcurrencyLimit);
+  }
+
+  private Integer getIntegerProperty(ChainedConfigProvider providersChain, String key) {
+    String parsed = providersChain.getPropertyForProfile(profile, key);
+    if (!Strings.hasText(parsed)) {
+      return null;
+    }
+    try {
+      return Integer.parseInt(parsed.trim());
+    } catch (NumberFormatException e) {
+      log.warn("Error while parsing provided value for key '{}', value '{}'", key, parsed, e);
+      return null;
+    }
+  }
+
+  private Long getLongProperty(ChainedConfigProvider providersChain, String key) {
+    String parsed = providersChain.getPropertyForProfile(profile, key);
+    if (!Strings.hasText(parsed)) {
+      return null;
+    }
+    try {
+      return Long.parseLong(parsed.trim());
+    } catch (NumberFormatException e) {
+      log.warn("Error while parsing provided value for key '{}', value '{}'", key, parsed, e);
+      return null;
+    }
   }
 }
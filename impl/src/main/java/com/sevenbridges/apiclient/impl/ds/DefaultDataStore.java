@@ -18,6 +18,7 @@ package com.sevenbridges.apiclient.impl.ds;
 import com.sevenbridges.apiclient.client.ApiKey;
 import com.sevenbridges.apiclient.http.HttpMethod;
 import com.sevenbridges.apiclient.impl.error.DefaultError;
+import com.sevenbridges.apiclient.impl.http.AsyncRequestExecutor;
 import com.sevenbridges.apiclient.impl.http.CanonicalUri;
 import com.sevenbridges.apiclient.impl.http.HttpHeaders;
 import com.sevenbridges.apiclient.impl.http.MediaType;
@@ -32,6 +33,8 @@ import com.sevenbridges.apiclient.impl.query.DefaultCriteria;
 import com.sevenbridges.apiclient.impl.query.DefaultOptions;
 import com.sevenbridges.apiclient.impl.resource.AbstractResource;
 import com.sevenbridges.apiclient.impl.resource.ReferenceFactory;
+import com.sevenbridges.apiclient.impl.transfer.TransferManager;
+import com.sevenbridges.apiclient.impl.transfer.TransferManagerConfiguration;
 import com.sevenbridges.apiclient.impl.util.StringInputStream;
 import com.sevenbridges.apiclient.impl.util.VersionUtils;
 import com.sevenbridges.apiclient.lang.Assert;
@@ -44,6 +47,8 @@ import com.sevenbridges.apiclient.resource.Resource;
 import com.sevenbridges.apiclient.resource.ResourceException;
 import com.sevenbridges.apiclient.resource.Saveable;
 
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,10 +57,12 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.TreeMap;
+import java.util.concurrent.Future;
 
 public class DefaultDataStore implements InternalDataStore {
 
@@ -89,6 +96,9 @@ public class DefaultDataStore implements InternalDataStore {
   private final ResourceConverter resourceConverter;
   private final QueryStringFactory queryStringFactory;
   private final List<Filter> filters;
+  private final TransferManagerConfiguration transferConfiguration;
+  // created on first transfer, so clients that never transfer files do not start transfer threads
+  private TransferManager transferManager;
 
   public static final String USER_AGENT_STRING = VersionUtils.getUserAgent();
 
@@ -102,9 +112,15 @@ public class DefaultDataStore implements InternalDataStore {
 
 
   public DefaultDataStore(RequestExecutor requestExecutor, String baseUrl, ApiKey apiKey) {
+    this(requestExecutor, baseUrl, apiKey, new TransferManagerConfiguration());
+  }
+
+  public DefaultDataStore(RequestExecutor requestExecutor, String baseUrl, ApiKey apiKey, TransferManagerConfiguration transferConfiguration) {
     Assert.notNull(baseUrl, "baseUrl cannot be null");
     Assert.notNull(requestExecutor, "RequestExecutor cannot be null.");
     Assert.notNull(apiKey, "ApiKey cannot be null.");
+    Assert.notNull(transferConfiguration, "TransferManagerConfiguration cannot be null.");
+    this.transferConfiguration = transferConfiguration;
     this.requestExecutor = requestExecutor;
     this.baseUrl = baseUrl;
     this.apiKey = apiKey;
@@ -125,6 +141,33 @@ public class DefaultDataStore implements InternalDataStore {
     return apiKey;
   }
 
+  /**
+   * @return the executor that sends the requests of this data store, for example to read the
+   * metrics of its resilience policy
+   */
+  public RequestExecutor getRequestExecutor() {
+    return requestExecutor;
+  }
+
+  @Override
+  public synchronized TransferManager getTransferManager() {
+    if (transferManager == null) {
+      transferManager = new TransferManager(transferConfiguration);
+    }
+    return transferManager;
+  }
+
+  @Override
+  public synchronized void shutdownTransferManager() {
+    if (transferManager != null) {
+      transferManager.stopService();
+      transferManager = null;
+    }
+    if (requestExecutor instanceof AsyncRequestExecutor) {
+      ((AsyncRequestExecutor) requestExecutor).shutdown();
+    }
+  }
+
   ////////////////////////////////////////////////////////////////////////
   // Resource Instantiation
   ////////////////////////////////////////////////////////////////////////
@@ -235,6 +278,38 @@ public class DefaultDataStore implements InternalDataStore {
     return (T) getResource(href, clazz, (Map) qs);
   }
 
+  @Override
+  public <T extends Resource> Future<T> getResourceAsync(String href, Class<T> clazz) {
+    return getResourceAsync(href, clazz, (Map<String, Object>) null, null);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends Resource, O extends Options> Future<T> getResourceAsync(String href, Class<T> clazz, O options) {
+    Assert.isInstanceOf(DefaultOptions.class, options, DEFAULT_OPTIONS_MSG);
+    QueryString qs = queryStringFactory.createQueryString((DefaultOptions) options);
+    return getResourceAsync(href, clazz, (Map) qs, null);
+  }
+
+  @Override
+  public <T extends Resource> Future<T> getResourceAsync(String href, final Class<T> clazz, Map<String, Object> queryParameters,
+                                                         FutureCallback<T> callback) {
+    Assert.hasText(href, "href argument cannot be null or empty.");
+    Assert.notNull(clazz, "Resource class argument cannot be null.");
+
+    CanonicalUri uri = canonicalize(href, queryParameters);
+    ResourceDataRequest req = new DefaultResourceDataRequest(ResourceAction.READ, uri, clazz, new HashMap<String, Object>());
+
+    BasicFuture<T> future = new BasicFuture<>(callback);
+    filterAsync(req, readExchange(), new ResultHandler<T>() {
+      @Override
+      public T handle(ResourceDataResult result) {
+        return instantiate(clazz, result.getData(), result.getUri().getQuery());
+      }
+    }, future);
+    return future;
+  }
+
 
   @Override
   public <T extends Resource, R extends Resource> R resourceAction(String actionHref,
@@ -262,10 +337,49 @@ public class DefaultDataStore implements InternalDataStore {
     final CanonicalUri uri = canonicalize(href, qs);
     final AbstractResource abstractResource = (AbstractResource) resource;
 
-    FilterChain chain = new DefaultFilterChain(this.filters, new FilterChain() {
-      @Override
-      public ResourceDataResult filter(final ResourceDataRequest req) {
+    FilterChain chain = new DefaultFilterChain(this.filters, actionExchange(returnType));
+
+    if (bodyParams == null) {
+      bodyParams = java.util.Collections.emptyMap();
+    }
+    ResourceDataRequest request = new DefaultResourceDataRequest(ResourceAction.CREATE, uri, abstractResource.getClass(), bodyParams, null);
+
+    return actionResultHandler(abstractResource, returnType).handle(chain.filter(request));
+  }
 
+  @Override
+  public <T extends Resource, R extends Resource> Future<R> resourceActionAsync(String actionHref,
+                                                                                T resource,
+                                                                                Class<? extends R> returnType,
+                                                                                Map<String, Object> queryParams,
+                                                                                Map<String, Object> bodyParams,
+                                                                                FutureCallback<R> callback) {
+    Assert.hasText(actionHref, "href argument cannot be null or empty.");
+    Assert.notNull(returnType, "Resource class argument cannot be null.");
+    Assert.hasText(resource.getHref(), "Resource must have href property");
+    Assert.isInstanceOf(AbstractResource.class, resource);
+    Assert.isTrue(!CollectionResource.class.isAssignableFrom(resource.getClass()), "Collections cannot be persisted.");
+
+    String href = resource.getHref() + actionHref;
+    QueryString qs = toQueryString(queryParams);
+
+    CanonicalUri uri = canonicalize(href, qs);
+    AbstractResource abstractResource = (AbstractResource) resource;
+
+    if (bodyParams == null) {
+      bodyParams = java.util.Collections.emptyMap();
+    }
+    ResourceDataRequest request = new DefaultResourceDataRequest(ResourceAction.CREATE, uri, abstractResource.getClass(), bodyParams, null);
+
+    BasicFuture<R> future = new BasicFuture<>(callback);
+    filterAsync(request, actionExchange(returnType), actionResultHandler(abstractResource, returnType), future);
+    return future;
+  }
+
+  private Exchange actionExchange(final Class<? extends Resource> returnType) {
+    return new Exchange() {
+      @Override
+      Request createRequest(ResourceDataRequest req) {
         long length = -1;
         StringInputStream body = null;
         if (req.getData() != null) {
@@ -279,9 +393,11 @@ public class DefaultDataStore implements InternalDataStore {
         QueryString qs = uri.getQuery();
 
         HttpHeaders httpHeaders = req.getHttpHeaders();
-        Request request = new DefaultRequest(HttpMethod.POST, href, qs, httpHeaders, body, length);
+        return new DefaultRequest(HttpMethod.POST, href, qs, httpHeaders, body, length);
+      }
 
-        Response response = execute(request);
+      @Override
+      ResourceDataResult toResult(ResourceDataRequest req, Response response) {
         Map<String, Object> responseBody = getBody(response);
 
         if (Collections.isEmpty(responseBody)) {
@@ -296,28 +412,30 @@ public class DefaultDataStore implements InternalDataStore {
 
         ResourceAction responseAction = getPostAction(req, response);
 
-        return new DefaultResourceDataResult(responseAction, uri, returnType, responseBody);
+        return new DefaultResourceDataResult(responseAction, req.getUri(), returnType, responseBody);
       }
-    });
-
-    if (bodyParams == null) {
-      bodyParams = java.util.Collections.emptyMap();
-    }
-    ResourceDataRequest request = new DefaultResourceDataRequest(ResourceAction.CREATE, uri, abstractResource.getClass(), bodyParams, null);
+    };
+  }
 
-    ResourceDataResult result = chain.filter(request);
-    Map<String, Object> data = result.getData();
+  private <R extends Resource> ResultHandler<R> actionResultHandler(final AbstractResource abstractResource,
+                                                                    final Class<? extends R> returnType) {
+    return new ResultHandler<R>() {
+      @Override
+      public R handle(ResourceDataResult result) {
+        Map<String, Object> data = result.getData();
 
-    if (data.isEmpty()) {
-      return null; // returning only 200 and empty body on post actions
-    }
+        if (data.isEmpty()) {
+          return null; // returning only 200 and empty body on post actions
+        }
 
-    //ensure the caller's argument is updated with what is returned from the server if the types are the same:
-    if (returnType.equals(abstractResource.getClass())) {
-      abstractResource.setProperties(data);
-    }
+        //ensure the caller's argument is updated with what is returned from the server if the types are the same:
+        if (returnType.equals(abstractResource.getClass())) {
+          abstractResource.setProperties(data);
+        }
 
-    return resourceFactory.instantiate(returnType, data);
+        return resourceFactory.instantiate(returnType, data);
+      }
+    };
   }
 
   @Override
@@ -327,32 +445,37 @@ public class DefaultDataStore implements InternalDataStore {
   }
 
 
-  @SuppressWarnings("unchecked")
   private ResourceDataResult getResourceData(String href, Class<? extends Resource> clazz, Map<String, ?> queryParameters) {
     Assert.hasText(href, "href argument cannot be null or empty.");
     Assert.notNull(clazz, "Resource class argument cannot be null.");
 
-    FilterChain chain = new DefaultFilterChain(this.filters, new FilterChain() {
-      @Override
-      public ResourceDataResult filter(final ResourceDataRequest req) {
+    FilterChain chain = new DefaultFilterChain(this.filters, readExchange());
 
+    CanonicalUri uri = canonicalize(href, queryParameters);
+    ResourceDataRequest req = new DefaultResourceDataRequest(ResourceAction.READ, uri, clazz, new HashMap<String, Object>());
+    return chain.filter(req);
+  }
+
+  private Exchange readExchange() {
+    return new Exchange() {
+      @Override
+      Request createRequest(ResourceDataRequest req) {
         CanonicalUri uri = req.getUri();
+        return new DefaultRequest(HttpMethod.GET, uri.getAbsolutePath(), uri.getQuery());
+      }
 
-        Request getRequest = new DefaultRequest(HttpMethod.GET, uri.getAbsolutePath(), uri.getQuery());
-        Response getResponse = execute(getRequest);
-        Map<String, ?> body = getBody(getResponse);
+      @SuppressWarnings("unchecked")
+      @Override
+      ResourceDataResult toResult(ResourceDataRequest req, Response response) {
+        Map<String, ?> body = getBody(response);
 
         if (Collections.isEmpty(body)) {
           throw new IllegalStateException("Unable to obtain resource data from the API server or from cache.");
         }
 
-        return new DefaultResourceDataResult(req.getAction(), uri, req.getResourceClass(), (Map<String, Object>) body);
+        return new DefaultResourceDataResult(req.getAction(), req.getUri(), req.getResourceClass(), (Map<String, Object>) body);
       }
-    });
-
-    CanonicalUri uri = canonicalize(href, queryParameters);
-    ResourceDataRequest req = new DefaultResourceDataRequest(ResourceAction.READ, uri, clazz, new HashMap<String, Object>());
-    return chain.filter(req);
+    };
   }
 
   private ResourceAction getPostAction(ResourceDataRequest request, Response response) {
@@ -531,47 +654,7 @@ public class DefaultDataStore implements InternalDataStore {
         final CanonicalUri subUri = canonicalize(href + "/" + subResProp.getKey(),
             java.util.Collections.<String, Object>emptyMap());
 
-        FilterChain chain = new DefaultFilterChain(this.filters, new FilterChain() {
-          @Override
-          public ResourceDataResult filter(ResourceDataRequest req) {
-            String bodyString;
-            if (req.getHttpHeaders().getContentType() != null &&
-                req.getHttpHeaders().getContentType().equals(MediaType.APPLICATION_FORM_URLENCODED)) {
-              bodyString = buildCanonicalBodyQueryParams(req.getData());
-            } else {
-              bodyString = mapMarshaller.marshal(req.getData());
-            }
-            StringInputStream body = new StringInputStream(bodyString);
-            long length = body.available();
-
-            CanonicalUri uri = req.getUri();
-            String href = uri.getAbsolutePath();
-            QueryString qs = uri.getQuery();
-
-            HttpHeaders httpHeaders = req.getHttpHeaders();
-            Request request = new DefaultRequest(HttpMethod.PATCH, href, qs, httpHeaders, body, length);
-
-            Response response = execute(request);
-            Map<String, Object> responseBody = getBody(response);
-
-            if (Collections.isEmpty(responseBody)) {
-              // 202 means that the request has been accepted for processing, but the processing has not been completed.
-              // Therefore we do not have a response body.
-              if (response.getHttpStatus() == 202) {
-                responseBody = java.util.Collections.emptyMap();
-              } else if (response.getHttpStatus() == 303 || response.getHttpStatus() == 302) {
-                responseBody = new HashMap<>();
-                responseBody.put("href", response.getHeaders().getFirst("Location"));
-              } else {
-                throw new IllegalStateException("Unable to obtain resource data from the API server.");
-              }
-            }
-
-            ResourceAction responseAction = getPostAction(req, response);
-
-            return new DefaultResourceDataResult(responseAction, uri, returnType, responseBody);
-          }
-        });
+        FilterChain chain = new DefaultFilterChain(this.filters, persistExchange(HttpMethod.PATCH, returnType));
         ResourceAction subResourceAction = ResourceAction.UPDATE;
         ResourceDataRequest request = new DefaultResourceDataRequest(subResourceAction, subUri,
             abstractResource.getClass(), subResProp.getValue(), requestHeaders);
@@ -592,10 +675,118 @@ public class DefaultDataStore implements InternalDataStore {
       return null;
     }
 
-    FilterChain chain = new DefaultFilterChain(this.filters, new FilterChain() {
+    FilterChain chain = new DefaultFilterChain(this.filters, persistExchange(method, returnType));
+
+    ResourceAction action = create ? ResourceAction.CREATE : ResourceAction.UPDATE;
+    ResourceDataRequest request = new DefaultResourceDataRequest(action, uri, abstractResource.getClass(), props, requestHeaders);
+
+    return persistResultHandler(abstractResource, returnType, subResorcesData).handle(chain.filter(request));
+  }
+
+  @Override
+  public <T extends Resource, R extends Resource> Future<R> createAsync(String parentHref, T resource, Class<? extends R> returnType,
+                                                                        FutureCallback<R> callback) {
+    return persistAsync(parentHref, resource, HttpMethod.POST, returnType, true, callback);
+  }
+
+  @Override
+  public <T extends Resource & Saveable, R extends Resource> Future<R> saveAsync(T resource, Class<? extends R> returnType,
+                                                                                 FutureCallback<R> callback) {
+    Assert.hasText(resource.getHref(), HREF_SAVE_MSG);
+    return persistAsync(resource.getHref(), resource, HttpMethod.POST, returnType, false, callback);
+  }
+
+  /**
+   * Asynchronous {@link #persist}. Sub-resources are patched one after another, each request
+   * started by the completion of the previous one, and the resource itself is sent last.
+   */
+  private <T extends Resource, R extends Resource> Future<R> persistAsync(final String href,
+                                                                          final T resource,
+                                                                          final HttpMethod method,
+                                                                          final Class<? extends R> returnType,
+                                                                          final boolean create,
+                                                                          FutureCallback<R> callback) {
+    Assert.hasText(href, "href argument cannot be null or empty.");
+    Assert.notNull(resource, "resource argument cannot be null.");
+    Assert.notNull(returnType, "returnType class cannot be null.");
+    Assert.isInstanceOf(AbstractResource.class, resource);
+    Assert.isTrue(!CollectionResource.class.isAssignableFrom(resource.getClass()), "Collections cannot be persisted.");
+
+    final CanonicalUri uri = canonicalize(href, null);
+    final AbstractResource abstractResource = (AbstractResource) resource;
+    final BasicFuture<R> future = new BasicFuture<>(callback);
+
+    final Map<String, Object> subResourcesData = new HashMap<>();
+    final Iterator<Map.Entry<String, Map<String, Object>>> subResources = create
+        ? java.util.Collections.<String, Map<String, Object>>emptyMap().entrySet().iterator()
+        : resourceConverter.convertSubResources(abstractResource).entrySet().iterator();
+
+    new Runnable() {
       @Override
-      public ResourceDataResult filter(final ResourceDataRequest req) {
+      public void run() {
+        if (subResources.hasNext()) {
+          final Map.Entry<String, Map<String, Object>> subResProp = subResources.next();
+          final Runnable next = this;
+          CanonicalUri subUri = canonicalize(href + "/" + subResProp.getKey(),
+              java.util.Collections.<String, Object>emptyMap());
+          ResourceDataRequest request = new DefaultResourceDataRequest(ResourceAction.UPDATE, subUri,
+              abstractResource.getClass(), subResProp.getValue(), null);
+
+          BasicFuture<Void> subResourceFuture = new BasicFuture<>(new FutureCallback<Void>() {
+            @Override
+            public void completed(Void result) {
+              next.run();
+            }
+
+            @Override
+            public void failed(Exception ex) {
+              future.failed(ex);
+            }
 
+            @Override
+            public void cancelled() {
+              future.cancel();
+            }
+          });
+          filterAsync(request, persistExchange(HttpMethod.PATCH, returnType), new ResultHandler<Void>() {
+            @Override
+            public Void handle(ResourceDataResult result) {
+              subResourcesData.put(subResProp.getKey(), result.getData());
+              return null;
+            }
+          }, subResourceFuture);
+          return;
+        }
+
+        Map<String, Object> props;
+        try {
+          props = create ? resourceConverter.convert(abstractResource)
+              : resourceConverter.convertNonSubResources(abstractResource);
+        } catch (RuntimeException e) {
+          future.failed(e);
+          return;
+        }
+
+        if (props == null || props.size() == 0) {
+          abstractResource.refreshProperties(subResourcesData);
+          future.completed(null);
+          return;
+        }
+
+        ResourceAction action = create ? ResourceAction.CREATE : ResourceAction.UPDATE;
+        ResourceDataRequest request = new DefaultResourceDataRequest(action, uri, abstractResource.getClass(), props, null);
+        filterAsync(request, persistExchange(method, returnType),
+            persistResultHandler(abstractResource, returnType, subResourcesData), future);
+      }
+    }.run();
+
+    return future;
+  }
+
+  private Exchange persistExchange(final HttpMethod method, final Class<? extends Resource> returnType) {
+    return new Exchange() {
+      @Override
+      Request createRequest(ResourceDataRequest req) {
         String bodyString;
         if (req.getHttpHeaders().getContentType() != null && req.getHttpHeaders().getContentType().equals(MediaType.APPLICATION_FORM_URLENCODED)) {
           bodyString = buildCanonicalBodyQueryParams(req.getData());
@@ -610,9 +801,11 @@ public class DefaultDataStore implements InternalDataStore {
         QueryString qs = uri.getQuery();
 
         HttpHeaders httpHeaders = req.getHttpHeaders();
-        Request request = new DefaultRequest(method, href, qs, httpHeaders, body, length);
+        return new DefaultRequest(method, href, qs, httpHeaders, body, length);
+      }
 
-        Response response = execute(request);
+      @Override
+      ResourceDataResult toResult(ResourceDataRequest req, Response response) {
         Map<String, Object> responseBody = getBody(response);
 
         if (Collections.isEmpty(responseBody)) {
@@ -630,29 +823,33 @@ public class DefaultDataStore implements InternalDataStore {
 
         ResourceAction responseAction = getPostAction(req, response);
 
-        return new DefaultResourceDataResult(responseAction, uri, returnType, responseBody);
+        return new DefaultResourceDataResult(responseAction, req.getUri(), returnType, responseBody);
       }
-    });
+    };
+  }
 
-    ResourceAction action = create ? ResourceAction.CREATE : ResourceAction.UPDATE;
-    ResourceDataRequest request = new DefaultResourceDataRequest(action, uri, abstractResource.getClass(), props, requestHeaders);
+  private <R extends Resource> ResultHandler<R> persistResultHandler(final AbstractResource abstractResource,
+                                                                     final Class<? extends R> returnType,
+                                                                     final Map<String, Object> subResourcesData) {
+    return new ResultHandler<R>() {
+      @Override
+      public R handle(ResourceDataResult result) {
+        Map<String, Object> data = result.getData();
 
-    ResourceDataResult result = chain.filter(request);
+        for (Map.Entry<String, Object> subResEntry : subResourcesData.entrySet()) {
+          if (!data.containsKey(subResEntry.getKey())) {
+            data.put(subResEntry.getKey(), subResEntry.getValue());
+          }
+        }
 
-    Map<String, Object> data = result.getData();
+        //ensure the caller's argument is updated with what is returned from the server if the types are the same:
+        if (returnType.equals(abstractResource.getClass())) {
+          abstractResource.setProperties(data);
+        }
 
-    for (Map.Entry<String, Object> subResEntry : subResorcesData.entrySet()) {
-      if (!data.containsKey(subResEntry.getKey())) {
-        data.put(subResEntry.getKey(), subResEntry.getValue());
+        return resourceFactory.instantiate(returnType, data);
       }
-    }
-
-    //ensure the caller's argument is updated with what is returned from the server if the types are the same:
-    if (returnType.equals(abstractResource.getClass())) {
-      abstractResource.setProperties(data);
-    }
-
-    return resourceFactory.instantiate(returnType, data);
+    };
   }
 
   ////////////////////////////////////////////////////////////////////////
@@ -701,20 +898,98 @@ public class DefaultDataStore implements InternalDataStore {
       requestHref = resourceHref;
     }
 
-    FilterChain chain = new DefaultFilterChain(this.filters, new FilterChain() {
+    FilterChain chain = new DefaultFilterChain(this.filters, deleteExchange(requestHref));
 
+    final CanonicalUri resourceUri = canonicalize(resourceHref, null);
+    ResourceDataRequest request = new DefaultResourceDataRequest(ResourceAction.DELETE, resourceUri, resource.getClass(), new HashMap<String, Object>());
+    chain.filter(request);
+  }
+
+  @Override
+  public <T extends Resource> Future<Void> deleteAsync(T resource, FutureCallback<Void> callback) {
+    Assert.notNull(resource, "resource argument cannot be null.");
+    Assert.isInstanceOf(AbstractResource.class, resource, "Resource argument must be an AbstractResource.");
+
+    String resourceHref = resource.getHref();
+    CanonicalUri resourceUri = canonicalize(resourceHref, null);
+    ResourceDataRequest request = new DefaultResourceDataRequest(ResourceAction.DELETE, resourceUri, resource.getClass(), new HashMap<String, Object>());
+
+    BasicFuture<Void> future = new BasicFuture<>(callback);
+    filterAsync(request, deleteExchange(resourceHref), new ResultHandler<Void>() {
       @Override
-      public ResourceDataResult filter(ResourceDataRequest request) {
-        Request deleteRequest = new DefaultRequest(HttpMethod.DELETE, requestHref);
-        execute(deleteRequest);
+      public Void handle(ResourceDataResult result) {
+        return null;
+      }
+    }, future);
+    return future;
+  }
+
+  private Exchange deleteExchange(final String requestHref) {
+    return new Exchange() {
+      @Override
+      Request createRequest(ResourceDataRequest req) {
+        return new DefaultRequest(HttpMethod.DELETE, requestHref);
+      }
+
+      @Override
+      ResourceDataResult toResult(ResourceDataRequest req, Response response) {
         //delete requests have HTTP 204 (no content), so just create an empty body for the result:
-        return new DefaultResourceDataResult(request.getAction(), request.getUri(), request.getResourceClass(), new HashMap<String, Object>());
+        return new DefaultResourceDataResult(req.getAction(), req.getUri(), req.getResourceClass(), new HashMap<String, Object>());
       }
-    });
+    };
+  }
 
-    final CanonicalUri resourceUri = canonicalize(resourceHref, null);
-    ResourceDataRequest request = new DefaultResourceDataRequest(ResourceAction.DELETE, resourceUri, resource.getClass(), new HashMap<String, Object>());
-    chain.filter(request);
+  /**
+   * Executes the exchange without blocking, then runs the filters over its result on the thread
+   * completing the request. The filters run after the request was sent, so they can only act on
+   * the result, which is all {@link EnlistmentFilter} does.
+   */
+  private <R> void filterAsync(final ResourceDataRequest req, final Exchange exchange, final ResultHandler<R> handler,
+                               final BasicFuture<R> future) {
+    Request request;
+    try {
+      request = exchange.createRequest(req);
+    } catch (RuntimeException e) {
+      future.failed(e);
+      return;
+    }
+
+    executeAsync(request, new FutureCallback<Response>() {
+      @Override
+      public void completed(Response response) {
+        final ResourceDataResult result;
+        try {
+          result = exchange.toResult(req, checkError(response));
+        } catch (RuntimeException e) {
+          future.failed(e);
+          return;
+        } finally {
+          response.close();
+        }
+
+        try {
+          FilterChain chain = new DefaultFilterChain(filters, new FilterChain() {
+            @Override
+            public ResourceDataResult filter(ResourceDataRequest request) {
+              return result;
+            }
+          });
+          future.completed(handler.handle(chain.filter(req)));
+        } catch (RuntimeException e) {
+          future.failed(e);
+        }
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        future.failed(ex);
+      }
+
+      @Override
+      public void cancelled() {
+        future.cancel();
+      }
+    });
   }
 
   private Response execute(Request request) throws ResourceException {
@@ -725,8 +1000,38 @@ public class DefaultDataStore implements InternalDataStore {
     Response response = this.requestExecutor.executeRequest(request);
     log.trace("Executed HTTP request.");
 
+    return checkError(response);
+  }
+
+  private void executeAsync(Request request, FutureCallback<Response> callback) {
+
+    applyDefaultRequestHeaders(request);
+
+    log.trace("Submitting request for asynchronous execution - {} {}", request.getMethod().toString(), request.getResourceUrl().toString() + '?' + request.getQueryString().toString(false));
+    if (this.requestExecutor instanceof AsyncRequestExecutor) {
+      ((AsyncRequestExecutor) this.requestExecutor).executeRequestAsync(request, callback);
+      return;
+    }
+
+    // the executor can only block, so the request is executed on the calling thread
+    Response response;
+    try {
+      response = this.requestExecutor.executeRequest(request);
+    } catch (RuntimeException e) {
+      callback.failed(e);
+      return;
+    }
+    callback.completed(response);
+  }
+
+  private Response checkError(Response response) throws ResourceException {
     if (response.isError()) {
-      Map<String, Object> body = getBody(response);
+      Map<String, Object> body;
+      try {
+        body = getBody(response);
+      } finally {
+        response.close();
+      }
 
       if (!body.containsKey("status")) {
         body.put("status", response.getHttpStatus());
@@ -825,4 +1130,34 @@ public class DefaultDataStore implements InternalDataStore {
       return null;
     }
   }
+
+  /**
+   * Last link of a filter chain, exchanging a resource data request with the API server. Creating
+   * the request and reading the result are separate steps, so the exchange can also be executed
+   * asynchronously.
+   */
+  private abstract class Exchange implements FilterChain {
+
+    abstract Request createRequest(ResourceDataRequest req);
+
+    abstract ResourceDataResult toResult(ResourceDataRequest req, Response response);
+
+    @Override
+    public ResourceDataResult filter(ResourceDataRequest req) {
+      Response response = execute(createRequest(req));
+      try {
+        return toResult(req, response);
+      } finally {
+        response.close();
+      }
+    }
+  }
+
+  /**
+   * Turns the filtered result of an exchange into the value returned to the caller.
+   */
+  private interface ResultHandler<R> {
+
+    R handle(ResourceDataResult result);
+  }
 }
@@ -17,12 +17,16 @@ package com.sevenbridges.apiclient.impl.ds;
 
 import com.sevenbridges.apiclient.ds.DataStore;
 import com.sevenbridges.apiclient.impl.http.HttpHeaders;
+import com.sevenbridges.apiclient.impl.transfer.TransferManager;
 import com.sevenbridges.apiclient.query.Criteria;
 import com.sevenbridges.apiclient.query.Options;
 import com.sevenbridges.apiclient.resource.Resource;
 import com.sevenbridges.apiclient.resource.Saveable;
 
+import org.apache.http.concurrent.FutureCallback;
+
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Internal DataStore used for implementation purposes only.  Not intended to be called by
@@ -91,4 +95,38 @@ public interface InternalDataStore extends DataStore {
   <T extends Resource, R extends Resource> R resourceAction(String actionHref, T resource, Class<? extends R> returnType, Map<String, Object> queryParams, Map<String, Object> bodyParams);
 
   void reload(String resourceHref, Class<? extends Resource> resourceType, Resource resource);
+
+  /*
+   * Asynchronous operations. They return once the request is sent, and the filters run on the
+   * thread completing the request, which also invokes the optional callback, so the callbacks
+   * should not block.
+   */
+
+  <T extends Resource> Future<T> getResourceAsync(String href, Class<T> clazz, Map<String, Object> queryParameters, FutureCallback<T> callback);
+
+  <T extends Resource, R extends Resource> Future<R> createAsync(String parentHref, T resource, Class<? extends R> returnType, FutureCallback<R> callback);
+
+  <T extends Resource & Saveable, R extends Resource> Future<R> saveAsync(T resource, Class<? extends R> returnType, FutureCallback<R> callback);
+
+  <T extends Resource> Future<Void> deleteAsync(T resource, FutureCallback<Void> callback);
+
+  <T extends Resource, R extends Resource> Future<R> resourceActionAsync(String actionHref, T resource, Class<? extends R> returnType,
+                                                                         Map<String, Object> queryParams, Map<String, Object> bodyParams,
+                                                                         FutureCallback<R> callback);
+
+  /**
+   * Returns the transfer manager of this data store, starting it on first use. Transfers of
+   * different clients do not share threads or connections.
+   *
+   * @return transfer manager owned by this data store
+   */
+  TransferManager getTransferManager();
+
+  /**
+   * Stops the transfer manager of this data store, if it was started, aborting its running
+   * transfers and closing its connections. The next transfer starts a new transfer manager. Also
+   * shuts down the threads and connections of asynchronous API calls, which are started again by
+   * the next asynchronous call.
+   */
+  void shutdownTransferManager();
 }
@@ -43,6 +43,7 @@ public class DefaultFile extends AbstractInstanceResource implements File {
   static final StringProperty ID = new StringProperty("id");
   static final StringProperty NAME = new StringProperty("name");
   static final LongProperty SIZE = new LongProperty("size");
+  static final StringProperty MD5 = new StringProperty("md5");
   static final StringProperty PROJECT = new StringProperty("project");
   static final MapProperty METADATA = new MapProperty("metadata");
   static final DateProperty CREATED_ON = new DateProperty("created_on");
@@ -52,7 +53,7 @@ public class DefaultFile extends AbstractInstanceResource implements File {
   static final MapProperty ORIGIN = new MapProperty("origin");
 
   private static final Map<String, Property> PROPERTY_DESCRIPTORS = createPropertyDescriptorMap(
-      ID, NAME, SIZE, PROJECT, METADATA,
+      ID, NAME, SIZE, MD5, PROJECT, METADATA,
       CREATED_ON, MODIFIED_ON,
       STORAGE, ORIGIN
   );
@@ -118,6 +119,11 @@ public class DefaultFile extends AbstractInstanceResource implements File {
     return getLong(SIZE);
   }
 
+  @Override
+  public String getMD5() {
+    return getString(MD5);
+  }
+
   @Override
   public String getProjectId() {
     return getString(PROJECT);
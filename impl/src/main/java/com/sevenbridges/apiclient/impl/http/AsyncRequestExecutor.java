@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http;
+
+import org.apache.http.concurrent.FutureCallback;
+
+import java.util.concurrent.Future;
+
+/**
+ * {@code RequestExecutor} which can also execute requests without blocking the calling thread, so
+ * one thread can keep many API calls in flight.
+ */
+public interface AsyncRequestExecutor extends RequestExecutor {
+
+  /**
+   * Executes the request asynchronously, with the same redirect and retry handling as {@link
+   * #executeRequest(Request)}. The callback is invoked on the IO threads of the executor, so it
+   * should not block.
+   *
+   * @param request  request to execute
+   * @param callback optional callback notified when the response is received or the request
+   *                 fails, can be null
+   * @return future of the response, failing with {@link RestException} if the request could not be
+   * executed
+   */
+  Future<Response> executeRequestAsync(Request request, FutureCallback<Response> callback);
+
+  /**
+   * Stops the threads and closes the connections started for asynchronous requests, if the
+   * executor has any of its own. Requests still in flight or waiting for a retry may fail. The next
+   * asynchronous request starts them again.
+   */
+  void shutdown();
+
+}
@@ -15,7 +15,9 @@
  */
 package com.sevenbridges.apiclient.impl.http;
 
-public interface Response extends HttpMessage {
+import java.io.Closeable;
+
+public interface Response extends HttpMessage, Closeable {
 
   int getHttpStatus();
 
@@ -24,4 +26,12 @@ public interface Response extends HttpMessage {
   boolean isServerError();
 
   boolean isClientError();
+
+  /**
+   * Closes the body of the response. The body may be streamed from the connection it was received
+   * on, so a response must be closed once it is read, or when reading it fails, to release the
+   * connection.
+   */
+  @Override
+  void close();
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.impl.http.RestException;
+import com.sevenbridges.apiclient.lang.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit on concurrent API requests that adapts to the latency of the API, in the manner of TCP
+ * Vegas. The shortest latency seen is taken as the latency of an idle API; the amount by which
+ * measured latency exceeds it estimates how many requests queue on the server. While that queue
+ * is small the limit grows, and when it grows large, or requests fail with 429 or 503, the limit
+ * shrinks.
+ * <p>
+ * Callers over the limit wait in line, up to the maximum wait, after which the request fails
+ * without being sent.
+ */
+public class AdaptiveConcurrencyLimit {
+
+  public static final int DEFAULT_INITIAL_LIMIT = 20;
+  public static final int DEFAULT_MAX_LIMIT = 200;
+  public static final long DEFAULT_MAX_WAIT_MILLIS = 30000;
+
+  // the idle latency drifts up by this fraction per sample, so a lasting slowdown of the API is followed
+  private static final double IDLE_RTT_DRIFT = 0.0001;
+  // shrink factor on failed requests
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int maxLimit;
+  private final long maxWaitNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = lock.newCondition();
+
+  private double limit;
+  private int inFlight;
+  private int queued;
+  private double idleRttNanos;
+
+  private final AtomicLong acquired = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong queueTimeNanos = new AtomicLong();
+
+  public AdaptiveConcurrencyLimit() {
+    this(DEFAULT_MAX_LIMIT, DEFAULT_MAX_WAIT_MILLIS);
+  }
+
+  /**
+   * @param maxLimit      highest number of concurrent requests the limit can grow to
+   * @param maxWaitMillis longest time a request waits for the limit before it fails
+   */
+  public AdaptiveConcurrencyLimit(int maxLimit, long maxWaitMillis) {
+    Assert.isTrue(maxLimit > 0, "maxLimit must be greater than zero.");
+    Assert.isTrue(maxWaitMillis >= 0, "maxWaitMillis must not be negative.");
+    this.maxLimit = maxLimit;
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    this.limit = Math.min(DEFAULT_INITIAL_LIMIT, maxLimit);
+  }
+
+  /**
+   * Waits until a request fits in the limit.
+   *
+   * @return requests in flight when this one started, to be passed to {@link #release}
+   * @throws RestException        if the request waited for the maximum wait
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public int acquire() throws InterruptedException {
+    long start = System.nanoTime();
+    lock.lock();
+    try {
+      if (inFlight >= currentLimit()) {
+        queued++;
+        try {
+          long remaining = maxWaitNanos;
+          while (inFlight >= currentLimit()) {
+            if (remaining <= 0) {
+              rejected.incrementAndGet();
+              throw new RestException("Request not sent, it waited " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) +
+                  "ms for one of " + currentLimit() + " concurrent requests to complete.");
+            }
+            remaining = available.awaitNanos(remaining);
+          }
+        } finally {
+          queued--;
+        }
+      }
+      acquired.incrementAndGet();
+      queueTimeNanos.addAndGet(System.nanoTime() - start);
+      return inFlight++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Ends a request and adapts the limit to its outcome.
+   *
+   * @param inFlightAtStart value returned by {@link #acquire()}
+   * @param rttNanos        latency of the request
+   * @param failed          whether the request was throttled or refused by an overloaded server
+   */
+  public void release(int inFlightAtStart, long rttNanos, boolean failed) {
+    lock.lock();
+    try {
+      inFlight--;
+      int before = currentLimit();
+      update(inFlightAtStart, rttNanos, failed);
+      if (currentLimit() > before) {
+        available.signalAll();
+      } else {
+        available.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void update(int inFlightAtStart, long rttNanos, boolean failed) {
+    if (failed) {
+      limit = Math.max(1, limit * BACKOFF_RATIO);
+      return;
+    }
+    if (rttNanos <= 0) {
+      return;
+    }
+    if (idleRttNanos == 0 || rttNanos < idleRttNanos) {
+      idleRttNanos = rttNanos;
+    } else {
+      idleRttNanos = Math.min(rttNanos, idleRttNanos * (1 + IDLE_RTT_DRIFT));
+    }
+    if (inFlightAtStart * 2 < limit) {
+      // the limit was not what held requests back, so the latency says nothing about a higher one
+      return;
+    }
+
+    double log = Math.max(1, Math.log10(limit));
+    double queue = limit * (1 - idleRttNanos / rttNanos);
+    if (queue <= log) {
+      limit += 6 * log;
+    } else if (queue < 3 * log) {
+      limit += log;
+    } else if (queue > 6 * log) {
+      limit -= log;
+    }
+    limit = Math.max(1, Math.min(maxLimit, limit));
+  }
+
+  private int currentLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * @return current number of concurrent requests allowed
+   */
+  public int getLimit() {
+    lock.lock();
+    try {
+      return currentLimit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return requests sent and not yet completed
+   */
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return requests waiting for the limit
+   */
+  public int getQueued() {
+    lock.lock();
+    try {
+      return queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return requests that failed after waiting for the limit for the maximum wait
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * @return average time requests waited for the limit, in milliseconds
+   */
+  public double getAverageQueueTimeMillis() {
+    long count = acquired.get();
+    return count == 0 ? 0 : (double) queueTimeNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.lang.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of one endpoint class. After the set number of consecutive failures the breaker
+ * opens and requests fail fast, without reaching the API. Once the open period is over a single
+ * trial request is let through: its success closes the breaker, its failure opens it again.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private State state = State.CLOSED;
+  private int failures;
+  // when the breaker opened, or when the trial request was let through while half open
+  private long sinceNanos;
+
+  /**
+   * @param failureThreshold consecutive failures that open the breaker
+   * @param openMillis       time the breaker stays open before a trial request
+   */
+  public CircuitBreaker(int failureThreshold, long openMillis) {
+    Assert.isTrue(failureThreshold > 0, "failureThreshold must be greater than zero.");
+    Assert.isTrue(openMillis >= 0, "openMillis must not be negative.");
+    this.failureThreshold = failureThreshold;
+    this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+  }
+
+  /**
+   * @return true if a request may be sent, false if it should fail fast
+   */
+  public synchronized boolean tryAcquire() {
+    if (state == State.CLOSED) {
+      return true;
+    }
+    // while half open, another trial is let through if the last one never reported back
+    long now = nanoTime();
+    if (now - sinceNanos < openNanos) {
+      return false;
+    }
+    state = State.HALF_OPEN;
+    sinceNanos = now;
+    return true;
+  }
+
+  public synchronized void onSuccess() {
+    failures = 0;
+    state = State.CLOSED;
+  }
+
+  /**
+   * @return true if the failure opened the breaker
+   */
+  public synchronized boolean onFailure() {
+    failures++;
+    if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+      state = State.OPEN;
+      sinceNanos = nanoTime();
+      return true;
+    }
+    return false;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Current time of the breaker, overridden by tests to end the open period without waiting.
+   */
+  long nanoTime() {
+    return System.nanoTime();
+  }
+}
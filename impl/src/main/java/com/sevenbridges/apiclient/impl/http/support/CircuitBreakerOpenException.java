@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.impl.http.RestException;
+
+/**
+ * Thrown instead of sending a request while the circuit breaker of its endpoint class is open.
+ */
+public class CircuitBreakerOpenException extends RestException {
+
+  private final String endpointClass;
+
+  public CircuitBreakerOpenException(String endpointClass) {
+    super("Circuit breaker for " + endpointClass + " is open, the request was not sent.");
+    this.endpointClass = endpointClass;
+  }
+
+  public String getEndpointClass() {
+    return endpointClass;
+  }
+}
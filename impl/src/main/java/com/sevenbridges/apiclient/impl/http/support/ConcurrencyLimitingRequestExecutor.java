@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.impl.http.AsyncRequestExecutor;
+import com.sevenbridges.apiclient.impl.http.HttpHeaders;
+import com.sevenbridges.apiclient.impl.http.Request;
+import com.sevenbridges.apiclient.impl.http.RequestExecutor;
+import com.sevenbridges.apiclient.impl.http.Response;
+import com.sevenbridges.apiclient.impl.http.RestException;
+import com.sevenbridges.apiclient.lang.Assert;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import java.io.InputStream;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code RequestExecutor} that keeps the blocking requests of a client within an {@link
+ * AdaptiveConcurrencyLimit}, so a large pool of worker threads queues in the client instead of
+ * opening a connection each and overloading the API. A request holds its place until its response
+ * is closed, as the connection is held until then.
+ * <p>
+ * Asynchronous requests are handed to the delegate as they are, they do not tie up threads.
+ */
+public class ConcurrencyLimitingRequestExecutor implements AsyncRequestExecutor {
+
+  private final RequestExecutor delegate;
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+  public ConcurrencyLimitingRequestExecutor(RequestExecutor delegate, AdaptiveConcurrencyLimit concurrencyLimit) {
+    Assert.notNull(delegate, "delegate cannot be null.");
+    Assert.notNull(concurrencyLimit, "concurrencyLimit cannot be null.");
+    this.delegate = delegate;
+    this.concurrencyLimit = concurrencyLimit;
+  }
+
+  public RequestExecutor getDelegate() {
+    return delegate;
+  }
+
+  public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+    return concurrencyLimit;
+  }
+
+  @Override
+  public Response executeRequest(Request request) throws RestException {
+    int inFlightAtStart;
+    try {
+      inFlightAtStart = concurrencyLimit.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RestException(e.getMessage(), e);
+    }
+
+    long start = System.nanoTime();
+    Response response;
+    try {
+      response = delegate.executeRequest(request);
+    } catch (RuntimeException e) {
+      concurrencyLimit.release(inFlightAtStart, System.nanoTime() - start, true);
+      throw e;
+    }
+    int httpStatus = response.getHttpStatus();
+    return new LimitedResponse(response, inFlightAtStart, getRoundTripNanos(response, start),
+        httpStatus == 429 || httpStatus == 503);
+  }
+
+  /**
+   * The latency sample of a request, the round trip of its last attempt as measured by the
+   * delegate, so back-off sleeps, rate limit pacing and earlier attempts do not look like queueing
+   * in the server. Responses of delegates which do not measure it are timed here.
+   */
+  private static long getRoundTripNanos(Response response, long start) {
+    if (response instanceof DefaultResponse && ((DefaultResponse) response).getRoundTripNanos() > 0) {
+      return ((DefaultResponse) response).getRoundTripNanos();
+    }
+    return System.nanoTime() - start;
+  }
+
+  @Override
+  public Future<Response> executeRequestAsync(Request request, FutureCallback<Response> callback) {
+    if (delegate instanceof AsyncRequestExecutor) {
+      return ((AsyncRequestExecutor) delegate).executeRequestAsync(request, callback);
+    }
+
+    // the delegate can only block, so the request is executed on the calling thread
+    BasicFuture<Response> future = new BasicFuture<>(callback);
+    try {
+      future.completed(executeRequest(request));
+    } catch (RuntimeException e) {
+      future.failed(e);
+    }
+    return future;
+  }
+
+  @Override
+  public void shutdown() {
+    if (delegate instanceof AsyncRequestExecutor) {
+      ((AsyncRequestExecutor) delegate).shutdown();
+    }
+  }
+
+  /**
+   * Response that gives its place in the limit back when closed.
+   */
+  private class LimitedResponse implements Response {
+
+    private final Response response;
+    private final int inFlightAtStart;
+    private final long rttNanos;
+    private final boolean failed;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    LimitedResponse(Response response, int inFlightAtStart, long rttNanos, boolean failed) {
+      this.response = response;
+      this.inFlightAtStart = inFlightAtStart;
+      this.rttNanos = rttNanos;
+      this.failed = failed;
+    }
+
+    @Override
+    public int getHttpStatus() {
+      return response.getHttpStatus();
+    }
+
+    @Override
+    public boolean isError() {
+      return response.isError();
+    }
+
+    @Override
+    public boolean isServerError() {
+      return response.isServerError();
+    }
+
+    @Override
+    public boolean isClientError() {
+      return response.isClientError();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return response.getHeaders();
+    }
+
+    @Override
+    public void setHeaders(HttpHeaders headers) {
+      response.setHeaders(headers);
+    }
+
+    @Override
+    public boolean hasBody() {
+      return response.hasBody();
+    }
+
+    @Override
+    public InputStream getBody() {
+      return response.getBody();
+    }
+
+    @Override
+    public void close() {
+      try {
+        response.close();
+      } finally {
+        if (released.compareAndSet(false, true)) {
+          concurrencyLimit.release(inFlightAtStart, rttNanos, failed);
+        }
+      }
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.sevenbridges.apiclient.impl.http.HttpHeaders;
 import com.sevenbridges.apiclient.impl.http.MediaType;
 import com.sevenbridges.apiclient.impl.http.Response;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 public class DefaultResponse extends AbstractHttpMessage implements Response {
@@ -26,6 +27,7 @@ public class DefaultResponse extends AbstractHttpMessage implements Response {
   private final int httpStatus;
   private final HttpHeaders headers;
   private final InputStream body;
+  private long roundTripNanos;
 
   public DefaultResponse(int httpStatus, MediaType contentType, InputStream body, long contentLength) {
     this.httpStatus = httpStatus;
@@ -79,4 +81,28 @@ public class DefaultResponse extends AbstractHttpMessage implements Response {
   public InputStream getBody() {
     return this.body;
   }
+
+  /**
+   * @return time in nanoseconds from sending the request of the attempt which returned this
+   * response until receiving the response, not counting back-off or rate limit waits before the
+   * attempt, or 0 if it was not measured
+   */
+  public long getRoundTripNanos() {
+    return roundTripNanos;
+  }
+
+  public void setRoundTripNanos(long roundTripNanos) {
+    this.roundTripNanos = roundTripNanos;
+  }
+
+  @Override
+  public void close() {
+    if (this.body != null) {
+      try {
+        this.body.close();
+      } catch (IOException ignored) {
+        // the connection is discarded by the client, nothing else to release
+      }
+    }
+  }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.impl.http.HttpHeaders;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-wide pacing of API requests, driven by the rate limit headers the API server sends with
+ * every response. Requests are spread evenly over what is left of the rate limit window, so many
+ * threads stay just under the limit instead of hitting it together and backing off together. When
+ * the limit is exhausted, or the server asks to retry after some time, no request is sent until
+ * then.
+ * <p>
+ * Like the transfer token bucket, the bucket is kept as the theoretical time at which all granted
+ * requests are sent. Requests are not paced until the server first reports its limit. After a window
+ * ends, and until a response reports the new one, requests are paced at the average rate of the last
+ * window, so requests held back by an exhausted limit are not all sent at once.
+ */
+public class RateLimitGovernor {
+
+  public static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+  public static final String RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+  public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  // reset values before this time, 2001-09-09, are seconds from now rather than epoch seconds
+  private static final long MIN_EPOCH_SECONDS = 1000000000L;
+
+  // requests saved up while idle, at most one second of the rate, are granted at once
+  private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  // whether the server reported a window
+  private boolean limited;
+  private long windowEndNanos;
+  // reset time the window was reported with, in epoch seconds
+  private long windowReset = -1;
+  // longest time left and most requests remaining reported for the window, which estimate its rate
+  private long windowMillis;
+  private long windowRemaining;
+  // time between two requests that uses up the remaining requests by the end of the window
+  private long intervalNanos;
+  // time by which all granted requests are sent at the current interval
+  private long sentUntilNanos = System.nanoTime();
+  // no request is granted before this time
+  private long pausedUntilNanos = System.nanoTime();
+
+  /**
+   * Takes a request slot if one is free. Slots are not reserved ahead, so requests that wait are
+   * paced by the limits of the responses that arrive meanwhile.
+   *
+   * @return 0 if the request can be sent now, otherwise milliseconds to wait before trying again
+   */
+  public synchronized long tryAcquire() {
+    long now = System.nanoTime();
+    if (pausedUntilNanos - now > 0) {
+      return toMillis(pausedUntilNanos - now);
+    }
+
+    // past the end of the window a fresh limit applies, learned from the next response
+    boolean inWindow = limited && windowEndNanos - now > 0;
+    long interval = inWindow ? intervalNanos : TimeUnit.MILLISECONDS.toNanos(windowMillis) / (windowRemaining + 1);
+    if (interval > 0) {
+      long burst = inWindow ? Math.max(interval, Math.min(BURST_NANOS, windowEndNanos - now)) : interval;
+      long base = sentUntilNanos - (now - burst) > 0 ? sentUntilNanos : now - burst;
+      if (base + interval - now > 0) {
+        return toMillis(base + interval - now);
+      }
+      sentUntilNanos = base + interval;
+    }
+    return 0;
+  }
+
+  /**
+   * Waits for a request slot.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void acquire() throws InterruptedException {
+    long wait;
+    while ((wait = tryAcquire()) > 0) {
+      Thread.sleep(wait);
+    }
+  }
+
+  /**
+   * Time until the server accepts requests again, after it reported the limit exhausted or asked to
+   * retry later.
+   *
+   * @return milliseconds to wait, 0 if requests are not paused
+   */
+  public synchronized long getPauseMillis() {
+    return toMillis(pausedUntilNanos - System.nanoTime());
+  }
+
+  /**
+   * Updates the limits from the headers of a response.
+   *
+   * @param httpStatus status of the response
+   * @param headers    headers of the response
+   */
+  public void update(int httpStatus, HttpHeaders headers) {
+    if (headers == null) {
+      return;
+    }
+    long remaining = parseLong(headers.getFirst(RATE_LIMIT_REMAINING_HEADER));
+    long reset = parseLong(headers.getFirst(RATE_LIMIT_RESET_HEADER));
+    long retryAfterMillis = parseRetryAfter(headers.getFirst(RETRY_AFTER_HEADER));
+    if ((remaining < 0 || reset < 0) && retryAfterMillis < 0 && httpStatus != 429) {
+      return;
+    }
+
+    synchronized (this) {
+      long now = System.nanoTime();
+      if (remaining >= 0 && reset >= 0) {
+        // reset is the end of the window in epoch seconds, or the seconds until it ends
+        long currentMillis = System.currentTimeMillis();
+        long millis = reset >= MIN_EPOCH_SECONDS ? reset * 1000 - currentMillis : reset * 1000;
+        long resetEpochSeconds = reset >= MIN_EPOCH_SECONDS ? reset : (currentMillis + millis + 500) / 1000;
+        if (millis > 0) {
+          limited = true;
+          windowEndNanos = now + TimeUnit.MILLISECONDS.toNanos(millis);
+          if (resetEpochSeconds != windowReset) {
+            windowReset = resetEpochSeconds;
+            windowMillis = 0;
+            windowRemaining = 0;
+          }
+          windowMillis = Math.max(windowMillis, millis);
+          windowRemaining = Math.max(windowRemaining, remaining);
+          if (remaining > 0) {
+            intervalNanos = TimeUnit.MILLISECONDS.toNanos(millis) / remaining;
+          } else {
+            pauseUntil(windowEndNanos);
+          }
+        }
+      }
+      if (retryAfterMillis >= 0) {
+        pauseUntil(now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+      } else if (httpStatus == 429 && limited) {
+        pauseUntil(windowEndNanos);
+      }
+    }
+  }
+
+  private void pauseUntil(long nanos) {
+    if (nanos - pausedUntilNanos > 0) {
+      pausedUntilNanos = nanos;
+    }
+  }
+
+  private static long toMillis(long nanos) {
+    return nanos > 0 ? (nanos + 999999) / 1000000 : 0;
+  }
+
+  private static long parseLong(String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Parses the Retry-After header, given either in seconds or as an HTTP date.
+   *
+   * @return milliseconds to wait, -1 if the header is missing or malformed
+   */
+  private static long parseRetryAfter(String value) {
+    if (value == null) {
+      return -1;
+    }
+    long seconds = parseLong(value);
+    if (seconds >= 0) {
+      return TimeUnit.SECONDS.toMillis(seconds);
+    }
+    try {
+      SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+      return Math.max(0, format.parse(value.trim()).getTime() - System.currentTimeMillis());
+    } catch (ParseException e) {
+      return -1;
+    }
+  }
+}
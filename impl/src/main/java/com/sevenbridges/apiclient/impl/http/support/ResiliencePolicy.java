@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.lang.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resilience of the requests of one client: a client-wide {@link RetryBudget}, back-off with
+ * decorrelated jitter so retrying threads do not retry in lockstep, and a {@link CircuitBreaker}
+ * per endpoint class that fails requests fast while the endpoint keeps failing.
+ * <p>
+ * Request executors consult the policy around every attempt of a request. Subclasses can change
+ * how requests are classified into endpoints and which responses count as failures.
+ */
+public class ResiliencePolicy {
+
+  private static final Logger log = LoggerFactory.getLogger(ResiliencePolicy.class);
+
+  public static final double DEFAULT_RETRY_RATIO = 0.2;
+  public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 5;
+  public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+  public static final long DEFAULT_OPEN_MILLIS = 10000;
+  public static final long DEFAULT_BASE_DELAY_MILLIS = 300;
+
+  private final RetryBudget retryBudget;
+  private final int failureThreshold;
+  private final long openMillis;
+  private final long baseDelayMillis;
+
+  private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong rejectedRetries = new AtomicLong();
+  private final AtomicLong rejectedRequests = new AtomicLong();
+  private final AtomicLong circuitBreakerOpenings = new AtomicLong();
+
+  public ResiliencePolicy() {
+    this(DEFAULT_RETRY_RATIO, DEFAULT_MIN_RETRIES_PER_SECOND, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS,
+        DEFAULT_BASE_DELAY_MILLIS);
+  }
+
+  /**
+   * @param retryRatio          retries allowed per request, client-wide
+   * @param minRetriesPerSecond retries allowed per second regardless of the number of requests
+   * @param failureThreshold    consecutive failures that open the circuit breaker of an endpoint class
+   * @param openMillis          time a circuit breaker stays open before a trial request
+   * @param baseDelayMillis     shortest back-off before a retry
+   */
+  public ResiliencePolicy(double retryRatio, int minRetriesPerSecond, int failureThreshold, long openMillis,
+                          long baseDelayMillis) {
+    Assert.isTrue(failureThreshold > 0, "failureThreshold must be greater than zero.");
+    Assert.isTrue(openMillis >= 0, "openMillis must not be negative.");
+    Assert.isTrue(baseDelayMillis > 0, "baseDelayMillis must be greater than zero.");
+    this.retryBudget = new RetryBudget(retryRatio, minRetriesPerSecond);
+    this.failureThreshold = failureThreshold;
+    this.openMillis = openMillis;
+    this.baseDelayMillis = baseDelayMillis;
+  }
+
+  /**
+   * Called before every attempt of a request.
+   *
+   * @param uri   URI the attempt is sent to
+   * @param retry whether the attempt is a retry, which was already allowed by {@link #allowRetry()}
+   * @throws CircuitBreakerOpenException if the circuit breaker of the endpoint class is open
+   */
+  public void beforeAttempt(URI uri, boolean retry) throws CircuitBreakerOpenException {
+    String endpointClass = getEndpointClass(uri);
+    if (!getCircuitBreaker(endpointClass).tryAcquire()) {
+      rejectedRequests.incrementAndGet();
+      throw new CircuitBreakerOpenException(endpointClass);
+    }
+    if (!retry) {
+      retryBudget.deposit();
+    }
+  }
+
+  /**
+   * Records the response to an attempt.
+   *
+   * @param uri        URI the attempt was sent to
+   * @param httpStatus status of the response
+   */
+  public void onResponse(URI uri, int httpStatus) {
+    if (isFailure(httpStatus)) {
+      onFailure(uri);
+    } else {
+      getCircuitBreaker(getEndpointClass(uri)).onSuccess();
+    }
+  }
+
+  /**
+   * Records an attempt that failed without a response, for example on a connection error.
+   *
+   * @param uri URI the attempt was sent to
+   */
+  public void onFailure(URI uri) {
+    String endpointClass = getEndpointClass(uri);
+    if (getCircuitBreaker(endpointClass).onFailure()) {
+      circuitBreakerOpenings.incrementAndGet();
+      log.warn("Circuit breaker for {} opened, requests fail fast for {}ms", endpointClass, openMillis);
+    }
+  }
+
+  /**
+   * Withdraws a retry from the client-wide retry budget.
+   *
+   * @return true if the request may be retried
+   */
+  public boolean allowRetry() {
+    if (retryBudget.tryWithdraw()) {
+      retries.incrementAndGet();
+      return true;
+    }
+    rejectedRetries.incrementAndGet();
+    log.debug("Retry budget exhausted, not retrying");
+    return false;
+  }
+
+  /**
+   * Back-off before a retry, with decorrelated jitter: a random delay between the base delay and
+   * three times the previous delay of the same request.
+   *
+   * @param previousDelayMillis back-off before the previous attempt of the request, 0 if none
+   * @return milliseconds to wait before the retry
+   */
+  public long getDelayMillis(long previousDelayMillis) {
+    // bounded, so a delay fed back without a cap does not overflow
+    long upper = Math.min(Math.max(baseDelayMillis, previousDelayMillis), Long.MAX_VALUE / 4) * 3;
+    return baseDelayMillis + ThreadLocalRandom.current().nextLong(upper - baseDelayMillis + 1);
+  }
+
+  /**
+   * Classifies requests into endpoints, each with its own circuit breaker. By default the class is
+   * the host and the first path segment after the API version, for example
+   * {@code api.sbgenomics.com/files}.
+   *
+   * @param uri URI of the request
+   * @return the endpoint class of the request
+   */
+  protected String getEndpointClass(URI uri) {
+    String path = uri.getPath() != null ? uri.getPath() : "";
+    for (String segment : path.split("/")) {
+      if (!segment.isEmpty() && !segment.matches("v\\d+")) {
+        return uri.getHost() + "/" + segment;
+      }
+    }
+    return uri.getHost() + "/";
+  }
+
+  /**
+   * @param httpStatus status of a response
+   * @return true if the response counts as a failure of the endpoint
+   */
+  protected boolean isFailure(int httpStatus) {
+    return httpStatus >= 500;
+  }
+
+  private CircuitBreaker getCircuitBreaker(String endpointClass) {
+    CircuitBreaker circuitBreaker = circuitBreakers.get(endpointClass);
+    if (circuitBreaker == null) {
+      CircuitBreaker created = new CircuitBreaker(failureThreshold, openMillis);
+      circuitBreaker = circuitBreakers.putIfAbsent(endpointClass, created);
+      if (circuitBreaker == null) {
+        circuitBreaker = created;
+      }
+    }
+    return circuitBreaker;
+  }
+
+  /**
+   * @return retries allowed by the retry budget
+   */
+  public long getRetryCount() {
+    return retries.get();
+  }
+
+  /**
+   * @return retries refused because the retry budget was exhausted
+   */
+  public long getRejectedRetryCount() {
+    return rejectedRetries.get();
+  }
+
+  /**
+   * @return requests failed fast because the circuit breaker of their endpoint class was open
+   */
+  public long getRejectedRequestCount() {
+    return rejectedRequests.get();
+  }
+
+  /**
+   * @return how many times a circuit breaker opened
+   */
+  public long getCircuitBreakerOpenCount() {
+    return circuitBreakerOpenings.get();
+  }
+
+  /**
+   * @return retries left in the retry budget
+   */
+  public double getRetryBudgetBalance() {
+    return retryBudget.getBalance();
+  }
+
+  /**
+   * @return current state of the circuit breaker of every endpoint class requests were sent to
+   */
+  public Map<String, CircuitBreaker.State> getCircuitBreakerStates() {
+    Map<String, CircuitBreaker.State> states = new LinkedHashMap<>();
+    for (Map.Entry<String, CircuitBreaker> entry : circuitBreakers.entrySet()) {
+      states.put(entry.getKey(), entry.getValue().getState());
+    }
+    return states;
+  }
+}
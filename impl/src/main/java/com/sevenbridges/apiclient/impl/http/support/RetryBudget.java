@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.lang.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-wide limit on retries, as a ratio of retries to requests. Every request deposits the ratio
+ * and every retry withdraws one, so while the API is failing, retries add at most that fraction to
+ * the load instead of multiplying it. A minimum number of retries per second is allowed regardless,
+ * so a client that sends few requests can still retry.
+ * <p>
+ * The balance saved up while requests succeed is capped at the deposits of 100 requests and 10
+ * seconds of the minimum.
+ */
+public class RetryBudget {
+
+  private final double ratio;
+  private final int minRetriesPerSecond;
+  private final double maxBalance;
+
+  private double balance;
+  private long refilledNanos = System.nanoTime();
+
+  /**
+   * @param ratio               retries allowed per request
+   * @param minRetriesPerSecond retries allowed per second regardless of the number of requests
+   */
+  public RetryBudget(double ratio, int minRetriesPerSecond) {
+    Assert.isTrue(ratio >= 0, "ratio must not be negative.");
+    Assert.isTrue(minRetriesPerSecond >= 0, "minRetriesPerSecond must not be negative.");
+    this.ratio = ratio;
+    this.minRetriesPerSecond = minRetriesPerSecond;
+    this.maxBalance = Math.max(1, ratio * 100 + minRetriesPerSecond * 10);
+    this.balance = maxBalance;
+  }
+
+  /**
+   * Deposits the ratio of a request to the budget.
+   */
+  public synchronized void deposit() {
+    refill();
+    balance = Math.min(maxBalance, balance + ratio);
+  }
+
+  /**
+   * Withdraws a retry from the budget, if there is one.
+   *
+   * @return true if the retry is allowed
+   */
+  public synchronized boolean tryWithdraw() {
+    refill();
+    if (balance < 1) {
+      return false;
+    }
+    balance -= 1;
+    return true;
+  }
+
+  public synchronized double getBalance() {
+    refill();
+    return balance;
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    double retries = (double) (now - refilledNanos) * minRetriesPerSecond / TimeUnit.SECONDS.toNanos(1);
+    balance = Math.min(maxBalance, balance + retries);
+    refilledNanos = now;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base of the non-blocking upload state machines. The upload does not own a thread, everything
+ * that happens to it is an event that wakes the machine up, and every wake up is processed on the
+ * shared event executor by at most one thread at a time.
+ */
+abstract class AbstractUploadTask {
+
+  private final ExecutorService eventExecutor;
+  private final UploadFlow flow;
+  private final AtomicInteger wakeUps = new AtomicInteger();
+
+  AbstractUploadTask(ExecutorService eventExecutor, UploadFlow flow) {
+    this.eventExecutor = eventExecutor;
+    this.flow = flow != null ? flow : UploadFlow.DEFAULT;
+  }
+
+  /**
+   * Scheduling class of the upload, its parts wait for a place in the queue of this class.
+   */
+  UploadFlow getFlow() {
+    return flow;
+  }
+
+  /**
+   * Starts the upload.
+   */
+  void start() {
+    wakeUp();
+  }
+
+  /**
+   * Schedules processing of the events, if it is not scheduled already. Events are processed by
+   * one thread at a time, and no wake up is lost while they are being processed.
+   */
+  void wakeUp() {
+    if (wakeUps.getAndIncrement() == 0) {
+      eventExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          int missed = 1;
+          do {
+            processEvents();
+            missed = wakeUps.addAndGet(-missed);
+          } while (missed != 0);
+        }
+      });
+    }
+  }
+
+  /**
+   * Processes all events that happened since the last call. Never called concurrently.
+   */
+  abstract void processEvents();
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+/**
+ * Additive increase / multiplicative decrease limit of parts uploaded in parallel by one upload.
+ * Every part uploaded at a healthy rate raises the limit by one part per round of parts, while a
+ * failed part, or a part uploaded at less than half of the best recent part rate, halves it. When
+ * the link is saturated, the rate of each part drops as parts are added, so the limit oscillates
+ * just above the number of parts that saturate the link.
+ */
+class AdaptivePartLimit {
+
+  // best rate decays, so the limit can adapt to a slower link
+  private static final double BEST_RATE_DECAY = 0.98;
+  private static final double SLOW_PART_RATIO = 0.5;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private double limit;
+  private double bestRate = 0;
+
+  AdaptivePartLimit(int initialLimit, int maxLimit) {
+    this.minLimit = 1;
+    this.maxLimit = Math.max(maxLimit, minLimit);
+    this.limit = Math.min(Math.max(initialLimit, minLimit), this.maxLimit);
+  }
+
+  /**
+   * Current number of parts that may be uploaded in parallel.
+   */
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Records the successfully uploaded part.
+   *
+   * @param bytes size of the part
+   * @param nanos time from the start of the part request to its response
+   */
+  synchronized void onSuccess(long bytes, long nanos) {
+    if (bytes <= 0 || nanos <= 0) {
+      return;
+    }
+    double rate = (double) bytes / nanos;
+    bestRate = Math.max(bestRate * BEST_RATE_DECAY, rate);
+    if (rate < bestRate * SLOW_PART_RATIO) {
+      decrease();
+    } else {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+
+  /**
+   * Records the failed part.
+   */
+  synchronized void onFailure() {
+    decrease();
+  }
+
+  private void decrease() {
+    limit = Math.max(minLimit, limit / 2);
+  }
+}
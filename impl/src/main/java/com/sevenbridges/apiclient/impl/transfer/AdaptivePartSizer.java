@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+/**
+ * Picks part sizes of new uploads from the file size and the rate of recently uploaded parts.
+ * Parts are sized so that one part takes about ten seconds at the measured rate, which keeps the
+ * per-part overhead of API calls small on fast links, and the work lost with a failed part small
+ * on slow ones. Part sizes stay within the limits of the storage providers.
+ */
+class AdaptivePartSizer {
+
+  static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+  static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+  static final int MAX_PARTS = 10000;
+
+  private static final long DEFAULT_PART_SIZE = 32L * 1024 * 1024;
+  private static final long TARGET_PART_NANOS = 10L * 1000 * 1000 * 1000;
+  private static final long PART_SIZE_ALIGNMENT = 1024 * 1024;
+  private static final double RATE_SMOOTHING = 0.2;
+
+  // bytes per nanosecond of one part, smoothed over recent parts
+  private double partRate = 0;
+
+  /**
+   * Records the successfully uploaded part of any upload.
+   *
+   * @param bytes size of the part
+   * @param nanos time from the start of the part request to its response
+   */
+  synchronized void onPartUploaded(long bytes, long nanos) {
+    if (bytes <= 0 || nanos <= 0) {
+      return;
+    }
+    double rate = (double) bytes / nanos;
+    partRate = partRate == 0 ? rate : partRate + RATE_SMOOTHING * (rate - partRate);
+  }
+
+  /**
+   * Part size for the new upload of the provided size.
+   */
+  long getPartSize(long fileSize) {
+    double rate;
+    synchronized (this) {
+      rate = partRate;
+    }
+    long partSize = rate > 0 ? (long) (rate * TARGET_PART_NANOS) : DEFAULT_PART_SIZE;
+    // respect the maximum number of parts of one upload
+    partSize = Math.max(partSize, (fileSize + MAX_PARTS - 1) / MAX_PARTS);
+    partSize = Math.min(Math.max(partSize, MIN_PART_SIZE), MAX_PART_SIZE);
+    return (partSize + PART_SIZE_ALIGNMENT - 1) / PART_SIZE_ALIGNMENT * PART_SIZE_ALIGNMENT;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.transfer.UploadCompletionListener;
+import com.sevenbridges.apiclient.transfer.UploadContext;
+import com.sevenbridges.apiclient.transfer.UploadState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Context of an upload whose content is not transferred, since the same file is already on the
+ * Platform. Upload is finished as soon as it is submitted, and no upload is created on the API
+ * server, so there is no upload ID.
+ */
+class DeduplicatedUploadContext implements UploadContext, ProgressSource {
+
+  private final File file;
+  private final String uploadName;
+  private final long uploadSize;
+  private final UploadCompletionListeners completionListeners = new UploadCompletionListeners(this);
+
+  DeduplicatedUploadContext(File file, String uploadName, long uploadSize) {
+    this.file = file;
+    this.uploadName = uploadName;
+    this.uploadSize = uploadSize;
+    this.completionListeners.completed(file);
+  }
+
+  @Override
+  public File getFile() {
+    return file;
+  }
+
+  @Override
+  public File getFile(long timeValue, TimeUnit timeUnit) {
+    return file;
+  }
+
+  @Override
+  public void onComplete(UploadCompletionListener listener) {
+    completionListeners.add(listener);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return true;
+  }
+
+  @Override
+  public void abortTransfer() {
+    // nothing to abort
+  }
+
+  @Override
+  public UploadState getState() {
+    return UploadState.FINISHED;
+  }
+
+  @Override
+  public void pauseTransfer() {
+    throw new RuntimeException("Transfer is not in 'running' state so it can not be paused");
+  }
+
+  @Override
+  public long getBytesTransferred() {
+    return uploadSize;
+  }
+
+  @Override
+  public long getUploadSize() {
+    return uploadSize;
+  }
+
+  @Override
+  public String getUploadName() {
+    return uploadName;
+  }
+
+  /**
+   * No upload is created for the file, so there is no upload ID.
+   */
+  @Override
+  public String getUploadId() {
+    return null;
+  }
+
+  @Override
+  public void setBandwidthLimit(long bytesPerSecond) {
+    // nothing is transferred
+  }
+
+  @Override
+  public long getTotalBytes() {
+    return uploadSize;
+  }
+
+  @Override
+  public boolean isTransferDone() {
+    return true;
+  }
+}
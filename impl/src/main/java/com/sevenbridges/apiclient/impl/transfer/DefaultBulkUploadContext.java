@@ -0,0 +1,357 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.impl.ds.InternalDataStore;
+import com.sevenbridges.apiclient.transfer.AbstractProgressListener;
+import com.sevenbridges.apiclient.transfer.BulkUploadContext;
+import com.sevenbridges.apiclient.transfer.UploadContext;
+import com.sevenbridges.apiclient.upload.CreateUploadRequest;
+import com.sevenbridges.apiclient.upload.Upload;
+
+import org.apache.http.concurrent.FutureCallback;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bulk of uploads fed to the transfer manager gradually. Next upload is initialized on the API
+ * server while the parts of started uploads, that are not uploaded yet, are not enough to keep the
+ * part scheduler busy, so the part scheduler always has parts of the next file to continue with,
+ * and signed URLs and checkpoints exist only for the files that are about to be uploaded.
+ */
+class DefaultBulkUploadContext implements BulkUploadContext {
+
+  private static final String UPLOADS_HREF = "/upload/multipart";
+
+  private final TransferManager transferManager;
+  private final InternalDataStore dataStore;
+  private final List<CreateUploadRequest> uploadRequests;
+  private final ExecutorService apiExecutor;
+  private final int maxInitializingUploads;
+  private final int maxQueuedParts;
+  private final long uploadSize;
+
+  // guarded by this
+  private final List<UploadContext> uploadContexts = new ArrayList<>();
+  private final File[] files;
+  private final Exception[] failures;
+  private final int[] remainingParts;
+  private int nextUpload = 0;
+  private int initializingUploads = 0;
+  private int queuedParts = 0;
+  private int finishedCnt = 0;
+  private int failedCnt = 0;
+  private boolean aborted = false;
+
+  DefaultBulkUploadContext(TransferManager transferManager,
+                           InternalDataStore dataStore,
+                           List<CreateUploadRequest> uploadRequests,
+                           ExecutorService apiExecutor,
+                           int maxInitializingUploads,
+                           int maxQueuedParts) {
+    this.transferManager = transferManager;
+    this.dataStore = dataStore;
+    this.uploadRequests = uploadRequests;
+    this.apiExecutor = apiExecutor;
+    this.maxInitializingUploads = maxInitializingUploads;
+    this.maxQueuedParts = maxQueuedParts;
+    this.files = new File[uploadRequests.size()];
+    this.failures = new Exception[uploadRequests.size()];
+    this.remainingParts = new int[uploadRequests.size()];
+    long size = 0;
+    for (CreateUploadRequest uploadRequest : uploadRequests) {
+      size += getFileSize(uploadRequest);
+    }
+    this.uploadSize = size;
+  }
+
+  void start() {
+    admitUploads();
+  }
+
+  /**
+   * Initializes next uploads while there is not enough parts queued for upload.
+   */
+  private synchronized void admitUploads() {
+    while (!aborted
+        && nextUpload < uploadRequests.size()
+        && initializingUploads < maxInitializingUploads
+        && queuedParts < maxQueuedParts) {
+      final int index = nextUpload++;
+      initializingUploads++;
+      apiExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          initUpload(index);
+        }
+      });
+    }
+  }
+
+  private void initUpload(final int index) {
+    CreateUploadRequest uploadRequest = uploadRequests.get(index);
+    // same file may be already uploaded, then it is copied instead
+    File copy = transferManager.findCopy(dataStore, uploadRequest);
+    if (copy != null) {
+      synchronized (this) {
+        initializingUploads--;
+        uploadFinished(index, copy);
+      }
+      admitUploads();
+      return;
+    }
+    Upload upload;
+    try {
+      Map<String, Object> qp = new HashMap<>(1);
+      qp.put("overwrite", uploadRequest.getOverwrite());
+      transferManager.suggestPartSize(uploadRequest.getUpload());
+      upload = dataStore.create(UPLOADS_HREF, uploadRequest.getUpload(), Upload.class, qp);
+    } catch (Exception e) {
+      synchronized (this) {
+        initializingUploads--;
+        uploadFailed(index, e);
+      }
+      admitUploads();
+      return;
+    }
+
+    Exception failure = null;
+    synchronized (this) {
+      initializingUploads--;
+      if (aborted) {
+        // bulk is aborted while this upload was initialized
+        failure = new RuntimeException("Upload is aborted");
+      } else {
+        try {
+          int partsNumber = (int) ((getFileSize(uploadRequest) + upload.getPartSize() - 1) / upload.getPartSize());
+          uploadContexts.add(transferManager.upload(dataStore, upload, uploadRequest.getFile(),
+              new PartCountingListener(index),
+              new UploadFlow(uploadRequest.getPriority(), uploadRequest.getTenant()),
+              new UploadCallback(index)));
+          remainingParts[index] = partsNumber;
+          queuedParts += partsNumber;
+        } catch (Exception e) {
+          failure = e;
+        }
+      }
+      if (failure != null) {
+        uploadFailed(index, failure);
+      }
+    }
+    if (failure != null) {
+      try {
+        upload.abortUpload();
+      } catch (Exception e) {
+        // nothing more to do, upload is left to expire on the server
+      }
+    }
+    admitUploads();
+  }
+
+  private synchronized void partFinished(int index) {
+    if (remainingParts[index] > 0) {
+      remainingParts[index]--;
+      queuedParts--;
+    }
+  }
+
+  private synchronized void uploadFinished(int index, File file) {
+    files[index] = file;
+    finishedCnt++;
+    dequeueParts(index);
+    notifyAll();
+  }
+
+  private synchronized void uploadFailed(int index, Exception ex) {
+    failures[index] = ex;
+    failedCnt++;
+    dequeueParts(index);
+    notifyAll();
+  }
+
+  private void dequeueParts(int index) {
+    queuedParts -= remainingParts[index];
+    remainingParts[index] = 0;
+  }
+
+  @Override
+  public List<File> getFiles() {
+    synchronized (this) {
+      try {
+        while (!isFinished()) {
+          wait();
+        }
+      } catch (InterruptedException ie) {
+        throw new RuntimeException("Interrupted while waiting on files", ie);
+      }
+      return getResult();
+    }
+  }
+
+  @Override
+  public List<File> getFiles(long timeValue, TimeUnit timeUnit) throws TimeoutException {
+    long deadline = System.nanoTime() + timeUnit.toNanos(timeValue);
+    synchronized (this) {
+      try {
+        long remaining;
+        while (!isFinished() && (remaining = deadline - System.nanoTime()) > 0) {
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+      } catch (InterruptedException ie) {
+        throw new RuntimeException("Interrupted while waiting on files", ie);
+      }
+      if (!isFinished()) {
+        throw new TimeoutException("Timed out while waiting for files");
+      }
+      return getResult();
+    }
+  }
+
+  private List<File> getResult() {
+    if (failedCnt > 0) {
+      Exception firstFailure = null;
+      for (Exception failure : failures) {
+        if (failure != null) {
+          firstFailure = failure;
+          break;
+        }
+      }
+      throw new RuntimeException(failedCnt + " of " + uploadRequests.size() + " uploads failed", firstFailure);
+    }
+    return Collections.unmodifiableList(Arrays.asList(files));
+  }
+
+  @Override
+  public synchronized boolean isFinished() {
+    return finishedCnt + failedCnt == uploadRequests.size();
+  }
+
+  @Override
+  public void abortTransfer() {
+    List<UploadContext> started;
+    synchronized (this) {
+      if (aborted) {
+        return;
+      }
+      aborted = true;
+      // uploads that are not started yet will never start
+      for (; nextUpload < uploadRequests.size(); nextUpload++) {
+        failures[nextUpload] = new RuntimeException("Upload is aborted");
+        failedCnt++;
+      }
+      started = new ArrayList<>(uploadContexts);
+      notifyAll();
+    }
+    for (UploadContext uploadContext : started) {
+      uploadContext.abortTransfer();
+    }
+  }
+
+  @Override
+  public synchronized List<UploadContext> getUploadContexts() {
+    return new ArrayList<>(uploadContexts);
+  }
+
+  @Override
+  public int getUploadsCount() {
+    return uploadRequests.size();
+  }
+
+  @Override
+  public synchronized int getFinishedUploadsCount() {
+    return finishedCnt;
+  }
+
+  @Override
+  public synchronized int getFailedUploadsCount() {
+    return failedCnt;
+  }
+
+  @Override
+  public long getBytesTransferred() {
+    long bytesTransferred = 0;
+    for (UploadContext uploadContext : getUploadContexts()) {
+      bytesTransferred += uploadContext.getBytesTransferred();
+    }
+    return bytesTransferred;
+  }
+
+  @Override
+  public long getUploadSize() {
+    return uploadSize;
+  }
+
+  private static long getFileSize(CreateUploadRequest uploadRequest) {
+    try {
+      return uploadRequest.getFile().length();
+    } catch (IOException e) {
+      throw new RuntimeException("Error while checking uploading file size", e);
+    }
+  }
+
+  private class PartCountingListener extends AbstractProgressListener {
+
+    private final int index;
+
+    PartCountingListener(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void partUploadFinished(int partNumber, long partSize) {
+      partFinished(index);
+      // there may be room for parts of the next upload
+      admitUploads();
+    }
+  }
+
+  private class UploadCallback implements FutureCallback<File> {
+
+    private final int index;
+
+    UploadCallback(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void completed(File result) {
+      uploadFinished(index, result);
+      admitUploads();
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      uploadFailed(index, ex);
+      admitUploads();
+    }
+
+    @Override
+    public void cancelled() {
+      uploadFailed(index, new RuntimeException("Upload is aborted"));
+      admitUploads();
+    }
+  }
+}
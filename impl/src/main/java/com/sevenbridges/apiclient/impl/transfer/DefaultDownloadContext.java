@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthThrottle;
+import com.sevenbridges.apiclient.transfer.DownloadContext;
+import com.sevenbridges.apiclient.transfer.DownloadState;
+import com.sevenbridges.apiclient.transfer.PausedDownloadException;
+import com.sevenbridges.apiclient.transfer.ProgressListener;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+class DefaultDownloadContext implements DownloadContext, ProgressSource {
+
+  private DownloadState state;
+  private final File file;
+  private final Path destination;
+  private final RandomAccessFile randomAccessFile;
+  private final DownloadJournal journal;
+  private final ProgressListener listener;
+  private final StripedLongAdder bytesTransferredAdder;
+  private final BandwidthThrottle throttle;
+  private Future<Path> pathFuture;
+
+  DefaultDownloadContext(File file, Path destination, RandomAccessFile raf, DownloadJournal journal, ProgressListener listener,
+                         BandwidthThrottle throttle) {
+    this.file = file;
+    this.throttle = throttle;
+    this.destination = destination;
+    this.randomAccessFile = raf;
+    this.journal = journal;
+    this.listener = listener;
+    this.bytesTransferredAdder = new StripedLongAdder();
+    this.state = DownloadState.CREATED;
+    for (int partNumber = 1; partNumber <= journal.getPartsNumber(); partNumber++) {
+      if (journal.isFinished(partNumber)) {
+        this.bytesTransferredAdder.set(partNumber, Math.min(journal.getPartSize(), journal.getFileSize() - (partNumber - 1) * journal.getPartSize()));
+      }
+    }
+  }
+
+  File getPlatformFile() {
+    return file;
+  }
+
+  RandomAccessFile getRandomAccessFile() {
+    return randomAccessFile;
+  }
+
+  DownloadJournal getJournal() {
+    return journal;
+  }
+
+  ProgressListener getListener() {
+    return listener;
+  }
+
+  StripedLongAdder getBytesTransferredAdder() {
+    return bytesTransferredAdder;
+  }
+
+  BandwidthThrottle getThrottle() {
+    return throttle;
+  }
+
+  void setPathFuture(Future<Path> pathFuture) {
+    this.pathFuture = pathFuture;
+  }
+
+  synchronized DownloadState setState(DownloadState newState) {
+    DownloadState oldState = this.state;
+    this.state = newState;
+    return oldState;
+  }
+
+  @Override
+  public Path getFile() {
+    try {
+      return pathFuture.get();
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted while waiting on file", ie);
+    } catch (ExecutionException ee) {
+      if ((ee.getCause() != null) && (ee.getCause() instanceof PausedDownloadException)) {
+        throw (PausedDownloadException) ee.getCause();
+      }
+      throw new RuntimeException("Error while downloading file", ee.getCause());
+    }
+  }
+
+  @Override
+  public Path getFile(long timeValue, TimeUnit timeUnit) throws TimeoutException {
+    try {
+      return pathFuture.get(timeValue, timeUnit);
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted while waiting on file", ie);
+    } catch (ExecutionException ee) {
+      if ((ee.getCause() != null) && (ee.getCause() instanceof PausedDownloadException)) {
+        throw (PausedDownloadException) ee.getCause();
+      }
+      throw new RuntimeException("Error while downloading file", ee.getCause());
+    }
+  }
+
+  @Override
+  public boolean isFinished() {
+    return pathFuture.isDone() && DownloadState.FINISHED.equals(getState());
+  }
+
+  @Override
+  public void abortTransfer() {
+    if (!DownloadState.FINISHED.equals(getState())) {
+      setState(DownloadState.ABORTED);
+      pathFuture.cancel(true);
+    }
+  }
+
+  @Override
+  public synchronized DownloadState getState() {
+    return state;
+  }
+
+  @Override
+  public void pauseTransfer() {
+    synchronized (this) {
+      if (DownloadState.RUNNING.equals(this.state)) {
+        this.state = DownloadState.PAUSING;
+        return;
+      }
+    }
+    throw new RuntimeException("Transfer is not in 'running' state so it can not be paused");
+  }
+
+  @Override
+  public long getBytesTransferred() {
+    return bytesTransferredAdder.sum();
+  }
+
+  @Override
+  public long getDownloadSize() {
+    return file.getSize();
+  }
+
+  @Override
+  public String getFileName() {
+    return file.getName();
+  }
+
+  @Override
+  public String getFileId() {
+    return file.getId();
+  }
+
+  @Override
+  public Path getDestination() {
+    return destination;
+  }
+
+  @Override
+  public long getTotalBytes() {
+    return getDownloadSize();
+  }
+
+  @Override
+  public boolean isTransferDone() {
+    return pathFuture != null && pathFuture.isDone();
+  }
+
+  @Override
+  public void setBandwidthLimit(long bytesPerSecond) {
+    throttle.setLimit(bytesPerSecond);
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthThrottle;
+import com.sevenbridges.apiclient.transfer.ProgressListener;
+import com.sevenbridges.apiclient.transfer.UploadCompletionListener;
+import com.sevenbridges.apiclient.transfer.UploadContext;
+import com.sevenbridges.apiclient.transfer.UploadState;
+import com.sevenbridges.apiclient.upload.Upload;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Context of the upload read from a stream. Stream can not be rewound, so this upload can not be
+ * paused, and its size is known only when the stream ends.
+ */
+class DefaultStreamUploadContext implements UploadContext, ProgressSource {
+
+  private UploadState state;
+  private final Upload upload;
+  private final ProgressListener listener;
+  private final StripedLongAdder bytesTransferredAdder;
+  private final BandwidthThrottle throttle;
+  private final AtomicLong bytesRead = new AtomicLong();
+  private volatile boolean streamEnded = false;
+  private final UploadCompletionListeners completionListeners = new UploadCompletionListeners(this);
+  private Future<File> fileFuture;
+
+  DefaultStreamUploadContext(Upload upload, ProgressListener listener, BandwidthThrottle throttle) {
+    this.upload = upload;
+    this.throttle = throttle;
+    this.listener = listener;
+    this.bytesTransferredAdder = new StripedLongAdder();
+    this.state = UploadState.CREATED;
+  }
+
+  Upload getUpload() {
+    return upload;
+  }
+
+  ProgressListener getListener() {
+    return listener;
+  }
+
+  StripedLongAdder getBytesTransferredAdder() {
+    return bytesTransferredAdder;
+  }
+
+  BandwidthThrottle getThrottle() {
+    return throttle;
+  }
+
+  UploadCompletionListeners getCompletionListeners() {
+    return completionListeners;
+  }
+
+  void setFileFuture(Future<File> fileFuture) {
+    this.fileFuture = fileFuture;
+  }
+
+  void addBytesRead(long bytes) {
+    bytesRead.addAndGet(bytes);
+  }
+
+  void setStreamEnded() {
+    streamEnded = true;
+  }
+
+  synchronized UploadState setState(UploadState newState) {
+    UploadState oldState = this.state;
+    this.state = newState;
+    return oldState;
+  }
+
+  @Override
+  public File getFile() {
+    try {
+      return fileFuture.get();
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted while waiting on file", ie);
+    } catch (ExecutionException ee) {
+      throw new RuntimeException("Error while uploading file", ee.getCause());
+    }
+  }
+
+  @Override
+  public File getFile(long timeValue, TimeUnit timeUnit) throws TimeoutException {
+    try {
+      return fileFuture.get(timeValue, timeUnit);
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted while waiting on file", ie);
+    } catch (ExecutionException ee) {
+      throw new RuntimeException("Error while uploading file", ee.getCause());
+    }
+  }
+
+  @Override
+  public void onComplete(UploadCompletionListener listener) {
+    completionListeners.add(listener);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return fileFuture.isDone() && UploadState.FINISHED.equals(getState());
+  }
+
+  @Override
+  public void abortTransfer() {
+    if (!UploadState.FINISHED.equals(getState())) {
+      fileFuture.cancel(true);
+      setState(UploadState.ABORTED);
+    }
+  }
+
+  @Override
+  public synchronized UploadState getState() {
+    return state;
+  }
+
+  /**
+   * Stream can not be rewound, so the upload read from it can not be paused.
+   */
+  @Override
+  public void pauseTransfer() {
+    throw new RuntimeException("Upload read from a stream can not be paused");
+  }
+
+  @Override
+  public long getBytesTransferred() {
+    return bytesTransferredAdder.sum();
+  }
+
+  /**
+   * Size of the upload is known only when the stream ends, until then -1 is returned.
+   */
+  @Override
+  public long getUploadSize() {
+    return streamEnded ? bytesRead.get() : -1;
+  }
+
+  @Override
+  public String getUploadName() {
+    return upload.getName();
+  }
+
+  @Override
+  public String getUploadId() {
+    return upload.getUploadId();
+  }
+
+  @Override
+  public long getTotalBytes() {
+    return getUploadSize();
+  }
+
+  @Override
+  public boolean isTransferDone() {
+    return fileFuture != null && fileFuture.isDone();
+  }
+
+  @Override
+  public void setBandwidthLimit(long bytesPerSecond) {
+    throttle.setLimit(bytesPerSecond);
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.transfer.TransferProgress;
+
+class DefaultTransferProgress implements TransferProgress {
+
+  private final long bytesTransferred;
+  private final long totalBytes;
+  private final double bytesPerSecond;
+  private final long elapsedMillis;
+
+  DefaultTransferProgress(long bytesTransferred, long totalBytes, double bytesPerSecond, long elapsedMillis) {
+    this.bytesTransferred = bytesTransferred;
+    this.totalBytes = totalBytes;
+    this.bytesPerSecond = bytesPerSecond;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  @Override
+  public long getBytesTransferred() {
+    return bytesTransferred;
+  }
+
+  @Override
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  @Override
+  public double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  @Override
+  public long getEstimatedRemainingMillis() {
+    if (totalBytes < 0 || bytesPerSecond <= 0) {
+      return -1;
+    }
+    return (long) (Math.max(0, totalBytes - bytesTransferred) / bytesPerSecond * 1000);
+  }
+
+  @Override
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "TransferProgress{bytesTransferred=" + bytesTransferred + ", totalBytes=" + totalBytes
+        + ", bytesPerSecond=" + (long) bytesPerSecond + ", estimatedRemainingMillis=" + getEstimatedRemainingMillis()
+        + ", elapsedMillis=" + elapsedMillis + '}';
+  }
+}
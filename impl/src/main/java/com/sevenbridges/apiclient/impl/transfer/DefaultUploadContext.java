@@ -17,8 +17,10 @@ package com.sevenbridges.apiclient.impl.transfer;
 
 import com.sevenbridges.apiclient.file.File;
 import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthThrottle;
 import com.sevenbridges.apiclient.transfer.PausedUploadException;
 import com.sevenbridges.apiclient.transfer.ProgressListener;
+import com.sevenbridges.apiclient.transfer.UploadCompletionListener;
 import com.sevenbridges.apiclient.transfer.UploadContext;
 import com.sevenbridges.apiclient.transfer.UploadState;
 import com.sevenbridges.apiclient.upload.Upload;
@@ -26,34 +28,54 @@ import com.sevenbridges.apiclient.upload.UploadedPart;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-class DefaultUploadContext implements UploadContext {
+class DefaultUploadContext implements UploadContext, ProgressSource {
 
   private UploadState state;
   private Upload upload;
   private RandomAccessFile randomAccessFile;
   private ProgressListener listener;
   private Future<File> fileFuture;
+  private UploadTask uploadTask;
   private StripedLongAdder bytesTransferredAdder;
   private Long uploadSize = null;
-  private final Object waitObject = new Object();
+  private final UploadCheckpoint checkpoint;
+  private final Set<Integer> finishedParts;
+  private final BandwidthThrottle throttle;
+  private final UploadCompletionListeners completionListeners = new UploadCompletionListeners(this);
 
-
-  DefaultUploadContext(Upload upload, RandomAccessFile raf, ProgressListener listener) {
+  DefaultUploadContext(Upload upload, RandomAccessFile raf, UploadCheckpoint checkpoint, ProgressListener listener,
+                       BandwidthThrottle throttle) {
     this.upload = upload;
+    this.throttle = throttle;
     this.randomAccessFile = raf;
+    this.checkpoint = checkpoint;
     this.listener = listener;
     this.bytesTransferredAdder = new StripedLongAdder();
-    if (upload.getUploadedPartsCount() > 0) {
-      this.state = UploadState.QUEUED;
+    this.finishedParts = new HashSet<>();
+    if (checkpoint != null && checkpoint.getRecordedPartsCount() > 0) {
+      // local checkpoint is enough, no need to list parts on the server
+      this.finishedParts.addAll(checkpoint.getRecordedParts().keySet());
+    } else if (upload.getUploadedPartsCount() > 0) {
       List<UploadedPart> parts = upload.getUploadedParts();
       for (UploadedPart part : parts) {
-        this.bytesTransferredAdder.set(part.getPartNumber(), upload.getPartSize());
+        this.finishedParts.add(part.getPartNumber());
+        if (checkpoint != null) {
+          checkpoint.append(part.getPartNumber(), getETag(part), true);
+        }
+      }
+    }
+    if (!finishedParts.isEmpty()) {
+      this.state = UploadState.QUEUED;
+      for (Integer partNumber : finishedParts) {
+        this.bytesTransferredAdder.set(partNumber, upload.getPartSize());
       }
     } else {
       this.state = UploadState.CREATED;
@@ -73,6 +95,18 @@ class DefaultUploadContext implements UploadContext {
     return randomAccessFile;
   }
 
+  UploadCheckpoint getCheckpoint() {
+    return checkpoint;
+  }
+
+  BandwidthThrottle getThrottle() {
+    return throttle;
+  }
+
+  Set<Integer> getFinishedParts() {
+    return finishedParts;
+  }
+
   ProgressListener getListener() {
     return listener;
   }
@@ -81,21 +115,18 @@ class DefaultUploadContext implements UploadContext {
     return bytesTransferredAdder;
   }
 
-  void setFileFuture(Future<File> fileFuture) {
-    this.fileFuture = fileFuture;
+  UploadCompletionListeners getCompletionListeners() {
+    return completionListeners;
   }
 
-  UploadState setState(UploadState newState) {
-    UploadState oldState;
-    synchronized (this) {
-      oldState = this.state;
-      this.state = newState;
-      if (UploadState.FINISHED.equals(this.state)) {
-        synchronized (waitObject) {
-          waitObject.notifyAll();
-        }
-      }
-    }
+  void setUploadTask(UploadTask uploadTask) {
+    this.uploadTask = uploadTask;
+    this.fileFuture = uploadTask.getFileFuture();
+  }
+
+  synchronized UploadState setState(UploadState newState) {
+    UploadState oldState = this.state;
+    this.state = newState;
     return oldState;
   }
 
@@ -116,12 +147,7 @@ class DefaultUploadContext implements UploadContext {
   @Override
   public File getFile(long timeValue, TimeUnit timeUnit) throws TimeoutException {
     try {
-      timeUnit.timedWait(waitObject, timeValue);
-      if (isFinished()) {
-        return fileFuture.get();
-      } else {
-        throw new TimeoutException("Timed out while waiting for file");
-      }
+      return fileFuture.get(timeValue, timeUnit);
     } catch (InterruptedException ie) {
       throw new RuntimeException("Interrupted while waiting on file", ie);
     } catch (ExecutionException ee) {
@@ -132,6 +158,11 @@ class DefaultUploadContext implements UploadContext {
     }
   }
 
+  @Override
+  public void onComplete(UploadCompletionListener listener) {
+    completionListeners.add(listener);
+  }
+
   @Override
   public boolean isFinished() {
     return fileFuture.isDone() && UploadState.FINISHED.equals(getState());
@@ -158,6 +189,8 @@ class DefaultUploadContext implements UploadContext {
   public void pauseTransfer() {
     if (UploadState.RUNNING.equals(getState())) {
       setState(UploadState.PAUSING);
+      // let the upload notice the pause request
+      uploadTask.wakeUp();
     } else {
       throw new RuntimeException("Transfer is not in 'running' state so it can not be paused");
     }
@@ -183,4 +216,27 @@ class DefaultUploadContext implements UploadContext {
     return upload.getUploadId();
   }
 
+  @Override
+  public long getTotalBytes() {
+    return uploadSize;
+  }
+
+  @Override
+  public boolean isTransferDone() {
+    return fileFuture != null && fileFuture.isDone();
+  }
+
+  private static String getETag(UploadedPart part) {
+    if (part.getResponse() == null || part.getResponse().getHeaders() == null) {
+      return null;
+    }
+    Object eTag = part.getResponse().getHeaders().get("ETag");
+    return eTag == null ? null : eTag.toString();
+  }
+
+  @Override
+  public void setBandwidthLimit(long bytesPerSecond) {
+    throttle.setLimit(bytesPerSecond);
+  }
+
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.impl.transfer.http.protocol.ZeroCopyChannelRangeConsumer;
+import com.sevenbridges.apiclient.impl.transfer.model.DownloadPartContext;
+import com.sevenbridges.apiclient.transfer.DownloadState;
+import com.sevenbridges.apiclient.transfer.PausedDownloadException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads one file as byte ranges fetched in parallel by the async client. The callable runs on a
+ * worker thread of the transfer manager and keeps it until the download completes, waiting there for
+ * finished parts, so every running download occupies one worker thread.
+ */
+public class DownloadCallable implements Callable<Path> {
+
+  private final CloseableHttpAsyncClient client;
+  private final DefaultDownloadContext downloadContext;
+  private final DownloadJournal journal;
+  private final int partRetry;
+  private final int maxParallelParts;
+
+  private final long downloadSize;
+  private final long partSize;
+  private final int partsNumber;
+
+  private final CountDownLatch partsLatch;
+  private final PartsProducer<DownloadPartContext> producer;
+  private int parallelDownloadsCnt;
+  private String downloadUrl;
+
+  DownloadCallable(CloseableHttpAsyncClient client,
+                   DefaultDownloadContext cntx,
+                   int maxPartRetry,
+                   int maxParallelParts) {
+    this.client = client;
+    this.downloadContext = cntx;
+    this.journal = cntx.getJournal();
+    this.partRetry = maxPartRetry;
+    this.maxParallelParts = maxParallelParts;
+
+    // part layout is dictated by the journal, it may come from a download started with other settings
+    this.downloadSize = journal.getFileSize();
+    this.partSize = journal.getPartSize();
+    this.partsNumber = journal.getPartsNumber();
+    List<DownloadPartContext> newParts = new ArrayList<>(partsNumber);
+    for (int i = 1; i <= partsNumber; i++) {
+      if (!journal.isFinished(i)) {
+        newParts.add(DownloadPartContext.buildNewContext(i));
+      }
+    }
+    this.producer = new PartsProducer<>(newParts);
+    this.partsLatch = new CountDownLatch(newParts.size());
+    this.parallelDownloadsCnt = 0;
+  }
+
+  @Override
+  public Path call() throws Exception {
+
+    FileChannel fileChannel = downloadContext.getRandomAccessFile().getChannel();
+    Map<Integer, Future<HttpResponse>> responses = new HashMap<>(partsNumber);
+    boolean discardProgress = false;
+    try {
+      // pre-allocate the whole file, so every range can be written to its offset
+      if (downloadContext.getRandomAccessFile().length() != downloadSize) {
+        downloadContext.getRandomAccessFile().setLength(downloadSize);
+      }
+
+      client.start();
+      downloadContext.setState(DownloadState.RUNNING);
+      downloadContext.getListener().uploadStarted();
+
+      // signed URLs expire, so always start with a fresh one
+      if (partsLatch.getCount() > 0) {
+        refreshDownloadUrl();
+      }
+
+      while (partsLatch.getCount() > 0) {
+        if (DownloadState.PAUSING.equals(downloadContext.getState())) {
+          downloadContext.setState(DownloadState.PAUSED);
+          List<DownloadPartContext> successfulParts = producer.flushFinishedAndGetSuccessful();
+          for (DownloadPartContext downloadedPart : successfulParts) {
+            if (journal.checkETag(downloadedPart.geteTag())) {
+              journal.markFinished(downloadedPart.getPartNumber());
+              downloadContext.getListener().partUploadFinished(downloadedPart.getPartNumber(), getCurrentPartSize(downloadedPart.getPartNumber()));
+            }
+            responses.remove(downloadedPart.getPartNumber());
+          }
+          cancelResponses(responses);
+          fileChannel.force(false);
+          journal.force();
+          throw new PausedDownloadException("Download is paused, progress is kept locally and the download can be resumed to the same destination - " + downloadContext.getDestination());
+        }
+
+        // get part for processing
+        DownloadPartContext partContext;
+        if (parallelDownloadsCnt < maxParallelParts) {
+          partContext = producer.takeNewOrFinished();
+        } else {
+          partContext = producer.takeFinished();
+        }
+
+        // process part depending of its state
+        if (partContext.isFailedBeyondRetry()) { // this part failed with no more retries
+          // report failed to listener
+          downloadContext.getListener().partUploadFailed(partContext.getPartNumber(), partContext.getRetryCnt(), partContext.getEx());
+          // throw execution exception
+          throw new RuntimeException("Download failed, part " + partContext.getPartNumber() + " failed beyond retry ", partContext.getEx());
+
+        } else if (partContext.isNew()) { // this part was not initialized
+          // submit range download to async client
+          Future<HttpResponse> execute = submitPartDownload(partContext.getPartNumber(), fileChannel, partRetry);
+          // add future to the responses map, so it can be cancelled if download fail
+          responses.put(partContext.getPartNumber(), execute);
+          // increment parallel downloads cnt
+          parallelDownloadsCnt++;
+          // notify listener that new part started
+          downloadContext.getListener().partUploadStarted(partContext.getPartNumber());
+
+        } else if (partContext.isFailed()) { // this part failed, but can be retried
+          // report to listener
+          downloadContext.getListener().partUploadFailed(partContext.getPartNumber(), partContext.getRetryCnt(), partContext.getEx());
+          // set bytesAdder cell for this part to 0
+          downloadContext.getBytesTransferredAdder().set(partContext.getPartNumber(), 0);
+          // storage provider rejected the signed URL, get a new one from the API server
+          if (partContext.getEx() instanceof DownloadUrlExpiredException) {
+            refreshDownloadUrl();
+          }
+          // resubmit failed range, decremented part retry
+          Future<HttpResponse> execute = submitPartDownload(partContext.getPartNumber(), fileChannel, partContext.getRetryCnt() - 1);
+          responses.put(partContext.getPartNumber(), execute);
+          downloadContext.getListener().partUploadStarted(partContext.getPartNumber());
+
+        } else if (partContext.isSucceeded()) { // this part succeeded
+          if (!journal.checkETag(partContext.geteTag())) {
+            discardProgress = true;
+            throw new RuntimeException("Remote file " + downloadContext.getFileId() + " changed since the download was started, download has to be started again");
+          }
+          // record finished range in the journal
+          journal.markFinished(partContext.getPartNumber());
+          // decrement latch
+          partsLatch.countDown();
+          // report to listener
+          downloadContext.getListener().partUploadFinished(partContext.getPartNumber(), getCurrentPartSize(partContext.getPartNumber()));
+          // decrement parallel downloads cnt
+          parallelDownloadsCnt--;
+          // remove from responses map (not needed, but cleaner)
+          responses.remove(partContext.getPartNumber());
+        }
+      }
+
+      // make sure that everything written to the channel reaches the storage device
+      fileChannel.force(false);
+      // download is complete, journal is not needed anymore
+      journal.delete();
+      // set state to finished
+      downloadContext.setState(DownloadState.FINISHED);
+      // notify listener
+      downloadContext.getListener().uploadFinished();
+      return downloadContext.getDestination();
+    } catch (Exception e1) {
+      cancelResponses(responses);
+      // if paused, just propagate exception to cancel execution
+      if (DownloadState.PAUSED.equals(downloadContext.getState())) {
+        throw e1;
+      }
+      if (DownloadState.ABORTED.equals(downloadContext.getState())) {
+        // aborted by the user, progress is not needed anymore
+        discardProgress = true;
+      } else {
+        downloadContext.getListener().uploadFailed(e1);
+        downloadContext.setState(DownloadState.ABORTED);
+      }
+      closeQuietly(fileChannel);
+      if (discardProgress) {
+        journal.delete();
+        Files.deleteIfExists(downloadContext.getDestination());
+      }
+      throw new RuntimeException("Download is aborted due to errors in execution", e1);
+    } finally {
+      closeQuietly(fileChannel);
+    }
+  }
+
+  private void refreshDownloadUrl() {
+    this.downloadUrl = downloadContext.getPlatformFile().getDownloadInfo().getUrl();
+  }
+
+  private long getCurrentPartSize(int partNumber) {
+    return partNumber == partsNumber
+        ? downloadSize - (partNumber - 1) * partSize
+        : partSize;
+  }
+
+  private Future<HttpResponse> submitPartDownload(int partNumber, FileChannel fileChannel, int retryCnt) {
+    long fileOffset = (partNumber - 1) * partSize;
+    long currentPartSize = getCurrentPartSize(partNumber);
+
+    HttpGet httpGet = new HttpGet(downloadUrl);
+    httpGet.setHeader(HttpHeaders.RANGE, "bytes=" + fileOffset + "-" + (fileOffset + currentPartSize - 1));
+    ZeroCopyChannelRangeConsumer consumer = new ZeroCopyChannelRangeConsumer(
+        fileChannel,
+        fileOffset,
+        currentPartSize,
+        partsNumber == 1,
+        downloadContext.getBytesTransferredAdder(),
+        partNumber,
+        downloadContext.getThrottle());
+
+    return client.execute(HttpAsyncMethods.create(httpGet), consumer,
+        new DownloadCallable.PartDownloadCallback(partNumber, retryCnt, consumer));
+  }
+
+  private void cancelResponses(Map<Integer, Future<HttpResponse>> responses) {
+    for (Future<HttpResponse> response : responses.values()) {
+      response.cancel(true);
+    }
+  }
+
+  private void closeQuietly(FileChannel fileChannel) {
+    try {
+      if (fileChannel.isOpen()) {
+        fileChannel.close();
+      }
+      downloadContext.getRandomAccessFile().close();
+      journal.close();
+    } catch (IOException e) {
+      // nothing to do, channel is unusable anyway
+    }
+  }
+
+  private class PartDownloadCallback implements FutureCallback<HttpResponse> {
+
+    private final int partNumber;
+    private final int retryCnt;
+    private final ZeroCopyChannelRangeConsumer consumer;
+
+    PartDownloadCallback(int partNumber, int retryCnt, ZeroCopyChannelRangeConsumer consumer) {
+      this.partNumber = partNumber;
+      this.retryCnt = retryCnt;
+      this.consumer = consumer;
+    }
+
+    @Override
+    public void completed(HttpResponse result) {
+      int statusCode = result.getStatusLine().getStatusCode();
+      if (consumer.isRangeComplete()) {
+        Header eTag = result.getFirstHeader("ETag");
+        DownloadCallable.this.producer.putFinished(DownloadPartContext
+            .buildSucceedContext(partNumber, eTag == null ? null : eTag.getValue().replaceAll("\"", "")));
+      } else if (statusCode == HttpStatus.SC_FORBIDDEN || statusCode == HttpStatus.SC_BAD_REQUEST) {
+        DownloadCallable.this.producer.putFinished(DownloadPartContext
+            .buildFailedContext(partNumber, new DownloadUrlExpiredException("Download URL rejected by storage provider, status '"
+                + result.getStatusLine() + "'"), retryCnt));
+      } else {
+        DownloadCallable.this.producer.putFinished(DownloadPartContext
+            .buildFailedContext(partNumber, new RuntimeException("Malformed response from storage provider, status '"
+                + result.getStatusLine() + "', received " + consumer.getTransferredCount() + " bytes"), retryCnt));
+      }
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      DownloadCallable.this.producer.putFinished(DownloadPartContext.buildFailedContext(partNumber, ex, retryCnt));
+    }
+
+    @Override
+    public void cancelled() {
+      // do nothing, everything is cancelled
+    }
+  }
+
+  private static class DownloadUrlExpiredException extends RuntimeException {
+
+    DownloadUrlExpiredException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * Sidecar journal of a download, kept next to the destination file. The journal is memory mapped
+ * and holds the remote file identity (size, ETag and MD5), the part size used and a bitmap of
+ * finished parts, so an interrupted download can continue with the missing byte ranges only.
+ * <p>
+ * Layout: magic (int), version (int), file size (long), part size (long), parts number (int),
+ * ETag length (short) and ETag bytes, MD5 bytes, followed by one bit per part.
+ */
+class DownloadJournal implements Closeable {
+
+  static final String JOURNAL_SUFFIX = ".sbdownload";
+
+  private static final int MAGIC = 0x53424444;
+  private static final int VERSION = 1;
+
+  private static final int MAX_ETAG_LENGTH = 128;
+  private static final int MD5_LENGTH = 32;
+
+  private static final int SIZE_OFFSET = 8;
+  private static final int PART_SIZE_OFFSET = 16;
+  private static final int PARTS_NUMBER_OFFSET = 24;
+  private static final int ETAG_OFFSET = 28;
+  private static final int MD5_OFFSET = ETAG_OFFSET + 2 + MAX_ETAG_LENGTH;
+  private static final int BITMAP_OFFSET = MD5_OFFSET + MD5_LENGTH;
+
+  private static final Pattern MD5_PATTERN = Pattern.compile("[0-9a-fA-F]{32}");
+
+  private final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final long fileSize;
+  private final long partSize;
+  private final int partsNumber;
+
+  private DownloadJournal(Path path, FileChannel channel, MappedByteBuffer buffer, long fileSize, long partSize, int partsNumber) {
+    this.path = path;
+    this.channel = channel;
+    this.buffer = buffer;
+    this.fileSize = fileSize;
+    this.partSize = partSize;
+    this.partsNumber = partsNumber;
+  }
+
+  static Path getJournalPath(Path destination) {
+    return Paths.get(destination.toString() + JOURNAL_SUFFIX);
+  }
+
+  /**
+   * Creates a new, empty journal for the download to the provided destination, discarding any
+   * journal left by previous downloads.
+   */
+  static DownloadJournal create(Path destination, long fileSize, long partSize) throws IOException {
+    Path journalPath = getJournalPath(destination);
+    Files.deleteIfExists(journalPath);
+    int partsNumber = getPartsNumber(fileSize, partSize);
+
+    FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, BITMAP_OFFSET + (partsNumber + 7) / 8);
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putLong(SIZE_OFFSET, fileSize);
+    buffer.putLong(PART_SIZE_OFFSET, partSize);
+    buffer.putInt(PARTS_NUMBER_OFFSET, partsNumber);
+    buffer.putShort(ETAG_OFFSET, (short) 0);
+    buffer.force();
+    return new DownloadJournal(journalPath, channel, buffer, fileSize, partSize, partsNumber);
+  }
+
+  /**
+   * Opens the journal left next to the destination by an interrupted download of a file with the
+   * provided size. If there is no such journal, or it does not describe the same file, a new one is
+   * created with the provided part size.
+   * <p>
+   * Finished parts are only trusted while the destination still has the length of the remote file,
+   * which the download gives it before writing any part. A destination that was deleted, truncated
+   * or replaced (the caller may already have created it empty) gets a new journal as well.
+   */
+  static DownloadJournal openOrCreate(Path destination, long fileSize, long partSize) throws IOException {
+    Path journalPath = getJournalPath(destination);
+    if (!Files.isRegularFile(journalPath)
+        || !Files.isRegularFile(destination)
+        || Files.size(destination) != fileSize) {
+      return create(destination, fileSize, partSize);
+    }
+
+    FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() >= BITMAP_OFFSET) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        long journalPartSize = buffer.getLong(PART_SIZE_OFFSET);
+        int partsNumber = buffer.getInt(PARTS_NUMBER_OFFSET);
+        if (buffer.getInt(0) == MAGIC
+            && buffer.getInt(4) == VERSION
+            && buffer.getLong(SIZE_OFFSET) == fileSize
+            && journalPartSize > 0
+            && partsNumber == getPartsNumber(fileSize, journalPartSize)
+            && channel.size() == BITMAP_OFFSET + (partsNumber + 7) / 8) {
+          return new DownloadJournal(journalPath, channel, buffer, fileSize, journalPartSize, partsNumber);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    // journal belongs to some other file
+    channel.close();
+    return create(destination, fileSize, partSize);
+  }
+
+  long getFileSize() {
+    return fileSize;
+  }
+
+  long getPartSize() {
+    return partSize;
+  }
+
+  int getPartsNumber() {
+    return partsNumber;
+  }
+
+  synchronized boolean isFinished(int partNumber) {
+    int bit = partNumber - 1;
+    return (buffer.get(BITMAP_OFFSET + bit / 8) & (1 << (bit % 8))) != 0;
+  }
+
+  synchronized void markFinished(int partNumber) {
+    int bit = partNumber - 1;
+    int idx = BITMAP_OFFSET + bit / 8;
+    buffer.put(idx, (byte) (buffer.get(idx) | (1 << (bit % 8))));
+  }
+
+  synchronized int getFinishedPartsCount() {
+    int cnt = 0;
+    for (int i = BITMAP_OFFSET; i < buffer.capacity(); i++) {
+      cnt += Integer.bitCount(buffer.get(i) & 0xFF);
+    }
+    return cnt;
+  }
+
+  synchronized String getETag() {
+    int length = buffer.getShort(ETAG_OFFSET);
+    if (length <= 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(ETAG_OFFSET + 2 + i);
+    }
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  synchronized String getMd5() {
+    if (buffer.get(MD5_OFFSET) == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[MD5_LENGTH];
+    for (int i = 0; i < MD5_LENGTH; i++) {
+      bytes[i] = buffer.get(MD5_OFFSET + i);
+    }
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Records the ETag of the remote object, the first time one is seen. Storage providers report the
+   * hex MD5 of the content as the ETag of objects uploaded in a single request, so in that case
+   * the ETag is recorded as the MD5 of the file as well.
+   *
+   * @return true if the provided ETag matches the one recorded in the journal
+   */
+  synchronized boolean checkETag(String eTag) {
+    if (eTag == null || eTag.isEmpty()) {
+      return true;
+    }
+    String current = getETag();
+    if (current != null) {
+      return current.equals(eTag);
+    }
+    byte[] bytes = eTag.getBytes(StandardCharsets.US_ASCII);
+    if (bytes.length > MAX_ETAG_LENGTH) {
+      return true;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      buffer.put(ETAG_OFFSET + 2 + i, bytes[i]);
+    }
+    buffer.putShort(ETAG_OFFSET, (short) bytes.length);
+    if (MD5_PATTERN.matcher(eTag).matches()) {
+      for (int i = 0; i < MD5_LENGTH; i++) {
+        buffer.put(MD5_OFFSET + i, bytes[i]);
+      }
+    }
+    buffer.force();
+    return true;
+  }
+
+  void force() {
+    buffer.force();
+  }
+
+  void delete() throws IOException {
+    close();
+    Files.deleteIfExists(path);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel.isOpen()) {
+      buffer.force();
+      channel.close();
+    }
+  }
+
+  static int getPartsNumber(long size, long partSize) {
+    return size % partSize == 0
+        ? (int) (size / partSize)
+        : (int) (size / partSize + 1);
+  }
+}
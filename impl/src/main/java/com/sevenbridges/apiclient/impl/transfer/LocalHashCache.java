@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MD5 digests of local files, keyed by the file path, size and modification time, so unchanged
+ * files are not hashed again. Digests are kept in memory, and if a cache file is provided, also
+ * appended to it one per line, as 'md5 size mtime path', and loaded from it on startup. Later lines
+ * of the same path replace the earlier ones.
+ */
+class LocalHashCache {
+
+  private static final Logger log = LoggerFactory.getLogger(LocalHashCache.class);
+
+  private static final int MAX_ENTRIES = 100000;
+
+  private final Path cacheFile;
+  // guarded by this
+  private final Map<String, CachedHash> entries = new LinkedHashMap<String, CachedHash>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedHash> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  LocalHashCache(Path cacheFile) {
+    this.cacheFile = cacheFile;
+    if (cacheFile != null && Files.exists(cacheFile)) {
+      load();
+    }
+  }
+
+  /**
+   * Gets the MD5 of the local file from the cache, or computes it if the file is not in the cache
+   * or it is changed since it was hashed.
+   *
+   * @param file local file
+   * @return hex encoded MD5 of the file content
+   */
+  String getMD5(File file) throws IOException {
+    String path = file.getCanonicalPath();
+    long size = file.length();
+    long modified = file.lastModified();
+    synchronized (this) {
+      CachedHash entry = entries.get(path);
+      if (entry != null && entry.size == size && entry.modified == modified) {
+        return entry.md5;
+      }
+    }
+    String md5;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      md5 = computeMD5(raf);
+    }
+    if (file.length() != size || file.lastModified() != modified) {
+      // changed while hashed, do not cache it
+      return md5;
+    }
+    put(path, new CachedHash(md5, size, modified));
+    return md5;
+  }
+
+  /**
+   * Computes the MD5 of the whole file, without caching it.
+   */
+  static String computeMD5(RandomAccessFile file) throws IOException {
+    MessageDigest digest = UploadChecksum.newDigest();
+    UploadChecksum.update(digest, file.getChannel(), 0, file.length());
+    return UploadChecksum.toHex(digest.digest());
+  }
+
+  private synchronized void put(String path, CachedHash entry) {
+    entries.put(path, entry);
+    if (cacheFile == null) {
+      return;
+    }
+    try (Writer writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      writer.write(entry.md5 + " " + entry.size + " " + entry.modified + " " + path + "\n");
+    } catch (IOException e) {
+      log.warn("Could not write MD5 of '{}' to the hash cache {}", path, cacheFile, e);
+    }
+  }
+
+  private synchronized void load() {
+    try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(" ", 4);
+        if (fields.length < 4) {
+          continue;
+        }
+        try {
+          entries.put(fields[3], new CachedHash(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+        } catch (NumberFormatException e) {
+          // skip broken line, likely the last one written when the process died
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Could not load the hash cache {}, continuing without it", cacheFile, e);
+    }
+  }
+
+  private static class CachedHash {
+
+    private final String md5;
+    private final long size;
+    private final long modified;
+
+    CachedHash(String md5, long size, long modified) {
+      this.md5 = md5;
+      this.size = size;
+      this.modified = modified;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.impl.transfer.model.UploadPartContext;
+import com.sevenbridges.apiclient.upload.Upload;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reports uploaded parts to the API server in the background. Finished parts are queued, and
+ * drained in batches by a bounded number of tasks running on the provided executor, so the upload
+ * state machine never waits for the API server while parts are being uploaded.
+ * <p>
+ * The provided callback is invoked every time a part is reported or reporting fails. The upload
+ * may be completed only when {@link #isIdle()} returns true, i.e. every queued part is reported.
+ */
+class PartReporter {
+
+  private final Upload upload;
+  private final UploadCheckpoint checkpoint;
+  private final ExecutorService executor;
+  private final Runnable onReported;
+  private final int maxConcurrentReports;
+
+  private final Queue<UploadPartContext> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger activeReporters = new AtomicInteger();
+  private final Object lock = new Object();
+  private int pendingCnt = 0;
+  private volatile Exception error = null;
+  private volatile boolean cancelled = false;
+
+  PartReporter(Upload upload, UploadCheckpoint checkpoint, ExecutorService executor, Runnable onReported, int maxConcurrentReports) {
+    this.upload = upload;
+    this.checkpoint = checkpoint;
+    this.executor = executor;
+    this.onReported = onReported;
+    this.maxConcurrentReports = Math.max(maxConcurrentReports, 1);
+  }
+
+  /**
+   * Queues the uploaded part for reporting. If the checkpoint is used, the part is recorded in it
+   * before this call returns.
+   */
+  void report(UploadPartContext partContext) {
+    if (checkpoint != null) {
+      // record the part first, so it is not uploaded again if the process dies before it is reported
+      checkpoint.append(partContext.getPartNumber(), partContext.geteTag(), false);
+    }
+    synchronized (lock) {
+      pendingCnt++;
+    }
+    queue.offer(partContext);
+    scheduleReporter();
+  }
+
+  /**
+   * Throws the reporting error, if some part could not be reported.
+   */
+  void checkError() {
+    if (error != null) {
+      throw new RuntimeException("Error while reporting uploaded parts", error);
+    }
+  }
+
+  /**
+   * Checks if all queued parts are reported.
+   */
+  boolean isIdle() {
+    synchronized (lock) {
+      return pendingCnt == 0;
+    }
+  }
+
+  /**
+   * Drops all parts that are not reported yet.
+   */
+  void cancel() {
+    cancelled = true;
+    queue.clear();
+  }
+
+  private void scheduleReporter() {
+    while (!queue.isEmpty() && !cancelled && error == null) {
+      int active = activeReporters.get();
+      if (active >= maxConcurrentReports) {
+        return;
+      }
+      if (activeReporters.compareAndSet(active, active + 1)) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            drain();
+          }
+        });
+        return;
+      }
+    }
+  }
+
+  private void drain() {
+    try {
+      UploadPartContext partContext;
+      while (!cancelled && error == null && (partContext = queue.poll()) != null) {
+        upload.reportUploadedPart(partContext.getPartNumber(), partContext.getUploadResponse());
+        if (checkpoint != null) {
+          checkpoint.markReported(partContext.getPartNumber());
+        }
+        synchronized (lock) {
+          pendingCnt--;
+        }
+        onReported.run();
+      }
+    } catch (Exception e) {
+      error = e;
+      onReported.run();
+    } finally {
+      activeReporters.decrementAndGet();
+    }
+    // some part may have been queued while this reporter was finishing
+    scheduleReporter();
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enforces the limit of part uploads in flight across all uploads of the transfer manager. Every
+ * part upload holds one permit while it is transferred. Uploads that find no free permit wait in
+ * the queue of their {@link UploadFlow}, and permits released by finished parts are handed over to
+ * the waiting uploads with start-time fair queuing: each flow is served in proportion to the weight
+ * of its priority, and uploads of one flow take turns. A bulk upload thus gives its places to an
+ * interactive one at part boundaries, without interrupting parts in progress.
+ * <p>
+ * Handed over permits are reserved for the woken upload until it takes them, or gives them back by
+ * leaving the queue. Nothing ever blocks on the scheduler.
+ */
+class PartScheduler {
+
+  private final int maxInFlightParts;
+  private final Map<UploadFlow, FlowQueue> flows = new HashMap<>();
+  private final Map<AbstractUploadTask, Integer> reserved = new HashMap<>();
+  // includes the reserved permits
+  private int inFlightParts = 0;
+  private int waitingCnt = 0;
+  // start tag of the last served flow
+  private double virtualTime = 0;
+
+  PartScheduler(int maxInFlightParts) {
+    this.maxInFlightParts = maxInFlightParts;
+  }
+
+  /**
+   * Takes a permit for one part upload of the provided upload. If there is no free permit, or other
+   * uploads are already waiting for one, the upload is queued and woken up when its turn comes.
+   *
+   * @return true if the permit is taken
+   */
+  synchronized boolean tryAcquire(AbstractUploadTask uploadTask) {
+    if (takeReserved(uploadTask)) {
+      return true;
+    }
+    FlowQueue flow = getFlow(uploadTask.getFlow());
+    if (inFlightParts < maxInFlightParts && waitingCnt == 0) {
+      inFlightParts++;
+      flow.serve();
+      return true;
+    }
+    if (flow.waiting.add(uploadTask)) {
+      waitingCnt++;
+    }
+    return false;
+  }
+
+  /**
+   * Returns permits of finished or cancelled part uploads and wakes up uploads waiting for them.
+   */
+  void release(int permits) {
+    if (permits <= 0) {
+      return;
+    }
+    List<AbstractUploadTask> woken;
+    synchronized (this) {
+      inFlightParts -= permits;
+      woken = handOver();
+    }
+    wakeUp(woken);
+  }
+
+  /**
+   * Removes the upload from the waiting queue and gives back the permits reserved for it, so it
+   * does not take turn from others.
+   */
+  void remove(AbstractUploadTask uploadTask) {
+    List<AbstractUploadTask> woken;
+    synchronized (this) {
+      Integer unused = reserved.remove(uploadTask);
+      FlowQueue flow = flows.get(uploadTask.getFlow());
+      boolean wasWaiting = flow != null && flow.waiting.remove(uploadTask);
+      if (wasWaiting) {
+        waitingCnt--;
+      }
+      if (unused == null && !wasWaiting) {
+        return;
+      }
+      if (unused != null) {
+        inFlightParts -= unused;
+      }
+      woken = handOver();
+    }
+    wakeUp(woken);
+  }
+
+  synchronized int getInFlightParts() {
+    return inFlightParts;
+  }
+
+  int getMaxInFlightParts() {
+    return maxInFlightParts;
+  }
+
+  private boolean takeReserved(AbstractUploadTask uploadTask) {
+    Integer permits = reserved.remove(uploadTask);
+    if (permits == null) {
+      return false;
+    }
+    if (permits > 1) {
+      reserved.put(uploadTask, permits - 1);
+    }
+    return true;
+  }
+
+  private FlowQueue getFlow(UploadFlow key) {
+    FlowQueue flow = flows.get(key);
+    if (flow == null) {
+      flow = new FlowQueue(key.getWeight());
+      flows.put(key, flow);
+    }
+    return flow;
+  }
+
+  // free permits go to the waiting flow with the smallest start tag, one permit at a time
+  private List<AbstractUploadTask> handOver() {
+    List<AbstractUploadTask> woken = new ArrayList<>();
+    while (inFlightParts < maxInFlightParts && waitingCnt > 0) {
+      FlowQueue next = null;
+      Iterator<FlowQueue> it = flows.values().iterator();
+      while (it.hasNext()) {
+        FlowQueue flow = it.next();
+        if (flow.waiting.isEmpty()) {
+          if (flow.finishTag <= virtualTime) {
+            // idle flow with no credit left, nothing to remember
+            it.remove();
+          }
+          continue;
+        }
+        if (next == null || flow.startTag() < next.startTag()) {
+          next = flow;
+        }
+      }
+      if (next == null) {
+        break;
+      }
+      Iterator<AbstractUploadTask> queue = next.waiting.iterator();
+      AbstractUploadTask uploadTask = queue.next();
+      queue.remove();
+      waitingCnt--;
+      Integer permits = reserved.get(uploadTask);
+      reserved.put(uploadTask, permits == null ? 1 : permits + 1);
+      inFlightParts++;
+      next.serve();
+      woken.add(uploadTask);
+    }
+    return woken;
+  }
+
+  private static void wakeUp(List<AbstractUploadTask> woken) {
+    for (AbstractUploadTask uploadTask : woken) {
+      uploadTask.wakeUp();
+    }
+  }
+
+  private class FlowQueue {
+
+    private final double weight;
+    // uploads of the flow, in the order they take turns
+    private final LinkedHashSet<AbstractUploadTask> waiting = new LinkedHashSet<>();
+    private double finishTag = 0;
+
+    FlowQueue(int weight) {
+      this.weight = weight;
+    }
+
+    double startTag() {
+      return Math.max(virtualTime, finishTag);
+    }
+
+    void serve() {
+      double start = startTag();
+      virtualTime = start;
+      finishTag = start + 1 / weight;
+    }
+  }
+}
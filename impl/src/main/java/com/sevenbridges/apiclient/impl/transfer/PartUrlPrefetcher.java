@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.upload.PartUpload;
+import com.sevenbridges.apiclient.upload.Upload;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps a window of signed part upload URLs fetched ahead of the part uploads that will use them.
+ * URLs are fetched concurrently on the provided executor, in the order in which the parts are
+ * going to be uploaded, and the provided callback is invoked every time a fetch finishes. URLs that
+ * are about to expire are fetched again before they are handed out.
+ * <p>
+ * This class never blocks, and it is not thread safe. It is meant to be used from the upload state
+ * machine, which is driven by one thread at a time.
+ */
+class PartUrlPrefetcher {
+
+  private static final int MAX_FETCH_ATTEMPTS = 3;
+
+  private final Upload upload;
+  private final ExecutorService executor;
+  private final Runnable onFetched;
+  private final int windowSize;
+  private final long expiryMarginMillis;
+
+  private final Queue<Integer> upcomingParts;
+  private final Map<Integer, Future<PartUpload>> prefetched;
+  private final Map<Integer, Integer> fetchAttempts;
+
+  PartUrlPrefetcher(Upload upload, ExecutorService executor, Runnable onFetched, Collection<Integer> upcomingParts, int windowSize, long expiryMarginMillis) {
+    this.upload = upload;
+    this.executor = executor;
+    this.onFetched = onFetched;
+    this.windowSize = Math.max(windowSize, 1);
+    this.expiryMarginMillis = expiryMarginMillis;
+    this.upcomingParts = new LinkedList<>(upcomingParts);
+    this.prefetched = new HashMap<>(this.windowSize * 2);
+    this.fetchAttempts = new HashMap<>(this.windowSize * 2);
+  }
+
+  /**
+   * Starts fetching URLs for the first parts in the window.
+   */
+  void start() {
+    fillWindow();
+  }
+
+  /**
+   * Gets the upload URL for the provided part if it is already fetched, and moves the window
+   * forward so next parts' URLs are fetched in the background. If the URL is not fetched yet, or
+   * it is about to expire, the fetch is started and null is returned; the callback will be invoked
+   * when the URL is ready.
+   *
+   * @throws RuntimeException if the URL could not be fetched after several attempts
+   */
+  PartUpload poll(int partNumber) {
+    Future<PartUpload> future = prefetched.get(partNumber);
+    if (future == null) {
+      upcomingParts.remove(partNumber);
+      fetch(partNumber);
+      return null;
+    }
+    if (!future.isDone()) {
+      return null;
+    }
+
+    prefetched.remove(partNumber);
+    fillWindow();
+    try {
+      PartUpload partUpload = future.get();
+      if (isExpiring(partUpload)) {
+        fetch(partNumber);
+        return null;
+      }
+      fetchAttempts.remove(partNumber);
+      return partUpload;
+    } catch (InterruptedException | ExecutionException | CancellationException e) {
+      Integer attempts = fetchAttempts.get(partNumber);
+      if (attempts != null && attempts >= MAX_FETCH_ATTEMPTS) {
+        throw new RuntimeException("Error while getting upload URL for part " + partNumber, e instanceof ExecutionException ? e.getCause() : e);
+      }
+      fetch(partNumber);
+      return null;
+    }
+  }
+
+  /**
+   * Starts fetching a fresh upload URL for the part that is being retried, bypassing the window.
+   */
+  void refetch(int partNumber) {
+    Future<PartUpload> stale = prefetched.remove(partNumber);
+    if (stale != null) {
+      stale.cancel(true);
+    }
+    upcomingParts.remove(partNumber);
+    fetchAttempts.remove(partNumber);
+    fetch(partNumber);
+  }
+
+  /**
+   * Cancels all URL fetches in progress.
+   */
+  void cancel() {
+    for (Future<PartUpload> future : prefetched.values()) {
+      future.cancel(true);
+    }
+    prefetched.clear();
+    upcomingParts.clear();
+  }
+
+  private void fillWindow() {
+    while (prefetched.size() < windowSize && !upcomingParts.isEmpty()) {
+      fetch(upcomingParts.poll());
+    }
+  }
+
+  private void fetch(final int partNumber) {
+    Integer attempts = fetchAttempts.get(partNumber);
+    fetchAttempts.put(partNumber, attempts == null ? 1 : attempts + 1);
+    FutureTask<PartUpload> task = new FutureTask<PartUpload>(new Callable<PartUpload>() {
+      @Override
+      public PartUpload call() throws Exception {
+        return upload.getPartUpload(partNumber);
+      }
+    }) {
+      @Override
+      protected void done() {
+        onFetched.run();
+      }
+    };
+    prefetched.put(partNumber, task);
+    executor.execute(task);
+  }
+
+  private boolean isExpiring(PartUpload partUpload) {
+    Date expires = partUpload.getExpires();
+    return expires != null && expires.getTime() - System.currentTimeMillis() < expiryMarginMillis;
+  }
+}
@@ -15,55 +15,38 @@
  */
 package com.sevenbridges.apiclient.impl.transfer;
 
-import com.sevenbridges.apiclient.impl.transfer.model.UploadPartContext;
-import com.sevenbridges.apiclient.upload.UploadedPart;
+import com.sevenbridges.apiclient.impl.transfer.model.PartContext;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 
-class PartsProducer {
+class PartsProducer<T extends PartContext> {
 
-  private final LinkedBlockingQueue<UploadPartContext> newPartsBuffer;
-  private final LinkedBlockingQueue<UploadPartContext> finishedPartsBuffer;
+  private final LinkedBlockingQueue<T> newPartsBuffer;
+  private final LinkedBlockingQueue<T> finishedPartsBuffer;
 
   private volatile boolean failed = false;
-  private volatile UploadPartContext failedPart = null;
+  private volatile T failedPart = null;
 
-  PartsProducer(int numberOfParts) {
-    this(numberOfParts, Collections.<UploadedPart>emptyList());
-  }
-
-  PartsProducer(int numberOfParts, List<UploadedPart> finishedParts) {
-    if (finishedParts == null) {
-      finishedParts = Collections.emptyList();
-    }
-    int numberOfUnfinishedParts = numberOfParts - finishedParts.size();
+  PartsProducer(Collection<T> newParts) {
+    int capacity = Math.max(newParts.size(), 1);
 
-    this.newPartsBuffer = new LinkedBlockingQueue<>(numberOfUnfinishedParts);
-    this.finishedPartsBuffer = new LinkedBlockingQueue<>(numberOfUnfinishedParts);
+    this.newPartsBuffer = new LinkedBlockingQueue<>(capacity);
+    this.finishedPartsBuffer = new LinkedBlockingQueue<>(capacity);
 
-    Set<Integer> finishedPartsSet = new HashSet<>(finishedParts.size());
-    for (UploadedPart finishedPart : finishedParts) {
-      finishedPartsSet.add(finishedPart.getPartNumber());
-    }
-
-    for (int i = 1; i <= numberOfParts; i++) {
-      if (!finishedPartsSet.contains(i)) {
-        this.putNew(UploadPartContext.buildNewContext(i));
-      }
+    for (T newPart : newParts) {
+      this.putNew(newPart);
     }
   }
 
-  UploadPartContext takeNewOrFinished() throws InterruptedException {
-    if (isUploadFailed()) {
+  T takeNewOrFinished() throws InterruptedException {
+    if (isTransferFailed()) {
       return failedPart;
     }
-    UploadPartContext newContext = newPartsBuffer.poll();
+    T newContext = newPartsBuffer.poll();
     if (newContext != null) {
       return newContext;
     } else {
@@ -71,19 +54,19 @@ class PartsProducer {
     }
   }
 
-  UploadPartContext takeFinished() throws InterruptedException {
-    if (isUploadFailed()) {
+  T takeFinished() throws InterruptedException {
+    if (isTransferFailed()) {
       return failedPart;
     }
     return finishedPartsBuffer.take();
   }
 
-  List<UploadPartContext> flushFinishedAndGetSuccessful() throws InterruptedException {
-    List<UploadPartContext> finished = new LinkedList<>();
+  List<T> flushFinishedAndGetSuccessful() throws InterruptedException {
+    List<T> finished = new LinkedList<>();
     finishedPartsBuffer.drainTo(finished);
-    Iterator<UploadPartContext> iterator = finished.iterator();
+    Iterator<T> iterator = finished.iterator();
     while (iterator.hasNext()) {
-      UploadPartContext next = iterator.next();
+      T next = iterator.next();
       if (next.isFailed()) {
         iterator.remove();
       }
@@ -91,11 +74,11 @@ class PartsProducer {
     return finished;
   }
 
-  boolean isUploadFailed() {
+  boolean isTransferFailed() {
     return failed;
   }
 
-  boolean putNew(UploadPartContext partContext) {
+  boolean putNew(T partContext) {
     if (partContext.isNew()) {
       try {
         this.newPartsBuffer.put(partContext);
@@ -108,11 +91,13 @@ class PartsProducer {
     return false;
   }
 
-  boolean putFinished(UploadPartContext partContext) {
+  boolean putFinished(T partContext) {
     if (partContext.isFailedBeyondRetry()) {
       if (!failed) {
-        failed = true;
         failedPart = partContext;
+        failed = true;
+        // wake up the consumer if it is blocked waiting on finished parts
+        this.finishedPartsBuffer.offer(partContext);
       }
       return true;
     } else if (partContext.isFailed() || partContext.isSucceeded()) {
@@ -127,5 +112,4 @@ class PartsProducer {
     return false;
   }
 
-
 }
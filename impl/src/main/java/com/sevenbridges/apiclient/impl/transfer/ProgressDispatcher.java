@@ -0,0 +1,316 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.transfer.ProgressListener;
+import com.sevenbridges.apiclient.transfer.ProgressSnapshotListener;
+import com.sevenbridges.apiclient.transfer.TransferProgress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers progress events of user listeners on the listener executor, so transfer threads never
+ * wait on user code. Events of one listener are delivered one at a time, in the order they
+ * happened. Byte counters of running transfers are sampled periodically into progress snapshots,
+ * and a listener that is slower than the snapshots gets only the latest one.
+ */
+class ProgressDispatcher {
+
+  private static final Logger log = LoggerFactory.getLogger(ProgressDispatcher.class);
+
+  // weight of the latest sample in the smoothed transfer rate
+  private static final double RATE_SMOOTHING = 0.3;
+
+  private final ExecutorService listenerExecutor;
+  private final ScheduledExecutorService scheduler;
+  private final long intervalMillis;
+  private final Set<DispatchedListener> sampled = Collections.newSetFromMap(new ConcurrentHashMap<DispatchedListener, Boolean>());
+  private ScheduledFuture<?> sampleTask = null;
+
+  ProgressDispatcher(ExecutorService listenerExecutor, ScheduledExecutorService scheduler, long intervalMillis) {
+    this.listenerExecutor = listenerExecutor;
+    this.scheduler = scheduler;
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * Wraps the user listener, so its events are delivered on the listener executor. The no-op
+   * listener is returned as is.
+   */
+  ProgressListener dispatch(ProgressListener listener) {
+    if (listener == null || listener instanceof NoopProgressListener) {
+      return NoopProgressListener.getInstance();
+    }
+    return new DispatchedListener(listener);
+  }
+
+  /**
+   * Sets the transfer the wrapped listener reports on, so its progress can be sampled into
+   * snapshots.
+   */
+  void setSource(ProgressListener dispatched, ProgressSource source) {
+    if (dispatched instanceof DispatchedListener) {
+      ((DispatchedListener) dispatched).setSource(source);
+    }
+  }
+
+  private synchronized void register(DispatchedListener listener) {
+    sampled.add(listener);
+    if (sampleTask == null) {
+      sampleTask = scheduler.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          sampleAll();
+        }
+      }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private synchronized void unregister(DispatchedListener listener) {
+    sampled.remove(listener);
+    if (sampled.isEmpty() && sampleTask != null) {
+      sampleTask.cancel(false);
+      sampleTask = null;
+    }
+  }
+
+  private void sampleAll() {
+    for (DispatchedListener listener : sampled) {
+      try {
+        listener.sampleRunning();
+      } catch (RuntimeException e) {
+        log.debug("Error while sampling transfer progress", e);
+      }
+    }
+  }
+
+  private class DispatchedListener implements ProgressListener, Runnable {
+
+    private final ProgressListener delegate;
+    private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    // latest snapshot not delivered yet, older ones are dropped
+    private final AtomicReference<TransferProgress> latest = new AtomicReference<>();
+
+    private volatile ProgressSource source;
+    // sampling state, guarded by this
+    private boolean started = false;
+    private boolean sampling = false;
+    private boolean stopped = false;
+    private long startNanos;
+    private long lastNanos;
+    private long lastBytes;
+    private double bytesPerSecond;
+
+    DispatchedListener(ProgressListener delegate) {
+      this.delegate = delegate;
+    }
+
+    void setSource(ProgressSource source) {
+      this.source = source;
+      startSampling();
+    }
+
+    @Override
+    public void uploadStarted() {
+      enqueue(new Runnable() {
+        @Override
+        public void run() {
+          delegate.uploadStarted();
+        }
+      });
+      synchronized (this) {
+        started = true;
+      }
+      startSampling();
+    }
+
+    @Override
+    public void uploadFailed(final Exception ex) {
+      finalSnapshot();
+      enqueue(new Runnable() {
+        @Override
+        public void run() {
+          delegate.uploadFailed(ex);
+        }
+      });
+    }
+
+    @Override
+    public void uploadFinished() {
+      finalSnapshot();
+      enqueue(new Runnable() {
+        @Override
+        public void run() {
+          delegate.uploadFinished();
+        }
+      });
+    }
+
+    @Override
+    public void partUploadStarted(final int partNumber) {
+      enqueue(new Runnable() {
+        @Override
+        public void run() {
+          delegate.partUploadStarted(partNumber);
+        }
+      });
+    }
+
+    @Override
+    public void partUploadFinished(final int partNumber, final long partSize) {
+      enqueue(new Runnable() {
+        @Override
+        public void run() {
+          delegate.partUploadFinished(partNumber, partSize);
+        }
+      });
+    }
+
+    @Override
+    public void partUploadFailed(final int partNumber, final int retryCnt, final Exception executionException) {
+      enqueue(new Runnable() {
+        @Override
+        public void run() {
+          delegate.partUploadFailed(partNumber, retryCnt, executionException);
+        }
+      });
+    }
+
+    private void startSampling() {
+      if (!(delegate instanceof ProgressSnapshotListener)) {
+        return;
+      }
+      synchronized (this) {
+        if (!started || source == null || sampling || stopped) {
+          return;
+        }
+        sampling = true;
+        startNanos = System.nanoTime();
+        lastNanos = startNanos;
+        lastBytes = source.getBytesTransferred();
+      }
+      register(this);
+    }
+
+    /**
+     * Publishes the last snapshot, right before the final event of the transfer.
+     */
+    private void finalSnapshot() {
+      synchronized (this) {
+        stopped = true;
+        if (!sampling) {
+          return;
+        }
+        sampling = false;
+        publish(sample());
+      }
+      unregister(this);
+    }
+
+    /**
+     * Publishes a snapshot of the running transfer. Snapshots are published under the lock, so
+     * none is published after the final one.
+     */
+    private void sampleRunning() {
+      boolean done = source.isTransferDone();
+      synchronized (this) {
+        if (!sampling) {
+          return;
+        }
+        if (!done) {
+          publish(sample());
+          return;
+        }
+        // paused and aborted transfers fire no final event
+        stopped = true;
+        sampling = false;
+      }
+      unregister(this);
+    }
+
+    private synchronized TransferProgress sample() {
+      long now = System.nanoTime();
+      long bytes = source.getBytesTransferred();
+      long elapsed = now - lastNanos;
+      if (elapsed > 0) {
+        double rate = (bytes - lastBytes) * 1e9 / elapsed;
+        bytesPerSecond = bytesPerSecond == 0 ? rate : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * bytesPerSecond;
+      }
+      lastNanos = now;
+      lastBytes = bytes;
+      return new DefaultTransferProgress(bytes, source.getTotalBytes(), bytesPerSecond,
+          TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+    }
+
+    private void publish(TransferProgress progress) {
+      if (latest.getAndSet(progress) == null) {
+        // no snapshot is waiting for delivery, schedule one
+        enqueue(new Runnable() {
+          @Override
+          public void run() {
+            TransferProgress snapshot = latest.getAndSet(null);
+            if (snapshot != null) {
+              ((ProgressSnapshotListener) delegate).progressUpdated(snapshot);
+            }
+          }
+        });
+      }
+    }
+
+    private void enqueue(Runnable event) {
+      events.add(event);
+      if (wip.getAndIncrement() == 0) {
+        try {
+          listenerExecutor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // transfer manager is stopped, events are not delivered anymore
+          events.clear();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        Runnable event;
+        while ((event = events.poll()) != null) {
+          try {
+            event.run();
+          } catch (RuntimeException e) {
+            log.warn("Progress listener failed while handling an event", e);
+          }
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
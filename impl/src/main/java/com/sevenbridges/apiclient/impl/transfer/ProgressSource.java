@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+/**
+ * Transfer whose progress is sampled into {@link com.sevenbridges.apiclient.transfer.TransferProgress}
+ * snapshots.
+ */
+interface ProgressSource {
+
+  long getBytesTransferred();
+
+  /**
+   * @return size of the transfer in bytes, or -1 if not known yet
+   */
+  long getTotalBytes();
+
+  /**
+   * @return true once the transfer is finished, failed, paused or aborted
+   */
+  boolean isTransferDone();
+}
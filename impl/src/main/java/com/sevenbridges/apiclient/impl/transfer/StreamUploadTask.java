@@ -0,0 +1,452 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.impl.transfer.buffer.DirectBufferPool;
+import com.sevenbridges.apiclient.impl.transfer.http.HttpAsyncClientPool;
+import com.sevenbridges.apiclient.impl.transfer.http.protocol.ByteBufferPut;
+import com.sevenbridges.apiclient.impl.transfer.model.UploadPartContext;
+import com.sevenbridges.apiclient.transfer.UploadState;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking state machine of an upload read from a stream of unknown length. The stream is read
+ * into a bounded pool of reusable direct buffers, one buffer per part, and every part is uploaded
+ * as soon as its buffer is filled. Buffer is reused only after its part is uploaded, so the memory
+ * used by the upload never exceeds the part size multiplied by the number of parallel parts. The
+ * number of parts is known when the stream ends.
+ * <p>
+ * Stream is read on the worker executor, one part at a time, since reading a stream may block.
+ */
+class StreamUploadTask extends AbstractUploadTask {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamUploadTask.class);
+
+  private static final int MAX_URL_FETCH_ATTEMPTS = 3;
+
+  private final HttpAsyncClientPool clientPool;
+  private final CloseableHttpAsyncClient client;
+  private final DefaultStreamUploadContext uploadContext;
+  private final ReadableByteChannel channel;
+  private final ExecutorService readExecutor;
+  private final ExecutorService apiExecutor;
+  private final PartScheduler partScheduler;
+  private final int partRetry;
+  private final int maxParallelParts;
+
+  private final DirectBufferPool bufferPool;
+  private final BasicFuture<File> fileFuture;
+  private final PartReporter partReporter;
+  // MD5 of the stream, updated by the reader, null if not computed
+  private final MessageDigest digest;
+
+  // events coming from other threads
+  private final Queue<StreamPart> readParts = new ConcurrentLinkedQueue<>();
+  private final Queue<StreamPart> urlFetchedParts = new ConcurrentLinkedQueue<>();
+  private final Queue<StreamPart> finishedParts = new ConcurrentLinkedQueue<>();
+  private volatile boolean cancelled = false;
+  private volatile File completedFile = null;
+  private volatile Exception completionError = null;
+  private volatile String md5 = null;
+
+  // state below is touched only by the thread processing the events
+  private final Map<Integer, StreamPart> activeParts = new HashMap<>();
+  private final LinkedList<StreamPart> pendingParts = new LinkedList<>();
+  private int lastPartNumber = 0;
+  private int partsInFlight = 0;
+  private boolean started = false;
+  private boolean reading = false;
+  private boolean streamEnded = false;
+  private boolean completing = false;
+  private boolean done = false;
+
+  StreamUploadTask(HttpAsyncClientPool clientPool,
+                   DefaultStreamUploadContext cntx,
+                   ReadableByteChannel channel,
+                   ExecutorService eventExecutor,
+                   ExecutorService readExecutor,
+                   ExecutorService apiExecutor,
+                   PartScheduler partScheduler,
+                   int maxPartRetry,
+                   int maxParallelParts,
+                   boolean computeMD5,
+                   UploadFlow flow) {
+    super(eventExecutor, flow);
+    this.clientPool = clientPool;
+    this.client = clientPool.getAsyncClient();
+    this.uploadContext = cntx;
+    this.channel = channel;
+    this.readExecutor = readExecutor;
+    this.apiExecutor = apiExecutor;
+    this.partScheduler = partScheduler;
+    this.partRetry = maxPartRetry;
+    this.maxParallelParts = maxParallelParts;
+
+    long partSize = cntx.getUpload().getPartSize();
+    if (partSize <= 0 || partSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Part size " + partSize + " can not be buffered for upload read from a stream");
+    }
+    this.bufferPool = new DirectBufferPool((int) partSize, maxParallelParts);
+    // stream is read once and in order, so it is hashed right after it is read
+    this.digest = computeMD5 && cntx.getUpload().getMD5() == null ? UploadChecksum.newDigest() : null;
+    this.partReporter = new PartReporter(cntx.getUpload(), null, apiExecutor, new Runnable() {
+      @Override
+      public void run() {
+        wakeUp();
+      }
+    }, maxParallelParts);
+    this.fileFuture = new BasicFuture<>(new FutureCallback<File>() {
+      @Override
+      public void completed(File result) {
+        uploadContext.getCompletionListeners().completed(result);
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        uploadContext.getCompletionListeners().failed(ex);
+      }
+
+      @Override
+      public void cancelled() {
+        // upload aborted by the user
+        cancelled = true;
+        wakeUp();
+        uploadContext.getCompletionListeners().cancelled();
+      }
+    });
+  }
+
+  Future<File> getFileFuture() {
+    return fileFuture;
+  }
+
+  @Override
+  void processEvents() {
+    if (done) {
+      return;
+    }
+    try {
+      if (!started) {
+        started = true;
+        client.start();
+        uploadContext.setState(UploadState.RUNNING);
+        uploadContext.getListener().uploadStarted();
+      }
+
+      // parts read from the stream
+      StreamPart part;
+      while ((part = readParts.poll()) != null) {
+        processReadPart(part);
+      }
+      // parts with fetched upload URLs
+      while ((part = urlFetchedParts.poll()) != null) {
+        if (part.ex != null) {
+          throw new RuntimeException("Error while getting upload URL for part " + part.partNumber, part.ex);
+        }
+        pendingParts.add(part);
+      }
+      // parts uploaded to the storage
+      while ((part = finishedParts.poll()) != null) {
+        processFinishedPart(part);
+      }
+
+      // upload is aborted by the user
+      if (cancelled) {
+        throw new RuntimeException("Upload is aborted");
+      }
+      // fail fast if some finished part could not be reported
+      partReporter.checkError();
+
+      // read next part while there is a free buffer for it
+      if (!reading && !streamEnded) {
+        ByteBuffer buffer = bufferPool.acquire();
+        if (buffer != null) {
+          readPart(new StreamPart(++lastPartNumber, buffer));
+        }
+      }
+
+      submitPendingParts();
+
+      // stream is uploaded and all parts are reported, finalize upload on API server
+      if (streamEnded && !reading && activeParts.isEmpty() && partReporter.isIdle()) {
+        if (completedFile != null) {
+          finishUpload();
+        } else if (completionError != null) {
+          throw completionError;
+        } else if (!completing) {
+          completing = true;
+          completeUpload();
+        }
+      }
+    } catch (Exception e) {
+      failUpload(e);
+    }
+  }
+
+  private void processReadPart(StreamPart part) {
+    reading = false;
+    if (part.ex != null) {
+      bufferPool.release(part.buffer);
+      throw new RuntimeException("Error while reading the stream", part.ex);
+    }
+    if (part.endOfStream) {
+      streamEnded = true;
+      uploadContext.setStreamEnded();
+    }
+    if (!part.buffer.hasRemaining()) {
+      // stream ended right at the part boundary
+      bufferPool.release(part.buffer);
+      lastPartNumber--;
+      return;
+    }
+    activeParts.put(part.partNumber, part);
+    part.retryCnt = partRetry;
+    fetchUrl(part);
+  }
+
+  private void processFinishedPart(StreamPart part) {
+    if (!activeParts.containsKey(part.partNumber)) {
+      // cancelled part
+      return;
+    }
+    partsInFlight--;
+    partScheduler.release(1);
+    if (part.eTag != null) {
+      // queue the part for reporting to API server
+      partReporter.report(UploadPartContext.buildSucceedContext(part.partNumber, part.eTag, part.url));
+      activeParts.remove(part.partNumber);
+      uploadContext.getListener().partUploadFinished(part.partNumber, part.buffer.remaining());
+      // buffer can be filled with the next part
+      bufferPool.release(part.buffer);
+    } else if (part.retryCnt <= 1) {
+      uploadContext.getListener().partUploadFailed(part.partNumber, part.retryCnt, part.ex);
+      throw new RuntimeException("Upload failed, part " + part.partNumber + " failed beyond retry ", part.ex);
+    } else {
+      uploadContext.getListener().partUploadFailed(part.partNumber, part.retryCnt, part.ex);
+      uploadContext.getBytesTransferredAdder().set(part.partNumber, 0);
+      // retry with one attempt less, and a fresh URL
+      part.retryCnt--;
+      part.ex = null;
+      fetchUrl(part);
+    }
+  }
+
+  private void submitPendingParts() {
+    while (partsInFlight < maxParallelParts && !pendingParts.isEmpty()) {
+      // take a place among the parts in flight of all uploads
+      if (!partScheduler.tryAcquire(this)) {
+        // scheduler will wake us up when it is our turn
+        return;
+      }
+      StreamPart part = pendingParts.removeFirst();
+      clientPool.prewarm(part.url);
+      ByteBufferPut httpPut = new ByteBufferPut(part.url, part.buffer, uploadContext.getBytesTransferredAdder(), part.partNumber,
+          uploadContext.getThrottle());
+      part.response = client.execute(httpPut, new BasicAsyncResponseConsumer(), new PartUploadCallback(part));
+      partsInFlight++;
+      uploadContext.getListener().partUploadStarted(part.partNumber);
+    }
+    // do not hold the turn of other uploads while not asking for a permit
+    partScheduler.remove(this);
+  }
+
+  private void readPart(final StreamPart part) {
+    reading = true;
+    readExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (part.buffer.hasRemaining()) {
+            int read = channel.read(part.buffer);
+            if (read < 0) {
+              part.endOfStream = true;
+              break;
+            }
+            uploadContext.addBytesRead(read);
+          }
+        } catch (Exception e) {
+          part.ex = e;
+        }
+        part.buffer.flip();
+        if (digest != null && part.ex == null) {
+          digest.update(part.buffer.duplicate());
+          if (part.endOfStream) {
+            md5 = UploadChecksum.toHex(digest.digest());
+          }
+        }
+        readParts.offer(part);
+        wakeUp();
+      }
+    });
+  }
+
+  private void fetchUrl(final StreamPart part) {
+    apiExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (int attempt = 1; ; attempt++) {
+          try {
+            part.url = uploadContext.getUpload().getPartUpload(part.partNumber).getUrl();
+            break;
+          } catch (Exception e) {
+            if (attempt >= MAX_URL_FETCH_ATTEMPTS) {
+              part.ex = e;
+              break;
+            }
+          }
+        }
+        urlFetchedParts.offer(part);
+        wakeUp();
+      }
+    });
+  }
+
+  private void completeUpload() {
+    apiExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          completedFile = md5 != null
+              ? uploadContext.getUpload().completeUpload(md5)
+              : uploadContext.getUpload().completeUpload();
+        } catch (Exception e) {
+          completionError = e;
+        }
+        wakeUp();
+      }
+    });
+  }
+
+  private void finishUpload() {
+    done = true;
+    closeResources();
+    uploadContext.setState(UploadState.FINISHED);
+    uploadContext.getListener().uploadFinished();
+    fileFuture.completed(completedFile);
+  }
+
+  private void failUpload(final Exception cause) {
+    done = true;
+    uploadContext.setState(UploadState.ABORTED);
+    // unrecoverable exception, abort upload
+    uploadContext.getListener().uploadFailed(cause);
+    for (StreamPart part : activeParts.values()) {
+      if (part.response != null) {
+        part.response.cancel(true);
+      }
+    }
+    partScheduler.release(partsInFlight);
+    partsInFlight = 0;
+    activeParts.clear();
+    partReporter.cancel();
+    closeResources();
+    apiExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          uploadContext.getUpload().abortUpload();
+          fileFuture.failed(new RuntimeException("Upload is aborted due to errors in execution", cause));
+        } catch (Exception e) {
+          fileFuture.failed(new RuntimeException("Upload failed BUT aborting upload failed too due to exception - '"
+              + e.getMessage() + "'. Please abort this upload with id '"
+              + uploadContext.getUploadId() + "' manually", cause));
+        }
+      }
+    });
+  }
+
+  private void closeResources() {
+    partScheduler.remove(this);
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.debug("Error while closing upload stream", e);
+    }
+  }
+
+  private static class StreamPart {
+
+    private final int partNumber;
+    private final ByteBuffer buffer;
+    private volatile boolean endOfStream = false;
+    private volatile String url;
+    private volatile String eTag;
+    private volatile Exception ex;
+    private volatile int retryCnt;
+    private Future<HttpResponse> response;
+
+    StreamPart(int partNumber, ByteBuffer buffer) {
+      this.partNumber = partNumber;
+      this.buffer = buffer;
+    }
+  }
+
+  private class PartUploadCallback implements FutureCallback<HttpResponse> {
+
+    private final StreamPart part;
+
+    PartUploadCallback(StreamPart part) {
+      this.part = part;
+    }
+
+    @Override
+    public void completed(HttpResponse result) {
+      if (result.getStatusLine().getStatusCode() == HttpStatus.SC_OK && result.getFirstHeader("ETag") != null) {
+        part.eTag = result.getFirstHeader("ETag").getValue().replaceAll("\"", "");
+      } else {
+        part.ex = new RuntimeException("Malformed response from storage provider");
+      }
+      finished();
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      part.ex = ex;
+      finished();
+    }
+
+    @Override
+    public void cancelled() {
+      // do nothing, everything is cancelled
+    }
+
+    private void finished() {
+      StreamUploadTask.this.finishedParts.offer(part);
+      StreamUploadTask.this.wakeUp();
+    }
+  }
+}
@@ -16,63 +16,280 @@
 package com.sevenbridges.apiclient.impl.transfer;
 
 import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.impl.ds.InternalDataStore;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthLimiter;
 import com.sevenbridges.apiclient.impl.transfer.http.HttpAsyncClientPool;
 import com.sevenbridges.apiclient.transfer.ProgressListener;
+import com.sevenbridges.apiclient.transfer.UploadContext;
+import com.sevenbridges.apiclient.upload.CreateUploadRequest;
 import com.sevenbridges.apiclient.upload.Upload;
+import com.sevenbridges.apiclient.upload.UploadPriority;
 
-import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.concurrent.FutureCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
+/**
+ * Executes file transfers of one client. Each transfer manager owns its async HTTP client,
+ * connection pool and worker threads, configured by {@link TransferManagerConfiguration}, and
+ * releases them on {@link #stopService()}.
+ */
 public class TransferManager {
 
   private static final Logger log = LoggerFactory.getLogger(TransferManager.class);
 
   private final TransferManagerConfiguration conf;
   private final ExecutorService executor;
-  private final CloseableHttpAsyncClient client;
+  private final ExecutorService eventExecutor;
+  private final ExecutorService apiExecutor;
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService listenerExecutor;
+  private final ExecutorService hashExecutor;
+  private final ProgressDispatcher progressDispatcher;
+  private final UploadLivenessMonitor livenessMonitor;
+  private final PartScheduler partScheduler;
+  private final AdaptivePartSizer partSizer;
+  private final HttpAsyncClientPool clientPool;
+  private final BandwidthLimiter bandwidthLimiter;
+  private final UploadDeduplicator deduplicator;
 
-  TransferManager(CloseableHttpAsyncClient client) {
-    this(client, new TransferManagerConfiguration());
+  public TransferManager() {
+    this(new TransferManagerConfiguration());
   }
 
-  TransferManager(CloseableHttpAsyncClient client, TransferManagerConfiguration conf) {
-    this.client = client;
+  public TransferManager(TransferManagerConfiguration conf) {
     this.conf = conf;
+    this.clientPool = new HttpAsyncClientPool(
+        conf.getIoThreadCount(),
+        conf.getConnectTimeout(),
+        conf.getSocketTimeout(),
+        conf.getSocketSendBufferSize(),
+        conf.getSocketReceiveBufferSize(),
+        conf.getMaxConnections(),
+        conf.getMaxConnectionsPerRoute(),
+        conf.getPrewarmConnections());
     this.executor = Executors.newFixedThreadPool(this.conf.getNumberOfWorkerThreads());
+    this.eventExecutor = Executors.newFixedThreadPool(this.conf.getNumberOfWorkerThreads());
+    this.apiExecutor = Executors.newFixedThreadPool(this.conf.getNumberOfApiThreads());
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    this.listenerExecutor = Executors.newFixedThreadPool(this.conf.getNumberOfListenerThreads());
+    this.hashExecutor = this.conf.isComputeUploadMD5()
+        ? Executors.newFixedThreadPool(this.conf.getNumberOfHashingThreads())
+        : null;
+    this.progressDispatcher = new ProgressDispatcher(listenerExecutor, scheduler, this.conf.getProgressUpdateInterval());
+    this.livenessMonitor = new UploadLivenessMonitor(scheduler, this.conf.getUploadLivenessCheckInterval());
+    this.partScheduler = new PartScheduler(this.conf.getMaxInFlightParts());
+    this.partSizer = this.conf.isAdaptiveUploads() ? new AdaptivePartSizer() : null;
+    this.bandwidthLimiter = new BandwidthLimiter(this.conf.getBandwidthLimit(), this.conf.getTransferBandwidthLimit());
+    this.deduplicator = new UploadDeduplicator(new LocalHashCache(this.conf.getHashCacheFile()));
   }
 
   public void stopService() {
     this.executor.shutdownNow();
-    try {
-      this.client.close();
-    } catch (IOException e) {
-      log.debug("Error while closing async client", e);
+    this.eventExecutor.shutdownNow();
+    this.apiExecutor.shutdownNow();
+    this.scheduler.shutdownNow();
+    this.listenerExecutor.shutdownNow();
+    if (this.hashExecutor != null) {
+      this.hashExecutor.shutdownNow();
     }
+    this.bandwidthLimiter.shutdown();
     try {
-      HttpAsyncClientPool.shutdown();
+      this.clientPool.close();
     } catch (InterruptedException e) {
       log.debug("Error while shutting down async client pool", e);
+      Thread.currentThread().interrupt();
     }
   }
 
+  /**
+   * Changes the bandwidth limit shared by all transfers of this manager. Transfers in progress
+   * adopt the new limit immediately.
+   */
+  public void setBandwidthLimit(long bytesPerSecond) {
+    this.bandwidthLimiter.setGlobalLimit(bytesPerSecond);
+  }
+
+  public DefaultUploadContext upload(InternalDataStore dataStore, Upload upload, RandomAccessFile file, ProgressListener listener) {
+    return upload(dataStore, upload, file, listener, UploadPriority.NORMAL, null);
+  }
+
+  /**
+   * Uploads the file with the provided priority, in the scheduling queue of the provided tenant.
+   * Tenant may be null, then the upload shares the queue with all other uploads of its priority.
+   */
+  public DefaultUploadContext upload(InternalDataStore dataStore, Upload upload, RandomAccessFile file, ProgressListener listener,
+                                     UploadPriority priority, String tenant) {
+    // user listener is called on the listener threads, never on the upload threads
+    ProgressListener dispatched = progressDispatcher.dispatch(listener);
+    DefaultUploadContext uploadContext = upload(dataStore, upload, file, dispatched, new UploadFlow(priority, tenant), null);
+    progressDispatcher.setSource(dispatched, uploadContext);
+    return uploadContext;
+  }
 
-  public synchronized DefaultUploadContext upload(Upload upload, RandomAccessFile file, ProgressListener listener) {
+  DefaultUploadContext upload(InternalDataStore dataStore, Upload upload, RandomAccessFile file, ProgressListener listener,
+                              UploadFlow flow, FutureCallback<File> callback) {
 
     // we have initialized upload object. Now we need to submit upload for completion and return awaitable object
-    DefaultUploadContext uploadContext = new DefaultUploadContext(upload, file, listener);
-    Future<File> fileFuture = executor.submit(new UploadCallable(client, uploadContext, conf.getMaxPartRetry(), conf.getMaxParallelUploads()));
-    uploadContext.setFileFuture(fileFuture);
+    DefaultUploadContext uploadContext = new DefaultUploadContext(upload, file, openCheckpoint(upload, file), listener,
+        bandwidthLimiter.newThrottle());
+    UploadTask uploadTask = new UploadTask(clientPool, dataStore, uploadContext, eventExecutor, apiExecutor, hashExecutor, livenessMonitor,
+        partScheduler, conf.getMaxPartRetry(), conf.getMaxParallelUploads(), conf.getPartUrlPrefetchWindow(), partSizer, flow, callback);
+    uploadContext.setUploadTask(uploadTask);
+    uploadTask.start();
 
     return uploadContext;
   }
 
-}
+  /**
+   * Uploads the content of the stream, until the stream ends. Stream is read into at most as many
+   * part sized buffers as there are parallel parts, so the size of the stream is not limited by the
+   * memory.
+   */
+  public DefaultStreamUploadContext upload(Upload upload, ReadableByteChannel channel, ProgressListener listener) {
+    return upload(upload, channel, listener, UploadPriority.NORMAL, null);
+  }
 
+  /**
+   * Uploads the content of the stream with the provided priority, in the scheduling queue of the
+   * provided tenant.
+   */
+  public DefaultStreamUploadContext upload(Upload upload, ReadableByteChannel channel, ProgressListener listener,
+                                           UploadPriority priority, String tenant) {
+    ProgressListener dispatched = progressDispatcher.dispatch(listener);
+    DefaultStreamUploadContext uploadContext = new DefaultStreamUploadContext(upload, dispatched, bandwidthLimiter.newThrottle());
+    progressDispatcher.setSource(dispatched, uploadContext);
+    StreamUploadTask uploadTask;
+    try {
+      uploadTask = new StreamUploadTask(clientPool, uploadContext, channel, eventExecutor, executor, apiExecutor,
+          partScheduler, conf.getMaxPartRetry(), conf.getMaxParallelUploads(), conf.isComputeUploadMD5(),
+          new UploadFlow(priority, tenant));
+    } catch (IllegalArgumentException e) {
+      upload.abortUpload();
+      throw e;
+    }
+    uploadContext.setFileFuture(uploadTask.getFileFuture());
+    uploadTask.start();
+
+    return uploadContext;
+  }
+
+  /**
+   * Looks for an already uploaded copy of the file to upload, as requested by the deduplication of
+   * the upload request. If the copy is found, the file is not uploaded at all, and the returned
+   * context is already finished.
+   *
+   * @return finished upload context, or null if the file has to be uploaded
+   */
+  public UploadContext uploadCopy(InternalDataStore dataStore, CreateUploadRequest uploadRequest, ProgressListener listener) {
+    File copy = findCopy(dataStore, uploadRequest);
+    if (copy == null) {
+      return null;
+    }
+    ProgressListener dispatched = progressDispatcher.dispatch(listener);
+    DeduplicatedUploadContext uploadContext = new DeduplicatedUploadContext(copy, uploadRequest.getUpload().getName(),
+        uploadRequest.getUpload().getSize());
+    progressDispatcher.setSource(dispatched, uploadContext);
+    dispatched.uploadStarted();
+    dispatched.uploadFinished();
+    return uploadContext;
+  }
+
+  File findCopy(InternalDataStore dataStore, CreateUploadRequest uploadRequest) {
+    File copy = deduplicator.findCopy(dataStore, uploadRequest);
+    if (copy != null) {
+      try {
+        uploadRequest.getFile().close();
+      } catch (IOException e) {
+        log.debug("Error while closing deduplicated upload file", e);
+      }
+    }
+    return copy;
+  }
 
+  /**
+   * In adaptive mode, sets the part size of the upload that is about to be initialized, unless the
+   * part size is already chosen by the caller.
+   */
+  public void suggestPartSize(Upload upload) {
+    if (partSizer != null && upload.getPartSize() <= 0) {
+      upload.setPartSize(partSizer.getPartSize(upload.getSize()));
+    }
+  }
+
+  /**
+   * Submits a bulk of uploads. Uploads are initialized on the API server gradually, and parts of
+   * all of them share the global limit of parts in flight.
+   */
+  public DefaultBulkUploadContext uploadAll(InternalDataStore dataStore, List<CreateUploadRequest> uploadRequests) {
+    // leave API threads to the uploads in progress, so they finish before new ones are started
+    int maxInitializingUploads = Math.max(1, conf.getNumberOfApiThreads() / 2);
+    DefaultBulkUploadContext bulkContext = new DefaultBulkUploadContext(this, dataStore, uploadRequests, apiExecutor,
+        maxInitializingUploads, 2 * partScheduler.getMaxInFlightParts());
+    bulkContext.start();
+    return bulkContext;
+  }
+
+  /**
+   * Checks if there is a local checkpoint for the upload with provided ID, so it can be resumed
+   * without listing its parts on the server.
+   */
+  public boolean hasUploadCheckpoint(String uploadId) {
+    return UploadCheckpoint.exists(conf.getUploadCheckpointDirectory(), uploadId);
+  }
+
+  /**
+   * Submits the ranged download of the file to the destination. Each running download occupies one
+   * worker thread until it completes, further downloads wait for a free one. A destination must not
+   * be the target of two downloads at once, since its journal is shared by both.
+   */
+  public DefaultDownloadContext download(File file, Path destination, RandomAccessFile raf, boolean resume, ProgressListener listener) {
+
+    // open the journal of finished parts, when resuming it may already contain progress
+    DownloadJournal journal;
+    try {
+      journal = resume
+          ? DownloadJournal.openOrCreate(destination, file.getSize(), conf.getDownloadPartSize())
+          : DownloadJournal.create(destination, file.getSize(), conf.getDownloadPartSize());
+    } catch (IOException e) {
+      throw new RuntimeException("Error while opening download journal for " + destination, e);
+    }
+
+    // submit ranged download for execution and return awaitable object
+    ProgressListener dispatched = progressDispatcher.dispatch(listener);
+    DefaultDownloadContext downloadContext = new DefaultDownloadContext(file, destination, raf, journal, dispatched,
+        bandwidthLimiter.newThrottle());
+    progressDispatcher.setSource(dispatched, downloadContext);
+    Future<Path> pathFuture = executor.submit(new DownloadCallable(clientPool.getAsyncClient(), downloadContext, conf.getMaxPartRetry(), conf.getMaxParallelDownloadParts()));
+    downloadContext.setPathFuture(pathFuture);
+
+    return downloadContext;
+  }
+
+  private UploadCheckpoint openCheckpoint(Upload upload, RandomAccessFile file) {
+    if (conf.getUploadCheckpointDirectory() == null) {
+      return null;
+    }
+    try {
+      if (file.length() <= upload.getPartSize()) {
+        // small file is uploaded in one part, there is no progress worth keeping
+        return null;
+      }
+      return UploadCheckpoint.open(conf.getUploadCheckpointDirectory(), upload.getUploadId(), file.length(), upload.getPartSize());
+    } catch (IOException e) {
+      log.warn("Could not open checkpoint for upload '{}', continuing without it", upload.getUploadId(), e);
+      return null;
+    }
+  }
+
+}
@@ -15,17 +15,56 @@
  */
 package com.sevenbridges.apiclient.impl.transfer;
 
+import java.nio.file.Path;
+
 public class TransferManagerConfiguration {
 
   private static final int DEFAULT_NUMBER_OF_WORKER_THREADS = 4;
   private static final int DEFAULT_MAX_PART_RETRY = 5;
   private static final int DEFAULT_MAX_PARALLEL_UPLOADS = 2;
+  private static final long DEFAULT_DOWNLOAD_PART_SIZE = 64 * 1024 * 1024;
+  private static final int DEFAULT_MAX_PARALLEL_DOWNLOAD_PARTS = 4;
+  private static final int DEFAULT_NUMBER_OF_API_THREADS = 4;
+  private static final int DEFAULT_PART_URL_PREFETCH_WINDOW = 4;
+  private static final long DEFAULT_UPLOAD_LIVENESS_CHECK_INTERVAL = 30 * 1000;
+  private static final int DEFAULT_IO_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+  private static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+  private static final int DEFAULT_SOCKET_TIMEOUT = 10000;
+  private static final int DEFAULT_MAX_CONNECTIONS = 200;
+  private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+  private static final int DEFAULT_NUMBER_OF_LISTENER_THREADS = 1;
+  private static final long DEFAULT_PROGRESS_UPDATE_INTERVAL = 1000;
+  private static final int DEFAULT_NUMBER_OF_HASHING_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
 
   private int numberOfWorkerThreads = DEFAULT_NUMBER_OF_WORKER_THREADS;
   private int maxPartRetry = DEFAULT_MAX_PART_RETRY;
   private int maxParallelUploads = DEFAULT_MAX_PARALLEL_UPLOADS;
+  private long downloadPartSize = DEFAULT_DOWNLOAD_PART_SIZE;
+  private int maxParallelDownloadParts = DEFAULT_MAX_PARALLEL_DOWNLOAD_PARTS;
+  private Path uploadCheckpointDirectory = null;
+  private int numberOfApiThreads = DEFAULT_NUMBER_OF_API_THREADS;
+  private int partUrlPrefetchWindow = DEFAULT_PART_URL_PREFETCH_WINDOW;
+  private long uploadLivenessCheckInterval = DEFAULT_UPLOAD_LIVENESS_CHECK_INTERVAL;
+  private int maxInFlightParts = 0;
+  private boolean adaptiveUploads = false;
+  private int ioThreadCount = DEFAULT_IO_THREAD_COUNT;
+  private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+  private int socketTimeout = DEFAULT_SOCKET_TIMEOUT;
+  private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+  private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+  private int socketSendBufferSize = 0;
+  private int socketReceiveBufferSize = 0;
+  private int prewarmConnections = -1;
+  private int numberOfListenerThreads = DEFAULT_NUMBER_OF_LISTENER_THREADS;
+  private long progressUpdateInterval = DEFAULT_PROGRESS_UPDATE_INTERVAL;
+  private long bandwidthLimit = 0;
+  private long transferBandwidthLimit = 0;
+  private boolean computeUploadMD5 = false;
+  private int numberOfHashingThreads = DEFAULT_NUMBER_OF_HASHING_THREADS;
+  private Path hashCacheFile = null;
 
-  TransferManagerConfiguration() { /* Prevent construction from outside of package */ }
+  public TransferManagerConfiguration() {
+  }
 
   public TransferManagerConfiguration(int numberOfWorkerThreads, int maxPartRetry, int maxParallelUploads) {
     this.numberOfWorkerThreads = numberOfWorkerThreads > 0 ? numberOfWorkerThreads : DEFAULT_NUMBER_OF_WORKER_THREADS;
@@ -44,4 +83,387 @@ public class TransferManagerConfiguration {
   int getMaxParallelUploads() {
     return maxParallelUploads;
   }
+
+  /**
+   * Sets the size of a single byte range requested in parallel while downloading a file. Non positive values reset
+   * the part size to the default of 64MB.
+   *
+   * @param downloadPartSize size of one download part in bytes
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setDownloadPartSize(long downloadPartSize) {
+    this.downloadPartSize = downloadPartSize > 0 ? downloadPartSize : DEFAULT_DOWNLOAD_PART_SIZE;
+    return this;
+  }
+
+  long getDownloadPartSize() {
+    return downloadPartSize;
+  }
+
+  /**
+   * Sets the maximum number of byte ranges of one file downloaded in parallel. Non positive values
+   * reset the limit to the default of 4. Each running download also occupies one worker thread,
+   * which waits there for its parts, so the number of downloads running at once is limited by the
+   * number of worker threads.
+   *
+   * @param maxParallelDownloadParts maximum number of parallel parts per active download
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setMaxParallelDownloadParts(int maxParallelDownloadParts) {
+    this.maxParallelDownloadParts = maxParallelDownloadParts > 0 ? maxParallelDownloadParts : DEFAULT_MAX_PARALLEL_DOWNLOAD_PARTS;
+    return this;
+  }
+
+  int getMaxParallelDownloadParts() {
+    return maxParallelDownloadParts;
+  }
+
+  /**
+   * Sets the directory where uploads keep their local checkpoint files. Checkpoints let uploads be
+   * resumed after a crash without listing all uploaded parts on the server. If the directory is
+   * null, checkpoints are disabled, which is the default.
+   *
+   * @param uploadCheckpointDirectory directory for upload checkpoint files, or null
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setUploadCheckpointDirectory(Path uploadCheckpointDirectory) {
+    this.uploadCheckpointDirectory = uploadCheckpointDirectory;
+    return this;
+  }
+
+  Path getUploadCheckpointDirectory() {
+    return uploadCheckpointDirectory;
+  }
+
+  /**
+   * Sets the number of threads that execute API server calls on behalf of running transfers, like
+   * fetching signed part upload URLs ahead of the part uploads. Non positive values reset the
+   * number to the default of 4.
+   *
+   * @param numberOfApiThreads number of threads for API server calls
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setNumberOfApiThreads(int numberOfApiThreads) {
+    this.numberOfApiThreads = numberOfApiThreads > 0 ? numberOfApiThreads : DEFAULT_NUMBER_OF_API_THREADS;
+    return this;
+  }
+
+  int getNumberOfApiThreads() {
+    return numberOfApiThreads;
+  }
+
+  /**
+   * Sets how many signed part upload URLs each upload keeps fetched ahead of its part uploads. The
+   * window is never smaller than the number of parts uploaded in parallel. Non positive values
+   * reset the window to the default of 4.
+   *
+   * @param partUrlPrefetchWindow number of part URLs to fetch ahead
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setPartUrlPrefetchWindow(int partUrlPrefetchWindow) {
+    this.partUrlPrefetchWindow = partUrlPrefetchWindow > 0 ? partUrlPrefetchWindow : DEFAULT_PART_URL_PREFETCH_WINDOW;
+    return this;
+  }
+
+  int getPartUrlPrefetchWindow() {
+    return partUrlPrefetchWindow;
+  }
+
+  /**
+   * Sets how often the transfer manager checks that its active uploads were not aborted by some
+   * external use. Non positive values reset the interval to the default of 30 seconds.
+   *
+   * @param uploadLivenessCheckInterval interval between two checks in milliseconds
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setUploadLivenessCheckInterval(long uploadLivenessCheckInterval) {
+    this.uploadLivenessCheckInterval = uploadLivenessCheckInterval > 0 ? uploadLivenessCheckInterval : DEFAULT_UPLOAD_LIVENESS_CHECK_INTERVAL;
+    return this;
+  }
+
+  long getUploadLivenessCheckInterval() {
+    return uploadLivenessCheckInterval;
+  }
+
+  /**
+   * Sets the maximum number of part uploads in flight across all uploads. Non positive values
+   * reset the limit to the default, which is the number of worker threads multiplied by the
+   * maximum number of parallel parts of one upload.
+   *
+   * @param maxInFlightParts maximum number of parts uploaded at any given time
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setMaxInFlightParts(int maxInFlightParts) {
+    this.maxInFlightParts = maxInFlightParts > 0 ? maxInFlightParts : 0;
+    return this;
+  }
+
+  int getMaxInFlightParts() {
+    return maxInFlightParts > 0 ? maxInFlightParts : numberOfWorkerThreads * maxParallelUploads;
+  }
+
+  /**
+   * Enables adaptive uploads. Part sizes of new uploads are then picked from the file size and the
+   * rate of recently uploaded parts, unless chosen by the caller, and the number of parts uploaded
+   * in parallel by each upload grows while parts are uploaded at a healthy rate, and backs off on
+   * failed or slow parts. The maximum number of parallel parts of one upload is then only the
+   * starting point, the global limit of parts in flight still applies. Disabled by default.
+   *
+   * @param adaptiveUploads true to enable adaptive uploads
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setAdaptiveUploads(boolean adaptiveUploads) {
+    this.adaptiveUploads = adaptiveUploads;
+    return this;
+  }
+
+  boolean isAdaptiveUploads() {
+    return adaptiveUploads;
+  }
+
+  /**
+   * Sets the number of IO threads of the async HTTP client that transfers file content. Non
+   * positive values reset the number to the default, which is the number of available processors.
+   *
+   * @param ioThreadCount number of IO threads
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setIoThreadCount(int ioThreadCount) {
+    this.ioThreadCount = ioThreadCount > 0 ? ioThreadCount : DEFAULT_IO_THREAD_COUNT;
+    return this;
+  }
+
+  int getIoThreadCount() {
+    return ioThreadCount;
+  }
+
+  /**
+   * Sets the timeout for opening transfer connections. Non positive values reset the timeout to
+   * the default of 10 seconds.
+   *
+   * @param connectTimeout connect timeout in milliseconds
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECT_TIMEOUT;
+    return this;
+  }
+
+  int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * Sets how long a transfer connection may stay inactive while a request is in progress. Non
+   * positive values reset the timeout to the default of 10 seconds.
+   *
+   * @param socketTimeout socket timeout in milliseconds
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setSocketTimeout(int socketTimeout) {
+    this.socketTimeout = socketTimeout > 0 ? socketTimeout : DEFAULT_SOCKET_TIMEOUT;
+    return this;
+  }
+
+  int getSocketTimeout() {
+    return socketTimeout;
+  }
+
+  /**
+   * Sets the maximum number of pooled transfer connections. Non positive values reset the limit to
+   * the default of 200.
+   *
+   * @param maxConnections maximum number of connections
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections > 0 ? maxConnections : DEFAULT_MAX_CONNECTIONS;
+    return this;
+  }
+
+  int getMaxConnections() {
+    return maxConnections;
+  }
+
+  /**
+   * Sets the maximum number of pooled transfer connections to one host. Non positive values reset
+   * the limit to the default of 50.
+   *
+   * @param maxConnectionsPerRoute maximum number of connections to one host
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute > 0 ? maxConnectionsPerRoute : DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    return this;
+  }
+
+  int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  /**
+   * Sets the socket send buffer size of transfer connections. Non positive values leave the size
+   * to the operating system, which is the default.
+   *
+   * @param socketSendBufferSize send buffer size in bytes
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setSocketSendBufferSize(int socketSendBufferSize) {
+    this.socketSendBufferSize = socketSendBufferSize > 0 ? socketSendBufferSize : 0;
+    return this;
+  }
+
+  int getSocketSendBufferSize() {
+    return socketSendBufferSize;
+  }
+
+  /**
+   * Sets the socket receive buffer size of transfer connections. Non positive values leave the
+   * size to the operating system, which is the default.
+   *
+   * @param socketReceiveBufferSize receive buffer size in bytes
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setSocketReceiveBufferSize(int socketReceiveBufferSize) {
+    this.socketReceiveBufferSize = socketReceiveBufferSize > 0 ? socketReceiveBufferSize : 0;
+    return this;
+  }
+
+  int getSocketReceiveBufferSize() {
+    return socketReceiveBufferSize;
+  }
+
+  /**
+   * Sets how many connections are opened ahead to a storage host when an upload first sends a
+   * part to it, so parallel parts do not wait for connection and TLS handshakes. Zero disables
+   * pre-warming, negative values reset the number to the default, which is the maximum number of
+   * parallel parts of one upload.
+   *
+   * @param prewarmConnections number of connections to open ahead
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setPrewarmConnections(int prewarmConnections) {
+    this.prewarmConnections = prewarmConnections >= 0 ? prewarmConnections : -1;
+    return this;
+  }
+
+  int getPrewarmConnections() {
+    return prewarmConnections >= 0 ? prewarmConnections : maxParallelUploads;
+  }
+
+  /**
+   * Sets the number of threads that deliver events to progress listeners. Events of one listener
+   * are always delivered one at a time, more threads only keep listeners of different transfers
+   * from waiting on each other. Non positive values reset the number to the default of 1.
+   *
+   * @param numberOfListenerThreads number of threads calling progress listeners
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setNumberOfListenerThreads(int numberOfListenerThreads) {
+    this.numberOfListenerThreads = numberOfListenerThreads > 0 ? numberOfListenerThreads : DEFAULT_NUMBER_OF_LISTENER_THREADS;
+    return this;
+  }
+
+  int getNumberOfListenerThreads() {
+    return numberOfListenerThreads;
+  }
+
+  /**
+   * Sets how often progress listeners receive progress snapshots of running transfers. Non
+   * positive values reset the interval to the default of 1 second.
+   *
+   * @param progressUpdateInterval interval between two snapshots in milliseconds
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setProgressUpdateInterval(long progressUpdateInterval) {
+    this.progressUpdateInterval = progressUpdateInterval > 0 ? progressUpdateInterval : DEFAULT_PROGRESS_UPDATE_INTERVAL;
+    return this;
+  }
+
+  long getProgressUpdateInterval() {
+    return progressUpdateInterval;
+  }
+
+  /**
+   * Sets the bandwidth limit shared by all uploads and downloads of the transfer manager. Zero or
+   * negative values remove the limit, which is the default.
+   *
+   * @param bandwidthLimit maximum number of bytes transferred per second
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setBandwidthLimit(long bandwidthLimit) {
+    this.bandwidthLimit = Math.max(0, bandwidthLimit);
+    return this;
+  }
+
+  long getBandwidthLimit() {
+    return bandwidthLimit;
+  }
+
+  /**
+   * Sets the default bandwidth limit of each single upload or download. Limit of a transfer in
+   * progress can be changed on its context. Zero or negative values remove the limit, which is the
+   * default.
+   *
+   * @param transferBandwidthLimit maximum number of bytes transferred per second by one transfer
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setTransferBandwidthLimit(long transferBandwidthLimit) {
+    this.transferBandwidthLimit = Math.max(0, transferBandwidthLimit);
+    return this;
+  }
+
+  long getTransferBandwidthLimit() {
+    return transferBandwidthLimit;
+  }
+
+  /**
+   * Enables MD5 computation of uploads. Digest of the whole file is computed while its parts are
+   * uploaded, and sent to the API server when the upload is completed, unless the MD5 is already
+   * provided with the upload. Disabled by default.
+   *
+   * @param computeUploadMD5 true to compute MD5 of uploads
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setComputeUploadMD5(boolean computeUploadMD5) {
+    this.computeUploadMD5 = computeUploadMD5;
+    return this;
+  }
+
+  boolean isComputeUploadMD5() {
+    return computeUploadMD5;
+  }
+
+  /**
+   * Sets the number of threads that compute MD5 of uploads, shared by all uploads. Non positive
+   * values reset the number to the default, which is half of the available processors.
+   *
+   * @param numberOfHashingThreads number of hashing threads
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setNumberOfHashingThreads(int numberOfHashingThreads) {
+    this.numberOfHashingThreads = numberOfHashingThreads > 0 ? numberOfHashingThreads : DEFAULT_NUMBER_OF_HASHING_THREADS;
+    return this;
+  }
+
+  int getNumberOfHashingThreads() {
+    return numberOfHashingThreads;
+  }
+
+  /**
+   * Sets the file that keeps MD5 digests of local files between runs, so unchanged files are not
+   * hashed again when looking for their already uploaded copies. If not set, digests are kept in
+   * memory only.
+   *
+   * @param hashCacheFile path of the hash cache file, created if it does not exist
+   * @return this configuration, for method chaining
+   */
+  public TransferManagerConfiguration setHashCacheFile(Path hashCacheFile) {
+    this.hashCacheFile = hashCacheFile;
+    return this;
+  }
+
+  Path getHashCacheFile() {
+    return hashCacheFile;
+  }
 }
@@ -15,32 +15,38 @@
  */
 package com.sevenbridges.apiclient.impl.transfer;
 
-import com.sevenbridges.apiclient.impl.transfer.http.HttpAsyncClientPool;
-
+/**
+ * Transfer manager shared by the callers of this factory.
+ *
+ * @deprecated each client owns its transfer manager, configured by the client builder and stopped
+ * by {@code Client.shutdownTransferService()}. The manager of this factory is not used by any
+ * client of the API. Will be removed in the next release.
+ */
+@Deprecated
 public class TransferManagerFactory {
 
   private static TransferManager TRANSFER_MANAGER = null;
   private static TransferManagerConfiguration CONF = null;
 
-  public static TransferManager getTransferManager() {
+  public static synchronized TransferManager getTransferManager() {
     if (TRANSFER_MANAGER == null) {
       if (CONF != null) {
-        TRANSFER_MANAGER = new TransferManager(HttpAsyncClientPool.getClient(), CONF);
+        TRANSFER_MANAGER = new TransferManager(CONF);
       } else {
-        TRANSFER_MANAGER = new TransferManager(HttpAsyncClientPool.getClient());
+        TRANSFER_MANAGER = new TransferManager();
       }
     }
     return TRANSFER_MANAGER;
   }
 
-  public static void stopTransferManager() {
+  public static synchronized void stopTransferManager() {
     if (TRANSFER_MANAGER != null) {
       TRANSFER_MANAGER.stopService();
       TRANSFER_MANAGER = null;
     }
   }
 
-  public static void setConfiguration(TransferManagerConfiguration configuration) {
+  public static synchronized void setConfiguration(TransferManagerConfiguration configuration) {
     TransferManagerFactory.CONF = configuration;
   }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Local, append-only checkpoint of an upload. Every successfully uploaded part is appended as a
+ * fixed size record holding its part number and ETag, and is later flagged once the part is
+ * reported to the API server. The file is memory mapped, so records survive a crash of the JVM,
+ * and an upload can be resumed without listing its parts on the server.
+ * <p>
+ * Layout: magic (int), version (int), file size (long), part size (long), parts number (int),
+ * followed by one record per uploaded part: part number (int), reported flag (byte), ETag length
+ * (byte) and ETag bytes. Part number is written last, so a record is visible only when complete.
+ */
+class UploadCheckpoint implements Closeable {
+
+  static final String CHECKPOINT_SUFFIX = ".sbupload";
+
+  private static final int MAGIC = 0x53425550;
+  private static final int VERSION = 1;
+
+  private static final int SIZE_OFFSET = 8;
+  private static final int PART_SIZE_OFFSET = 16;
+  private static final int PARTS_NUMBER_OFFSET = 24;
+  private static final int RECORDS_OFFSET = 32;
+
+  private static final int RECORD_SIZE = 128;
+  private static final int REPORTED_OFFSET = 4;
+  private static final int ETAG_LENGTH_OFFSET = 5;
+  private static final int ETAG_OFFSET = 6;
+  private static final int MAX_ETAG_LENGTH = RECORD_SIZE - ETAG_OFFSET;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int partsNumber;
+
+  // part number -> record slot
+  private final Map<Integer, Integer> slots = new HashMap<>();
+  private int nextSlot = 0;
+
+  private UploadCheckpoint(Path path, FileChannel channel, MappedByteBuffer buffer, int partsNumber) {
+    this.path = path;
+    this.channel = channel;
+    this.buffer = buffer;
+    this.partsNumber = partsNumber;
+    while (nextSlot < partsNumber) {
+      int partNumber = buffer.getInt(recordOffset(nextSlot));
+      if (partNumber <= 0) {
+        break;
+      }
+      slots.put(partNumber, nextSlot);
+      nextSlot++;
+    }
+  }
+
+  static Path getCheckpointPath(Path directory, String uploadId) {
+    return directory.resolve(uploadId + CHECKPOINT_SUFFIX);
+  }
+
+  static boolean exists(Path directory, String uploadId) {
+    return directory != null && Files.isRegularFile(getCheckpointPath(directory, uploadId));
+  }
+
+  /**
+   * Opens the checkpoint of the upload with provided ID from the provided directory. Existing
+   * checkpoint is reused only if it was written for the file of the same size and the same part
+   * size, otherwise a new, empty checkpoint is created.
+   */
+  static UploadCheckpoint open(Path directory, String uploadId, long fileSize, long partSize) throws IOException {
+    Path checkpointPath = getCheckpointPath(directory, uploadId);
+    int partsNumber = Math.max(getPartsNumber(fileSize, partSize), 1);
+    long mappingSize = RECORDS_OFFSET + (long) partsNumber * RECORD_SIZE;
+
+    if (Files.isRegularFile(checkpointPath)) {
+      FileChannel channel = FileChannel.open(checkpointPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        if (channel.size() == mappingSize) {
+          MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappingSize);
+          if (buffer.getInt(0) == MAGIC
+              && buffer.getInt(4) == VERSION
+              && buffer.getLong(SIZE_OFFSET) == fileSize
+              && buffer.getLong(PART_SIZE_OFFSET) == partSize
+              && buffer.getInt(PARTS_NUMBER_OFFSET) == partsNumber) {
+            return new UploadCheckpoint(checkpointPath, channel, buffer, partsNumber);
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+      // checkpoint belongs to some other file
+      channel.close();
+      Files.delete(checkpointPath);
+    }
+
+    Files.createDirectories(directory);
+    FileChannel channel = FileChannel.open(checkpointPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappingSize);
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putLong(SIZE_OFFSET, fileSize);
+    buffer.putLong(PART_SIZE_OFFSET, partSize);
+    buffer.putInt(PARTS_NUMBER_OFFSET, partsNumber);
+    buffer.force();
+    return new UploadCheckpoint(checkpointPath, channel, buffer, partsNumber);
+  }
+
+  /**
+   * Appends uploaded part to the checkpoint. Parts that are already recorded are ignored.
+   */
+  synchronized void append(int partNumber, String eTag, boolean reported) {
+    if (slots.containsKey(partNumber) || nextSlot >= partsNumber) {
+      return;
+    }
+    byte[] eTagBytes = eTag == null ? new byte[0] : eTag.getBytes(StandardCharsets.UTF_8);
+    if (eTagBytes.length > MAX_ETAG_LENGTH) {
+      // can not be restored from the checkpoint, this part will be uploaded again when resuming
+      return;
+    }
+    int offset = recordOffset(nextSlot);
+    for (int i = 0; i < eTagBytes.length; i++) {
+      buffer.put(offset + ETAG_OFFSET + i, eTagBytes[i]);
+    }
+    buffer.put(offset + ETAG_LENGTH_OFFSET, (byte) eTagBytes.length);
+    buffer.put(offset + REPORTED_OFFSET, (byte) (reported ? 1 : 0));
+    buffer.putInt(offset, partNumber);
+    slots.put(partNumber, nextSlot);
+    nextSlot++;
+  }
+
+  synchronized void markReported(int partNumber) {
+    Integer slot = slots.get(partNumber);
+    if (slot != null) {
+      buffer.put(recordOffset(slot) + REPORTED_OFFSET, (byte) 1);
+    }
+  }
+
+  synchronized int getRecordedPartsCount() {
+    return nextSlot;
+  }
+
+  /**
+   * Gets all recorded parts, reported or not, with their ETags.
+   */
+  synchronized Map<Integer, String> getRecordedParts() {
+    Map<Integer, String> parts = new LinkedHashMap<>(slots.size());
+    for (int slot = 0; slot < nextSlot; slot++) {
+      int offset = recordOffset(slot);
+      byte[] eTagBytes = new byte[buffer.get(offset + ETAG_LENGTH_OFFSET) & 0xFF];
+      for (int i = 0; i < eTagBytes.length; i++) {
+        eTagBytes[i] = buffer.get(offset + ETAG_OFFSET + i);
+      }
+      parts.put(buffer.getInt(offset), new String(eTagBytes, StandardCharsets.UTF_8));
+    }
+    return parts;
+  }
+
+  /**
+   * Gets numbers of the recorded parts that were uploaded, but not reported to the API server.
+   */
+  synchronized Set<Integer> getUnreportedParts() {
+    Set<Integer> unreported = new TreeSet<>();
+    for (int slot = 0; slot < nextSlot; slot++) {
+      int offset = recordOffset(slot);
+      if (buffer.get(offset + REPORTED_OFFSET) == 0) {
+        unreported.add(buffer.getInt(offset));
+      }
+    }
+    return unreported;
+  }
+
+  void force() {
+    buffer.force();
+  }
+
+  void delete() throws IOException {
+    close();
+    Files.deleteIfExists(path);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel.isOpen()) {
+      buffer.force();
+      channel.close();
+    }
+  }
+
+  private static int recordOffset(int slot) {
+    return RECORDS_OFFSET + slot * RECORD_SIZE;
+  }
+
+  private static int getPartsNumber(long size, long partSize) {
+    return size % partSize == 0
+        ? (int) (size / partSize)
+        : (int) (size / partSize + 1);
+  }
+}
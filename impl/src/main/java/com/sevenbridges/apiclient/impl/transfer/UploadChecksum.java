@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * MD5 of an uploaded file, computed while its parts are uploaded. MD5 can not be split, so finished
+ * parts are folded into the digest in the file order, from memory mapped ranges of the file that
+ * are most likely still in the page cache. Folding runs on the shared hashing executor, one task at
+ * a time per upload, so digests of many uploads are computed in parallel without an extra pass
+ * over their files.
+ */
+class UploadChecksum {
+
+  // mapped at once, so large parts do not hold a huge mapping
+  private static final long MAP_CHUNK_SIZE = 64 * 1024 * 1024;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final FileChannel fileChannel;
+  private final long fileSize;
+  private final long partSize;
+  private final int partsNumber;
+  private final ExecutorService hashExecutor;
+  private final Runnable wakeUp;
+  private final MessageDigest digest;
+
+  // guarded by this
+  private final BitSet finishedParts = new BitSet();
+  private int nextPart = 1;
+  private boolean hashing = false;
+  private boolean cancelled = false;
+
+  private volatile String md5 = null;
+  private volatile Exception error = null;
+
+  UploadChecksum(FileChannel fileChannel, long fileSize, long partSize, int partsNumber,
+                 ExecutorService hashExecutor, Runnable wakeUp) {
+    this.fileChannel = fileChannel;
+    this.fileSize = fileSize;
+    this.partSize = partSize;
+    this.partsNumber = partsNumber;
+    this.hashExecutor = hashExecutor;
+    this.wakeUp = wakeUp;
+    this.digest = newDigest();
+    if (partsNumber == 0) {
+      // empty file
+      this.md5 = toHex(digest.digest());
+    }
+  }
+
+  /**
+   * Marks the part as uploaded, so it can be folded into the digest once all parts before it are.
+   */
+  void partFinished(int partNumber) {
+    synchronized (this) {
+      finishedParts.set(partNumber);
+      if (hashing || cancelled || partNumber != nextPart) {
+        return;
+      }
+      hashing = true;
+    }
+    hashExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        foldFinishedParts();
+      }
+    });
+  }
+
+  boolean isDone() {
+    return md5 != null;
+  }
+
+  /**
+   * Hex encoded MD5 of the whole file, null until all parts are folded.
+   */
+  String getMD5() {
+    return md5;
+  }
+
+  void checkError() throws Exception {
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  synchronized void cancel() {
+    cancelled = true;
+  }
+
+  private void foldFinishedParts() {
+    while (true) {
+      int partNumber;
+      synchronized (this) {
+        if (cancelled || !finishedParts.get(nextPart)) {
+          hashing = false;
+          return;
+        }
+        partNumber = nextPart;
+      }
+      try {
+        update(partNumber);
+      } catch (Exception e) {
+        synchronized (this) {
+          hashing = false;
+          if (!cancelled) {
+            error = new RuntimeException("Error while computing MD5 of part " + partNumber, e);
+          }
+        }
+        wakeUp.run();
+        return;
+      }
+      synchronized (this) {
+        nextPart++;
+        if (nextPart > partsNumber) {
+          hashing = false;
+          md5 = toHex(digest.digest());
+          break;
+        }
+      }
+    }
+    wakeUp.run();
+  }
+
+  private void update(int partNumber) throws IOException {
+    long position = (partNumber - 1) * partSize;
+    update(digest, fileChannel, position, Math.min(position + partSize, fileSize));
+  }
+
+  /**
+   * Updates the digest with the range of the file, mapped to memory piece by piece.
+   */
+  static void update(MessageDigest digest, FileChannel fileChannel, long position, long end) throws IOException {
+    while (position < end) {
+      long size = Math.min(MAP_CHUNK_SIZE, end - position);
+      ByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      digest.update(mapped);
+      position += size;
+    }
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 is not supported", e);
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+      chars[2 * i + 1] = HEX[bytes[i] & 0x0f];
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.transfer.PausedUploadException;
+import com.sevenbridges.apiclient.transfer.UploadCompletionListener;
+import com.sevenbridges.apiclient.transfer.UploadContext;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Completion listeners of one upload context. Completed by the upload task together with the file
+ * future, so listeners run right when the upload is done, on the thread that finished it.
+ */
+class UploadCompletionListeners implements FutureCallback<File> {
+
+  private static final Logger log = LoggerFactory.getLogger(UploadCompletionListeners.class);
+
+  private final UploadContext context;
+  private final List<UploadCompletionListener> listeners = new ArrayList<>();
+  private boolean done = false;
+  private File file;
+  private RuntimeException cause;
+
+  UploadCompletionListeners(UploadContext context) {
+    this.context = context;
+  }
+
+  void add(UploadCompletionListener listener) {
+    synchronized (this) {
+      if (!done) {
+        listeners.add(listener);
+        return;
+      }
+    }
+    notify(listener);
+  }
+
+  @Override
+  public void completed(File result) {
+    finish(result, null);
+  }
+
+  @Override
+  public void failed(Exception ex) {
+    // same exception as getFile() throws
+    finish(null, ex instanceof PausedUploadException
+        ? (PausedUploadException) ex
+        : new RuntimeException("Error while uploading file", ex));
+  }
+
+  @Override
+  public void cancelled() {
+    finish(null, new CancellationException("Upload is aborted"));
+  }
+
+  private void finish(File result, RuntimeException error) {
+    List<UploadCompletionListener> toNotify;
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      done = true;
+      file = result;
+      cause = error;
+      toNotify = new ArrayList<>(listeners);
+      listeners.clear();
+    }
+    for (UploadCompletionListener listener : toNotify) {
+      notify(listener);
+    }
+  }
+
+  private void notify(UploadCompletionListener listener) {
+    try {
+      if (cause == null) {
+        listener.uploadCompleted(context, file);
+      } else {
+        listener.uploadFailed(context, cause);
+      }
+    } catch (RuntimeException e) {
+      // listener errors must not break the upload that notifies them
+      log.warn("Upload completion listener of upload '{}' failed", context.getUploadId(), e);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.file.FileCriteria;
+import com.sevenbridges.apiclient.file.FileList;
+import com.sevenbridges.apiclient.file.Files;
+import com.sevenbridges.apiclient.impl.ds.InternalDataStore;
+import com.sevenbridges.apiclient.impl.upload.DefaultCreateUploadRequest;
+import com.sevenbridges.apiclient.project.Project;
+import com.sevenbridges.apiclient.project.ProjectList;
+import com.sevenbridges.apiclient.query.Criteria;
+import com.sevenbridges.apiclient.upload.CreateUploadRequest;
+import com.sevenbridges.apiclient.upload.Upload;
+import com.sevenbridges.apiclient.upload.UploadDeduplication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Looks for an already uploaded copy of a local file, with the same name, size and MD5, before the
+ * file is uploaded. Candidates are first matched by the name and size, so the local file is hashed
+ * only if there is a candidate, and its hash is taken from the local hash cache when the file is
+ * not changed since it was last hashed.
+ */
+class UploadDeduplicator {
+
+  private static final Logger log = LoggerFactory.getLogger(UploadDeduplicator.class);
+
+  private static final String FILES_HREF = "/files";
+  private static final String PROJECTS_HREF = "/projects";
+
+  private final LocalHashCache hashCache;
+
+  UploadDeduplicator(LocalHashCache hashCache) {
+    this.hashCache = hashCache;
+  }
+
+  /**
+   * Finds the copy of the file to upload in its destination project, or copies it there from some
+   * other project, depending on the deduplication of the request. Any error while looking for the
+   * copy is logged and ignored, so the file is uploaded as usual.
+   *
+   * @return file in the destination project with the same content, or null if the file has to be
+   * uploaded
+   */
+  File findCopy(InternalDataStore dataStore, CreateUploadRequest request) {
+    UploadDeduplication deduplication = request.getDeduplication();
+    if (deduplication == null || deduplication == UploadDeduplication.NONE || request.getFile() == null) {
+      return null;
+    }
+    Upload upload = request.getUpload();
+    LocalDigest localDigest = new LocalDigest(request);
+    try {
+      File found = findInProject(dataStore, upload.getProjectId(), upload, localDigest);
+      if (found != null || deduplication != UploadDeduplication.ALL_PROJECTS) {
+        return found;
+      }
+      for (Project project : dataStore.getResource(PROJECTS_HREF, ProjectList.class)) {
+        if (upload.getProjectId().equals(project.getId())) {
+          continue;
+        }
+        found = findInProject(dataStore, project.getId(), upload, localDigest);
+        if (found != null) {
+          Project destination = dataStore.instantiate(Project.class,
+              Collections.<String, Object>singletonMap("id", upload.getProjectId()));
+          return found.copy(destination, upload.getName());
+        }
+      }
+    } catch (Exception e) {
+      log.warn("Could not look for a copy of '{}', uploading it", upload.getName(), e);
+    }
+    if (upload.getMD5() == null && localDigest.md5 != null) {
+      // already hashed, no need to hash it again during the upload
+      upload.setMD5(localDigest.md5);
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private File findInProject(InternalDataStore dataStore, String projectId, Upload upload, LocalDigest localDigest)
+      throws IOException {
+    FileCriteria criteria = Files.criteria()
+        .forProject(projectId)
+        .withName(upload.getName())
+        .withAllFields();
+    FileList files = dataStore.getResource(FILES_HREF, FileList.class, (Criteria<FileCriteria>) criteria);
+    for (File candidate : files) {
+      if (upload.getName().equals(candidate.getName())
+          && candidate.getSize() == upload.getSize()
+          && candidate.getMD5() != null
+          && candidate.getMD5().equalsIgnoreCase(localDigest.get())) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * MD5 of the local file, computed when first needed.
+   */
+  private class LocalDigest {
+
+    private final CreateUploadRequest request;
+    private String md5;
+
+    LocalDigest(CreateUploadRequest request) {
+      this.request = request;
+      this.md5 = request.getUpload().getMD5();
+    }
+
+    String get() throws IOException {
+      if (md5 == null) {
+        java.io.File localFile = request instanceof DefaultCreateUploadRequest
+            ? ((DefaultCreateUploadRequest) request).getLocalFile()
+            : null;
+        md5 = localFile != null
+            ? hashCache.getMD5(localFile)
+            : LocalHashCache.computeMD5(request.getFile());
+      }
+      return md5;
+    }
+  }
+}
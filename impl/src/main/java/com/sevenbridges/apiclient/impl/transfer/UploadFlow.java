@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.upload.UploadPriority;
+
+/**
+ * Scheduling class of an upload, its priority and tenant. Uploads of the same class share one
+ * queue in the {@link PartScheduler}, and classes share places for parts by the weights of their
+ * priorities, so a tenant with many uploads does not take places of a tenant with a few.
+ */
+final class UploadFlow {
+
+  static final UploadFlow DEFAULT = new UploadFlow(UploadPriority.NORMAL, null);
+
+  private final UploadPriority priority;
+  private final String tenant;
+
+  UploadFlow(UploadPriority priority, String tenant) {
+    this.priority = priority != null ? priority : UploadPriority.NORMAL;
+    this.tenant = tenant;
+  }
+
+  UploadPriority getPriority() {
+    return priority;
+  }
+
+  String getTenant() {
+    return tenant;
+  }
+
+  int getWeight() {
+    switch (priority) {
+      case INTERACTIVE:
+        return 16;
+      case BULK:
+        return 1;
+      default:
+        return 4;
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof UploadFlow)) {
+      return false;
+    }
+    UploadFlow that = (UploadFlow) o;
+    return priority == that.priority && (tenant != null ? tenant.equals(that.tenant) : that.tenant == null);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * priority.hashCode() + (tenant != null ? tenant.hashCode() : 0);
+  }
+
+  @Override
+  public String toString() {
+    return tenant != null ? priority + "/" + tenant : priority.toString();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.impl.ds.InternalDataStore;
+import com.sevenbridges.apiclient.resource.ResourceException;
+import com.sevenbridges.apiclient.upload.Upload;
+import com.sevenbridges.apiclient.upload.UploadList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically checks that the uploads managed by the transfer manager still exist on the
+ * Platform, so uploads aborted by some external use are stopped locally too. All active uploads
+ * are checked together, with one listing of the multipart uploads per API client instead of one
+ * request per upload. Upload missing from the listing is confirmed with a direct request before it
+ * is signaled as aborted.
+ */
+class UploadLivenessMonitor {
+
+  private static final Logger log = LoggerFactory.getLogger(UploadLivenessMonitor.class);
+
+  private static final String UPLOADS_HREF = "/upload/multipart";
+  private static final int LIST_PAGE_LIMIT = 100;
+
+  private final ScheduledExecutorService scheduler;
+  private final long intervalMillis;
+  private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+  private ScheduledFuture<?> checkTask = null;
+
+  UploadLivenessMonitor(ScheduledExecutorService scheduler, long intervalMillis) {
+    this.scheduler = scheduler;
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * Starts monitoring the provided upload, the provided callback is invoked once if the upload is
+   * found to be aborted.
+   */
+  synchronized void register(InternalDataStore dataStore, Upload upload, Runnable onAborted) {
+    registrations.put(upload.getUploadId(), new Registration(dataStore, upload.getUploadId(), onAborted));
+    if (checkTask == null) {
+      checkTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          checkUploads();
+        }
+      }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  synchronized void unregister(Upload upload) {
+    registrations.remove(upload.getUploadId());
+    if (registrations.isEmpty() && checkTask != null) {
+      checkTask.cancel(false);
+      checkTask = null;
+    }
+  }
+
+  void checkUploads() {
+    // uploads of different clients are listed separately
+    Map<InternalDataStore, List<Registration>> byDataStore = new IdentityHashMap<>();
+    for (Registration registration : registrations.values()) {
+      List<Registration> group = byDataStore.get(registration.dataStore);
+      if (group == null) {
+        group = new ArrayList<>();
+        byDataStore.put(registration.dataStore, group);
+      }
+      group.add(registration);
+    }
+
+    for (Map.Entry<InternalDataStore, List<Registration>> entry : byDataStore.entrySet()) {
+      Set<String> activeIds;
+      try {
+        activeIds = listActiveUploadIds(entry.getKey());
+      } catch (Exception e) {
+        log.debug("Error while listing active uploads, skipping this liveness check", e);
+        continue;
+      }
+      for (Registration registration : entry.getValue()) {
+        if (!activeIds.contains(registration.uploadId) && isAborted(registration)) {
+          registrations.remove(registration.uploadId);
+          registration.onAborted.run();
+        }
+      }
+    }
+  }
+
+  private Set<String> listActiveUploadIds(InternalDataStore dataStore) {
+    UploadList uploads = dataStore.getResource(UPLOADS_HREF, UploadList.class,
+        Collections.<String, Object>singletonMap("limit", LIST_PAGE_LIMIT));
+    Set<String> ids = new HashSet<>();
+    for (Upload upload : uploads) {
+      ids.add(upload.getUploadId());
+    }
+    return ids;
+  }
+
+  private boolean isAborted(Registration registration) {
+    try {
+      registration.dataStore.getResource(UPLOADS_HREF + "/" + registration.uploadId, Upload.class);
+      return false;
+    } catch (ResourceException e) {
+      return e.getCode() == 404;
+    } catch (Exception e) {
+      log.debug("Error while checking state of upload '{}'", registration.uploadId, e);
+      return false;
+    }
+  }
+
+  private static class Registration {
+
+    private final InternalDataStore dataStore;
+    private final String uploadId;
+    private final Runnable onAborted;
+
+    Registration(InternalDataStore dataStore, String uploadId, Runnable onAborted) {
+      this.dataStore = dataStore;
+      this.uploadId = uploadId;
+      this.onAborted = onAborted;
+    }
+  }
+}
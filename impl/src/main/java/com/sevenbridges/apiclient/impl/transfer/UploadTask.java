@@ -0,0 +1,615 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.impl.ds.InternalDataStore;
+import com.sevenbridges.apiclient.impl.transfer.http.HttpAsyncClientPool;
+import com.sevenbridges.apiclient.impl.transfer.http.protocol.ZeroCopyChannelRangePut;
+import com.sevenbridges.apiclient.impl.transfer.model.UploadPartContext;
+import com.sevenbridges.apiclient.transfer.PausedUploadException;
+import com.sevenbridges.apiclient.transfer.UploadState;
+import com.sevenbridges.apiclient.upload.PartUpload;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking state machine of a single file upload. Part upload completions, fetched part URLs,
+ * reported parts and pause/abort requests are all events that wake the machine up. Calls to the
+ * API server run on the shared API executor and report back with events, so thousands of uploads
+ * can be driven by a handful of threads.
+ */
+class UploadTask extends AbstractUploadTask {
+
+  private static final Logger log = LoggerFactory.getLogger(UploadTask.class);
+
+  // part URLs expiring sooner than this are fetched again before use
+  private static final long PART_URL_EXPIRY_MARGIN_MILLIS = 60 * 1000;
+
+  private final HttpAsyncClientPool clientPool;
+  private final CloseableHttpAsyncClient client;
+  private final InternalDataStore dataStore;
+  private final DefaultUploadContext uploadContext;
+  private final ExecutorService apiExecutor;
+  private final ExecutorService hashExecutor;
+  private final UploadLivenessMonitor livenessMonitor;
+  private final PartScheduler partScheduler;
+  private final int partRetry;
+  private final int maxParallelParts;
+  private final AdaptivePartLimit partLimit;
+  private final AdaptivePartSizer partSizer;
+
+  private final int partsNumber;
+  private final long partSize;
+  // small file uploaded in one part, reported and completed in one go
+  private final boolean singlePart;
+
+  private final BasicFuture<File> fileFuture;
+  private final PartUrlPrefetcher urlPrefetcher;
+  private final PartReporter partReporter;
+
+  // events coming from other threads
+  private final Queue<UploadPartContext> finishedParts = new ConcurrentLinkedQueue<>();
+  private volatile boolean externallyAborted = false;
+  private volatile boolean cancelled = false;
+  private volatile File completedFile = null;
+  private volatile Exception completionError = null;
+
+  // state below is touched only by the thread processing the events
+  private final LinkedList<UploadPartContext> pendingParts;
+  private final Map<Integer, Future<HttpResponse>> responses;
+  private FileChannel fileChannel;
+  private UploadChecksum checksum;
+  // the only part of a single part upload, reported along with the completion
+  private UploadPartContext lastPart;
+  private int remainingParts;
+  private boolean started = false;
+  private boolean pausing = false;
+  private boolean completing = false;
+  private boolean completionSubmitted = false;
+  private boolean done = false;
+
+  UploadTask(HttpAsyncClientPool clientPool,
+             InternalDataStore dataStore,
+             DefaultUploadContext cntx,
+             ExecutorService eventExecutor,
+             ExecutorService apiExecutor,
+             ExecutorService hashExecutor,
+             UploadLivenessMonitor livenessMonitor,
+             PartScheduler partScheduler,
+             int maxPartRetry,
+             int maxParallelParts,
+             int partUrlPrefetchWindow,
+             AdaptivePartSizer partSizer,
+             UploadFlow flow,
+             final FutureCallback<File> callback) {
+    super(eventExecutor, flow);
+    this.clientPool = clientPool;
+    this.client = clientPool.getAsyncClient();
+    this.dataStore = dataStore;
+    this.uploadContext = cntx;
+    this.apiExecutor = apiExecutor;
+    this.hashExecutor = hashExecutor;
+    this.livenessMonitor = livenessMonitor;
+    this.partScheduler = partScheduler;
+    this.partRetry = maxPartRetry;
+    this.maxParallelParts = maxParallelParts;
+    this.partSizer = partSizer;
+    // in adaptive mode parts in flight may grow up to the global limit
+    this.partLimit = partSizer != null
+        ? new AdaptivePartLimit(maxParallelParts, partScheduler.getMaxInFlightParts())
+        : null;
+
+    this.partsNumber = getPartsNumber(cntx);
+    this.partSize = uploadContext.getUpload().getPartSize();
+    Set<Integer> finished = uploadContext.getFinishedParts();
+    this.pendingParts = buildNewParts(partsNumber, finished);
+    this.remainingParts = pendingParts.size();
+    this.singlePart = partsNumber == 1 && remainingParts == 1;
+    this.responses = new HashMap<>(maxParallelParts * 2);
+    List<Integer> newPartNumbers = new ArrayList<>(pendingParts.size());
+    for (UploadPartContext newPart : pendingParts) {
+      newPartNumbers.add(newPart.getPartNumber());
+    }
+
+    Runnable wakeUp = new Runnable() {
+      @Override
+      public void run() {
+        wakeUp();
+      }
+    };
+    this.urlPrefetcher = new PartUrlPrefetcher(uploadContext.getUpload(), apiExecutor, wakeUp, newPartNumbers,
+        Math.max(partUrlPrefetchWindow, maxParallelParts), PART_URL_EXPIRY_MARGIN_MILLIS);
+    this.partReporter = new PartReporter(uploadContext.getUpload(), uploadContext.getCheckpoint(), apiExecutor, wakeUp, maxParallelParts);
+    this.fileFuture = new BasicFuture<>(new FutureCallback<File>() {
+      @Override
+      public void completed(File result) {
+        if (callback != null) {
+          callback.completed(result);
+        }
+        uploadContext.getCompletionListeners().completed(result);
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        if (callback != null) {
+          callback.failed(ex);
+        }
+        uploadContext.getCompletionListeners().failed(ex);
+      }
+
+      @Override
+      public void cancelled() {
+        // upload aborted by the user
+        cancelled = true;
+        wakeUp();
+        if (callback != null) {
+          callback.cancelled();
+        }
+        uploadContext.getCompletionListeners().cancelled();
+      }
+    });
+  }
+
+  Future<File> getFileFuture() {
+    return fileFuture;
+  }
+
+  @Override
+  void processEvents() {
+    if (done) {
+      return;
+    }
+    try {
+      if (!started) {
+        started = true;
+        startUpload();
+      }
+
+      // process finished parts
+      UploadPartContext finishedPart;
+      while ((finishedPart = finishedParts.poll()) != null) {
+        processFinishedPart(finishedPart);
+      }
+
+      // liveness monitor found that the upload does not exist anymore
+      if (externallyAborted) {
+        throw new RuntimeException("Upload not found, probably aborted by some external use");
+      }
+      // upload is aborted by the user
+      if (cancelled) {
+        throw new RuntimeException("Upload is aborted");
+      }
+      // fail fast if some finished part could not be reported
+      partReporter.checkError();
+      if (checksum != null) {
+        checksum.checkError();
+      }
+
+      // upload that is being completed can not be paused anymore
+      if (!pausing && !completing && UploadState.PAUSING.equals(uploadContext.getState())) {
+        beginPause();
+      }
+      if (pausing) {
+        // paused upload must know about all finished parts on the server
+        if (partReporter.isIdle()) {
+          finishPause();
+        }
+        return;
+      }
+
+      // submit new and failed parts while there is room for them
+      submitPendingParts();
+
+      // all parts are uploaded and reported, finalize upload on API server once the MD5 is folded
+      if (remainingParts == 0 && partReporter.isIdle()) {
+        if (completedFile != null) {
+          finishUpload();
+        } else if (completionError != null) {
+          throw completionError;
+        } else if (!completionSubmitted && (checksum == null || checksum.isDone())) {
+          completing = true;
+          completionSubmitted = true;
+          completeUpload(lastPart);
+        }
+      }
+    } catch (Exception e) {
+      failUpload(e);
+    }
+  }
+
+  private void startUpload() throws IOException {
+    client.start();
+    fileChannel = uploadContext.getRandomAccessFile().getChannel();
+    if (hashExecutor != null && uploadContext.getUpload().getMD5() == null) {
+      // MD5 not provided by the caller, compute it while parts are uploaded
+      checksum = new UploadChecksum(fileChannel, uploadContext.getUploadSize(), partSize, partsNumber, hashExecutor,
+          new Runnable() {
+            @Override
+            public void run() {
+              wakeUp();
+            }
+          });
+      for (Integer partNumber : uploadContext.getFinishedParts()) {
+        checksum.partFinished(partNumber);
+      }
+    }
+    if (!singlePart) {
+      // single part upload lives too short for the liveness check to matter
+      livenessMonitor.register(dataStore, uploadContext.getUpload(), new Runnable() {
+        @Override
+        public void run() {
+          externallyAborted = true;
+          wakeUp();
+        }
+      });
+    }
+    uploadContext.setState(UploadState.RUNNING);
+    uploadContext.getListener().uploadStarted();
+
+    // parts uploaded before the crash, but never reported to the API server
+    reportCheckpointedParts();
+    // start fetching part upload URLs ahead of the part uploads
+    urlPrefetcher.start();
+  }
+
+  private void processFinishedPart(UploadPartContext partContext) {
+    if (pausing && partContext.isFailed()) {
+      // part interrupted by pause, it will be uploaded again on resume
+      return;
+    }
+    if (partContext.isFailedBeyondRetry()) { // this part failed with no more retries
+      // report failed to listener
+      uploadContext.getListener().partUploadFailed(partContext.getPartNumber(), partContext.getRetryCnt(), partContext.getEx());
+      throw new RuntimeException("Upload failed, part " + partContext.getPartNumber() + " failed beyond retry ", partContext.getEx());
+
+    } else if (partContext.isFailed()) { // this part failed, but can be retried
+      // report to listener
+      uploadContext.getListener().partUploadFailed(partContext.getPartNumber(), partContext.getRetryCnt(), partContext.getEx());
+      // set bytesAdder cell for this part to 0
+      uploadContext.getBytesTransferredAdder().set(partContext.getPartNumber(), 0);
+      finishPartUpload(partContext.getPartNumber());
+      // retry this part first, with a fresh URL
+      urlPrefetcher.refetch(partContext.getPartNumber());
+      pendingParts.addFirst(partContext);
+
+    } else if (partContext.isSucceeded()) { // this part succeeded
+      if (checksum != null) {
+        checksum.partFinished(partContext.getPartNumber());
+      }
+      if (singlePart) {
+        // the only part is reported right before the upload is completed
+        completing = true;
+        lastPart = partContext;
+      } else {
+        // queue the part for reporting to API server
+        partReporter.report(partContext);
+      }
+      remainingParts--;
+      // report to listener
+      uploadContext.getListener().partUploadFinished(partContext.getPartNumber(), getCurrentPartSize(partContext.getPartNumber()));
+      finishPartUpload(partContext.getPartNumber());
+    }
+  }
+
+  private void finishPartUpload(int partNumber) {
+    // part upload gives its permit back, unless it was already cancelled
+    if (responses.remove(partNumber) != null) {
+      partScheduler.release(1);
+    }
+  }
+
+  private void submitPendingParts() {
+    int parallelPartsLimit = partLimit != null ? partLimit.getLimit() : maxParallelParts;
+    while (responses.size() < parallelPartsLimit && !pendingParts.isEmpty()) {
+      // take a place among the parts in flight of all uploads
+      if (!partScheduler.tryAcquire(this)) {
+        // scheduler will wake us up when it is our turn
+        return;
+      }
+      UploadPartContext partContext = pendingParts.getFirst();
+      // get part upload URL, usually already prefetched from API server
+      PartUpload partUpload;
+      try {
+        partUpload = urlPrefetcher.poll(partContext.getPartNumber());
+      } catch (RuntimeException e) {
+        partScheduler.release(1);
+        throw e;
+      }
+      if (partUpload == null) {
+        // not fetched yet, prefetcher will wake us up
+        partScheduler.release(1);
+        break;
+      }
+      pendingParts.removeFirst();
+      // new parts get all retries, failed ones one retry less than the last time
+      int retryCnt = partContext.isFailed() ? partContext.getRetryCnt() - 1 : partRetry;
+      Future<HttpResponse> execute = submitPartUpload(partUpload.getUrl(), partContext.getPartNumber(), retryCnt);
+      // add future to the responses map, so it can be cancelled if upload fail
+      responses.put(partContext.getPartNumber(), execute);
+      // notify listener that new upload part started
+      uploadContext.getListener().partUploadStarted(partContext.getPartNumber());
+    }
+    // do not hold the turn of other uploads while not asking for a permit
+    partScheduler.remove(this);
+  }
+
+  private void beginPause() {
+    pausing = true;
+    uploadContext.setState(UploadState.PAUSED);
+    cancelResponses();
+    urlPrefetcher.cancel();
+  }
+
+  private void finishPause() {
+    done = true;
+    if (uploadContext.getCheckpoint() != null) {
+      uploadContext.getCheckpoint().force();
+    }
+    closeResources();
+    fileFuture.failed(new PausedUploadException("Upload is paused, this upload is aborted locally, but can be resumed with the same ID - " + uploadContext.getUploadId()));
+  }
+
+  private void completeUpload(final UploadPartContext lastPart) {
+    final String md5 = checksum != null ? checksum.getMD5() : null;
+    apiExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (lastPart != null) {
+            uploadContext.getUpload().reportUploadedPart(lastPart.getPartNumber(), lastPart.getUploadResponse());
+          }
+          completedFile = md5 != null
+              ? uploadContext.getUpload().completeUpload(md5)
+              : uploadContext.getUpload().completeUpload();
+        } catch (Exception e) {
+          completionError = e;
+        }
+        wakeUp();
+      }
+    });
+  }
+
+  private void finishUpload() {
+    done = true;
+    // upload is complete, checkpoint is not needed anymore
+    deleteCheckpoint();
+    closeResources();
+    // set state to finished
+    uploadContext.setState(UploadState.FINISHED);
+    // notify listener
+    uploadContext.getListener().uploadFinished();
+    fileFuture.completed(completedFile);
+  }
+
+  private void failUpload(final Exception cause) {
+    done = true;
+    // if paused, just stop the upload locally
+    if (pausing) {
+      closeResources();
+      fileFuture.failed(cause);
+      return;
+    }
+    uploadContext.setState(UploadState.ABORTED);
+    // unrecoverable exception, abort upload
+    uploadContext.getListener().uploadFailed(cause);
+    cancelResponses();
+    urlPrefetcher.cancel();
+    partReporter.cancel();
+    apiExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (!externallyAborted) {
+            uploadContext.getUpload().abortUpload();
+          }
+          deleteCheckpoint();
+          fileFuture.failed(new RuntimeException("Upload is aborted due to errors in execution", cause));
+        } catch (Exception e) {
+          fileFuture.failed(new RuntimeException("Upload failed BUT aborting upload failed too due to exception - '"
+              + e.getMessage() + "'. Please abort this upload with id '"
+              + uploadContext.getUploadId() + "' manually", cause));
+        } finally {
+          closeResources();
+        }
+      }
+    });
+  }
+
+  private void cancelResponses() {
+    for (Future<HttpResponse> response : responses.values()) {
+      response.cancel(true);
+    }
+    partScheduler.release(responses.size());
+    responses.clear();
+  }
+
+  private void closeResources() {
+    partScheduler.remove(this);
+    livenessMonitor.unregister(uploadContext.getUpload());
+    if (checksum != null) {
+      checksum.cancel();
+    }
+    try {
+      if (fileChannel != null && fileChannel.isOpen()) {
+        fileChannel.close();
+      }
+      uploadContext.getRandomAccessFile().close();
+      if (uploadContext.getCheckpoint() != null) {
+        uploadContext.getCheckpoint().close();
+      }
+    } catch (IOException e) {
+      log.debug("Error while closing upload resources", e);
+    }
+  }
+
+  private long getCurrentPartSize(int partNumber) {
+    return partNumber == partsNumber
+        ? uploadContext.getUploadSize() - (partNumber - 1) * partSize
+        : partSize;
+  }
+
+  private Future<HttpResponse> submitPartUpload(String uploadUrl, int partNumber, int retryCnt) {
+    long fileOffset = (partNumber - 1) * partSize;
+    long currentPartSize = getCurrentPartSize(partNumber);
+
+    final ZeroCopyChannelRangePut httpPut = new ZeroCopyChannelRangePut(
+        uploadUrl,
+        fileChannel,
+        fileOffset,
+        currentPartSize,
+        null,
+        uploadContext.getBytesTransferredAdder(),
+        partNumber,
+        uploadContext.getThrottle());
+    BasicAsyncResponseConsumer consumer = new BasicAsyncResponseConsumer();
+    // open connections for the parallel parts along with the first one
+    clientPool.prewarm(uploadUrl);
+
+    return client.execute(httpPut, consumer, new UploadTask.PartUploadCallback(httpPut, uploadUrl, partNumber, retryCnt));
+  }
+
+  private void reportCheckpointedParts() {
+    UploadCheckpoint checkpoint = uploadContext.getCheckpoint();
+    if (checkpoint == null) {
+      return;
+    }
+    Set<Integer> unreported = checkpoint.getUnreportedParts();
+    if (unreported.isEmpty()) {
+      return;
+    }
+    Map<Integer, String> recordedParts = checkpoint.getRecordedParts();
+    for (Integer partNumber : unreported) {
+      partReporter.report(UploadPartContext.buildSucceedContext(partNumber, recordedParts.get(partNumber), null));
+    }
+  }
+
+  private void deleteCheckpoint() {
+    if (uploadContext.getCheckpoint() != null) {
+      try {
+        uploadContext.getCheckpoint().delete();
+      } catch (IOException e) {
+        // stale checkpoint is ignored when a new upload is started
+      }
+    }
+  }
+
+  private static LinkedList<UploadPartContext> buildNewParts(int partsNumber, Set<Integer> finishedPartsSet) {
+    LinkedList<UploadPartContext> newParts = new LinkedList<>();
+    for (int i = 1; i <= partsNumber; i++) {
+      if (!finishedPartsSet.contains(i)) {
+        newParts.add(UploadPartContext.buildNewContext(i));
+      }
+    }
+    return newParts;
+  }
+
+  private int getPartsNumber(DefaultUploadContext context) {
+    return context.getUploadSize() % context.getUpload().getPartSize() == 0
+        ? (int) (context.getUploadSize() / context.getUpload().getPartSize())
+        : (int) (context.getUploadSize() / context.getUpload().getPartSize() + 1);
+  }
+
+  private class PartUploadCallback implements FutureCallback<HttpResponse> {
+
+    private final ZeroCopyChannelRangePut httpPut;
+    private final int partNumber;
+    private final String uploadUrl;
+    private final int retryCnt;
+
+    PartUploadCallback(ZeroCopyChannelRangePut httpPut, String uploadUrl, int partNumber, int retryCnt) {
+      this.httpPut = httpPut;
+      this.partNumber = partNumber;
+      this.uploadUrl = uploadUrl;
+      this.retryCnt = retryCnt;
+    }
+
+    @Override
+    public void completed(HttpResponse result) {
+      if (checkUploadCompleted(result)) {
+        recordSuccess();
+        finished(getSucceededPartContext(result));
+      } else {
+        recordFailure();
+        finished(UploadPartContext
+            .buildFailedContext(partNumber, uploadUrl, new RuntimeException("Malformed response from storage provider"), retryCnt));
+      }
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      recordFailure();
+      finished(UploadPartContext.buildFailedContext(partNumber, uploadUrl, ex, retryCnt));
+    }
+
+    @Override
+    public void cancelled() {
+      // do nothing, everything is cancelled
+    }
+
+    private void recordSuccess() {
+      long transferNanos = httpPut.getContentTransferNanos();
+      if (partLimit == null || transferNanos < 0) {
+        return;
+      }
+      long partNanos = transferNanos + httpPut.getResponseLatencyNanos();
+      partLimit.onSuccess(httpPut.getCount(), partNanos);
+      partSizer.onPartUploaded(httpPut.getCount(), partNanos);
+    }
+
+    private void recordFailure() {
+      if (partLimit != null) {
+        partLimit.onFailure();
+      }
+    }
+
+    private void finished(UploadPartContext partContext) {
+      UploadTask.this.finishedParts.offer(partContext);
+      UploadTask.this.wakeUp();
+    }
+
+    private boolean checkUploadCompleted(HttpResponse result) {
+      int statusCode = result.getStatusLine().getStatusCode();
+      return statusCode == HttpStatus.SC_OK && result.getFirstHeader("ETag") != null;
+    }
+
+    private UploadPartContext getSucceededPartContext(HttpResponse result) {
+      final String eTag = result.getFirstHeader("ETag").getValue().replaceAll("\"", "");
+      return UploadPartContext.buildSucceedContext(partNumber, eTag, uploadUrl);
+    }
+
+  }
+}
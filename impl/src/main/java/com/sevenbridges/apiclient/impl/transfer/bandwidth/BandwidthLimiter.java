@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.bandwidth;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bandwidth limit shared by all transfers of one transfer manager, and the source of the throttles
+ * of single transfers. Throttled connections are resumed from a dedicated timer thread, started
+ * only when some limit is hit for the first time.
+ */
+public class BandwidthLimiter {
+
+  private final TokenBucket globalBucket;
+  private volatile long defaultTransferLimit;
+  private ScheduledExecutorService timer = null;
+  private boolean shutdown = false;
+
+  /**
+   * @param globalLimit          bytes per second of all transfers together, non positive for no
+   *                             limit
+   * @param defaultTransferLimit bytes per second of one transfer, non positive for no limit
+   */
+  public BandwidthLimiter(long globalLimit, long defaultTransferLimit) {
+    this.globalBucket = new TokenBucket(globalLimit);
+    this.defaultTransferLimit = defaultTransferLimit;
+  }
+
+  public long getGlobalLimit() {
+    return globalBucket.getRate();
+  }
+
+  /**
+   * Changes the limit of all transfers together, running transfers included.
+   *
+   * @param bytesPerSecond new limit, non positive values remove the limit
+   */
+  public void setGlobalLimit(long bytesPerSecond) {
+    globalBucket.setRate(bytesPerSecond);
+  }
+
+  public long getDefaultTransferLimit() {
+    return defaultTransferLimit;
+  }
+
+  /**
+   * Changes the limit new transfers start with. Running transfers keep their limits.
+   *
+   * @param bytesPerSecond new limit, non positive values remove the limit
+   */
+  public void setDefaultTransferLimit(long bytesPerSecond) {
+    this.defaultTransferLimit = bytesPerSecond;
+  }
+
+  /**
+   * Creates the throttle of a new transfer, limited by the default transfer limit.
+   */
+  public BandwidthThrottle newThrottle() {
+    return new BandwidthThrottle(new TokenBucket(defaultTransferLimit), this);
+  }
+
+  TokenBucket getGlobalBucket() {
+    return globalBucket;
+  }
+
+  void schedule(Runnable resume, long delayNanos) {
+    ScheduledExecutorService scheduler;
+    synchronized (this) {
+      if (shutdown) {
+        return;
+      }
+      if (timer == null) {
+        timer = Executors.newSingleThreadScheduledExecutor();
+      }
+      scheduler = timer;
+    }
+    try {
+      scheduler.schedule(resume, delayNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      // shut down in the meantime, connections are closed anyway
+    }
+  }
+
+  public synchronized void shutdown() {
+    shutdown = true;
+    if (timer != null) {
+      timer.shutdownNow();
+      timer = null;
+    }
+  }
+}
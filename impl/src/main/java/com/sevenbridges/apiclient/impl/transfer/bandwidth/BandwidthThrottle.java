@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.bandwidth;
+
+import org.apache.http.nio.IOControl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bandwidth throttle of one transfer, consulted by its request producers and response consumers
+ * before they move content. Bytes are taken from the bucket of the transfer and from the global
+ * bucket, without locks. When no bytes are available, the connection is suspended instead of
+ * blocking the IO thread, and resumed when the buckets refill.
+ */
+public class BandwidthThrottle {
+
+  // smallest write worth waking the connection for
+  private static final long MIN_GRANT = 16 * 1024;
+  private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final TokenBucket transferBucket;
+  private final BandwidthLimiter limiter;
+
+  BandwidthThrottle(TokenBucket transferBucket, BandwidthLimiter limiter) {
+    this.transferBucket = transferBucket;
+    this.limiter = limiter;
+  }
+
+  public long getLimit() {
+    return transferBucket.getRate();
+  }
+
+  /**
+   * Changes the limit of this transfer, effective immediately.
+   *
+   * @param bytesPerSecond new limit, non positive values remove the limit
+   */
+  public void setLimit(long bytesPerSecond) {
+    transferBucket.setRate(bytesPerSecond);
+  }
+
+  /**
+   * Takes up to the wanted number of bytes from the transfer and global limits.
+   *
+   * @param wanted number of bytes to move
+   * @return number of bytes that may be moved now, possibly 0
+   */
+  public long acquire(long wanted) {
+    TokenBucket globalBucket = limiter.getGlobalBucket();
+    if (transferBucket.isUnlimited() && globalBucket.isUnlimited()) {
+      return wanted;
+    }
+    long granted = transferBucket.tryAcquire(wanted, MIN_GRANT);
+    if (granted <= 0) {
+      return 0;
+    }
+    long globallyGranted = globalBucket.tryAcquire(granted, MIN_GRANT);
+    if (globallyGranted < granted) {
+      transferBucket.refund(granted - globallyGranted);
+    }
+    return globallyGranted;
+  }
+
+  /**
+   * Returns acquired bytes that were not moved, because the connection did not accept them.
+   *
+   * @param bytes number of bytes not moved
+   */
+  public void refund(long bytes) {
+    if (bytes > 0) {
+      transferBucket.refund(bytes);
+      limiter.getGlobalBucket().refund(bytes);
+    }
+  }
+
+  /**
+   * Suspends the output of the connection until the limits allow more bytes to be sent.
+   *
+   * @param ioctrl control of the connection
+   */
+  public void suspendOutput(final IOControl ioctrl) {
+    if (ioctrl == null) {
+      return;
+    }
+    ioctrl.suspendOutput();
+    limiter.schedule(new Runnable() {
+      @Override
+      public void run() {
+        ioctrl.requestOutput();
+      }
+    }, nanosUntilAvailable());
+  }
+
+  /**
+   * Suspends the input of the connection until the limits allow more bytes to be received.
+   *
+   * @param ioctrl control of the connection
+   */
+  public void suspendInput(final IOControl ioctrl) {
+    if (ioctrl == null) {
+      return;
+    }
+    ioctrl.suspendInput();
+    limiter.schedule(new Runnable() {
+      @Override
+      public void run() {
+        ioctrl.requestInput();
+      }
+    }, nanosUntilAvailable());
+  }
+
+  private long nanosUntilAvailable() {
+    long delay = Math.max(transferBucket.nanosUntilAvailable(MIN_GRANT),
+        limiter.getGlobalBucket().nanosUntilAvailable(MIN_GRANT));
+    return Math.max(MIN_DELAY_NANOS, delay);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.bandwidth;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket of bytes, refilled at a rate that can be changed at any time. The bucket is
+ * kept as the theoretical time at which all granted bytes are sent, so acquiring bytes is a single
+ * compare-and-set, and a full bucket holds bytes for at most 100 milliseconds of the rate.
+ */
+public class TokenBucket {
+
+  private static final long BURST_NANOS = 100 * 1000 * 1000;
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  // bytes per second, non positive means unlimited
+  private volatile long rate;
+  // time by which all granted bytes are sent at the current rate
+  private final AtomicLong sentUntilNanos;
+
+  public TokenBucket(long rate) {
+    this.rate = rate;
+    this.sentUntilNanos = new AtomicLong(nanoTime() - BURST_NANOS);
+  }
+
+  public long getRate() {
+    return rate;
+  }
+
+  /**
+   * Changes the rate. Bytes granted before the change are accounted for with the new rate.
+   *
+   * @param rate bytes per second, non positive values remove the limit
+   */
+  public void setRate(long rate) {
+    this.rate = rate;
+  }
+
+  public boolean isUnlimited() {
+    return rate <= 0;
+  }
+
+  /**
+   * Takes up to the wanted number of bytes from the bucket, but not less than the minimum, so the
+   * bytes are not sent in tiny pieces. Minimum is lowered to the bucket capacity at low rates.
+   *
+   * @param wanted  number of bytes to send
+   * @param minimum smallest number of bytes worth granting
+   * @return number of bytes granted, 0 if less than minimum is available
+   */
+  public long tryAcquire(long wanted, long minimum) {
+    long currentRate = rate;
+    if (currentRate <= 0 || wanted <= 0) {
+      return wanted;
+    }
+    long floor = Math.min(Math.min(wanted, minimum), capacity(currentRate));
+    while (true) {
+      long now = nanoTime();
+      long sentUntil = sentUntilNanos.get();
+      long base = Math.max(sentUntil, now - BURST_NANOS);
+      long available = (long) ((now - base) * (currentRate / NANOS_PER_SECOND));
+      long granted = Math.min(wanted, available);
+      if (granted < floor) {
+        return 0;
+      }
+      if (sentUntilNanos.compareAndSet(sentUntil, base + toNanos(granted, currentRate))) {
+        return granted;
+      }
+    }
+  }
+
+  /**
+   * Returns granted bytes that were not sent.
+   *
+   * @param bytes number of bytes not sent
+   */
+  public void refund(long bytes) {
+    long currentRate = rate;
+    if (currentRate > 0 && bytes > 0) {
+      sentUntilNanos.addAndGet(-toNanos(bytes, currentRate));
+    }
+  }
+
+  /**
+   * Time until the minimum number of bytes can be acquired.
+   *
+   * @param minimum smallest number of bytes worth granting
+   * @return nanoseconds to wait, 0 if the bytes are available now
+   */
+  public long nanosUntilAvailable(long minimum) {
+    long currentRate = rate;
+    if (currentRate <= 0) {
+      return 0;
+    }
+    long now = nanoTime();
+    long base = Math.max(sentUntilNanos.get(), now - BURST_NANOS);
+    long needed = toNanos(Math.min(minimum, capacity(currentRate)), currentRate);
+    return Math.max(0, base + needed - now);
+  }
+
+  /**
+   * Current time of the bucket, overridden by tests to drive the bucket with their own clock.
+   */
+  long nanoTime() {
+    return System.nanoTime();
+  }
+
+  private static long capacity(long rate) {
+    return Math.max(1, (long) (BURST_NANOS * (rate / NANOS_PER_SECOND)));
+  }
+
+  private static long toNanos(long bytes, long rate) {
+    return (long) (bytes * (NANOS_PER_SECOND / rate));
+  }
+}
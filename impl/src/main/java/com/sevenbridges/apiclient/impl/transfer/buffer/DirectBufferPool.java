@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of reusable direct byte buffers of the same size. Buffers are allocated lazily, at
+ * most the maximum number of them, so the memory used by the pool never exceeds the buffer size
+ * multiplied by the maximum number of buffers. The pool never blocks, if all buffers are in use
+ * {@link #acquire()} returns null.
+ */
+public class DirectBufferPool {
+
+  private final int bufferSize;
+  private final int maxBuffers;
+  private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger allocatedBuffers = new AtomicInteger();
+
+  public DirectBufferPool(int bufferSize, int maxBuffers) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be a positive number");
+    }
+    if (maxBuffers <= 0) {
+      throw new IllegalArgumentException("Maximum number of buffers must be a positive number");
+    }
+    this.bufferSize = bufferSize;
+    this.maxBuffers = maxBuffers;
+  }
+
+  /**
+   * Takes a cleared buffer from the pool, allocating a new one if there is no free buffer and the
+   * limit is not reached.
+   *
+   * @return cleared buffer, or null if all buffers are in use
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = freeBuffers.poll();
+    if (buffer != null) {
+      buffer.clear();
+      return buffer;
+    }
+    while (true) {
+      int allocated = allocatedBuffers.get();
+      if (allocated >= maxBuffers) {
+        // some buffer may have been released in the meantime
+        buffer = freeBuffers.poll();
+        if (buffer != null) {
+          buffer.clear();
+        }
+        return buffer;
+      }
+      if (allocatedBuffers.compareAndSet(allocated, allocated + 1)) {
+        return ByteBuffer.allocateDirect(bufferSize);
+      }
+    }
+  }
+
+  /**
+   * Returns the buffer to the pool, so it can be reused.
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer != null) {
+      freeBuffers.offer(buffer);
+    }
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public int getMaxBuffers() {
+    return maxBuffers;
+  }
+}
@@ -15,87 +15,234 @@
  */
 package com.sevenbridges.apiclient.impl.transfer.http;
 
+import org.apache.http.HttpHost;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.nio.reactor.ConnectingIOReactor;
 import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Async HTTP client used by one transfer manager, together with its pool of connections to the
+ * storage. Each client of the API owns its own pool, so clients with different workloads do not
+ * share IO threads and connection limits.
+ */
 public final class HttpAsyncClientPool {
   private static final Logger log = LoggerFactory.getLogger(HttpAsyncClientPool.class);
 
-  /** The number of CPUs. */
-  private static final int AVAIL_PROCS = Runtime.getRuntime().availableProcessors();
-  // Make this configurable in later versions
-  private static final int DEFAULT_IO_THREAD_COUNT = AVAIL_PROCS;
-  private static final int DEFAULT_CONNECTION_TIMEOUT = 10000;
-  private static final int DEFAULT_SO_TIMEOUT = 10000;
-  private static final int DEFAULT_CONN_POOL_MAX_TOTAL = 200;
-  private static final int DEFAULT_CONN_POOL_MAX_PER_ROUTE = 50;
+  // connections idle longer than this are closed by the evictor
+  private static final long IDLE_CONNECTION_TIMEOUT_MILLIS = 60 * 1000;
 
-  public static CloseableHttpAsyncClient getClient() {
-    // The thread safe client is held by the singleton.
-    return Singleton.INSTANCE.get();
+  private final CloseableHttpAsyncClient client;
+  private final PoolingNHttpClientConnectionManager connManager;
+  private final IdleConnectionEvictorThread monitor;
+  private final int connectTimeout;
+  private final int prewarmConnections;
+  // time each route was last pre-warmed
+  private final ConcurrentMap<HttpRoute, Long> prewarmedRoutes = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the client and its connection pool. Client IO threads are started by the first
+   * request.
+   *
+   * @param ioThreadCount      number of IO reactor threads
+   * @param connectTimeout     connect timeout in milliseconds
+   * @param soTimeout          socket timeout in milliseconds
+   * @param sndBufSize         socket send buffer size in bytes, non positive leaves it to the
+   *                           system
+   * @param rcvBufSize         socket receive buffer size in bytes, non positive leaves it to the
+   *                           system
+   * @param maxTotal           maximum number of connections in the pool
+   * @param maxPerRoute        maximum number of connections to one route
+   * @param prewarmConnections number of connections opened ahead to a route used for the first
+   *                           time, zero disables pre-warming
+   */
+  public HttpAsyncClientPool(int ioThreadCount, int connectTimeout, int soTimeout, int sndBufSize, int rcvBufSize,
+                             int maxTotal, int maxPerRoute, int prewarmConnections) {
+    this.connectTimeout = connectTimeout;
+    this.prewarmConnections = Math.min(prewarmConnections, maxPerRoute);
+
+    // Create I/O reactor configuration
+    IOReactorConfig.Builder reactorConfig = IOReactorConfig.custom()
+        .setIoThreadCount(ioThreadCount)
+        .setConnectTimeout(connectTimeout)
+        .setSoTimeout(soTimeout);
+    if (sndBufSize > 0) {
+      reactorConfig.setSndBufSize(sndBufSize);
+    }
+    if (rcvBufSize > 0) {
+      reactorConfig.setRcvBufSize(rcvBufSize);
+    }
+    ConnectingIOReactor ioReactor;
+    try {
+      ioReactor = new DefaultConnectingIOReactor(reactorConfig.build());
+    } catch (IOReactorException e) {
+      log.error("Error while initializing HttpAsyncClientPool.");
+      throw new IllegalStateException("Could not create IO reactor of the async client", e);
+    }
+
+    connManager = new PoolingNHttpClientConnectionManager(ioReactor);
+    connManager.setMaxTotal(maxTotal);
+    connManager.setDefaultMaxPerRoute(maxPerRoute);
+
+    // Build the client.
+    client = HttpAsyncClientBuilder.create()
+        .setConnectionManager(connManager)
+        .build();
+
+    // Start up an eviction
+    monitor = new IdleConnectionEvictorThread(connManager);
+    // Don't stop quitting.
+    monitor.setDaemon(true);
+    monitor.start();
   }
 
-  public static void shutdown() throws InterruptedException {
-    // Shutdown the monitor.
-    Singleton.INSTANCE.monitor.shutdown();
+  public CloseableHttpAsyncClient getAsyncClient() {
+    return client;
   }
 
-  // Single-element enum to implement Singleton.
-  private enum Singleton {
-    INSTANCE;
-    // The thread-safe client.
-    private final CloseableHttpAsyncClient threadSafeAsyncClient;
-    // The pool monitor.
-    private final IdleConnectionEvictorThread monitor;
-
-    Singleton() throws ExceptionInInitializerError {
-      // Create I/O reactor configuration
-      ConnectingIOReactor ioReactor;
-      try {
-        ioReactor = new DefaultConnectingIOReactor(
-            IOReactorConfig.custom()
-                .setIoThreadCount(DEFAULT_IO_THREAD_COUNT)
-                .setConnectTimeout(DEFAULT_CONNECTION_TIMEOUT)
-                .setSoTimeout(DEFAULT_SO_TIMEOUT)
-                .build());
-      } catch (IOReactorException e) {
-        log.error("Error while initializing HttpAsyncClientPool.");
-        throw new ExceptionInInitializerError(e);
+  /**
+   * Returns the client of a pool shared by the callers of this method, created on the first call
+   * with the default transport settings.
+   *
+   * @deprecated each transfer manager owns its pool now, this pool is not used by any client of the
+   * API. Will be removed in the next release.
+   */
+  @Deprecated
+  public static CloseableHttpAsyncClient getClient() {
+    return SharedPool.INSTANCE.pool.getAsyncClient();
+  }
+
+  /**
+   * Opens connections to the route of the given URL ahead of the requests, so the requests do not
+   * wait for TCP and TLS handshakes. Routes are pre-warmed once, and again only after their idle
+   * connections could have been evicted.
+   *
+   * @param url URL about to be requested
+   */
+  public void prewarm(String url) {
+    if (prewarmConnections <= 0) {
+      return;
+    }
+    final HttpRoute route;
+    try {
+      HttpHost target = URIUtils.extractHost(URI.create(url));
+      if (target == null) {
+        return;
       }
+      if (target.getPort() <= 0) {
+        target = new HttpHost(target.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(target), target.getSchemeName());
+      }
+      route = new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+    } catch (Exception e) {
+      log.debug("Not pre-warming connections for malformed URL", e);
+      return;
+    }
 
-      PoolingNHttpClientConnectionManager mngr = new PoolingNHttpClientConnectionManager(ioReactor);
-      // Increase max total connection to 200
-      mngr.setMaxTotal(DEFAULT_CONN_POOL_MAX_TOTAL);
-      // Increase default max connection per route to 50
-      mngr.setDefaultMaxPerRoute(DEFAULT_CONN_POOL_MAX_PER_ROUTE);
-
-      // Build the client.
-      threadSafeAsyncClient = HttpAsyncClientBuilder.create()
-          .setConnectionManager(mngr)
-          .build();
-
-      // Start up an eviction
-      monitor = new IdleConnectionEvictorThread(mngr);
-      // Don't stop quitting.
-      monitor.setDaemon(true);
-      monitor.start();
+    long now = System.currentTimeMillis();
+    Long lastPrewarm = prewarmedRoutes.get(route);
+    if (lastPrewarm != null && now - lastPrewarm < IDLE_CONNECTION_TIMEOUT_MILLIS) {
+      return;
     }
+    boolean claimed = lastPrewarm == null
+        ? prewarmedRoutes.putIfAbsent(route, now) == null
+        : prewarmedRoutes.replace(route, lastPrewarm, now);
+    if (!claimed) {
+      // other thread is pre-warming the same route
+      return;
+    }
+
+    client.start();
+    log.debug("Pre-warming {} connections to {}", prewarmConnections, route);
+    final HttpContext context = new BasicHttpContext();
+    for (int i = 0; i < prewarmConnections; i++) {
+      // all connections are leased before any is released, so the pool opens new ones
+      connManager.requestConnection(route, null, connectTimeout, connectTimeout, TimeUnit.MILLISECONDS,
+          new FutureCallback<NHttpClientConnection>() {
+            @Override
+            public void completed(NHttpClientConnection conn) {
+              try {
+                if (!connManager.isRouteComplete(conn)) {
+                  // starts the TLS handshake on secure routes
+                  connManager.startRoute(conn, route, context);
+                  connManager.routeComplete(conn, route, context);
+                }
+                connManager.releaseConnection(conn, null, IDLE_CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+              } catch (IOException e) {
+                log.debug("Error while pre-warming connection to {}", route, e);
+                connManager.releaseConnection(conn, null, 0, TimeUnit.MILLISECONDS);
+              }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+              log.debug("Error while pre-warming connection to {}", route, ex);
+            }
+
+            @Override
+            public void cancelled() {
+              // pool is shut down
+            }
+          });
+    }
+  }
+
+  /**
+   * Shuts down the shared pool of {@link #getClient()}.
+   *
+   * @deprecated each transfer manager owns its pool now, and closes it when its service is
+   * stopped. Will be removed in the next release.
+   */
+  @Deprecated
+  public static void shutdown() throws InterruptedException {
+    SharedPool.INSTANCE.pool.close();
+  }
 
-    public CloseableHttpAsyncClient get() {
-      return threadSafeAsyncClient;
+  /**
+   * Stops the connection evictor, closes the client and all pooled connections.
+   */
+  public void close() throws InterruptedException {
+    monitor.shutdown();
+    try {
+      // Close the pool - Added
+      client.close();
+    } catch (IOException e) {
+      log.error("Error closing client");
     }
+    try {
+      // Close the connection manager.
+      connManager.shutdown();
+    } catch (IOException e) {
+      log.error("Error shutting down connection manager");
+    }
+    log.trace("Client pool shut down");
+  }
+
+  // Single-element enum holding the shared pool of the deprecated static methods.
+  private enum SharedPool {
+    INSTANCE;
+
+    private final HttpAsyncClientPool pool = new HttpAsyncClientPool(
+        Runtime.getRuntime().availableProcessors(), 10000, 10000, 0, 0, 200, 50, 0);
   }
 
   // Watches for stale connections and evicts them.
@@ -122,7 +269,7 @@ public final class HttpAsyncClientPool {
           // Close expired connections
           connMgr.closeExpiredConnections();
           // Optionally, close connections that have been idle too long.
-          connMgr.closeIdleConnections(60, TimeUnit.SECONDS);
+          connMgr.closeIdleConnections(IDLE_CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
           // Look at pool stats.
           log.trace("Stats: {}", connMgr.getTotalStats());
         }
@@ -140,19 +287,6 @@ public final class HttpAsyncClientPool {
       stopSignal.add(stop);
       // Wait for the stop to complete.
       stop.waitForStopped();
-      try {
-        // Close the pool - Added
-        Singleton.INSTANCE.threadSafeAsyncClient.close();
-      } catch (IOException e) {
-        log.error("Error closing client");
-      }
-      try {
-        // Close the connection manager.
-        connMgr.shutdown();
-      } catch (IOException e) {
-        log.error("Error shutting down connection manager");
-      }
-      log.trace("Client pool shut down");
     }
 
     // Pushed up the queue.
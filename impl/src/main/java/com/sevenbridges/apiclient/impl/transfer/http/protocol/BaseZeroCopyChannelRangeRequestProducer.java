@@ -16,6 +16,8 @@
 package com.sevenbridges.apiclient.impl.transfer.http.protocol;
 
 import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthThrottle;
+import com.sevenbridges.apiclient.impl.transfer.buffer.DirectBufferPool;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
@@ -36,10 +38,23 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
+/**
+ * Producer of the request content read from a range of a file channel. Over plain connections the
+ * range is transferred to the connection without copying. Over TLS connections content has to be
+ * encrypted anyway, and channel transfer to the TLS session moves it in small chunks, so the range
+ * is read into a large pooled direct buffer instead, and handed to the encoder in big writes.
+ */
 abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncRequestProducer {
 
+  static final int TLS_BUFFER_SIZE = 256 * 1024;
+  private static final int TLS_MAX_BUFFERS = 64;
+
+  // shared by all TLS uploads, if exhausted content is transferred from the channel directly
+  private static final DirectBufferPool TLS_BUFFER_POOL = new DirectBufferPool(TLS_BUFFER_SIZE, TLS_MAX_BUFFERS);
+
   private final URI requestURI;
   private final FileChannel fileChannel;
   private final long position;
@@ -47,10 +62,17 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
   private final ContentType contentType;
   private final StripedLongAdder bytesTransferredAdder;
   private final int partNumber;
+  private final boolean tls;
+  private final BandwidthThrottle throttle;
 
+  // content read from the channel, but not yet accepted by the encoder
+  private ByteBuffer tlsBuffer = null;
   private long idx = -1;
   private long cnt = -1;
   private long transferredCnt = -1;
+  // timing of the last request, read by the thread handling the response
+  private volatile long requestStartNanos = -1;
+  private volatile long contentSentNanos = -1;
 
   BaseZeroCopyChannelRangeRequestProducer(
       final URI requestURI,
@@ -59,7 +81,8 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
       final long count,
       final ContentType contentType,
       final StripedLongAdder bytesTransferredAdder,
-      final int partNumber) {
+      final int partNumber,
+      final BandwidthThrottle throttle) {
     super();
     Args.notNull(requestURI, "Request URI");
     Args.notNull(fileChannel, "File channel");
@@ -74,6 +97,8 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
     this.position = position;
     this.fileChannel = fileChannel;
     this.requestURI = requestURI;
+    this.tls = "https".equalsIgnoreCase(requestURI.getScheme());
+    this.throttle = throttle;
   }
 
   protected abstract HttpEntityEnclosingRequest createRequest(final URI requestURI, final HttpEntity entity);
@@ -88,6 +113,9 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
     this.idx = position;
     this.cnt = count;
     this.transferredCnt = 0;
+    this.requestStartNanos = System.nanoTime();
+    this.contentSentNanos = -1;
+    releaseTlsBuffer();
     return createRequest(this.requestURI, entity);
   }
 
@@ -98,13 +126,30 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
   @Override
   public void produceContent(
       final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
-    final long transferred;
-    if (encoder instanceof FileContentEncoder) {
-      transferred = ((FileContentEncoder) encoder).transfer(
-          this.fileChannel, this.idx, this.cnt);
-    } else {
-      transferred = this.fileChannel.transferTo(
-          this.idx, this.cnt, new ContentEncoderChannel(encoder));
+    long allowed = this.cnt;
+    if (this.throttle != null && allowed > 0) {
+      allowed = this.throttle.acquire(allowed);
+      if (allowed <= 0) {
+        // bandwidth limit reached, wait for the limit to allow more
+        this.throttle.suspendOutput(ioctrl);
+        return;
+      }
+    }
+    long transferred = -1;
+    if (this.tls) {
+      transferred = writeBuffered(encoder, allowed);
+    }
+    if (transferred < 0) {
+      if (encoder instanceof FileContentEncoder) {
+        transferred = ((FileContentEncoder) encoder).transfer(
+            this.fileChannel, this.idx, allowed);
+      } else {
+        transferred = this.fileChannel.transferTo(
+            this.idx, allowed, new ContentEncoderChannel(encoder));
+      }
+    }
+    if (this.throttle != null) {
+      this.throttle.refund(allowed - Math.max(0, transferred));
     }
     if (transferred > 0) {
       this.idx += transferred;
@@ -114,6 +159,8 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
     }
 
     if (this.cnt == 0) {
+      this.contentSentNanos = System.nanoTime();
+      releaseTlsBuffer();
       encoder.complete();
     }
     if (this.idx >= this.fileChannel.size()) {
@@ -121,10 +168,107 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
     }
   }
 
+  /**
+   * Writes at most the allowed number of bytes to the encoder through the TLS buffer, until the
+   * encoder accepts no more. Buffer may be filled ahead of the allowed bytes. Returns -1 if no
+   * buffer could be taken from the pool, in which case the content is sent without it.
+   * <p>
+   * Holds the lock for the whole write, as the buffer may be released concurrently by a failed or
+   * reset request.
+   */
+  private synchronized long writeBuffered(final ContentEncoder encoder, final long allowed)
+      throws IOException {
+    if (!acquireTlsBuffer()) {
+      return -1;
+    }
+    final ByteBuffer buffer = this.tlsBuffer;
+    long written = 0;
+    while (allowed - written > 0) {
+      if (!buffer.hasRemaining()) {
+        // refill the buffer from the next unsent position of the range
+        buffer.clear();
+        if (buffer.capacity() > this.cnt - written) {
+          buffer.limit((int) (this.cnt - written));
+        }
+        long readPosition = this.idx + written;
+        while (buffer.hasRemaining()) {
+          int read = this.fileChannel.read(buffer, readPosition);
+          if (read < 0) {
+            break;
+          }
+          readPosition += read;
+        }
+        buffer.flip();
+        if (!buffer.hasRemaining()) {
+          // end of file, nothing more to send
+          break;
+        }
+      }
+      final int bufferLimit = buffer.limit();
+      if (buffer.remaining() > allowed - written) {
+        buffer.limit(buffer.position() + (int) (allowed - written));
+      }
+      int accepted = encoder.write(buffer);
+      buffer.limit(bufferLimit);
+      if (accepted <= 0) {
+        break;
+      }
+      written += accepted;
+    }
+    return written;
+  }
+
+  private synchronized boolean acquireTlsBuffer() {
+    if (this.tlsBuffer == null) {
+      this.tlsBuffer = TLS_BUFFER_POOL.acquire();
+      if (this.tlsBuffer == null) {
+        return false;
+      }
+      // nothing is buffered yet
+      this.tlsBuffer.limit(0);
+    }
+    return true;
+  }
+
+  private synchronized void releaseTlsBuffer() {
+    if (this.tlsBuffer != null) {
+      TLS_BUFFER_POOL.release(this.tlsBuffer);
+      this.tlsBuffer = null;
+    }
+  }
+
   public void requestCompleted(final HttpContext context) {
   }
 
+  /**
+   * Number of bytes sent as the request content.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Time in nanoseconds between the start of the request and the moment its last content byte was
+   * handed to the connection, or -1 if the content is not sent completely.
+   */
+  public long getContentTransferNanos() {
+    long start = requestStartNanos;
+    long sent = contentSentNanos;
+    return start < 0 || sent < 0 ? -1 : sent - start;
+  }
+
+  /**
+   * Time in nanoseconds between the moment the last content byte was handed to the connection and
+   * now, which is the latency of the response when called on its arrival, or -1 if the content is
+   * not sent completely.
+   */
+  public long getResponseLatencyNanos() {
+    long sent = contentSentNanos;
+    return sent < 0 ? -1 : System.nanoTime() - sent;
+  }
+
   public void failed(final Exception ex) {
+    releaseTlsBuffer();
   }
 
   public boolean isRepeatable() {
@@ -132,9 +276,11 @@ abstract class BaseZeroCopyChannelRangeRequestProducer implements HttpAsyncReque
   }
 
   public synchronized void resetRequest() throws IOException {
+    releaseTlsBuffer();
   }
 
   public synchronized void close() throws IOException {
+    releaseTlsBuffer();
     LoggerFactory.getLogger(BaseZeroCopyChannelRangeRequestProducer.class).debug("RequestProducer closing");
   }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.http.protocol;
+
+import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthThrottle;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+/**
+ * Request producer that uploads the content of a byte buffer with a PUT request. The buffer itself
+ * is never modified, so the request can be repeated with the same buffer.
+ */
+public class ByteBufferPut implements HttpAsyncRequestProducer {
+
+  private final URI requestURI;
+  private final ByteBuffer content;
+  private final StripedLongAdder bytesTransferredAdder;
+  private final int partNumber;
+  private final BandwidthThrottle throttle;
+
+  private ByteBuffer remaining;
+
+  public ByteBufferPut(final String requestURI,
+                       final ByteBuffer content,
+                       final StripedLongAdder bytesTransferredAdder,
+                       final int partNumber) {
+    this(requestURI, content, bytesTransferredAdder, partNumber, null);
+  }
+
+  public ByteBufferPut(final String requestURI,
+                       final ByteBuffer content,
+                       final StripedLongAdder bytesTransferredAdder,
+                       final int partNumber,
+                       final BandwidthThrottle throttle) {
+    Args.notNull(requestURI, "Request URI");
+    Args.notNull(content, "Content");
+    Args.notNull(bytesTransferredAdder, "Bytes transferred adder");
+    Args.notNegative(partNumber, "Part number");
+    this.requestURI = URI.create(requestURI);
+    this.content = content;
+    this.bytesTransferredAdder = bytesTransferredAdder;
+    this.partNumber = partNumber;
+    this.throttle = throttle;
+  }
+
+  @Override
+  public HttpRequest generateRequest() throws IOException, HttpException {
+    final BasicHttpEntity entity = new BasicHttpEntity();
+    entity.setChunked(false);
+    entity.setContentLength(this.content.remaining());
+    this.remaining = this.content.duplicate();
+    final HttpPut httpPut = new HttpPut(this.requestURI);
+    httpPut.setEntity(entity);
+    return httpPut;
+  }
+
+  @Override
+  public HttpHost getTarget() {
+    return URIUtils.extractHost(this.requestURI);
+  }
+
+  @Override
+  public void produceContent(final ContentEncoder encoder, final IOControl ioctrl) throws IOException {
+    if (this.throttle == null) {
+      encoder.write(this.remaining);
+    } else if (this.remaining.hasRemaining()) {
+      long allowed = this.throttle.acquire(this.remaining.remaining());
+      if (allowed <= 0) {
+        this.throttle.suspendOutput(ioctrl);
+        return;
+      }
+      final int limit = this.remaining.limit();
+      this.remaining.limit(this.remaining.position() + (int) allowed);
+      int written = 0;
+      try {
+        written = encoder.write(this.remaining);
+      } finally {
+        this.remaining.limit(limit);
+        this.throttle.refund(allowed - Math.max(0, written));
+      }
+    }
+    bytesTransferredAdder.set(this.partNumber, this.remaining.position() - this.content.position());
+    if (!this.remaining.hasRemaining()) {
+      encoder.complete();
+    }
+  }
+
+  @Override
+  public void requestCompleted(final HttpContext context) {
+  }
+
+  @Override
+  public void failed(final Exception ex) {
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public void resetRequest() throws IOException {
+    this.remaining = this.content.duplicate();
+  }
+
+  @Override
+  public void close() throws IOException {
+  }
+}
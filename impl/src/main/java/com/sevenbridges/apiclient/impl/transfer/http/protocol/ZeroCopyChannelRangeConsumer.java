@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.http.protocol;
+
+import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthThrottle;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentDecoderChannel;
+import org.apache.http.nio.FileContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Response consumer that writes the body of a ranged GET response straight to its offset in the
+ * provided {@link FileChannel}. If the underlying decoder allows it, content is transferred without
+ * copying it through user space buffers.
+ * <p>
+ * Only '206 Partial Content' responses (or '200 OK' responses for the range that spans the whole
+ * file) are written to the channel, content of any other response is discarded.
+ */
+public class ZeroCopyChannelRangeConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+  private static final int DISCARD_BUFFER_SIZE = 8 * 1024;
+
+  private final FileChannel fileChannel;
+  private final long position;
+  private final long count;
+  private final boolean wholeFile;
+  private final StripedLongAdder bytesTransferredAdder;
+  private final int partNumber;
+  private final BandwidthThrottle throttle;
+
+  private HttpResponse response;
+  private boolean accepted;
+  private long idx = -1;
+  private long transferredCnt = 0;
+  private ByteBuffer discardBuffer;
+
+  public ZeroCopyChannelRangeConsumer(final FileChannel fileChannel,
+                                      final long position,
+                                      final long count,
+                                      final boolean wholeFile,
+                                      final StripedLongAdder bytesTransferredAdder,
+                                      final int partNumber) {
+    this(fileChannel, position, count, wholeFile, bytesTransferredAdder, partNumber, null);
+  }
+
+  public ZeroCopyChannelRangeConsumer(final FileChannel fileChannel,
+                                      final long position,
+                                      final long count,
+                                      final boolean wholeFile,
+                                      final StripedLongAdder bytesTransferredAdder,
+                                      final int partNumber,
+                                      final BandwidthThrottle throttle) {
+    super();
+    Args.notNull(fileChannel, "File channel");
+    Args.notNegative(position, "Position");
+    Args.notNegative(count, "Count");
+    Args.notNegative(partNumber, "Part number");
+    Args.notNull(bytesTransferredAdder, "Bytes transferred adder");
+    this.fileChannel = fileChannel;
+    this.position = position;
+    this.count = count;
+    this.wholeFile = wholeFile;
+    this.bytesTransferredAdder = bytesTransferredAdder;
+    this.partNumber = partNumber;
+    this.throttle = throttle;
+  }
+
+  /**
+   * Number of bytes of the range that are written to the file channel.
+   *
+   * @return long number of bytes written
+   */
+  public long getTransferredCount() {
+    return transferredCnt;
+  }
+
+  /**
+   * Checks if the whole requested range is received and written to the file channel.
+   *
+   * @return true if the range is complete
+   */
+  public boolean isRangeComplete() {
+    return accepted && transferredCnt == count;
+  }
+
+  @Override
+  protected void onResponseReceived(final HttpResponse response) {
+    this.response = response;
+    int statusCode = response.getStatusLine().getStatusCode();
+    this.accepted = statusCode == HttpStatus.SC_PARTIAL_CONTENT
+        || (statusCode == HttpStatus.SC_OK && wholeFile);
+    this.idx = position;
+    this.transferredCnt = 0;
+  }
+
+  @Override
+  protected void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) {
+  }
+
+  @Override
+  protected void onContentReceived(final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+    long remaining = count - transferredCnt;
+    if (!accepted || remaining <= 0) {
+      discard(decoder);
+      return;
+    }
+    if (throttle != null) {
+      remaining = throttle.acquire(remaining);
+      if (remaining <= 0) {
+        // bandwidth limit reached, stop reading from the socket until the limit allows more
+        throttle.suspendInput(ioctrl);
+        return;
+      }
+    }
+    final long transferred;
+    if (decoder instanceof FileContentDecoder) {
+      transferred = ((FileContentDecoder) decoder).transfer(this.fileChannel, this.idx, remaining);
+    } else {
+      transferred = this.fileChannel.transferFrom(new ContentDecoderChannel(decoder), this.idx, remaining);
+    }
+    if (throttle != null) {
+      throttle.refund(remaining - Math.max(0, transferred));
+    }
+    if (transferred > 0) {
+      this.idx += transferred;
+      this.transferredCnt += transferred;
+      bytesTransferredAdder.set(this.partNumber, this.transferredCnt);
+    }
+  }
+
+  private void discard(final ContentDecoder decoder) throws IOException {
+    if (discardBuffer == null) {
+      discardBuffer = ByteBuffer.allocate(DISCARD_BUFFER_SIZE);
+    }
+    int read;
+    do {
+      discardBuffer.clear();
+      read = decoder.read(discardBuffer);
+    } while (read > 0);
+  }
+
+  @Override
+  protected HttpResponse buildResult(final HttpContext context) {
+    return response;
+  }
+
+  @Override
+  protected void releaseResources() {
+    this.discardBuffer = null;
+  }
+}
@@ -16,6 +16,7 @@
 package com.sevenbridges.apiclient.impl.transfer.http.protocol;
 
 import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import com.sevenbridges.apiclient.impl.transfer.bandwidth.BandwidthThrottle;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
@@ -34,7 +35,18 @@ public class ZeroCopyChannelRangePut extends BaseZeroCopyChannelRangeRequestProd
                                  final ContentType contentType,
                                  final StripedLongAdder bytesTransferredAdder,
                                  final int partNumber) {
-    super(requestURI, fileChannel, position, count, contentType, bytesTransferredAdder, partNumber);
+    this(requestURI, fileChannel, position, count, contentType, bytesTransferredAdder, partNumber, null);
+  }
+
+  public ZeroCopyChannelRangePut(final URI requestURI,
+                                 final FileChannel fileChannel,
+                                 final long position,
+                                 final long count,
+                                 final ContentType contentType,
+                                 final StripedLongAdder bytesTransferredAdder,
+                                 final int partNumber,
+                                 final BandwidthThrottle throttle) {
+    super(requestURI, fileChannel, position, count, contentType, bytesTransferredAdder, partNumber, throttle);
   }
 
   public ZeroCopyChannelRangePut(final String requestURI,
@@ -44,7 +56,18 @@ public class ZeroCopyChannelRangePut extends BaseZeroCopyChannelRangeRequestProd
                                  final ContentType contentType,
                                  final StripedLongAdder bytesTransferredAdder,
                                  final int partNumber) {
-    super(URI.create(requestURI), fileChannel, position, count, contentType, bytesTransferredAdder, partNumber);
+    this(requestURI, fileChannel, position, count, contentType, bytesTransferredAdder, partNumber, null);
+  }
+
+  public ZeroCopyChannelRangePut(final String requestURI,
+                                 final FileChannel fileChannel,
+                                 final long position,
+                                 final long count,
+                                 final ContentType contentType,
+                                 final StripedLongAdder bytesTransferredAdder,
+                                 final int partNumber,
+                                 final BandwidthThrottle throttle) {
+    this(URI.create(requestURI), fileChannel, position, count, contentType, bytesTransferredAdder, partNumber, throttle);
   }
 
   @Override
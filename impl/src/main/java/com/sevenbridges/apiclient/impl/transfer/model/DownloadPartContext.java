@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.model;
+
+public class DownloadPartContext implements PartContext {
+
+  private final int partNumber;
+  private final boolean submitted;
+
+  //CHECKSTYLE:OFF
+  private final String eTag;
+  //CHECKSTYLE:ON
+
+  private final Exception ex;
+  private final int retryCnt;
+
+  private DownloadPartContext(int partNumber) {
+    this.partNumber = partNumber;
+    this.submitted = false;
+    this.eTag = null;
+    this.ex = null;
+    this.retryCnt = -1;
+  }
+
+  private DownloadPartContext(int partNumber, String eTag) {
+    this.partNumber = partNumber;
+    this.submitted = true;
+    this.eTag = eTag;
+    this.ex = null;
+    this.retryCnt = -1;
+  }
+
+  private DownloadPartContext(int partNumber, Exception ex, int retryCnt) {
+    this.partNumber = partNumber;
+    this.submitted = true;
+    this.eTag = null;
+    this.ex = ex;
+    this.retryCnt = retryCnt;
+  }
+
+  public static DownloadPartContext buildNewContext(int partNumber) {
+    return new DownloadPartContext(partNumber);
+  }
+
+  public static DownloadPartContext buildSucceedContext(int partNumber, String eTag) {
+    return new DownloadPartContext(partNumber, eTag);
+  }
+
+  public static DownloadPartContext buildFailedContext(int partNumber, Exception ex, int retryCnt) {
+    return new DownloadPartContext(partNumber, ex, retryCnt);
+  }
+
+  @Override
+  public boolean isNew() {
+    return !submitted;
+  }
+
+  @Override
+  public boolean isSucceeded() {
+    return submitted && ex == null;
+  }
+
+  @Override
+  public boolean isFailed() {
+    return ex != null;
+  }
+
+  @Override
+  public boolean isFailedBeyondRetry() {
+    return ex != null && retryCnt <= 1;
+  }
+
+  @Override
+  public int getPartNumber() {
+    return partNumber;
+  }
+
+  public String geteTag() {
+    return eTag;
+  }
+
+  @Override
+  public Exception getEx() {
+    return ex;
+  }
+
+  @Override
+  public int getRetryCnt() {
+    return retryCnt;
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.model;
+
+/**
+ * State of a single part of a transfer, as seen by the transfer manager. A part is either new (not
+ * yet submitted), succeeded, or failed with a number of retries left.
+ */
+public interface PartContext {
+
+  boolean isNew();
+
+  boolean isSucceeded();
+
+  boolean isFailed();
+
+  boolean isFailedBeyondRetry();
+
+  int getPartNumber();
+
+  Exception getEx();
+
+  int getRetryCnt();
+
+}
@@ -18,7 +18,7 @@ package com.sevenbridges.apiclient.impl.transfer.model;
 import java.util.HashMap;
 import java.util.Map;
 
-public class UploadPartContext {
+public class UploadPartContext implements PartContext {
 
   private final int partNumber;
   private final String uploadUrl;
@@ -66,22 +66,27 @@ public class UploadPartContext {
     return new UploadPartContext(partNumber, uploadUrl, ex, retryCnt);
   }
 
+  @Override
   public boolean isNew() {
     return uploadUrl == null;
   }
 
+  @Override
   public boolean isSucceeded() {
     return (ex == null) && (eTag != null);
   }
 
+  @Override
   public boolean isFailed() {
     return ex != null;
   }
 
+  @Override
   public boolean isFailedBeyondRetry() {
     return ex != null && retryCnt <= 1;
   }
 
+  @Override
   public int getPartNumber() {
     return partNumber;
   }
@@ -94,10 +99,12 @@ public class UploadPartContext {
     return eTag;
   }
 
+  @Override
   public Exception getEx() {
     return ex;
   }
 
+  @Override
   public int getRetryCnt() {
     return retryCnt;
   }
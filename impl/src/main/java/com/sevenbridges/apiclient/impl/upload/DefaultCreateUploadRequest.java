@@ -17,19 +17,45 @@ package com.sevenbridges.apiclient.impl.upload;
 
 import com.sevenbridges.apiclient.upload.CreateUploadRequest;
 import com.sevenbridges.apiclient.upload.Upload;
+import com.sevenbridges.apiclient.upload.UploadDeduplication;
+import com.sevenbridges.apiclient.upload.UploadPriority;
 
+import java.io.File;
 import java.io.RandomAccessFile;
+import java.nio.channels.ReadableByteChannel;
 
 public class DefaultCreateUploadRequest implements CreateUploadRequest {
 
   private final Upload upload;
   private final RandomAccessFile file;
+  private final File localFile;
+  private final ReadableByteChannel channel;
   private final boolean overwrite;
+  private final UploadDeduplication deduplication;
+  private final UploadPriority priority;
+  private final String tenant;
 
-  DefaultCreateUploadRequest(Upload upload, RandomAccessFile file, boolean overwrite) {
+  DefaultCreateUploadRequest(Upload upload, RandomAccessFile file, File localFile, boolean overwrite,
+                             UploadDeduplication deduplication, UploadPriority priority, String tenant) {
+    this(upload, file, localFile, null, overwrite, deduplication, priority, tenant);
+  }
+
+  DefaultCreateUploadRequest(Upload upload, ReadableByteChannel channel, boolean overwrite,
+                             UploadPriority priority, String tenant) {
+    this(upload, null, null, channel, overwrite, UploadDeduplication.NONE, priority, tenant);
+  }
+
+  private DefaultCreateUploadRequest(Upload upload, RandomAccessFile file, File localFile, ReadableByteChannel channel,
+                                     boolean overwrite, UploadDeduplication deduplication,
+                                     UploadPriority priority, String tenant) {
     this.upload = upload;
     this.file = file;
+    this.localFile = localFile;
+    this.channel = channel;
     this.overwrite = overwrite;
+    this.deduplication = deduplication;
+    this.priority = priority;
+    this.tenant = tenant;
   }
 
   @Override
@@ -42,8 +68,37 @@ public class DefaultCreateUploadRequest implements CreateUploadRequest {
     return file;
   }
 
+  /**
+   * Path of the local file to be uploaded, used to look up its cached MD5.
+   *
+   * @return local {@link File}, or null if the upload is read from a stream
+   */
+  public File getLocalFile() {
+    return localFile;
+  }
+
+  @Override
+  public ReadableByteChannel getChannel() {
+    return channel;
+  }
+
   @Override
   public boolean getOverwrite() {
     return overwrite;
   }
+
+  @Override
+  public UploadDeduplication getDeduplication() {
+    return deduplication;
+  }
+
+  @Override
+  public UploadPriority getPriority() {
+    return priority;
+  }
+
+  @Override
+  public String getTenant() {
+    return tenant;
+  }
 }
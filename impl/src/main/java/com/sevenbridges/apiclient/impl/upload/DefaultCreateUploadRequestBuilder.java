@@ -21,11 +21,16 @@ import com.sevenbridges.apiclient.project.Project;
 import com.sevenbridges.apiclient.upload.CreateUploadRequest;
 import com.sevenbridges.apiclient.upload.CreateUploadRequestBuilder;
 import com.sevenbridges.apiclient.upload.Upload;
+import com.sevenbridges.apiclient.upload.UploadDeduplication;
+import com.sevenbridges.apiclient.upload.UploadPriority;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 public class DefaultCreateUploadRequestBuilder implements CreateUploadRequestBuilder {
 
@@ -33,9 +38,14 @@ public class DefaultCreateUploadRequestBuilder implements CreateUploadRequestBui
   private String name;
   private String project;
   private RandomAccessFile file;
+  private File localFile;
+  private ReadableByteChannel channel;
   private boolean overwrite = false;
   private long partSize = -1L;
   private String md5 = null;
+  private UploadDeduplication deduplication = UploadDeduplication.NONE;
+  private UploadPriority priority = UploadPriority.NORMAL;
+  private String tenant = null;
 
   public DefaultCreateUploadRequestBuilder(InternalDataStore dataStore) {
     this.dataStore = dataStore;
@@ -81,6 +91,7 @@ public class DefaultCreateUploadRequestBuilder implements CreateUploadRequestBui
     } catch (FileNotFoundException e) {
       throw new IllegalArgumentException(e);
     }
+    this.localFile = file;
     return this;
   }
 
@@ -89,6 +100,23 @@ public class DefaultCreateUploadRequestBuilder implements CreateUploadRequestBui
     return setFile(new File(filePath));
   }
 
+  @Override
+  public CreateUploadRequestBuilder setInputStream(InputStream inputStream) {
+    if (inputStream == null) {
+      throw new IllegalArgumentException("Stream to upload can not be null");
+    }
+    return setChannel(Channels.newChannel(inputStream));
+  }
+
+  @Override
+  public CreateUploadRequestBuilder setChannel(ReadableByteChannel channel) {
+    if (channel == null) {
+      throw new IllegalArgumentException("Channel to upload can not be null");
+    }
+    this.channel = channel;
+    return this;
+  }
+
   @Override
   public CreateUploadRequestBuilder setPartSize(long partSize) {
     this.partSize = partSize;
@@ -97,7 +125,8 @@ public class DefaultCreateUploadRequestBuilder implements CreateUploadRequestBui
 
   /**
    * Sets the MD5 hash digest of the file to be uploaded. This value is not validated, only stored,
-   * and is not a required param for upload.
+   * and is not a required param for upload. If the client computes upload MD5, digest set here is
+   * used instead.
    *
    * @param digest String md5 digest of the file to upload
    * @return builder instance with md5 digest set
@@ -105,23 +134,44 @@ public class DefaultCreateUploadRequestBuilder implements CreateUploadRequestBui
   @Override
   public CreateUploadRequestBuilder setMD5(String digest) {
     this.md5 = digest;
-    return null;
+    return this;
+  }
+
+  @Override
+  public CreateUploadRequestBuilder setDeduplication(UploadDeduplication deduplication) {
+    this.deduplication = deduplication != null ? deduplication : UploadDeduplication.NONE;
+    return this;
+  }
+
+  @Override
+  public CreateUploadRequestBuilder setPriority(UploadPriority priority) {
+    this.priority = priority != null ? priority : UploadPriority.NORMAL;
+    return this;
+  }
+
+  @Override
+  public CreateUploadRequestBuilder setTenant(String tenant) {
+    this.tenant = tenant;
+    return this;
   }
 
   @Override
   public CreateUploadRequest build() {
     Assert.notNull(name, "Field 'name' is required");
     Assert.notNull(project, "Field 'project' is required");
-    Assert.notNull(file, "File to upload must be provided");
+    Assert.isTrue(file != null || channel != null, "File or stream to upload must be provided");
+    Assert.isTrue(file == null || channel == null, "Only one of file or stream to upload can be provided");
 
     Upload upload = dataStore.instantiate(Upload.class);
     upload.setName(name);
     upload.setProjectId(project);
-    try {
-      long fileSize = file.length();
-      upload.setSize(fileSize);
-    } catch (IOException e) {
-      throw new IllegalArgumentException("Error while determining provided file size", e);
+    if (file != null) {
+      try {
+        long fileSize = file.length();
+        upload.setSize(fileSize);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Error while determining provided file size", e);
+      }
     }
 
     if (partSize > 0) {
@@ -132,6 +182,10 @@ public class DefaultCreateUploadRequestBuilder implements CreateUploadRequestBui
       upload.setMD5(md5);
     }
 
-    return new DefaultCreateUploadRequest(upload, file, overwrite);
+    if (channel != null) {
+      // size of the stream is not known until it ends
+      return new DefaultCreateUploadRequest(upload, channel, overwrite, priority, tenant);
+    }
+    return new DefaultCreateUploadRequest(upload, file, localFile, overwrite, deduplication, priority, tenant);
   }
 }
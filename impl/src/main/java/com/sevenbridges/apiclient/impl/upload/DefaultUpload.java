@@ -204,4 +204,11 @@ public class DefaultUpload extends AbstractInstanceResource implements Upload {
   public File completeUpload() throws ResourceException {
     return getDataStore().resourceAction("/complete", this, File.class, null, null);
   }
+
+  @Override
+  public File completeUpload(String md5) throws ResourceException {
+    setMD5(md5);
+    return getDataStore().resourceAction("/complete", this, File.class, null,
+        Collections.<String, Object>singletonMap("md5", md5));
+  }
 }
@@ -31,7 +31,6 @@ import com.sevenbridges.apiclient.impl.resource.Property;
 import com.sevenbridges.apiclient.impl.resource.StringProperty;
 import com.sevenbridges.apiclient.impl.task.DefaultTaskRequestFactory;
 import com.sevenbridges.apiclient.impl.transfer.NoopProgressListener;
-import com.sevenbridges.apiclient.impl.transfer.TransferManagerFactory;
 import com.sevenbridges.apiclient.impl.upload.DefaultCreateUploadRequestBuilder;
 import com.sevenbridges.apiclient.impl.volume.DefaultVolumeRequestFactory;
 import com.sevenbridges.apiclient.invoice.InvoiceCriteria;
@@ -49,6 +48,9 @@ import com.sevenbridges.apiclient.task.Task;
 import com.sevenbridges.apiclient.task.TaskCriteria;
 import com.sevenbridges.apiclient.task.TaskList;
 import com.sevenbridges.apiclient.task.TaskRequestFactory;
+import com.sevenbridges.apiclient.transfer.BulkUploadContext;
+import com.sevenbridges.apiclient.transfer.DownloadContext;
+import com.sevenbridges.apiclient.transfer.DownloadState;
 import com.sevenbridges.apiclient.transfer.ProgressListener;
 import com.sevenbridges.apiclient.transfer.UploadContext;
 import com.sevenbridges.apiclient.transfer.UploadState;
@@ -66,6 +68,9 @@ import com.sevenbridges.apiclient.volume.VolumeRequestFactory;
 
 import java.io.FileNotFoundException;
 import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -653,13 +658,41 @@ public class DefaultUser extends AbstractInstanceResource implements User {
     if (listener == null) {
       listener = NoopProgressListener.getInstance();
     }
+    // same file may be already uploaded, then it is copied instead
+    UploadContext copied = getDataStore().getTransferManager().uploadCopy(getDataStore(), uploadRequest, listener);
+    if (copied != null) {
+      return copied;
+    }
     Map<String, Object> qp = new HashMap<>(1);
     qp.put("overwrite", uploadRequest.getOverwrite());
+    getDataStore().getTransferManager().suggestPartSize(uploadRequest.getUpload());
     Upload upload = getDataStore().create(HREF_REFERENCES[H_UPLOADS], uploadRequest.getUpload(), Upload.class, qp);
-    return TransferManagerFactory.getTransferManager().upload(
+    if (uploadRequest.getChannel() != null) {
+      return getDataStore().getTransferManager().upload(
+          upload,
+          uploadRequest.getChannel(),
+          listener,
+          uploadRequest.getPriority(),
+          uploadRequest.getTenant());
+    }
+    return getDataStore().getTransferManager().upload(
+        getDataStore(),
         upload,
         uploadRequest.getFile(),
-        listener == null ? NoopProgressListener.getInstance() : listener);
+        listener == null ? NoopProgressListener.getInstance() : listener,
+        uploadRequest.getPriority(),
+        uploadRequest.getTenant());
+  }
+
+  @Override
+  public BulkUploadContext submitUploads(Collection<CreateUploadRequest> uploadRequests) {
+    Assert.notEmpty(uploadRequests, "UploadRequests collection cannot be null or empty");
+    for (CreateUploadRequest uploadRequest : uploadRequests) {
+      Assert.notNull(uploadRequest.getFile(), "Only uploads of local files can be submitted in bulk");
+    }
+    return getDataStore().getTransferManager().uploadAll(
+        getDataStore(),
+        new ArrayList<>(uploadRequests));
   }
 
   @Override
@@ -677,7 +710,7 @@ public class DefaultUser extends AbstractInstanceResource implements User {
       throw new IllegalArgumentException("Cannot resume non PAUSED upload");
     }
     return resumeUpload(
-        this.getUploadById(pausedContext.getUploadId()),
+        pausedContext.getUploadId(),
         file,
         listener == null ? NoopProgressListener.getInstance() : listener);
   }
@@ -699,15 +732,106 @@ public class DefaultUser extends AbstractInstanceResource implements User {
     } catch (FileNotFoundException e) {
       throw new IllegalArgumentException("Provided file not found", e);
     }
-    return TransferManagerFactory.getTransferManager().upload(
+    return getDataStore().getTransferManager().upload(
+        getDataStore(),
         pausedUpload,
         rac,
         listener == null ? NoopProgressListener.getInstance() : listener);
   }
 
+  @Override
+  public UploadContext resumeUpload(String uploadId, java.io.File file) {
+    Assert.hasText(uploadId, "UploadId cannot be null or empty");
+    Assert.notNull(file, "File object cannot be null");
+    return resumeUpload(uploadId, file, NoopProgressListener.getInstance());
+  }
+
+  @Override
+  public UploadContext resumeUpload(String uploadId, java.io.File file, ProgressListener listener) {
+    Assert.hasText(uploadId, "UploadId cannot be null or empty");
+    Assert.notNull(file, "File object cannot be null");
+    Upload upload;
+    if (getDataStore().getTransferManager().hasUploadCheckpoint(uploadId)) {
+      // finished parts are known locally, just make sure the upload is still alive
+      upload = getDataStore().getResource(HREF_REFERENCES[H_UPLOADS] + "/" + uploadId, Upload.class);
+    } else {
+      upload = getUploadById(uploadId);
+    }
+    return resumeUpload(
+        upload,
+        file,
+        listener == null ? NoopProgressListener.getInstance() : listener);
+  }
+
+  @Override
+  public DownloadContext submitDownload(File file, Path destination) {
+    Assert.notNull(file, "File object cannot be null");
+    Assert.notNull(destination, "Destination path cannot be null");
+    return submitDownload(file, destination, NoopProgressListener.getInstance());
+  }
+
+  @Override
+  public DownloadContext submitDownload(File file, Path destination, ProgressListener listener) {
+    Assert.notNull(file, "File object must not be null");
+    Assert.notNull(destination, "Destination path must not be null");
+    return download(file, destination, false, listener);
+  }
+
+  @Override
+  public DownloadContext resumeDownload(DownloadContext pausedContext) {
+    Assert.notNull(pausedContext, "PausedContext object cannot be null");
+    return resumeDownload(pausedContext, NoopProgressListener.getInstance());
+  }
+
+  @Override
+  public DownloadContext resumeDownload(DownloadContext pausedContext, ProgressListener listener) {
+    Assert.notNull(pausedContext, "PausedContext object cannot be null");
+    if (!DownloadState.PAUSED.equals(pausedContext.getState())) {
+      throw new IllegalArgumentException("Cannot resume non PAUSED download");
+    }
+    return resumeDownload(
+        this.getFileById(pausedContext.getFileId()),
+        pausedContext.getDestination(),
+        listener);
+  }
+
+  @Override
+  public DownloadContext resumeDownload(File file, Path destination) {
+    Assert.notNull(file, "File object cannot be null");
+    Assert.notNull(destination, "Destination path cannot be null");
+    return resumeDownload(file, destination, NoopProgressListener.getInstance());
+  }
+
+  @Override
+  public DownloadContext resumeDownload(File file, Path destination, ProgressListener listener) {
+    Assert.notNull(file, "File object must not be null");
+    Assert.notNull(destination, "Destination path must not be null");
+    return download(file, destination, true, listener);
+  }
+
+  private DownloadContext download(File file, Path destination, boolean resume, ProgressListener listener) {
+    RandomAccessFile rac;
+    try {
+      rac = new RandomAccessFile(destination.toFile(), "rw");
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("Provided destination cannot be opened for writing", e);
+    }
+    return getDataStore().getTransferManager().download(
+        file,
+        destination,
+        rac,
+        resume,
+        listener == null ? NoopProgressListener.getInstance() : listener);
+  }
+
   @Override
   public void shutdownTransferService() {
-    TransferManagerFactory.stopTransferManager();
+    getDataStore().shutdownTransferManager();
+  }
+
+  @Override
+  public void setTransferBandwidthLimit(long bytesPerSecond) {
+    getDataStore().getTransferManager().setBandwidthLimit(bytesPerSecond);
   }
 
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.impl.http.RestException;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AdaptiveConcurrencyLimitTest {
+
+  private static final long IDLE_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+  @Test
+  public void startsAtInitialLimitWithinMaximum() {
+    assertThat(new AdaptiveConcurrencyLimit().getLimit()).isEqualTo(20);
+    assertThat(new AdaptiveConcurrencyLimit(5, 1000).getLimit()).isEqualTo(5);
+  }
+
+  @Test
+  public void growsWhileLatencyStaysIdleUpToMaximum() throws InterruptedException {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 1000);
+    int previous = limit.getLimit();
+    for (int i = 0; i < 20; i++) {
+      sample(limit, limit.getLimit(), IDLE_RTT);
+      assertThat(limit.getLimit()).isGreaterThanOrEqualTo(previous);
+      previous = limit.getLimit();
+    }
+    assertThat(limit.getLimit()).isEqualTo(100);
+  }
+
+  @Test
+  public void shrinksWhenLatencyShowsQueueing() throws InterruptedException {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 1000);
+    sample(limit, 20, IDLE_RTT);
+    int grown = limit.getLimit();
+
+    for (int i = 0; i < 10; i++) {
+      sample(limit, limit.getLimit(), 10 * IDLE_RTT);
+    }
+    assertThat(limit.getLimit()).isLessThan(grown);
+  }
+
+  @Test
+  public void holdsWhenLatencyShowsModerateQueueing() throws InterruptedException {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 1000);
+    sample(limit, 0, IDLE_RTT);
+    assertThat(limit.getLimit()).isEqualTo(20);
+
+    // 20 * (1 - 10ms / 14.3ms) = 6 queued, between 3 and 6 times log10(20)
+    long rtt = (long) (IDLE_RTT * 1.43);
+    sample(limit, 20, rtt);
+    assertThat(limit.getLimit()).isEqualTo(20);
+  }
+
+  @Test
+  public void doesNotGrowWhenLimitWasNotReached() throws InterruptedException {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 1000);
+    for (int i = 0; i < 10; i++) {
+      sample(limit, 5, IDLE_RTT);
+    }
+    assertThat(limit.getLimit()).isEqualTo(20);
+  }
+
+  @Test
+  public void shrinksOnFailuresDownToOne() throws InterruptedException {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 1000);
+    limit.acquire();
+    limit.release(20, IDLE_RTT, true);
+    assertThat(limit.getLimit()).isEqualTo(18);
+
+    for (int i = 0; i < 100; i++) {
+      limit.acquire();
+      limit.release(20, IDLE_RTT, true);
+    }
+    assertThat(limit.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  public void waitingRequestIsLetInWhenOneCompletes() throws Exception {
+    final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 10000);
+    int inFlightAtStart = limit.acquire();
+    assertThat(inFlightAtStart).isZero();
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    Thread waiting = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          limit.acquire();
+          acquired.countDown();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    waiting.start();
+    while (limit.getQueued() == 0) {
+      Thread.sleep(1);
+    }
+    assertThat(acquired.await(50, TimeUnit.MILLISECONDS)).isFalse();
+
+    limit.release(inFlightAtStart, IDLE_RTT, false);
+    assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+    waiting.join();
+    assertThat(limit.getInFlight()).isEqualTo(1);
+    assertThat(limit.getQueued()).isZero();
+    assertThat(limit.getAverageQueueTimeMillis()).isGreaterThan(0);
+  }
+
+  @Test
+  public void requestFailsAfterMaximumWait() throws InterruptedException {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 50);
+    limit.acquire();
+
+    long start = System.nanoTime();
+    try {
+      limit.acquire();
+      fail("request should not fit in the limit");
+    } catch (RestException e) {
+      assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+    assertThat(limit.getRejectedCount()).isEqualTo(1);
+    assertThat(limit.getInFlight()).isEqualTo(1);
+    assertThat(limit.getQueued()).isZero();
+  }
+
+  private static void sample(AdaptiveConcurrencyLimit limit, int inFlightAtStart, long rttNanos)
+      throws InterruptedException {
+    limit.acquire();
+    limit.release(inFlightAtStart, rttNanos, false);
+  }
+}
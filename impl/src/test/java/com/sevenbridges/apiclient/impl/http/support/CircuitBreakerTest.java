@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+  @Test
+  public void opensAfterConsecutiveFailures() {
+    CircuitBreaker breaker = new CircuitBreaker(3, 10000);
+
+    assertThat(breaker.onFailure()).isFalse();
+    assertThat(breaker.onFailure()).isFalse();
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.onFailure()).isTrue();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void successResetsFailures() {
+    CircuitBreaker breaker = new CircuitBreaker(2, 10000);
+
+    breaker.onFailure();
+    breaker.onSuccess();
+    assertThat(breaker.onFailure()).isFalse();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void letsTrialRequestThroughAfterOpenPeriod() {
+    ManualBreaker breaker = new ManualBreaker(1, 500);
+    breaker.onFailure();
+    assertThat(breaker.tryAcquire()).isFalse();
+
+    breaker.advance(500);
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    // one trial at a time
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void successfulTrialClosesBreaker() {
+    ManualBreaker breaker = new ManualBreaker(1, 500);
+    breaker.onFailure();
+    breaker.advance(500);
+    breaker.tryAcquire();
+
+    breaker.onSuccess();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  @Test
+  public void failedTrialOpensBreakerAgain() {
+    ManualBreaker breaker = new ManualBreaker(5, 500);
+    for (int i = 0; i < 5; i++) {
+      breaker.onFailure();
+    }
+    breaker.advance(500);
+    breaker.tryAcquire();
+
+    assertThat(breaker.onFailure()).isTrue();
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void failuresWhileOpenDoNotReopen() {
+    CircuitBreaker breaker = new CircuitBreaker(1, 10000);
+    assertThat(breaker.onFailure()).isTrue();
+    assertThat(breaker.onFailure()).isFalse();
+  }
+
+  @Test
+  public void staysOpenUntilOpenPeriodIsOver() {
+    ManualBreaker breaker = new ManualBreaker(1, 500);
+    breaker.onFailure();
+
+    breaker.advance(499);
+    assertThat(breaker.tryAcquire()).isFalse();
+    breaker.advance(1);
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  private static class ManualBreaker extends CircuitBreaker {
+
+    private long now;
+
+    ManualBreaker(int failureThreshold, long openMillis) {
+      super(failureThreshold, openMillis);
+    }
+
+    void advance(long millis) {
+      now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    long nanoTime() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import com.sevenbridges.apiclient.impl.http.HttpHeaders;
+import org.testng.annotations.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitGovernorTest {
+
+  @Test
+  public void doesNotPaceUntilLimitIsReported() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(200, new HttpHeaders());
+    for (int i = 0; i < 1000; i++) {
+      assertThat(governor.tryAcquire()).isZero();
+    }
+    assertThat(governor.getPauseMillis()).isZero();
+  }
+
+  @Test
+  public void exhaustedLimitPausesUntilEpochReset() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    long reset = System.currentTimeMillis() / 1000 + 2;
+    governor.update(200, limit(0, reset));
+
+    // the reset is in whole seconds
+    assertThat(governor.getPauseMillis()).isBetween(900L, 2000L);
+    assertThat(governor.tryAcquire()).isBetween(900L, 2000L);
+  }
+
+  @Test
+  public void exhaustedLimitPausesUntilDeltaReset() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(200, limit(0, 2));
+
+    assertThat(governor.getPauseMillis()).isBetween(1900L, 2000L);
+  }
+
+  @Test
+  public void pastResetIsIgnored() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(200, limit(0, System.currentTimeMillis() / 1000 - 10));
+
+    assertThat(governor.getPauseMillis()).isZero();
+    assertThat(governor.tryAcquire()).isZero();
+  }
+
+  @Test
+  public void spreadsRemainingRequestsOverWindow() throws InterruptedException {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    // one request per 10 milliseconds for the next second
+    governor.update(200, limit(100, 1));
+
+    int granted = 0;
+    long start = System.nanoTime();
+    while (System.nanoTime() - start < 200 * 1000 * 1000) {
+      long wait = governor.tryAcquire();
+      if (wait == 0) {
+        granted++;
+      } else {
+        assertThat(wait).isLessThanOrEqualTo(10L);
+        Thread.sleep(wait);
+      }
+    }
+    assertThat(granted).isBetween(15, 21);
+  }
+
+  @Test
+  public void retryAfterSecondsPauses() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(503, header(RateLimitGovernor.RETRY_AFTER_HEADER, "3"));
+
+    assertThat(governor.getPauseMillis()).isBetween(2900L, 3000L);
+  }
+
+  @Test
+  public void retryAfterHttpDatePauses() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    String date = format.format(new Date(System.currentTimeMillis() + 5000));
+    governor.update(503, header(RateLimitGovernor.RETRY_AFTER_HEADER, date));
+
+    // the date is in whole seconds
+    assertThat(governor.getPauseMillis()).isBetween(3900L, 5000L);
+  }
+
+  @Test
+  public void malformedRetryAfterIsIgnored() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(503, header(RateLimitGovernor.RETRY_AFTER_HEADER, "soon"));
+
+    assertThat(governor.getPauseMillis()).isZero();
+  }
+
+  @Test
+  public void shorterPauseDoesNotCutLongerOne() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(503, header(RateLimitGovernor.RETRY_AFTER_HEADER, "5"));
+    governor.update(503, header(RateLimitGovernor.RETRY_AFTER_HEADER, "1"));
+
+    assertThat(governor.getPauseMillis()).isGreaterThan(4000L);
+  }
+
+  @Test
+  public void tooManyRequestsPausesUntilWindowEnd() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(200, limit(100, 3));
+    assertThat(governor.getPauseMillis()).isZero();
+
+    governor.update(429, new HttpHeaders());
+    assertThat(governor.getPauseMillis()).isBetween(2900L, 3000L);
+  }
+
+  @Test
+  public void tooManyRequestsWithoutWindowDoesNotPause() {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.update(429, new HttpHeaders());
+
+    assertThat(governor.getPauseMillis()).isZero();
+  }
+
+  private static HttpHeaders limit(long remaining, long reset) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(RateLimitGovernor.RATE_LIMIT_REMAINING_HEADER, String.valueOf(remaining));
+    headers.set(RateLimitGovernor.RATE_LIMIT_RESET_HEADER, String.valueOf(reset));
+    return headers;
+  }
+
+  private static HttpHeaders header(String name, String value) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(name, value);
+    return headers;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import org.testng.annotations.Test;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ResiliencePolicyTest {
+
+  private static final URI FILES = URI.create("https://api.sbgenomics.com/v2/files/123");
+  private static final URI FILES_QUERY = URI.create("https://api.sbgenomics.com/v2/files?project=a/b");
+  private static final URI TASKS = URI.create("https://api.sbgenomics.com/v2/tasks/456");
+
+  @Test
+  public void classifiesEndpointsByFirstSegmentAfterVersion() {
+    ResiliencePolicy policy = new ResiliencePolicy();
+    assertThat(policy.getEndpointClass(FILES)).isEqualTo("api.sbgenomics.com/files");
+    assertThat(policy.getEndpointClass(FILES_QUERY)).isEqualTo("api.sbgenomics.com/files");
+    assertThat(policy.getEndpointClass(URI.create("https://api.sbgenomics.com/v2/")))
+        .isEqualTo("api.sbgenomics.com/");
+  }
+
+  @Test
+  public void failingEndpointFailsFastWithoutAffectingOthers() {
+    ResiliencePolicy policy = new ResiliencePolicy(0.2, 5, 2, 10000, 300);
+    policy.beforeAttempt(FILES, false);
+    policy.onResponse(FILES, 503);
+    policy.beforeAttempt(FILES_QUERY, false);
+    policy.onFailure(FILES_QUERY);
+
+    try {
+      policy.beforeAttempt(FILES, false);
+      fail("circuit breaker should be open");
+    } catch (CircuitBreakerOpenException e) {
+      assertThat(e.getEndpointClass()).isEqualTo("api.sbgenomics.com/files");
+    }
+    policy.beforeAttempt(TASKS, false);
+
+    assertThat(policy.getCircuitBreakerOpenCount()).isEqualTo(1);
+    assertThat(policy.getRejectedRequestCount()).isEqualTo(1);
+    assertThat(policy.getCircuitBreakerStates()).containsOnly(
+        entry("api.sbgenomics.com/files", CircuitBreaker.State.OPEN),
+        entry("api.sbgenomics.com/tasks", CircuitBreaker.State.CLOSED));
+  }
+
+  @Test
+  public void clientErrorsAreNotFailures() {
+    ResiliencePolicy policy = new ResiliencePolicy(0.2, 5, 1, 10000, 300);
+    policy.onResponse(FILES, 404);
+    policy.onResponse(FILES, 429);
+    policy.beforeAttempt(FILES, false);
+    assertThat(policy.getCircuitBreakerOpenCount()).isZero();
+  }
+
+  @Test
+  public void retriesAreLimitedByBudget() {
+    ResiliencePolicy policy = new ResiliencePolicy(0, 0, 5, 10000, 300);
+    assertThat(policy.allowRetry()).isTrue();
+    assertThat(policy.allowRetry()).isFalse();
+    assertThat(policy.getRetryCount()).isEqualTo(1);
+    assertThat(policy.getRejectedRetryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void onlyFirstAttemptsDepositToBudget() {
+    ResiliencePolicy policy = new ResiliencePolicy(0.5, 0, 5, 10000, 300);
+    while (policy.allowRetry()) {
+      // drain
+    }
+    policy.beforeAttempt(FILES, true);
+    policy.beforeAttempt(FILES, true);
+    assertThat(policy.getRetryBudgetBalance()).isZero();
+    policy.beforeAttempt(FILES, false);
+    policy.beforeAttempt(FILES, false);
+    assertThat(policy.allowRetry()).isTrue();
+  }
+
+  @Test
+  public void delayIsJitteredBetweenBaseAndThreeTimesPrevious() {
+    ResiliencePolicy policy = new ResiliencePolicy();
+    long previous = 0;
+    for (int i = 0; i < 1000; i++) {
+      long delay = policy.getDelayMillis(previous);
+      assertThat(delay).isBetween(300L, Math.max(300L, previous) * 3);
+      // capped like the executors cap it
+      previous = Math.min(delay, 20000);
+    }
+  }
+
+  @Test
+  public void delayDoesNotOverflow() {
+    ResiliencePolicy policy = new ResiliencePolicy();
+    assertThat(policy.getDelayMillis(Long.MAX_VALUE)).isGreaterThanOrEqualTo(300L);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.http.support;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class RetryBudgetTest {
+
+  @Test
+  public void startsWithFullBalance() {
+    RetryBudget budget = new RetryBudget(0.2, 5);
+    // deposits of 100 requests and 10 seconds of the minimum
+    assertThat(budget.getBalance()).isCloseTo(70, offset(0.1));
+  }
+
+  @Test
+  public void retriesAreLimitedByBalance() {
+    RetryBudget budget = new RetryBudget(0.5, 0);
+    for (int i = 0; i < 50; i++) {
+      assertThat(budget.tryWithdraw()).isTrue();
+    }
+    assertThat(budget.tryWithdraw()).isFalse();
+  }
+
+  @Test
+  public void requestsDepositRatio() {
+    RetryBudget budget = new RetryBudget(0.5, 0);
+    while (budget.tryWithdraw()) {
+      // drain
+    }
+
+    budget.deposit();
+    assertThat(budget.tryWithdraw()).isFalse();
+    budget.deposit();
+    assertThat(budget.tryWithdraw()).isTrue();
+    assertThat(budget.tryWithdraw()).isFalse();
+  }
+
+  @Test
+  public void balanceIsCapped() {
+    RetryBudget budget = new RetryBudget(0.5, 0);
+    for (int i = 0; i < 1000; i++) {
+      budget.deposit();
+    }
+    assertThat(budget.getBalance()).isCloseTo(50, offset(0.001));
+  }
+
+  @Test
+  public void minimumRetriesRefillOverTime() throws InterruptedException {
+    RetryBudget budget = new RetryBudget(0, 20);
+    while (budget.tryWithdraw()) {
+      // drain
+    }
+
+    Thread.sleep(120);
+    assertThat(budget.tryWithdraw()).isTrue();
+    assertThat(budget.tryWithdraw()).isTrue();
+  }
+
+  @Test
+  public void zeroBudgetStillAllowsOneRetry() {
+    RetryBudget budget = new RetryBudget(0, 0);
+    assertThat(budget.tryWithdraw()).isTrue();
+    assertThat(budget.tryWithdraw()).isFalse();
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DownloadJournalTest {
+
+  private static final long FILE_SIZE = 10 * 1024 + 1;
+  private static final long PART_SIZE = 1024;
+  private static final String MD5 = "5d41402abc4b2a76b9719d911017c592";
+
+  private Path dir;
+  private Path destination;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("download-journal");
+    destination = dir.resolve("data.bin");
+    // the download gives the destination its full length before writing parts
+    try (RandomAccessFile raf = new RandomAccessFile(destination.toFile(), "rw")) {
+      raf.setLength(FILE_SIZE);
+    }
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    for (File child : dir.toFile().listFiles()) {
+      Files.delete(child.toPath());
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void newJournalHasNoFinishedParts() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      assertThat(journal.getPartsNumber()).isEqualTo(11);
+      assertThat(journal.getFinishedPartsCount()).isZero();
+      assertThat(journal.getETag()).isNull();
+      assertThat(journal.getMd5()).isNull();
+    }
+    assertThat(DownloadJournal.getJournalPath(destination)).exists();
+  }
+
+  @Test
+  public void reopenedJournalRecoversFinishedPartsAndPartSize() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.markFinished(1);
+      journal.markFinished(9);
+      journal.markFinished(11);
+      journal.checkETag("\"etag-1\"");
+    }
+
+    try (DownloadJournal journal = DownloadJournal.openOrCreate(destination, FILE_SIZE, 4 * PART_SIZE)) {
+      assertThat(journal.getPartSize()).isEqualTo(PART_SIZE);
+      assertThat(journal.getFinishedPartsCount()).isEqualTo(3);
+      assertThat(journal.isFinished(1)).isTrue();
+      assertThat(journal.isFinished(2)).isFalse();
+      assertThat(journal.isFinished(9)).isTrue();
+      assertThat(journal.isFinished(11)).isTrue();
+      assertThat(journal.getETag()).isEqualTo("\"etag-1\"");
+    }
+  }
+
+  @Test
+  public void journalOfAnotherFileIsReplaced() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.markFinished(1);
+    }
+
+    try (DownloadJournal journal = DownloadJournal.openOrCreate(destination, FILE_SIZE + 1, 4 * PART_SIZE)) {
+      assertThat(journal.getPartSize()).isEqualTo(4 * PART_SIZE);
+      assertThat(journal.getFinishedPartsCount()).isZero();
+    }
+  }
+
+  @Test
+  public void journalWithoutDestinationIsReplaced() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.markFinished(1);
+    }
+    Files.delete(destination);
+
+    try (DownloadJournal journal = DownloadJournal.openOrCreate(destination, FILE_SIZE, PART_SIZE)) {
+      assertThat(journal.getFinishedPartsCount()).isZero();
+    }
+  }
+
+  @Test
+  public void journalOfTruncatedDestinationIsReplaced() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.markFinished(1);
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(destination.toFile(), "rw")) {
+      raf.setLength(PART_SIZE);
+    }
+
+    try (DownloadJournal journal = DownloadJournal.openOrCreate(destination, FILE_SIZE, PART_SIZE)) {
+      assertThat(journal.getFinishedPartsCount()).isZero();
+    }
+  }
+
+  @Test
+  public void corruptedJournalIsReplaced() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.markFinished(1);
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(DownloadJournal.getJournalPath(destination).toFile(), "rw")) {
+      raf.writeInt(0);
+    }
+
+    try (DownloadJournal journal = DownloadJournal.openOrCreate(destination, FILE_SIZE, PART_SIZE)) {
+      assertThat(journal.getFinishedPartsCount()).isZero();
+    }
+  }
+
+  @Test
+  public void truncatedJournalIsReplaced() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.markFinished(1);
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(DownloadJournal.getJournalPath(destination).toFile(), "rw")) {
+      raf.setLength(raf.length() - 1);
+    }
+
+    try (DownloadJournal journal = DownloadJournal.openOrCreate(destination, FILE_SIZE, PART_SIZE)) {
+      assertThat(journal.getFinishedPartsCount()).isZero();
+    }
+  }
+
+  @Test
+  public void changedETagIsDetected() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      assertThat(journal.checkETag(null)).isTrue();
+      assertThat(journal.checkETag("\"etag-1\"")).isTrue();
+      assertThat(journal.checkETag("\"etag-1\"")).isTrue();
+      assertThat(journal.checkETag("\"etag-2\"")).isFalse();
+      assertThat(journal.getMd5()).isNull();
+    }
+  }
+
+  @Test
+  public void md5ETagIsRecordedAsMd5() throws IOException {
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.checkETag(MD5);
+    }
+    try (DownloadJournal journal = DownloadJournal.openOrCreate(destination, FILE_SIZE, PART_SIZE)) {
+      assertThat(journal.getMd5()).isEqualTo(MD5);
+    }
+  }
+
+  @Test
+  public void deleteRemovesJournal() throws IOException {
+    DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE);
+    journal.delete();
+    assertThat(DownloadJournal.getJournalPath(destination)).doesNotExist();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalHashCacheTest {
+
+  private static final String HELLO_MD5 = "5d41402abc4b2a76b9719d911017c592";
+  private static final String WORLD_MD5 = "7d793037a0760186574b0282f2f435e7";
+
+  private Path dir;
+  private File file;
+  private Path cacheFile;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("hash-cache");
+    file = dir.resolve("data.txt").toFile();
+    cacheFile = dir.resolve("hashes");
+    write("hello", 1500000000000L);
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    for (File child : dir.toFile().listFiles()) {
+      Files.delete(child.toPath());
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void computesMD5OfWholeFile() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      assertThat(LocalHashCache.computeMD5(raf)).isEqualTo(HELLO_MD5);
+    }
+  }
+
+  @Test
+  public void returnsCachedMD5OfUnchangedFile() throws IOException {
+    LocalHashCache cache = new LocalHashCache(null);
+    assertThat(cache.getMD5(file)).isEqualTo(HELLO_MD5);
+
+    // same size and modification time, so the file is not hashed again
+    write("world", 1500000000000L);
+    assertThat(cache.getMD5(file)).isEqualTo(HELLO_MD5);
+  }
+
+  @Test
+  public void rehashesModifiedFile() throws IOException {
+    LocalHashCache cache = new LocalHashCache(null);
+    assertThat(cache.getMD5(file)).isEqualTo(HELLO_MD5);
+
+    write("world", 1500000001000L);
+    assertThat(cache.getMD5(file)).isEqualTo(WORLD_MD5);
+  }
+
+  @Test
+  public void appendsToAndLoadsFromCacheFile() throws IOException {
+    assertThat(new LocalHashCache(cacheFile).getMD5(file)).isEqualTo(HELLO_MD5);
+    List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+    assertThat(lines).containsExactly(
+        HELLO_MD5 + " 5 1500000000000 " + file.getCanonicalPath());
+
+    write("world", 1500000000000L);
+    assertThat(new LocalHashCache(cacheFile).getMD5(file)).isEqualTo(HELLO_MD5);
+  }
+
+  @Test
+  public void laterLinesReplaceEarlierAndBrokenLinesAreSkipped() throws IOException {
+    String path = file.getCanonicalPath();
+    String content = "00000000000000000000000000000000 5 1500000000000 " + path + "\n"
+        + WORLD_MD5 + " 5 1500000000000 " + path + "\n"
+        + HELLO_MD5 + " 5 15000x " + path + "\n"
+        + HELLO_MD5 + " 5";
+    Files.write(cacheFile, content.getBytes(StandardCharsets.UTF_8));
+
+    write("hello", 1500000000000L);
+    assertThat(new LocalHashCache(cacheFile).getMD5(file)).isEqualTo(WORLD_MD5);
+  }
+
+  private void write(String content, long modified) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    assertThat(file.setLastModified(modified)).isTrue();
+  }
+}
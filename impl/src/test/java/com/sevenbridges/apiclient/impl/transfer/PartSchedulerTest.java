@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.upload.UploadPriority;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartSchedulerTest {
+
+  @Test
+  public void grantsPermitsUpToLimit() {
+    PartScheduler scheduler = new PartScheduler(2);
+    TestUpload upload = new TestUpload(UploadFlow.DEFAULT);
+
+    assertThat(scheduler.tryAcquire(upload)).isTrue();
+    assertThat(scheduler.tryAcquire(upload)).isTrue();
+    assertThat(scheduler.tryAcquire(upload)).isFalse();
+    assertThat(scheduler.getInFlightParts()).isEqualTo(2);
+  }
+
+  @Test
+  public void releasedPermitIsReservedForWaitingUpload() {
+    PartScheduler scheduler = new PartScheduler(1);
+    TestUpload first = new TestUpload(UploadFlow.DEFAULT);
+    TestUpload waiting = new TestUpload(UploadFlow.DEFAULT);
+    TestUpload late = new TestUpload(UploadFlow.DEFAULT);
+    scheduler.tryAcquire(first);
+    assertThat(scheduler.tryAcquire(waiting)).isFalse();
+    // queued once, however many times it asks
+    assertThat(scheduler.tryAcquire(waiting)).isFalse();
+
+    scheduler.release(1);
+    assertThat(waiting.wakeUps).isEqualTo(1);
+    assertThat(scheduler.getInFlightParts()).isEqualTo(1);
+    assertThat(scheduler.tryAcquire(late)).isFalse();
+    assertThat(scheduler.tryAcquire(waiting)).isTrue();
+    assertThat(scheduler.tryAcquire(waiting)).isFalse();
+  }
+
+  @Test
+  public void removedUploadGivesBackReservedPermit() {
+    PartScheduler scheduler = new PartScheduler(1);
+    TestUpload first = new TestUpload(UploadFlow.DEFAULT);
+    TestUpload cancelled = new TestUpload(UploadFlow.DEFAULT);
+    TestUpload next = new TestUpload(UploadFlow.DEFAULT);
+    scheduler.tryAcquire(first);
+    scheduler.tryAcquire(cancelled);
+    scheduler.tryAcquire(next);
+
+    scheduler.release(1);
+    assertThat(cancelled.wakeUps).isEqualTo(1);
+    scheduler.remove(cancelled);
+    assertThat(next.wakeUps).isEqualTo(1);
+    assertThat(scheduler.tryAcquire(next)).isTrue();
+    assertThat(scheduler.getInFlightParts()).isEqualTo(1);
+  }
+
+  @Test
+  public void removingUnknownUploadChangesNothing() {
+    PartScheduler scheduler = new PartScheduler(1);
+    scheduler.remove(new TestUpload(UploadFlow.DEFAULT));
+    assertThat(scheduler.getInFlightParts()).isZero();
+  }
+
+  @Test
+  public void uploadsOfOneFlowTakeTurns() {
+    PartScheduler scheduler = new PartScheduler(1);
+    TestUpload a = new TestUpload(UploadFlow.DEFAULT);
+    TestUpload b = new TestUpload(UploadFlow.DEFAULT);
+
+    List<TestUpload> served = serve(scheduler, 6, a, b);
+    assertThat(served).containsExactly(a, b, a, b, a, b);
+  }
+
+  @Test
+  public void flowsAreServedByWeight() {
+    PartScheduler scheduler = new PartScheduler(1);
+    TestUpload interactive = new TestUpload(new UploadFlow(UploadPriority.INTERACTIVE, null));
+    TestUpload bulk = new TestUpload(new UploadFlow(UploadPriority.BULK, null));
+
+    serve(scheduler, 170, interactive, bulk);
+    assertThat(interactive.served).isBetween(158, 162);
+    assertThat(bulk.served).isBetween(8, 12);
+  }
+
+  @Test
+  public void tenantsShareByFlowNotByUploadCount() {
+    PartScheduler scheduler = new PartScheduler(1);
+    TestUpload[] uploads = new TestUpload[5];
+    for (int i = 0; i < 4; i++) {
+      uploads[i] = new TestUpload(new UploadFlow(UploadPriority.NORMAL, "many"));
+    }
+    TestUpload single = new TestUpload(new UploadFlow(UploadPriority.NORMAL, "one"));
+    uploads[4] = single;
+
+    serve(scheduler, 100, uploads);
+    assertThat(single.served).isEqualTo(50);
+  }
+
+  /**
+   * Lets the uploads compete for the only permit, each served upload sends one part and asks for
+   * the next one.
+   */
+  private static List<TestUpload> serve(PartScheduler scheduler, int parts, TestUpload... uploads) {
+    TestUpload holder = new TestUpload(UploadFlow.DEFAULT);
+    assertThat(scheduler.tryAcquire(holder)).isTrue();
+    for (TestUpload upload : uploads) {
+      assertThat(scheduler.tryAcquire(upload)).isFalse();
+    }
+    List<TestUpload> served = new ArrayList<>();
+    for (int i = 0; i < parts; i++) {
+      scheduler.release(1);
+      TestUpload woken = null;
+      for (TestUpload upload : uploads) {
+        if (upload.wakeUps > 0) {
+          assertThat(woken).isNull();
+          woken = upload;
+        }
+      }
+      assertThat(woken).isNotNull();
+      woken.wakeUps = 0;
+      woken.served++;
+      served.add(woken);
+      assertThat(scheduler.tryAcquire(woken)).isTrue();
+      assertThat(scheduler.tryAcquire(woken)).isFalse();
+    }
+    return served;
+  }
+
+  private static class TestUpload extends AbstractUploadTask {
+
+    private int wakeUps;
+    private int served;
+
+    TestUpload(UploadFlow flow) {
+      super(null, flow);
+    }
+
+    @Override
+    void wakeUp() {
+      wakeUps++;
+    }
+
+    @Override
+    void processEvents() {
+    }
+  }
+}
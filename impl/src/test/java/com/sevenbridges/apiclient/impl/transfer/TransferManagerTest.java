@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.DownloadInfo;
+import com.sevenbridges.apiclient.file.File;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferManagerTest {
+
+  private static final long PART_SIZE = 1024;
+  // eleven parts, the last one a single byte
+  private static final int FILE_SIZE = 10 * 1024 + 1;
+
+  private HttpServer storage;
+  private List<String> requestedRanges;
+  private byte[] content;
+  private Path dir;
+  private Path destination;
+  private TransferManager manager;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    content = new byte[FILE_SIZE];
+    new Random(42).nextBytes(content);
+    requestedRanges = Collections.synchronizedList(new ArrayList<String>());
+    storage = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    storage.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        requestedRanges.add(range);
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        int from = Integer.parseInt(bounds[0]);
+        int to = Integer.parseInt(bounds[1]);
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + FILE_SIZE);
+        exchange.getResponseHeaders().add("ETag", "\"etag-1\"");
+        exchange.sendResponseHeaders(206, to - from + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(content, from, to - from + 1);
+        }
+      }
+    });
+    storage.start();
+
+    dir = Files.createTempDirectory("transfer-manager");
+    destination = dir.resolve("data.bin");
+    manager = new TransferManager(new TransferManagerConfiguration().setDownloadPartSize(PART_SIZE));
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    manager.stopService();
+    storage.stop(0);
+    for (java.io.File child : dir.toFile().listFiles()) {
+      Files.delete(child.toPath());
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void resumedDownloadSkipsFinishedParts() throws Exception {
+    try (RandomAccessFile raf = new RandomAccessFile(destination.toFile(), "rw")) {
+      raf.setLength(FILE_SIZE);
+      raf.write(content, 0, (int) PART_SIZE);
+    }
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      journal.markFinished(1);
+      journal.checkETag("etag-1");
+    }
+
+    download();
+
+    assertThat(requestedRanges).hasSize(10).doesNotContain("bytes=0-1023");
+    assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+    assertThat(DownloadJournal.getJournalPath(destination)).doesNotExist();
+  }
+
+  @Test
+  public void resumedDownloadOfDeletedDestinationStartsOver() throws Exception {
+    finishAllParts();
+    Files.delete(destination);
+
+    download();
+
+    assertThat(requestedRanges).hasSize(11);
+    assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+  }
+
+  @Test
+  public void resumedDownloadOfTruncatedDestinationStartsOver() throws Exception {
+    finishAllParts();
+    try (RandomAccessFile raf = new RandomAccessFile(destination.toFile(), "rw")) {
+      raf.setLength(PART_SIZE);
+    }
+
+    download();
+
+    assertThat(requestedRanges).hasSize(11);
+    assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+  }
+
+  /**
+   * Leaves a journal with every part finished, as an interrupted download right before completion.
+   */
+  private void finishAllParts() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(destination.toFile(), "rw")) {
+      raf.write(content);
+    }
+    try (DownloadJournal journal = DownloadJournal.create(destination, FILE_SIZE, PART_SIZE)) {
+      for (int i = 1; i <= journal.getPartsNumber(); i++) {
+        journal.markFinished(i);
+      }
+      journal.checkETag("etag-1");
+    }
+  }
+
+  /**
+   * Resumes the download to the destination the way DefaultUser does, opening the destination first.
+   */
+  private void download() throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(destination.toFile(), "rw");
+    DefaultDownloadContext context = manager.download(platformFile(), destination, raf, true,
+        NoopProgressListener.getInstance());
+    assertThat(context.getFile(10, TimeUnit.SECONDS)).isEqualTo(destination);
+  }
+
+  private File platformFile() {
+    final DownloadInfo downloadInfo = stub(DownloadInfo.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("getUrl")) {
+          return "http://127.0.0.1:" + storage.getAddress().getPort() + "/data.bin";
+        }
+        throw new UnsupportedOperationException(method.getName());
+      }
+    });
+    return stub(File.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "getSize":
+            return (long) FILE_SIZE;
+          case "getId":
+            return "file-id";
+          case "getName":
+            return "data.bin";
+          case "getDownloadInfo":
+            return downloadInfo;
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      }
+    });
+  }
+
+  private static <T> T stub(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(TransferManagerTest.class.getClassLoader(), new Class<?>[]{type}, handler));
+  }
+}
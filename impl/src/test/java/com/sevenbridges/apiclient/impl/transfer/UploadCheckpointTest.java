@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class UploadCheckpointTest {
+
+  private static final String UPLOAD_ID = "upload-1";
+  private static final long FILE_SIZE = 3 * 1024;
+  private static final long PART_SIZE = 1024;
+
+  private Path dir;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("upload-checkpoint");
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    for (File child : dir.toFile().listFiles()) {
+      Files.delete(child.toPath());
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void newCheckpointIsEmpty() throws IOException {
+    assertThat(UploadCheckpoint.exists(dir, UPLOAD_ID)).isFalse();
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      assertThat(checkpoint.getRecordedPartsCount()).isZero();
+      assertThat(checkpoint.getRecordedParts()).isEmpty();
+    }
+    assertThat(UploadCheckpoint.exists(dir, UPLOAD_ID)).isTrue();
+  }
+
+  @Test
+  public void reopenedCheckpointRecoversPartsAndReportedFlags() throws IOException {
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      checkpoint.append(2, "\"etag-2\"", false);
+      checkpoint.append(1, "\"etag-1\"", true);
+      checkpoint.append(3, "\"etag-3\"", false);
+      checkpoint.markReported(3);
+    }
+
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      assertThat(checkpoint.getRecordedPartsCount()).isEqualTo(3);
+      assertThat(checkpoint.getRecordedParts()).containsExactly(
+          entry(2, "\"etag-2\""), entry(1, "\"etag-1\""), entry(3, "\"etag-3\""));
+      assertThat(checkpoint.getUnreportedParts()).containsExactly(2);
+    }
+  }
+
+  @Test
+  public void recordedPartIsNotAppendedAgain() throws IOException {
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      checkpoint.append(1, "\"etag-1\"", false);
+      checkpoint.append(1, "\"etag-other\"", true);
+      assertThat(checkpoint.getRecordedParts()).containsExactly(entry(1, "\"etag-1\""));
+      assertThat(checkpoint.getUnreportedParts()).containsExactly(1);
+    }
+  }
+
+  @Test
+  public void partWithTooLongETagIsNotRecorded() throws IOException {
+    StringBuilder eTag = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      eTag.append('e');
+    }
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      checkpoint.append(1, eTag.toString(), false);
+      assertThat(checkpoint.getRecordedPartsCount()).isZero();
+    }
+  }
+
+  @Test
+  public void incompleteRecordIsNotRecovered() throws IOException {
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      checkpoint.append(1, "\"etag-1\"", false);
+    }
+    // the second record got its ETag written, but not its part number
+    try (RandomAccessFile raf = new RandomAccessFile(UploadCheckpoint.getCheckpointPath(dir, UPLOAD_ID).toFile(), "rw")) {
+      raf.seek(32 + 128 + 5);
+      raf.write(1);
+      raf.write('e');
+    }
+
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      assertThat(checkpoint.getRecordedParts()).containsExactly(entry(1, "\"etag-1\""));
+      checkpoint.append(2, "\"etag-2\"", false);
+    }
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      assertThat(checkpoint.getRecordedParts()).containsExactly(entry(1, "\"etag-1\""), entry(2, "\"etag-2\""));
+    }
+  }
+
+  @Test
+  public void checkpointOfAnotherFileIsReplaced() throws IOException {
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE)) {
+      checkpoint.append(1, "\"etag-1\"", true);
+    }
+
+    try (UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE / 2)) {
+      assertThat(checkpoint.getRecordedPartsCount()).isZero();
+    }
+  }
+
+  @Test
+  public void deleteRemovesCheckpoint() throws IOException {
+    UploadCheckpoint checkpoint = UploadCheckpoint.open(dir, UPLOAD_ID, FILE_SIZE, PART_SIZE);
+    checkpoint.delete();
+    assertThat(UploadCheckpoint.exists(dir, UPLOAD_ID)).isFalse();
+  }
+}
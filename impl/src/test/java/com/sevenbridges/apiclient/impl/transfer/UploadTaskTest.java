@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer;
+
+import com.sevenbridges.apiclient.file.File;
+import com.sevenbridges.apiclient.impl.transfer.http.HttpAsyncClientPool;
+import com.sevenbridges.apiclient.transfer.ProgressListener;
+import com.sevenbridges.apiclient.transfer.UploadState;
+import com.sevenbridges.apiclient.upload.PartUpload;
+import com.sevenbridges.apiclient.upload.Upload;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class UploadTaskTest {
+
+  private static final long PART_SIZE = 4;
+  // three parts, the last one shorter
+  private static final int FILE_SIZE = 10;
+
+  private HttpServer storage;
+  private Map<String, AtomicInteger> attempts;
+  private Map<String, Integer> failures;
+  private HttpAsyncClientPool clientPool;
+  private ExecutorService eventExecutor;
+  private ExecutorService apiExecutor;
+  private ScheduledExecutorService monitorScheduler;
+  private java.io.File file;
+  private RandomAccessFile raf;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    attempts = new ConcurrentHashMap<>();
+    failures = new ConcurrentHashMap<>();
+    storage = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    storage.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        attempts.putIfAbsent(path, new AtomicInteger());
+        int attempt = attempts.get(path).incrementAndGet();
+        InputStream body = exchange.getRequestBody();
+        while (body.read() >= 0) {
+          // drain the part content
+        }
+        Integer failing = failures.get(path);
+        if (failing != null && attempt <= failing) {
+          exchange.sendResponseHeaders(500, -1);
+        } else {
+          exchange.getResponseHeaders().add("ETag", "\"etag" + path + "\"");
+          exchange.sendResponseHeaders(200, -1);
+        }
+        exchange.close();
+      }
+    });
+    storage.start();
+    clientPool = new HttpAsyncClientPool(1, 5000, 5000, 0, 0, 10, 10, 0);
+    eventExecutor = Executors.newSingleThreadExecutor();
+    apiExecutor = Executors.newCachedThreadPool();
+    monitorScheduler = Executors.newSingleThreadScheduledExecutor();
+    file = java.io.File.createTempFile("upload-task", ".bin");
+    raf = new RandomAccessFile(file, "rw");
+    raf.setLength(FILE_SIZE);
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    clientPool.close();
+    storage.stop(0);
+    eventExecutor.shutdownNow();
+    apiExecutor.shutdownNow();
+    monitorScheduler.shutdownNow();
+    raf.close();
+    assertThat(file.delete()).isTrue();
+  }
+
+  @Test
+  public void failedPartIsRetriedWithFreshUrl() throws Exception {
+    failures.put("/part2", 1);
+    RecordingUpload upload = new RecordingUpload();
+    RecordingListener listener = new RecordingListener();
+    DefaultUploadContext context = new DefaultUploadContext(upload.proxy(), raf, null, listener, null);
+    PartScheduler scheduler = new PartScheduler(10);
+
+    UploadTask task = newTask(context, scheduler, 3);
+    task.start();
+
+    assertThat(task.getFileFuture().get(10, TimeUnit.SECONDS)).isSameAs(upload.completedFile);
+    assertThat(attempts.get("/part1").get()).isEqualTo(1);
+    assertThat(attempts.get("/part2").get()).isEqualTo(2);
+    assertThat(attempts.get("/part3").get()).isEqualTo(1);
+    assertThat(context.getState()).isEqualTo(UploadState.FINISHED);
+    assertThat(scheduler.getInFlightParts()).isZero();
+    // the failed attempt had all the retries, the next one has one less
+    assertThat(listener.events).contains("partUploadFailed 2 3", "partUploadFinished 1 4",
+        "partUploadFinished 2 4", "partUploadFinished 3 2", "uploadFinished");
+    assertThat(Collections.frequency(upload.calls, "getPartUpload 2")).isEqualTo(2);
+    assertThat(upload.calls).contains("reportUploadedPart 1", "reportUploadedPart 2", "reportUploadedPart 3",
+        "completeUpload");
+    assertThat(upload.calls).doesNotContain("abortUpload");
+  }
+
+  @Test
+  public void partFailingBeyondRetriesAbortsUpload() throws Exception {
+    failures.put("/part2", Integer.MAX_VALUE);
+    RecordingUpload upload = new RecordingUpload();
+    RecordingListener listener = new RecordingListener();
+    DefaultUploadContext context = new DefaultUploadContext(upload.proxy(), raf, null, listener, null);
+    PartScheduler scheduler = new PartScheduler(10);
+
+    UploadTask task = newTask(context, scheduler, 2);
+    task.start();
+
+    try {
+      task.getFileFuture().get(10, TimeUnit.SECONDS);
+      fail("upload should fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).hasMessage("Upload is aborted due to errors in execution");
+      assertThat(e.getCause().getCause().getMessage()).contains("part 2 failed beyond retry");
+    }
+    assertThat(attempts.get("/part2").get()).isEqualTo(2);
+    assertThat(context.getState()).isEqualTo(UploadState.ABORTED);
+    assertThat(scheduler.getInFlightParts()).isZero();
+    assertThat(listener.events).contains("partUploadFailed 2 2", "partUploadFailed 2 1", "uploadFailed");
+    assertThat(listener.events).doesNotContain("partUploadFinished 2 4", "uploadFinished");
+    assertThat(upload.calls).contains("abortUpload");
+    assertThat(upload.calls).doesNotContain("completeUpload");
+  }
+
+  @Test
+  public void partWithoutRetriesFailsOnFirstError() throws Exception {
+    failures.put("/part1", 1);
+    RecordingUpload upload = new RecordingUpload();
+    RecordingListener listener = new RecordingListener();
+    DefaultUploadContext context = new DefaultUploadContext(upload.proxy(), raf, null, listener, null);
+
+    UploadTask task = newTask(context, new PartScheduler(10), 1);
+    task.start();
+
+    try {
+      task.getFileFuture().get(10, TimeUnit.SECONDS);
+      fail("upload should fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause().getCause().getMessage()).contains("part 1 failed beyond retry");
+    }
+    assertThat(attempts.get("/part1").get()).isEqualTo(1);
+    assertThat(listener.events).contains("partUploadFailed 1 1");
+    assertThat(listener.events).doesNotContain("partUploadFinished 1 4");
+    assertThat(upload.calls).contains("abortUpload");
+  }
+
+  private UploadTask newTask(DefaultUploadContext context, PartScheduler scheduler, int maxPartRetry) {
+    UploadLivenessMonitor livenessMonitor = new UploadLivenessMonitor(monitorScheduler, TimeUnit.MINUTES.toMillis(1));
+    return new UploadTask(clientPool, null, context, eventExecutor, apiExecutor, null,
+        livenessMonitor, scheduler, maxPartRetry, 2, 3, null, null, null);
+  }
+
+  private static <T> T stub(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(UploadTaskTest.class.getClassLoader(), new Class<?>[]{type}, handler));
+  }
+
+  /**
+   * Upload resource served by the storage stub, records the API calls made by the task.
+   */
+  private class RecordingUpload implements InvocationHandler {
+
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+    private final File completedFile = stub(File.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return null;
+      }
+    });
+
+    Upload proxy() {
+      return stub(Upload.class, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "getUploadId":
+          return "upload-id";
+        case "getPartSize":
+          return PART_SIZE;
+        case "getUploadedPartsCount":
+          return 0L;
+        case "getPartUpload":
+          calls.add("getPartUpload " + args[0]);
+          return partUpload((Integer) args[0]);
+        case "reportUploadedPart":
+          calls.add("reportUploadedPart " + args[0]);
+          return null;
+        case "completeUpload":
+          calls.add("completeUpload");
+          return completedFile;
+        case "abortUpload":
+          calls.add("abortUpload");
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+
+    private PartUpload partUpload(final int partNumber) {
+      return stub(PartUpload.class, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          if ("getUrl".equals(method.getName())) {
+            return "http://127.0.0.1:" + storage.getAddress().getPort() + "/part" + partNumber;
+          }
+          return null;
+        }
+      });
+    }
+  }
+
+  private static class RecordingListener implements ProgressListener {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public void uploadStarted() {
+      events.add("uploadStarted");
+    }
+
+    @Override
+    public void uploadFailed(Exception ex) {
+      events.add("uploadFailed");
+    }
+
+    @Override
+    public void uploadFinished() {
+      events.add("uploadFinished");
+    }
+
+    @Override
+    public void partUploadStarted(int partNumber) {
+      events.add("partUploadStarted " + partNumber);
+    }
+
+    @Override
+    public void partUploadFinished(int partNumber, long partSize) {
+      events.add("partUploadFinished " + partNumber + " " + partSize);
+    }
+
+    @Override
+    public void partUploadFailed(int partNumber, int retryCnt, Exception executionException) {
+      events.add("partUploadFailed " + partNumber + " " + retryCnt);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.bandwidth;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+  private static final long RATE = 1000 * 1000;
+  // a full bucket holds 100 milliseconds of the rate
+  private static final long CAPACITY = RATE / 10;
+
+  @Test
+  public void unlimitedBucketGrantsAll() {
+    TokenBucket bucket = new TokenBucket(0);
+    assertThat(bucket.isUnlimited()).isTrue();
+    assertThat(bucket.tryAcquire(Long.MAX_VALUE, 1)).isEqualTo(Long.MAX_VALUE);
+    assertThat(bucket.nanosUntilAvailable(Long.MAX_VALUE)).isZero();
+  }
+
+  @Test
+  public void fullBucketGrantsItsCapacity() {
+    ManualBucket bucket = new ManualBucket(RATE);
+    assertThat(bucket.tryAcquire(10 * RATE, 1)).isBetween(CAPACITY - 1, CAPACITY + 1);
+    assertThat(bucket.tryAcquire(10 * RATE, 1)).isZero();
+  }
+
+  @Test
+  public void grantsNothingBelowMinimum() {
+    ManualBucket bucket = new ManualBucket(RATE);
+    bucket.tryAcquire(10 * RATE, 1);
+
+    assertThat(bucket.tryAcquire(CAPACITY, CAPACITY / 2)).isZero();
+    long wait = bucket.nanosUntilAvailable(CAPACITY / 2);
+    long halfCapacityNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    assertThat(wait).isBetween(halfCapacityNanos - 1000, halfCapacityNanos + 1000);
+
+    bucket.advance(wait);
+    assertThat(bucket.tryAcquire(CAPACITY, CAPACITY / 2)).isBetween(CAPACITY / 2 - 1, CAPACITY / 2 + 1);
+  }
+
+  @Test
+  public void refundedBytesCanBeAcquiredAgain() {
+    ManualBucket bucket = new ManualBucket(RATE);
+    bucket.tryAcquire(10 * RATE, 1);
+
+    bucket.refund(CAPACITY / 2);
+    assertThat(bucket.tryAcquire(CAPACITY, 1)).isBetween(CAPACITY / 2 - 1, CAPACITY / 2 + 1);
+  }
+
+  @Test
+  public void minimumIsLoweredToCapacityAtLowRates() {
+    ManualBucket bucket = new ManualBucket(100);
+    assertThat(bucket.tryAcquire(1000, 500)).isEqualTo(10);
+  }
+
+  @Test
+  public void refillsAtRate() {
+    ManualBucket bucket = new ManualBucket(RATE);
+    bucket.tryAcquire(10 * RATE, 1);
+
+    bucket.advance(TimeUnit.MILLISECONDS.toNanos(50));
+    assertThat(bucket.tryAcquire(10 * RATE, 1)).isBetween(RATE / 20 - 1, RATE / 20 + 1);
+    // refill stops at the capacity
+    bucket.advance(TimeUnit.SECONDS.toNanos(1));
+    assertThat(bucket.tryAcquire(10 * RATE, 1)).isBetween(CAPACITY - 1, CAPACITY + 1);
+  }
+
+  @Test
+  public void rateChangeRemovesLimit() {
+    ManualBucket bucket = new ManualBucket(RATE);
+    bucket.tryAcquire(10 * RATE, 1);
+
+    bucket.setRate(0);
+    assertThat(bucket.isUnlimited()).isTrue();
+    assertThat(bucket.tryAcquire(10 * RATE, 1)).isEqualTo(10 * RATE);
+  }
+
+  /**
+   * Bucket driven by a clock that moves only when the test advances it.
+   */
+  private static class ManualBucket extends TokenBucket {
+
+    // starts at zero, also when read by the constructor of the bucket
+    private long now;
+
+    ManualBucket(long rate) {
+      super(rate);
+    }
+
+    void advance(long nanos) {
+      now += nanos;
+    }
+
+    @Override
+    long nanoTime() {
+      return now;
+    }
+  }
+}
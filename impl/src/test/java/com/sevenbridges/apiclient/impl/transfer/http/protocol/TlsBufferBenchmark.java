@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Seven Bridges Genomics, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sevenbridges.apiclient.impl.transfer.http.protocol;
+
+import com.sevenbridges.apiclient.impl.transfer.atomic.StripedLongAdder;
+import org.apache.http.HttpException;
+import org.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.apache.http.impl.nio.codecs.LengthDelimitedEncoder;
+import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.KeyStore;
+import java.util.Random;
+
+/**
+ * Measures how fast one core sends an upload part over TLS, through the pooled direct buffer of
+ * https part URLs against the transferTo path used for plain http. The part is written by the real
+ * content encoder into an in-memory {@link SSLEngine}, so the numbers include encryption, but no
+ * network.
+ * <p>
+ * Run from the project root:
+ * <pre>
+ * mvn -pl impl -am test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * cd impl
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) \
+ *     com.sevenbridges.apiclient.impl.transfer.http.protocol.TlsBufferBenchmark [part MB] [rounds]
+ * </pre>
+ * A self-signed key is generated with the keytool of the running JDK, the scratch file is deleted
+ * on exit. Keep the part small enough to stay in the page cache, the defaults are 512 MB and 8
+ * rounds.
+ */
+public class TlsBufferBenchmark {
+
+  private static final String PASSWORD = "changeit";
+  private static final String CIPHER_SUITE = "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256";
+
+  public static void main(String[] args) throws Exception {
+    long size = (args.length > 0 ? Long.parseLong(args[0]) : 512) * 1024 * 1024;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+    SSLContext sslContext = createSslContext();
+    SSLEngine client = sslContext.createSSLEngine("localhost", 443);
+    client.setUseClientMode(true);
+    client.setEnabledCipherSuites(new String[]{CIPHER_SUITE});
+    SSLEngine server = sslContext.createSSLEngine();
+    server.setUseClientMode(false);
+    handshake(client, server);
+
+    File file = File.createTempFile("tls-benchmark", ".bin");
+    file.deleteOnExit();
+    writeRandom(file, size);
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      FileChannel fileChannel = raf.getChannel();
+      for (int round = 0; round < rounds; round++) {
+        // plain http is sent with transferTo, https through the pooled direct buffer
+        for (String scheme : new String[]{"http", "https"}) {
+          long wallStart = System.nanoTime();
+          long cpuStart = threads.getCurrentThreadCpuTime();
+          long sent = sendPart(client, fileChannel, size, scheme);
+          double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+          double cpuSeconds = (threads.getCurrentThreadCpuTime() - cpuStart) / 1e9;
+          double megabytes = sent / (1024.0 * 1024.0);
+          System.out.printf("round %d %-22s %6.0f MB/s wall %6.0f MB/s per core%n", round,
+              "http".equals(scheme) ? "transferTo" : "pooled direct buffer",
+              megabytes / wallSeconds, megabytes / cpuSeconds);
+        }
+      }
+    }
+  }
+
+  private static long sendPart(SSLEngine client, FileChannel fileChannel, long size, String scheme)
+      throws IOException, HttpException {
+    TlsSessionChannel channel = new TlsSessionChannel(client);
+    SessionOutputBufferImpl sessionBuffer = new SessionOutputBufferImpl(8 * 1024);
+    LengthDelimitedEncoder encoder = new LengthDelimitedEncoder(channel, sessionBuffer,
+        new HttpTransportMetricsImpl(), size);
+    ZeroCopyChannelRangePut put = new ZeroCopyChannelRangePut(scheme + "://localhost/part", fileChannel, 0, size,
+        null, new StripedLongAdder(), 1);
+    try {
+      put.generateRequest();
+      while (!encoder.isCompleted()) {
+        put.produceContent(encoder, null);
+        while (sessionBuffer.hasData()) {
+          sessionBuffer.flush(channel);
+        }
+      }
+    } finally {
+      put.close();
+    }
+    return channel.plainBytes;
+  }
+
+  private static SSLContext createSslContext() throws Exception {
+    File keyStoreFile = File.createTempFile("tls-benchmark", ".jks");
+    keyStoreFile.deleteOnExit();
+    if (!keyStoreFile.delete()) {
+      throw new IOException("Could not prepare " + keyStoreFile);
+    }
+    String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+    Process process = new ProcessBuilder(keytool, "-genkeypair", "-keyalg", "RSA", "-keysize", "2048",
+        "-alias", "benchmark", "-dname", "CN=localhost", "-validity", "1", "-storetype", "JKS",
+        "-keystore", keyStoreFile.getPath(), "-storepass", PASSWORD, "-keypass", PASSWORD)
+        .redirectErrorStream(true)
+        .start();
+    drain(process.getInputStream());
+    if (process.waitFor() != 0) {
+      throw new IOException("keytool failed to generate the benchmark key");
+    }
+
+    KeyStore keyStore = KeyStore.getInstance("JKS");
+    try (InputStream in = new FileInputStream(keyStoreFile)) {
+      keyStore.load(in, PASSWORD.toCharArray());
+    }
+    KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagers.init(keyStore, PASSWORD.toCharArray());
+    TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagers.init(keyStore);
+    SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
+    sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+    return sslContext;
+  }
+
+  private static void writeRandom(File file, long size) throws IOException {
+    byte[] block = new byte[1024 * 1024];
+    new Random(1).nextBytes(block);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      for (long written = 0; written < size; written += block.length) {
+        raf.write(block, 0, (int) Math.min(block.length, size - written));
+      }
+    }
+  }
+
+  private static void drain(InputStream in) throws IOException {
+    byte[] buffer = new byte[1024];
+    while (in.read(buffer) >= 0) {
+      // keytool output is not interesting
+    }
+  }
+
+  private static void handshake(SSLEngine client, SSLEngine server) throws SSLException {
+    ByteBuffer clientApp = ByteBuffer.allocate(client.getSession().getApplicationBufferSize());
+    ByteBuffer serverApp = ByteBuffer.allocate(server.getSession().getApplicationBufferSize());
+    ByteBuffer toServer = ByteBuffer.allocate(client.getSession().getPacketBufferSize() * 4);
+    ByteBuffer toClient = ByteBuffer.allocate(server.getSession().getPacketBufferSize() * 4);
+    ByteBuffer empty = ByteBuffer.allocate(0);
+    client.beginHandshake();
+    server.beginHandshake();
+    for (int i = 0; i < 1000 && !(isHandshaken(client) && isHandshaken(server)); i++) {
+      client.wrap(empty, toServer);
+      runDelegatedTasks(client);
+      server.wrap(empty, toClient);
+      runDelegatedTasks(server);
+      toServer.flip();
+      server.unwrap(toServer, serverApp);
+      toServer.compact();
+      runDelegatedTasks(server);
+      toClient.flip();
+      client.unwrap(toClient, clientApp);
+      toClient.compact();
+      runDelegatedTasks(client);
+    }
+    if (!(isHandshaken(client) && isHandshaken(server))) {
+      throw new SSLException("TLS handshake of the benchmark engines did not finish");
+    }
+  }
+
+  private static boolean isHandshaken(SSLEngine engine) {
+    SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+    return status == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING
+        || status == SSLEngineResult.HandshakeStatus.FINISHED;
+  }
+
+  private static void runDelegatedTasks(SSLEngine engine) {
+    Runnable task;
+    while ((task = engine.getDelegatedTask()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Session channel of a TLS connection, each write encrypts at most one TLS record, and the
+   * encrypted bytes are dropped.
+   */
+  private static class TlsSessionChannel implements WritableByteChannel {
+
+    private final SSLEngine engine;
+    private final ByteBuffer network;
+    private long plainBytes = 0;
+
+    TlsSessionChannel(SSLEngine engine) {
+      this.engine = engine;
+      this.network = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      network.clear();
+      int consumed = engine.wrap(src, network).bytesConsumed();
+      plainBytes += consumed;
+      return consumed;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}